@@ -31,6 +31,7 @@ import com.sun.tools.visualvm.charts.SimpleXYChartDescriptor;
 import com.sun.tools.visualvm.charts.SimpleXYChartSupport;
 import com.sun.tools.visualvm.core.datasupport.DataRemovedListener;
 import com.sun.tools.visualvm.core.options.GlobalPreferences;
+import com.sun.tools.visualvm.core.scheduler.RefreshGovernor;
 import com.sun.tools.visualvm.core.ui.DataSourceView;
 import com.sun.tools.visualvm.core.ui.components.DataViewComponent;
 import com.sun.tools.visualvm.tools.jmx.JmxModel;
@@ -48,6 +49,8 @@ import javax.management.ObjectName;
 import javax.swing.Timer;
 import javax.swing.ImageIcon;
 import javax.swing.JPanel;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 import org.openide.util.ImageUtilities;
 import org.openide.util.NbBundle;
 import org.openide.util.RequestProcessor;
@@ -61,8 +64,10 @@ class BufferMonitorView extends DataSourceView implements DataRemovedListener<Ap
     private static final Logger LOGGER = Logger.getLogger(BufferMonitorView.class.getName());
     
     private Timer timer;
+    private RefreshGovernor.Client governorClient;
     private Application application;
     private boolean refreshRunning;
+    private volatile boolean viewRemoved;
     
     public BufferMonitorView(Application application) {
         super(application, NbBundle.getMessage(BufferMonitorView.class, "Buffer_Pools"), new ImageIcon(ImageUtilities.loadImage(IMAGE_PATH, true)).getImage(), 60, false); // NOI18N
@@ -71,7 +76,9 @@ class BufferMonitorView extends DataSourceView implements DataRemovedListener<Ap
     
     @Override
     protected void removed() {
+        viewRemoved = true;
         timer.stop();
+        RefreshGovernor.sharedInstance().unregister(governorClient);
     }
     
     protected DataViewComponent createComponent() {
@@ -82,15 +89,24 @@ class BufferMonitorView extends DataSourceView implements DataRemovedListener<Ap
         String title = NbBundle.getMessage(BufferMonitorView.class, "LBL_DIRECT");  // NOI18N
         final BufferMonitorViewSupport directBufferViewSupport = new BufferMonitorViewSupport(jmx, title, BufferMonitorViewProvider.DIRECT_BUFFER_NAME);
         dvc.configureDetailsArea(new DataViewComponent.DetailsAreaConfiguration(title, true), DataViewComponent.TOP_LEFT); 
-        dvc.addDetailsView(directBufferViewSupport.getDetailsView(), DataViewComponent.TOP_LEFT);
+        final DataViewComponent.DetailsView directBufferView = directBufferViewSupport.getDetailsView();
+        dvc.addDetailsView(directBufferView, DataViewComponent.TOP_LEFT);
         
         title = NbBundle.getMessage(BufferMonitorView.class, "LBL_MAPPED"); // NOI18N
         final BufferMonitorViewSupport mappedBufferViewSupport = new BufferMonitorViewSupport(jmx, title, BufferMonitorViewProvider.MAPPED_BUFFER_NAME);
         dvc.configureDetailsArea(new DataViewComponent.DetailsAreaConfiguration(title, true), DataViewComponent.TOP_RIGHT); 
-        dvc.addDetailsView(mappedBufferViewSupport.getDetailsView(), DataViewComponent.TOP_RIGHT);
+        final DataViewComponent.DetailsView mappedBufferView = mappedBufferViewSupport.getDetailsView();
+        dvc.addDetailsView(mappedBufferView, DataViewComponent.TOP_RIGHT);
         
         timer = new Timer(GlobalPreferences.sharedInstance().getMonitoredDataPoll() * 1000, new ActionListener() {
             public void actionPerformed(ActionEvent e) {
+                // polling pauses while both views are hidden, resumes when revealed
+                final boolean directShowing = directBufferView.isShowing();
+                final boolean mappedShowing = mappedBufferView.isShowing();
+                if (!directShowing && !mappedShowing) {
+                    timer.stop();
+                    return;
+                }
                 if (refreshRunning) {
                     return;
                 }
@@ -100,8 +116,8 @@ class BufferMonitorView extends DataSourceView implements DataRemovedListener<Ap
                         try {
                             if (application.getState() == Application.STATE_AVAILABLE) {
                                 final long time = System.currentTimeMillis();
-                                directBufferViewSupport.refresh(time);
-                                mappedBufferViewSupport.refresh(time);
+                                if (directShowing) directBufferViewSupport.refresh(time);
+                                if (mappedShowing) mappedBufferViewSupport.refresh(time);
                             }
                         } catch (Exception ex) {
                             LOGGER.throwing(BufferMonitorView.class.getName(), "refresh", ex); // NOI18N
@@ -114,14 +130,25 @@ class BufferMonitorView extends DataSourceView implements DataRemovedListener<Ap
             }
         });
         timer.setInitialDelay(800);
+        ChangeListener visibilityListener = new ChangeListener() {
+            public void stateChanged(ChangeEvent e) {
+                if (!viewRemoved && !timer.isRunning() && ((DataViewComponent.DetailsView)e.getSource()).isShowing())
+                    timer.start();
+            }
+        };
+        directBufferView.addVisibilityListener(visibilityListener);
+        mappedBufferView.addVisibilityListener(visibilityListener);
         timer.start();
+        governorClient = RefreshGovernor.sharedInstance().register(timer, application, getName());
         getDataSource().notifyWhenRemoved(this);
         
         return dvc;
     }
     
     public void dataRemoved(Application app) {
+        viewRemoved = true;
         timer.stop();
+        RefreshGovernor.sharedInstance().unregister(governorClient);
     }
     
     private static class MasterViewSupport extends JPanel  {
@@ -27,6 +27,7 @@ package net.java.visualvm.modules.glassfish.dataview;
 
 import com.sun.appserv.management.monitor.MonitoringStats;
 import com.sun.tools.visualvm.core.scheduler.Quantum;
+import com.sun.tools.visualvm.core.scheduler.RefreshGovernor;
 import com.sun.tools.visualvm.core.scheduler.ScheduledTask;
 import com.sun.tools.visualvm.core.scheduler.Scheduler;
 import com.sun.tools.visualvm.core.scheduler.SchedulerTask;
@@ -52,6 +53,7 @@ public abstract class AbstractStatsTableModel<PM, M extends MonitoringStats, S e
 
     final protected PM monitor;
     private ScheduledTask refresh;
+    private RefreshGovernor.Client refreshClient;
     private final AtomicBoolean columnsInitialized = new AtomicBoolean(false);
     private final List<Touple<String, S>> statsList = new ArrayList<Touple<String, S>>();
     private String[] columnNames;
@@ -81,12 +83,24 @@ public abstract class AbstractStatsTableModel<PM, M extends MonitoringStats, S e
                     } else {
                         Scheduler.sharedInstance().unschedule(refresh);
                         refresh = null;
+                        RefreshGovernor.sharedInstance().unregister(refreshClient);
                     }
                 }
             }
         }, refreshInterval, true);
     }
 
+    /**
+     * Lets the RefreshGovernor slow down refreshing of the model.
+     * @param target The data source whose views display the model
+     * @param name The display name of the model
+     */
+    public void govern(Object target, String name) {
+        if (refresh != null) {
+            refreshClient = RefreshGovernor.sharedInstance().register(refresh, target, name);
+        }
+    }
+
     abstract protected Map<String, M> getMonitorMap();
     abstract protected S getStats(M monitor);
     abstract protected boolean isDisplayable(S stats);
@@ -30,6 +30,7 @@ import com.sun.tools.visualvm.charts.ChartFactory;
 import com.sun.tools.visualvm.charts.SimpleXYChartDescriptor;
 import com.sun.tools.visualvm.charts.SimpleXYChartSupport;
 import com.sun.tools.visualvm.core.scheduler.Quantum;
+import com.sun.tools.visualvm.core.scheduler.RefreshGovernor;
 import com.sun.tools.visualvm.core.scheduler.ScheduledTask;
 import com.sun.tools.visualvm.core.scheduler.Scheduler;
 import com.sun.tools.visualvm.core.scheduler.SchedulerTask;
@@ -73,6 +74,7 @@ public class GlassFishServletViewProvider extends DataSourceViewProvider<GlassFi
         private GlassFishServlet servlet;
 
         private ScheduledTask refreshTask;
+        private RefreshGovernor.Client refreshClient;
         
         //~ Constructors ---------------------------------------------------------------------------------------------------------
 
@@ -124,10 +126,12 @@ public class GlassFishServletViewProvider extends DataSourceViewProvider<GlassFi
                         } else {
                         Scheduler.sharedInstance().unschedule(refreshTask);
                         refreshTask = null;
+                        RefreshGovernor.sharedInstance().unregister(refreshClient);
                         }
                     }
                 }
             }, Quantum.seconds(3));
+            refreshClient = RefreshGovernor.sharedInstance().register(refreshTask, servlet, "Servlet");
         }
 
         //~ Methods --------------------------------------------------------------------------------------------------------------
@@ -40,6 +40,7 @@ import com.sun.tools.visualvm.charts.SimpleXYChartDescriptor;
 import com.sun.tools.visualvm.charts.SimpleXYChartSupport;
 import com.sun.tools.visualvm.core.datasource.descriptor.DataSourceDescriptorFactory;
 import com.sun.tools.visualvm.core.scheduler.Quantum;
+import com.sun.tools.visualvm.core.scheduler.RefreshGovernor;
 import com.sun.tools.visualvm.core.scheduler.ScheduledTask;
 import com.sun.tools.visualvm.core.scheduler.Scheduler;
 import com.sun.tools.visualvm.core.scheduler.SchedulerTask;
@@ -93,10 +94,11 @@ public class GlassFishWebModuleViewProvider extends DataSourceViewProvider<Glass
         private SimpleXYChartSupport jspChart;
         private SimpleXYChartSupport totalSessionsChart;
         private DataViewComponent dvc;
-        private TableModel servletsModel;
-        private TableModel wsModel;
+        private AbstractStatsTableModel servletsModel;
+        private AbstractStatsTableModel wsModel;
         private GlassFishWebModule module;
         private ScheduledTask refreshTask;
+        private RefreshGovernor.Client refreshClient;
 
         //~ Constructors ---------------------------------------------------------------------------------------------------------
 
@@ -141,6 +143,7 @@ public class GlassFishWebModuleViewProvider extends DataSourceViewProvider<Glass
             JPanel servletsPanel = new JPanel(new BorderLayout());
             servletsPanel.setOpaque(false);
             servletsModel = new ServletTableModel(webModule.getMonitor(), Quantum.seconds(5));
+            servletsModel.govern(webModule, "Servlets");
 
             RowSorter<TableModel> servletsRowSorter = new TableRowSorter<TableModel>(servletsModel);
 
@@ -154,6 +157,7 @@ public class GlassFishWebModuleViewProvider extends DataSourceViewProvider<Glass
             JPanel wsPanel = new JPanel(new BorderLayout());
             wsPanel.setOpaque(false);
             wsModel = new WSTableModel(webModule.getMonitor(), Quantum.seconds(5));
+            wsModel.govern(webModule, "WebServices");
 
             RowSorter<TableModel> wsRowSorter = new TableRowSorter<TableModel>(wsModel);
 
@@ -193,10 +197,12 @@ public class GlassFishWebModuleViewProvider extends DataSourceViewProvider<Glass
                         } else {
                             Scheduler.sharedInstance().unschedule(refreshTask);
                             refreshTask = null;
+                            RefreshGovernor.sharedInstance().unregister(refreshClient);
                         }
                     }
                 }
             }, Quantum.seconds(5));
+            refreshClient = RefreshGovernor.sharedInstance().register(refreshTask, webModule, "Web Module");
         }
 
         @Override
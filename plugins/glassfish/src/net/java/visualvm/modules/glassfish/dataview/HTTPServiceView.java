@@ -10,6 +10,7 @@ import com.sun.tools.visualvm.charts.ChartFactory;
 import com.sun.tools.visualvm.charts.SimpleXYChartDescriptor;
 import com.sun.tools.visualvm.charts.SimpleXYChartSupport;
 import com.sun.tools.visualvm.core.scheduler.Quantum;
+import com.sun.tools.visualvm.core.scheduler.RefreshGovernor;
 import com.sun.tools.visualvm.core.scheduler.ScheduledTask;
 import com.sun.tools.visualvm.core.scheduler.Scheduler;
 import com.sun.tools.visualvm.core.scheduler.SchedulerTask;
@@ -30,8 +31,11 @@ class HTTPServiceView extends DataSourceView {
     private DataViewComponent dvc;
     private HTTPServiceMonitor monitor;
     private ScheduledTask queueRefreshTask;
+    private RefreshGovernor.Client queueRefreshClient;
     private ScheduledTask cacheRefreshTask;
+    private RefreshGovernor.Client cacheRefreshClient;
     private ScheduledTask kaRefreshTask;
+    private RefreshGovernor.Client kaRefreshClient;
 
     public HTTPServiceView(Application app, HTTPServiceMonitor monitor) {
         super(app, "HTTP Service", new ImageIcon(ImageUtilities.loadImage(ICON_PATH, true)).getImage(), POSITION_AT_THE_END, false);
@@ -134,10 +138,12 @@ class HTTPServiceView extends DataSourceView {
                     } else {
                         Scheduler.sharedInstance().unschedule(queueRefreshTask);
                         queueRefreshTask = null;
+                        RefreshGovernor.sharedInstance().unregister(queueRefreshClient);
                     }
                 }
             }
         }, Quantum.seconds(1));
+        queueRefreshClient = RefreshGovernor.sharedInstance().register(queueRefreshTask, getDataSource(), "Connection Queue");
 
         dvc.configureDetailsArea(new DataViewComponent.DetailsAreaConfiguration("Connection Queue", true), DataViewComponent.TOP_LEFT);
         dvc.addDetailsView(new DataViewComponent.DetailsView("Connection Queue", null, 10, connectionQueueChart.getChart(), null), DataViewComponent.TOP_LEFT);
@@ -229,10 +235,12 @@ class HTTPServiceView extends DataSourceView {
                     } else {
                         Scheduler.sharedInstance().unschedule(cacheRefreshTask);
                         cacheRefreshTask = null;
+                        RefreshGovernor.sharedInstance().unregister(cacheRefreshClient);
                     }
                 }
             }
         }, Quantum.seconds(1));
+        cacheRefreshClient = RefreshGovernor.sharedInstance().register(cacheRefreshTask, getDataSource(), "File Cache");
 
         dvc.configureDetailsArea(new DataViewComponent.DetailsAreaConfiguration("File Cache", true), DataViewComponent.BOTTOM_LEFT);
         dvc.addDetailsView(new DataViewComponent.DetailsView("File Cache Hits", null, 10, fileCacheChart.getChart(), null), DataViewComponent.BOTTOM_LEFT);
@@ -266,10 +274,12 @@ class HTTPServiceView extends DataSourceView {
                     } else {
                         Scheduler.sharedInstance().unschedule(kaRefreshTask);
                         kaRefreshTask = null;
+                        RefreshGovernor.sharedInstance().unregister(kaRefreshClient);
                     }
                 }
             }
         }, Quantum.seconds(1));
+        kaRefreshClient = RefreshGovernor.sharedInstance().register(kaRefreshTask, getDataSource(), "Keep Alive");
 
         dvc.configureDetailsArea(new DataViewComponent.DetailsAreaConfiguration("Keep Alive", true), DataViewComponent.BOTTOM_RIGHT);
         dvc.addDetailsView(new DataViewComponent.DetailsView("Keep Alive", null, 10, keepAliveChart.getChart(), null), DataViewComponent.BOTTOM_RIGHT);
@@ -7,6 +7,7 @@ import com.sun.tools.visualvm.charts.ChartFactory;
 import com.sun.tools.visualvm.charts.SimpleXYChartDescriptor;
 import com.sun.tools.visualvm.charts.SimpleXYChartSupport;
 import com.sun.tools.visualvm.core.scheduler.Quantum;
+import com.sun.tools.visualvm.core.scheduler.RefreshGovernor;
 import com.sun.tools.visualvm.core.scheduler.ScheduledTask;
 import com.sun.tools.visualvm.core.scheduler.Scheduler;
 import com.sun.tools.visualvm.core.scheduler.SchedulerTask;
@@ -26,6 +27,7 @@ class TransactionServiceView extends DataSourceView {
     private DataViewComponent dvc;
     private TransactionServiceMonitor monitor;
     private ScheduledTask transRefreshTask;
+    private RefreshGovernor.Client transRefreshClient;
 
     public TransactionServiceView(Application app, TransactionServiceMonitor monitor) {
         super(app, "Transaction Service", new ImageIcon(ImageUtilities.loadImage(ICON_PATH, true)).getImage(), POSITION_AT_THE_END, false);
@@ -62,10 +64,12 @@ class TransactionServiceView extends DataSourceView {
                     } else {
                         Scheduler.sharedInstance().unschedule(transRefreshTask);
                         transRefreshTask = null;
+                        RefreshGovernor.sharedInstance().unregister(transRefreshClient);
                     }
                 }
             }
         }, Quantum.seconds(1));
+        transRefreshClient = RefreshGovernor.sharedInstance().register(transRefreshTask, getDataSource(), "Transaction Service");
         dvc.addDetailsView(new DataViewComponent.DetailsView("Transactional Service", null, 10, transactionalServiceChart.getChart(), null), DataViewComponent.BOTTOM_RIGHT);
     }
 
@@ -69,6 +69,10 @@ class MBeansTab extends JPanel implements
         setupTab();
     }
     
+    public Application getApplication() {
+        return application;
+    }
+    
     public RequestProcessor getRequestProcessor() {
         return worker;
     }
@@ -32,6 +32,7 @@ import com.sun.tools.visualvm.tools.jmx.JmxModel;
 import com.sun.tools.visualvm.tools.jmx.JmxModelFactory;
 import javax.swing.BorderFactory;
 import javax.swing.ImageIcon;
+import javax.swing.JComponent;
 import javax.swing.JLabel;
 import javax.swing.JTextArea;
 import org.openide.util.ImageUtilities;
@@ -86,17 +87,28 @@ class MBeansView extends DataSourceView {
             mbeansTreeView = new MBeansTreeView(mbeansTab);
             jmx.addPropertyChangeListener(WeakListeners.propertyChange(mbeansTreeView, jmx));
 
+            // Details views are created when their tabs are revealed
+            final MBeansTab tab = mbeansTab;
+
             // MBeansAttributesView
-            MBeansAttributesView mbeansAttributesView = new MBeansAttributesView(mbeansTab);
+            DataViewComponent.LazyView mbeansAttributesView = new DataViewComponent.LazyView() {
+                protected JComponent createView() { return new MBeansAttributesView(tab); }
+            };
 
             // MBeansOperationsView
-            MBeansOperationsView mbeansOperationsView = new MBeansOperationsView(mbeansTab);
+            DataViewComponent.LazyView mbeansOperationsView = new DataViewComponent.LazyView() {
+                protected JComponent createView() { return new MBeansOperationsView(tab); }
+            };
 
             // MBeansNotificationsView
-            MBeansNotificationsView mbeansNotificationsView = new MBeansNotificationsView(mbeansTab);
+            DataViewComponent.LazyView mbeansNotificationsView = new DataViewComponent.LazyView() {
+                protected JComponent createView() { return new MBeansNotificationsView(tab); }
+            };
 
             // MBeansMetadataView
-            MBeansMetadataView mbeansMetadataView = new MBeansMetadataView(mbeansTab);
+            DataViewComponent.LazyView mbeansMetadataView = new DataViewComponent.LazyView() {
+                protected JComponent createView() { return new MBeansMetadataView(tab); }
+            };
 
             DataViewComponent.MasterView monitoringMasterView = new DataViewComponent.MasterView(Resources.getText("LBL_MBeansBrowser"), null, new JLabel(" ")); // NOI18N
             DataViewComponent.MasterViewConfiguration monitoringMasterConfiguration = new DataViewComponent.MasterViewConfiguration(false);
@@ -25,6 +25,7 @@
 
 package com.sun.tools.visualvm.modules.mbeans;
 
+import com.sun.tools.visualvm.core.scheduler.RefreshGovernor;
 import java.awt.BorderLayout;
 import java.awt.Component;
 import java.awt.Dimension;
@@ -56,6 +57,8 @@ class XPlottingViewer extends PlotterPanel implements ActionListener {
             new HashMap<String, XPlottingViewer>();
     private static HashMap<String, Timer> timerCache =
             new HashMap<String, Timer>();
+    private static HashMap<String, RefreshGovernor.Client> governorCache =
+            new HashMap<String, RefreshGovernor.Client>();
     private MBeansTab tab;
     private XMBean mbean;
     private String attributeName;
@@ -93,6 +96,7 @@ class XPlottingViewer extends PlotterPanel implements ActionListener {
                 Timer t = timerCache.get(key);
                 t.stop();
                 it.remove();
+                RefreshGovernor.sharedInstance().unregister(governorCache.remove(key));
             }
         }
     }
@@ -126,6 +130,7 @@ class XPlottingViewer extends PlotterPanel implements ActionListener {
         plotterCache.remove(key);
         Timer t = timerCache.remove(key);
         t.stop();
+        RefreshGovernor.sharedInstance().unregister(governorCache.remove(key));
         ((XMBeanAttributes) table).collapse(attributeName, this);
     }
 
@@ -157,6 +162,8 @@ class XPlottingViewer extends PlotterPanel implements ActionListener {
         timer.setInitialDelay(0);
         timer.start();
         timerCache.put(key, timer);
+        governorCache.put(key, RefreshGovernor.sharedInstance().register(
+                timer, tab.getApplication(), attributeName));
         return p;
     }
 
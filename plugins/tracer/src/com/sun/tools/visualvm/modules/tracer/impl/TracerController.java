@@ -28,6 +28,7 @@ package com.sun.tools.visualvm.modules.tracer.impl;
 import com.sun.tools.visualvm.core.datasource.DataSource;
 import com.sun.tools.visualvm.core.datasupport.DataRemovedListener;
 import com.sun.tools.visualvm.core.datasupport.Stateful;
+import com.sun.tools.visualvm.core.scheduler.RefreshGovernor;
 import com.sun.tools.visualvm.modules.tracer.PackageStateHandler;
 import com.sun.tools.visualvm.modules.tracer.ProbeItemDescriptor;
 import com.sun.tools.visualvm.modules.tracer.ProbeStateHandler;
@@ -85,6 +86,9 @@ final class TracerController implements DataRemovedListener<DataSource>,
 
     private boolean running;
     private final Timer timer;
+    // Requested refresh rate, the timer may be slowed down by RefreshGovernor
+    private int refreshRate;
+    private RefreshGovernor.Client governorClient;
     private RequestProcessor processor;
 
 
@@ -159,11 +163,12 @@ final class TracerController implements DataRemovedListener<DataSource>,
                 model.getDefinedProbeSets();
             notifyRefreshRateChanged(toNotify);
             timer.setDelay(refreshRate);
+            this.refreshRate = refreshRate;
         }
     }
 
     int getRefreshRate() {
-        return timer != null ? timer.getDelay() : -1;
+        return timer != null ? refreshRate : -1;
     }
 
     void startSession() {
@@ -413,6 +418,7 @@ final class TracerController implements DataRemovedListener<DataSource>,
 
     private Timer createTimer() {
         int rate = TracerOptions.getInstance().getRefreshRate();
+        refreshRate = rate;
         Timer t = new Timer(rate, new ActionListener() {
             public void actionPerformed(ActionEvent e) { fetchData(); }
         });
@@ -420,17 +426,21 @@ final class TracerController implements DataRemovedListener<DataSource>,
         return t;
     }
     
-    private void startTimer() {
+    private synchronized void startTimer() {
         if (timer != null) {
             running = true;
             timer.start();
+            if (governorClient == null) governorClient = RefreshGovernor.
+                    sharedInstance().register(timer, dataSource, "Tracer"); // NOI18N
         }
     }
 
-    private void stopTimer() {
+    private synchronized void stopTimer() {
         if (timer != null) {
             running = false;
             timer.stop();
+            RefreshGovernor.sharedInstance().unregister(governorClient);
+            governorClient = null;
         }
     }
 
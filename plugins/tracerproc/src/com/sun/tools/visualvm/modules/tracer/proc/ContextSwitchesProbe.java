@@ -0,0 +1,76 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.modules.tracer.proc;
+
+import com.sun.tools.visualvm.modules.tracer.ItemValueFormatter;
+import com.sun.tools.visualvm.modules.tracer.ProbeItemDescriptor;
+import com.sun.tools.visualvm.modules.tracer.TracerProbeDescriptor;
+import javax.swing.Icon;
+
+/**
+ * Reads /proc/[pid]/status.
+ */
+class ContextSwitchesProbe extends ProcProbe {
+
+    private static final String NAME = "Context switches";
+    private static final String DESCR = "Monitors voluntary and involuntary context switches per second.";
+    private static final int POSITION = 20;
+    static final int DATA = ProcMonitor.DATA_STATUS;
+
+
+    ContextSwitchesProbe(MonitorResolver resolver) {
+        super(createItemDescriptors(), resolver);
+    }
+
+
+    int getRequiredData() {
+        return DATA;
+    }
+
+    long[] getValues(ProcMonitor monitor) {
+        return new long[] {
+            monitor.voluntaryCsRate,
+            monitor.nonvoluntaryCsRate
+        };
+    }
+
+
+    static final TracerProbeDescriptor createDescriptor(Icon icon, boolean available) {
+        return new TracerProbeDescriptor(NAME, DESCR, icon, POSITION, available);
+    }
+
+    private static final ProbeItemDescriptor[] createItemDescriptors() {
+        return new ProbeItemDescriptor[] {
+            ProbeItemDescriptor.continuousLineItem("Voluntary",
+                    "Monitors voluntary context switches per second",
+                    ItemValueFormatter.DEFAULT_DECIMAL, 1d, 0, 100),
+            ProbeItemDescriptor.continuousLineItem("Involuntary",
+                    "Monitors involuntary context switches per second",
+                    ItemValueFormatter.DEFAULT_DECIMAL, 1d, 0, 100)
+        };
+    }
+
+}
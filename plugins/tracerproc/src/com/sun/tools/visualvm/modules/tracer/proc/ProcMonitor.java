@@ -0,0 +1,301 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.modules.tracer.proc;
+
+import com.sun.tools.visualvm.host.model.ProcFile;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Collects metrics of a local process and its threads from the /proc
+ * filesystem. Only the files required by the selected probes are read, the
+ * process files are kept open for the whole Tracer session. The files of the
+ * first MAX_OPEN_THREADS threads are kept open as well, the files of other
+ * threads are opened for each read to not run out of file descriptors. The
+ * threads are listed again only when their number changes or a thread ends.
+ */
+final class ProcMonitor {
+
+    static final int DATA_IO = 1;
+    static final int DATA_STATUS = 2;
+    static final int DATA_THREADS = 4;
+
+    // threads with their stat and schedstat files kept open between reads
+    private static final int MAX_OPEN_THREADS = 256;
+    // num_threads field of /proc/[pid]/stat
+    private static final int STAT_NUM_THREADS = 20;
+
+    private static final byte[] KEY_RCHAR = ProcFile.bytes("rchar"); // NOI18N
+    private static final byte[] KEY_WCHAR = ProcFile.bytes("wchar"); // NOI18N
+    private static final byte[] KEY_READ_BYTES = ProcFile.bytes("read_bytes"); // NOI18N
+    private static final byte[] KEY_WRITE_BYTES = ProcFile.bytes("write_bytes"); // NOI18N
+    private static final byte[] KEY_VMRSS = ProcFile.bytes("VmRSS"); // NOI18N
+    private static final byte[] KEY_VMSWAP = ProcFile.bytes("VmSwap"); // NOI18N
+    private static final byte[] KEY_VOLUNTARY_CS = ProcFile.bytes("voluntary_ctxt_switches"); // NOI18N
+    private static final byte[] KEY_NONVOLUNTARY_CS = ProcFile.bytes("nonvoluntary_ctxt_switches"); // NOI18N
+
+    private static final Comparator<ThreadRecord> TID_COMPARATOR = new Comparator<ThreadRecord>() {
+        public int compare(ThreadRecord t1, ThreadRecord t2) {
+            return t1.tid < t2.tid ? -1 : (t1.tid == t2.tid ? 0 : 1);
+        }
+    };
+
+    private final int data;
+    private final int processors;
+    private final File taskDir;
+    private final ProcFile io;
+    private final ProcFile status;
+    private final ProcFile stat;
+
+    // threads sorted by tid, the arrays are swapped on refresh
+    private ThreadRecord[] threads = new ThreadRecord[0];
+    private ThreadRecord[] spareThreads = new ThreadRecord[0];
+    private int threadsCount;
+    private int openThreads;
+    private boolean threadsValid;
+
+    private long lastTime = -1;
+    private long lastRchar, lastWchar, lastReadBytes, lastWriteBytes;
+    private long lastVoluntaryCs, lastNonvoluntaryCs;
+
+    // --- Values computed by the last update(), rates are per second ----------
+    long readRate, writeRate, storageReadRate, storageWriteRate;
+    long voluntaryCsRate, nonvoluntaryCsRate;
+    long rss, swap;
+    long cpuUsage, hottestThreadCpu, runnableThreads;
+    long runQueueWait, runQueueLatency;
+
+
+    ProcMonitor(int pid, int data) {
+        File procDir = getProcDir(pid);
+        this.data = data;
+        processors = Runtime.getRuntime().availableProcessors();
+        taskDir = new File(procDir, "task"); // NOI18N
+        io = new ProcFile(new File(procDir, "io"), 512, true); // NOI18N
+        status = new ProcFile(new File(procDir, "status"), 2048, true); // NOI18N
+        stat = new ProcFile(new File(procDir, "stat"), 512, true); // NOI18N
+    }
+
+
+    static boolean isAvailable(int pid, int data) {
+        File procDir = getProcDir(pid);
+        if (!procDir.isDirectory()) return false;
+        if ((data & DATA_IO) != 0 && !new File(procDir, "io").canRead()) return false; // NOI18N
+        if ((data & DATA_STATUS) != 0 && !new File(procDir, "status").canRead()) return false; // NOI18N
+        if ((data & DATA_THREADS) != 0 && !new File(procDir, "schedstat").canRead()) return false; // NOI18N
+        return true;
+    }
+
+    private static File getProcDir(int pid) {
+        return new File("/proc/" + pid); // NOI18N
+    }
+
+
+    synchronized void update() {
+        long time = System.nanoTime();
+        long interval = lastTime == -1 ? 0 : time - lastTime;
+
+        if ((data & DATA_IO) != 0 && io.read()) {
+            long rchar = io.getValue(KEY_RCHAR, 1);
+            long wchar = io.getValue(KEY_WCHAR, 1);
+            long readBytes = io.getValue(KEY_READ_BYTES, 1);
+            long writeBytes = io.getValue(KEY_WRITE_BYTES, 1);
+            if (interval > 0) {
+                readRate = rate(rchar, lastRchar, interval);
+                writeRate = rate(wchar, lastWchar, interval);
+                storageReadRate = rate(readBytes, lastReadBytes, interval);
+                storageWriteRate = rate(writeBytes, lastWriteBytes, interval);
+            }
+            lastRchar = rchar;
+            lastWchar = wchar;
+            lastReadBytes = readBytes;
+            lastWriteBytes = writeBytes;
+        }
+
+        if ((data & DATA_STATUS) != 0 && status.read()) {
+            long voluntaryCs = status.getValue(KEY_VOLUNTARY_CS, 1);
+            long nonvoluntaryCs = status.getValue(KEY_NONVOLUNTARY_CS, 1);
+            if (interval > 0) {
+                voluntaryCsRate = rate(voluntaryCs, lastVoluntaryCs, interval);
+                nonvoluntaryCsRate = rate(nonvoluntaryCs, lastNonvoluntaryCs, interval);
+            }
+            lastVoluntaryCs = voluntaryCs;
+            lastNonvoluntaryCs = nonvoluntaryCs;
+            rss = Math.max(status.getValue(KEY_VMRSS, 1), 0) * 1024;
+            swap = Math.max(status.getValue(KEY_VMSWAP, 1), 0) * 1024;
+        }
+
+        if ((data & DATA_THREADS) != 0) updateThreads(interval);
+
+        lastTime = time;
+    }
+
+    synchronized void close() {
+        io.close();
+        status.close();
+        stat.close();
+        for (int i = 0; i < threadsCount; i++) threads[i].close();
+        threads = new ThreadRecord[0];
+        spareThreads = new ThreadRecord[0];
+        threadsCount = 0;
+        openThreads = 0;
+        threadsValid = false;
+    }
+
+
+    private void updateThreads(long interval) {
+        if (!threadsValid || (stat.read() && stat.getStatField(STAT_NUM_THREADS) != threadsCount)) {
+            refreshThreads();
+            threadsValid = true;
+        }
+
+        long runDelta = 0;
+        long maxRunDelta = 0;
+        long waitDelta = 0;
+        long slicesDelta = 0;
+        int runnable = 0;
+
+        for (int i = 0; i < threadsCount; i++) {
+            ThreadRecord thread = threads[i];
+            if (!thread.schedstat.read()) {
+                // Thread finished, refresh the threads on next update
+                threadsValid = false;
+                continue;
+            }
+            long run = thread.schedstat.parseLong(thread.schedstat.token(0, 0));
+            long wait = thread.schedstat.parseLong(thread.schedstat.token(0, 1));
+            long slices = thread.schedstat.parseLong(thread.schedstat.token(0, 2));
+            if (thread.lastRun != -1) {
+                long threadRunDelta = run - thread.lastRun;
+                runDelta += threadRunDelta;
+                maxRunDelta = Math.max(maxRunDelta, threadRunDelta);
+                waitDelta += wait - thread.lastWait;
+                slicesDelta += slices - thread.lastSlices;
+            }
+            thread.lastRun = run;
+            thread.lastWait = wait;
+            thread.lastSlices = slices;
+
+            if (thread.stat.read() && thread.stat.getStatState() == 'R') runnable++; // NOI18N
+        }
+
+        if (interval > 0) {
+            cpuUsage = Math.min(1000, runDelta * 1000 / (interval * processors));
+            hottestThreadCpu = Math.min(1000, maxRunDelta * 1000 / interval);
+            runQueueWait = waitDelta * 1000 / interval;
+            runQueueLatency = slicesDelta > 0 ? waitDelta / slicesDelta / 1000 : 0;
+        }
+        runnableThreads = runnable;
+    }
+
+    private void refreshThreads() {
+        String[] names = taskDir.list();
+        if (names == null) names = new String[0];
+
+        for (int i = 0; i < threadsCount; i++) threads[i].alive = false;
+
+        ThreadRecord[] newThreads = spareThreads.length >= names.length ? spareThreads :
+                                    new ThreadRecord[names.length + names.length / 4];
+        int count = 0;
+        for (String name : names) {
+            int tid;
+            try {
+                tid = Integer.parseInt(name);
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            ThreadRecord thread = findThread(tid);
+            if (thread == null) {
+                thread = new ThreadRecord(tid, new File(taskDir, name), openThreads < MAX_OPEN_THREADS);
+                if (thread.keepOpen) openThreads++;
+            }
+            thread.alive = true;
+            newThreads[count++] = thread;
+        }
+
+        for (int i = 0; i < threadsCount; i++) {
+            ThreadRecord thread = threads[i];
+            if (!thread.alive) {
+                thread.close();
+                if (thread.keepOpen) openThreads--;
+            }
+        }
+
+        Arrays.sort(newThreads, 0, count, TID_COMPARATOR);
+        Arrays.fill(newThreads, count, newThreads.length, null);
+        Arrays.fill(threads, 0, threadsCount, null);
+        spareThreads = threads;
+        threads = newThreads;
+        threadsCount = count;
+    }
+
+    private ThreadRecord findThread(int tid) {
+        int low = 0;
+        int high = threadsCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midTid = threads[mid].tid;
+            if (midTid < tid) low = mid + 1;
+            else if (midTid > tid) high = mid - 1;
+            else return threads[mid];
+        }
+        return null;
+    }
+
+    private static long rate(long value, long lastValue, long interval) {
+        if (value < 0 || lastValue < 0) return 0;
+        return (long)((value - lastValue) * 1000000000d / interval);
+    }
+
+
+    private static final class ThreadRecord {
+
+        final int tid;
+        final ProcFile stat;
+        final ProcFile schedstat;
+        final boolean keepOpen;
+
+        long lastRun = -1;
+        long lastWait;
+        long lastSlices;
+        boolean alive;
+
+        ThreadRecord(int tid, File dir, boolean keepOpen) {
+            this.tid = tid;
+            this.keepOpen = keepOpen;
+            stat = new ProcFile(new File(dir, "stat"), 512, keepOpen); // NOI18N
+            schedstat = new ProcFile(new File(dir, "schedstat"), 128, keepOpen); // NOI18N
+        }
+
+        void close() {
+            stat.close();
+            schedstat.close();
+        }
+
+    }
+
+}
@@ -0,0 +1,135 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.modules.tracer.proc;
+
+import com.sun.tools.visualvm.application.Application;
+import com.sun.tools.visualvm.modules.tracer.SessionInitializationException;
+import com.sun.tools.visualvm.modules.tracer.TracerPackage;
+import com.sun.tools.visualvm.modules.tracer.TracerProbe;
+import com.sun.tools.visualvm.modules.tracer.TracerProbeDescriptor;
+import javax.swing.Icon;
+import javax.swing.ImageIcon;
+import org.openide.util.ImageUtilities;
+
+/**
+ * Tracer package providing process and thread metrics of local applications
+ * read from the Linux /proc filesystem.
+ */
+class ProcPackage extends TracerPackage.SessionAware<Application> implements ProcProbe.MonitorResolver {
+
+    static final Icon ICON = new ImageIcon(ImageUtilities.loadImage(
+            "com/sun/tools/visualvm/modules/tracer/proc/resources/proc.png", true)); // NOI18N
+    private static final String NAME = "Linux Process Metrics";
+    private static final String DESCR = "Provides low level process and thread metrics read from the /proc filesystem.";
+    private static final int POSITION = 125;
+
+    private TracerProbeDescriptor ioDescriptor;
+    private TracerProbeDescriptor contextSwitchesDescriptor;
+    private TracerProbeDescriptor memoryDescriptor;
+    private TracerProbeDescriptor threadsCpuDescriptor;
+    private TracerProbeDescriptor runQueueDescriptor;
+
+    private final Application application;
+
+    private ProcMonitor monitor;
+    private long lastTimestamp = -1;
+
+
+    ProcPackage(Application application) {
+        super(NAME, DESCR, ICON, POSITION);
+        this.application = application;
+    }
+
+
+    public TracerProbeDescriptor[] getProbeDescriptors() {
+        ioDescriptor = IOBytesProbe.createDescriptor(ICON, isAvailable(IOBytesProbe.DATA));
+        contextSwitchesDescriptor = ContextSwitchesProbe.createDescriptor(ICON, isAvailable(ContextSwitchesProbe.DATA));
+        memoryDescriptor = MemoryProbe.createDescriptor(ICON, isAvailable(MemoryProbe.DATA));
+        threadsCpuDescriptor = ThreadsCpuProbe.createDescriptor(ICON, isAvailable(ThreadsCpuProbe.DATA));
+        runQueueDescriptor = RunQueueProbe.createDescriptor(ICON, isAvailable(RunQueueProbe.DATA));
+        return new TracerProbeDescriptor[] { ioDescriptor,
+                                             contextSwitchesDescriptor,
+                                             memoryDescriptor,
+                                             threadsCpuDescriptor,
+                                             runQueueDescriptor };
+    }
+
+    public TracerProbe<Application> getProbe(TracerProbeDescriptor descriptor) {
+        if (descriptor == ioDescriptor) {
+            return new IOBytesProbe(this);
+        } else if (descriptor == contextSwitchesDescriptor) {
+            return new ContextSwitchesProbe(this);
+        } else if (descriptor == memoryDescriptor) {
+            return new MemoryProbe(this);
+        } else if (descriptor == threadsCpuDescriptor) {
+            return new ThreadsCpuProbe(this);
+        } else if (descriptor == runQueueDescriptor) {
+            return new RunQueueProbe(this);
+        } else {
+            return null;
+        }
+    }
+
+
+    protected void sessionStarting(TracerProbe<Application>[] probes, Application app)
+            throws SessionInitializationException {
+        int data = 0;
+        for (TracerProbe<Application> probe : probes)
+            if (probe instanceof ProcProbe) data |= ((ProcProbe)probe).getRequiredData();
+
+        if (!ProcMonitor.isAvailable(app.getPid(), data))
+            throw new SessionInitializationException("Process metrics not available for " + // NOI18N
+                                                     app.getPid());
+
+        synchronized (this) {
+            monitor = new ProcMonitor(app.getPid(), data);
+            lastTimestamp = -1;
+        }
+    }
+
+    protected synchronized void sessionStopping(TracerProbe<Application>[] probes, Application app) {
+        if (monitor != null) {
+            monitor.close();
+            monitor = null;
+        }
+    }
+
+
+    public synchronized ProcMonitor getMonitor(long timestamp) {
+        if (monitor != null && lastTimestamp != timestamp) {
+            monitor.update();
+            lastTimestamp = timestamp;
+        }
+        return monitor;
+    }
+
+    private boolean isAvailable(int data) {
+        return application.isLocalApplication() &&
+               application.getPid() != Application.UNKNOWN_PID &&
+               ProcMonitor.isAvailable(application.getPid(), data);
+    }
+
+}
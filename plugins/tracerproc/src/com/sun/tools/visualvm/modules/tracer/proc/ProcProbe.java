@@ -0,0 +1,67 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.modules.tracer.proc;
+
+import com.sun.tools.visualvm.application.Application;
+import com.sun.tools.visualvm.modules.tracer.ProbeItemDescriptor;
+import com.sun.tools.visualvm.modules.tracer.TracerProbe;
+import java.util.Arrays;
+
+/**
+ * Base class for the probes reading their values from a shared ProcMonitor.
+ */
+abstract class ProcProbe extends TracerProbe<Application> {
+
+    private final MonitorResolver resolver;
+    private final int valuesCount;
+
+
+    ProcProbe(ProbeItemDescriptor[] itemDescriptors, MonitorResolver resolver) {
+        super(itemDescriptors);
+        this.valuesCount = itemDescriptors.length;
+        this.resolver = resolver;
+    }
+
+
+    public synchronized final long[] getItemValues(long timestamp) {
+        ProcMonitor monitor = resolver.getMonitor(timestamp);
+        if (monitor != null) return getValues(monitor);
+
+        long[] noData = new long[valuesCount];
+        Arrays.fill(noData, ProbeItemDescriptor.VALUE_UNDEFINED);
+        return noData;
+    }
+
+    abstract int getRequiredData();
+
+    abstract long[] getValues(ProcMonitor monitor);
+
+
+    static interface MonitorResolver {
+        public ProcMonitor getMonitor(long timestamp);
+    }
+
+}
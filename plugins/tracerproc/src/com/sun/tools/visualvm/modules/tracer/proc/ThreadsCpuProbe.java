@@ -0,0 +1,80 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.modules.tracer.proc;
+
+import com.sun.tools.visualvm.modules.tracer.ItemValueFormatter;
+import com.sun.tools.visualvm.modules.tracer.ProbeItemDescriptor;
+import com.sun.tools.visualvm.modules.tracer.TracerProbeDescriptor;
+import javax.swing.Icon;
+
+/**
+ * Reads /proc/[pid]/task/[tid]/schedstat and /proc/[pid]/task/[tid]/stat.
+ */
+class ThreadsCpuProbe extends ProcProbe {
+
+    private static final String NAME = "Threads CPU";
+    private static final String DESCR = "Monitors CPU usage of the process and its threads.";
+    private static final int POSITION = 40;
+    static final int DATA = ProcMonitor.DATA_THREADS;
+
+
+    ThreadsCpuProbe(MonitorResolver resolver) {
+        super(createItemDescriptors(), resolver);
+    }
+
+
+    int getRequiredData() {
+        return DATA;
+    }
+
+    long[] getValues(ProcMonitor monitor) {
+        return new long[] {
+            monitor.cpuUsage,
+            monitor.hottestThreadCpu,
+            monitor.runnableThreads
+        };
+    }
+
+
+    static final TracerProbeDescriptor createDescriptor(Icon icon, boolean available) {
+        return new TracerProbeDescriptor(NAME, DESCR, icon, POSITION, available);
+    }
+
+    private static final ProbeItemDescriptor[] createItemDescriptors() {
+        return new ProbeItemDescriptor[] {
+            ProbeItemDescriptor.continuousLineItem("Process CPU",
+                    "Monitors CPU usage of all threads relative to all processors (%)",
+                    ItemValueFormatter.DEFAULT_PERCENT, 1d, 0, 1000),
+            ProbeItemDescriptor.continuousLineItem("Hottest thread CPU",
+                    "Monitors CPU usage of the busiest thread relative to a single processor (%)",
+                    ItemValueFormatter.DEFAULT_PERCENT, 1d, 0, 1000),
+            ProbeItemDescriptor.continuousLineItem("Runnable threads",
+                    "Monitors number of threads running or ready to run",
+                    ItemValueFormatter.DEFAULT_DECIMAL, 1d, 0, 10)
+        };
+    }
+
+}
@@ -26,18 +26,19 @@
 package com.sun.tools.visualvm.application.snapshot;
 
 import com.sun.tools.visualvm.application.Application;
+import com.sun.tools.visualvm.core.datasource.DataSource;
 import com.sun.tools.visualvm.core.snapshot.Snapshot;
 import com.sun.tools.visualvm.core.datasource.Storage;
 import com.sun.tools.visualvm.core.datasupport.Utils;
 import com.sun.tools.visualvm.core.datasource.descriptor.DataSourceDescriptor;
 import com.sun.tools.visualvm.core.datasource.descriptor.DataSourceDescriptorFactory;
 import com.sun.tools.visualvm.core.explorer.ExplorerSupport;
+import com.sun.tools.visualvm.core.snapshot.SnapshotsCatalog;
 import com.sun.tools.visualvm.core.snapshot.SnapshotsContainer;
 import com.sun.tools.visualvm.core.snapshot.SnapshotsSupport;
 import com.sun.tools.visualvm.core.ui.DataSourceViewsManager;
 import com.sun.tools.visualvm.core.ui.DataSourceWindowManager;
 import java.io.File;
-import java.util.HashSet;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -63,6 +64,15 @@ class ApplicationSnapshotProvider {
     
     private static final String PROPERTIES_FILENAME = "application_snapshot" + Storage.DEFAULT_PROPERTIES_EXT;   // NOI18N
     
+    private static final SnapshotsCatalog.SnapshotFactory<ApplicationSnapshot> SNAPSHOT_FACTORY =
+            new SnapshotsCatalog.SnapshotFactory<ApplicationSnapshot>() {
+        public ApplicationSnapshot createSnapshot(File file, DataSource owner) {
+            if (!file.isDirectory()) return null; // NOTE: once archived snapshots are implemented, this is not necessary
+            Storage storage = SnapshotsCatalog.sharedInstance().createStorage(file, PROPERTIES_FILENAME);
+            return new ApplicationSnapshot(file, storage);
+        }
+    };
+    
     private static final Logger LOGGER = Logger.getLogger(ApplicationSnapshotProvider.class.getName());
     
     private static ApplicationSnapshotProvider sharedInstance;
@@ -127,6 +137,17 @@ class ApplicationSnapshotProvider {
             }
         }
 
+        Storage storage = createSnapshotStorage(application, snapshotDirectory);
+        
+        ApplicationSnapshot snapshot = new ApplicationSnapshot(snapshotDirectory, storage);
+        DataSourceViewsManager.sharedInstance().saveViewsFor(application, snapshot);
+        SnapshotsContainer.sharedInstance().getRepository().addDataSource(snapshot);
+        
+        if (openSnapshot && DataSourceWindowManager.sharedInstance().canOpenDataSource(snapshot))
+            DataSourceWindowManager.sharedInstance().openDataSource(snapshot); // TODO: check #VISUALVM-636
+    }
+    
+    Storage createSnapshotStorage(Application application, File snapshotDirectory) {
         // See #299
 //        ApplicationType applicationType = ApplicationTypeFactory.getApplicationTypeFor(application);
         DataSourceDescriptor descriptor = DataSourceDescriptorFactory.getDescriptor(application);
@@ -143,13 +164,7 @@ class ApplicationSnapshotProvider {
         
         Storage storage = new Storage(snapshotDirectory, PROPERTIES_FILENAME);
         storage.setCustomProperties(propNames, propValues);
-        
-        ApplicationSnapshot snapshot = new ApplicationSnapshot(snapshotDirectory, storage);
-        DataSourceViewsManager.sharedInstance().saveViewsFor(application, snapshot);
-        SnapshotsContainer.sharedInstance().getRepository().addDataSource(snapshot);
-        
-        if (openSnapshot && DataSourceWindowManager.sharedInstance().canOpenDataSource(snapshot))
-            DataSourceWindowManager.sharedInstance().openDataSource(snapshot); // TODO: check #VISUALVM-636
+        return storage;
     }
     
     private static String getDisplayNameSuffix(Application application) {
@@ -229,19 +244,9 @@ class ApplicationSnapshotProvider {
     private void loadSnapshots() {
         if (!ApplicationSnapshotsSupport.storageDirectoryExists()) return;
         
-        File[] files = ApplicationSnapshotsSupport.getStorageDirectory().listFiles(
-                ApplicationSnapshotsSupport.getInstance().getCategory().getFilenameFilter());
-        
-        Set<ApplicationSnapshot> snapshots = new HashSet();
-        for (File file : files) {
-            if (file.isDirectory()) { // NOTE: once archived snapshots are implemented, this is not necessary
-                Storage storage = new Storage(file, PROPERTIES_FILENAME);
-                snapshots.add(new ApplicationSnapshot(file, storage));
-            }
-        }
-        
-        if (!snapshots.isEmpty()) 
-            SnapshotsContainer.sharedInstance().getRepository().addDataSources(snapshots);
+        SnapshotsCatalog.sharedInstance().registerSnapshots(SnapshotsContainer.sharedInstance(),
+                ApplicationSnapshotsSupport.getStorageDirectory(),
+                ApplicationSnapshotsSupport.getInstance().getCategory(), SNAPSHOT_FACTORY);
     }
     
     
@@ -25,6 +25,7 @@
 
 package com.sun.tools.visualvm.application.snapshot;
 
+import com.sun.tools.visualvm.application.Application;
 import com.sun.tools.visualvm.core.datasource.Storage;
 import com.sun.tools.visualvm.core.datasource.descriptor.DataSourceDescriptorFactory;
 import com.sun.tools.visualvm.core.datasupport.Utils;
@@ -71,6 +72,21 @@ public final class ApplicationSnapshotsSupport {
         return snapshotCategory;
     }
     
+    /**
+     * Creates storage of a new application snapshot in the provided directory.
+     * The storage defines name and icon of the application snapshot. Data
+     * saved to the directory can be archived into an application snapshot
+     * file using Utils.createArchive().
+     * 
+     * @param application Application to be saved to the snapshot
+     * @param directory existing directory of the snapshot
+     * @return storage of the application snapshot
+     * @since VisualVM 1.4
+     */
+    public Storage createSnapshotStorage(Application application, File directory) {
+        return snapshotProvider.createSnapshotStorage(application, directory);
+    }
+    
     ApplicationSnapshotCategory getApplicationSnapshotCategory() {
         return snapshotCategory;
     } 
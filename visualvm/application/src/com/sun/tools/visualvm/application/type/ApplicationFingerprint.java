@@ -0,0 +1,146 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.application.type;
+
+import com.sun.tools.visualvm.application.jvm.Jvm;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Command line data of an application used to detect its type, fetched once
+ * per Jvm. The JVM arguments are scanned for the markers of all the known
+ * application types in a single pass.
+ */
+final class ApplicationFingerprint {
+
+    // Markers searched in JVM arguments by the application type factories
+    private static final MultiPatternMatcher JVM_ARGS_MARKERS = new MultiPatternMatcher(
+        EclipseApplicationTypeFactory.ECLIPSE_ID,
+        EclipseApplicationTypeFactory.ECLIPSE_ID2,
+        NetBeansApplicationTypeFactory.NB_PLATFORM_HOME,
+        NetBeansApplicationTypeFactory.VISUALVM_BUILD_WIN_ID,
+        IntellijApplicationTypeFactory.PLATFORM_ID,
+        JDeveloperApplicationTypeFactory.IDE_CONF_11,
+        JDeveloperApplicationTypeFactory.IDE_PRODUCT_10,
+        JavaWebStartApplicationTypeFactory.JWS,
+        JavaPluginApplicationTypeFactory.JAVA_PLUGIN,
+        MavenApplicationTypeFactory.PROP_1,
+        MavenApplicationTypeFactory.PROP_2
+    );
+
+    private static final Map<Jvm, ApplicationFingerprint> FINGERPRINTS = new WeakHashMap();
+
+    private final String mainClass;
+    private final String jvmArgs;
+    private final String mainArgs;
+    private final long markers;
+    private String key;
+
+
+    /**
+     * Returns fingerprint of the application running in jvm or null
+     * if jvm doesn't provide the basic info. The fingerprint is rebuilt
+     * when the data provided by jvm change.
+     */
+    static ApplicationFingerprint get(Jvm jvm) {
+        if (!jvm.isBasicInfoSupported()) return null;
+        String mainClass = jvm.getMainClass();
+        String jvmArgs = jvm.getJvmArgs();
+        String mainArgs = jvm.getMainArgs();
+        synchronized (FINGERPRINTS) {
+            ApplicationFingerprint fingerprint = FINGERPRINTS.get(jvm);
+            if (fingerprint == null || !fingerprint.matches(mainClass, jvmArgs, mainArgs)) {
+                fingerprint = new ApplicationFingerprint(mainClass, jvmArgs, mainArgs);
+                FINGERPRINTS.put(jvm, fingerprint);
+            }
+            return fingerprint;
+        }
+    }
+
+    /**
+     * Returns true if JVM arguments of the application running in jvm
+     * contain the marker.
+     */
+    static boolean hasMarker(Jvm jvm, String marker) {
+        ApplicationFingerprint fingerprint = get(jvm);
+        return fingerprint != null && fingerprint.hasMarker(marker);
+    }
+
+
+    private ApplicationFingerprint(String mainClass, String jvmArgs, String mainArgs) {
+        this.mainClass = mainClass;
+        this.jvmArgs = jvmArgs;
+        this.mainArgs = mainArgs;
+        markers = JVM_ARGS_MARKERS.match(jvmArgs);
+    }
+
+
+    boolean hasMainClass() {
+        return mainClass != null && mainClass.length() > 0;
+    }
+
+    boolean hasMarker(String marker) {
+        int index = JVM_ARGS_MARKERS.indexOf(marker);
+        if (index == -1) return jvmArgs != null && jvmArgs.contains(marker);
+        return (markers & (1L << index)) != 0;
+    }
+
+    /**
+     * Returns key identifying the main class and the arguments.
+     */
+    synchronized String getKey() {
+        if (key == null) key = digest(mainClass + '\0' + jvmArgs + '\0' + mainArgs); // NOI18N
+        return key;
+    }
+
+
+    private boolean matches(String mainClass, String jvmArgs, String mainArgs) {
+        return equals(this.mainClass, mainClass) && equals(this.jvmArgs, jvmArgs) &&
+               equals(this.mainArgs, mainArgs);
+    }
+
+    private static boolean equals(String s1, String s2) {
+        return s1 == null ? s2 == null : s1.equals(s2);
+    }
+
+    private static String digest(String text) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-1"); // NOI18N
+            StringBuilder sb = new StringBuilder();
+            for (byte b : md.digest(text.getBytes("UTF-8"))) // NOI18N
+                sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(text.hashCode()) + Integer.toHexString(text.length());
+        } catch (UnsupportedEncodingException e) {
+            return Integer.toHexString(text.hashCode()) + Integer.toHexString(text.length());
+        }
+    }
+
+}
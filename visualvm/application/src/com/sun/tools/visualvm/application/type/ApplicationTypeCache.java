@@ -0,0 +1,148 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.application.type;
+
+import com.sun.tools.visualvm.core.datasource.Storage;
+import com.sun.tools.visualvm.core.datasupport.Utils;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.openide.util.RequestProcessor;
+
+/**
+ * Persistent cache of the detected application types. Maps fingerprint of
+ * an application to the class name of the provider which recognized it.
+ * The cache is valid only for the same set of registered providers.
+ */
+final class ApplicationTypeCache {
+
+    private static final Logger LOGGER = Logger.getLogger(ApplicationTypeCache.class.getName());
+
+    private static final String CACHE_FILE = "application_types.xml"; // NOI18N
+    private static final String PROVIDERS_KEY = "providers"; // NOI18N
+    // Version of the cached data, entries of older versions are dropped
+    private static final String VERSION = "2"; // NOI18N
+    private static final int MAX_ENTRIES = 1000;
+    private static final int SAVE_DELAY = 2000;
+
+    private final File file;
+    private final RequestProcessor.Task saveTask;
+    private Properties cache;
+
+
+    ApplicationTypeCache() {
+        file = new File(Storage.getPersistentStorageDirectoryString(), CACHE_FILE);
+        saveTask = new RequestProcessor("Application Types Cache").create(new Runnable() { // NOI18N
+            public void run() { save(); }
+        });
+    }
+
+
+    /**
+     * Returns class name of the provider which recognized the application
+     * or null if not known for the providers.
+     */
+    synchronized String getProvider(String fingerprint, String providers) {
+        Properties properties = getCache(providers);
+        return properties.getProperty(fingerprint);
+    }
+
+    synchronized void setProvider(String fingerprint, String providers, String provider) {
+        Properties properties = getCache(providers);
+        if (provider.equals(properties.getProperty(fingerprint))) return;
+        if (properties.size() > MAX_ENTRIES) {
+            String signature = properties.getProperty(PROVIDERS_KEY);
+            properties.clear();
+            properties.setProperty(PROVIDERS_KEY, signature);
+        }
+        properties.setProperty(fingerprint, provider);
+        saveTask.schedule(SAVE_DELAY);
+    }
+
+
+    private Properties getCache(String providers) {
+        providers = VERSION + ' ' + providers;
+        if (cache == null) cache = load();
+        if (!providers.equals(cache.getProperty(PROVIDERS_KEY))) {
+            cache.clear();
+            cache.setProperty(PROVIDERS_KEY, providers);
+        }
+        return cache;
+    }
+
+    private Properties load() {
+        Properties properties = new Properties();
+        if (file.isFile()) {
+            InputStream is = null;
+            try {
+                is = new BufferedInputStream(new FileInputStream(file));
+                properties.loadFromXML(is);
+            } catch (IOException e) {
+                LOGGER.log(Level.INFO, "Failed to load application types cache", e); // NOI18N
+                properties.clear();
+            } finally {
+                try {
+                    if (is != null) is.close();
+                } catch (IOException e) {
+                    LOGGER.log(Level.INFO, "Problem closing input stream", e); // NOI18N
+                }
+            }
+        }
+        return properties;
+    }
+
+    private void save() {
+        Properties properties;
+        synchronized (this) {
+            if (cache == null) return;
+            properties = (Properties)cache.clone();
+        }
+
+        Utils.prepareDirectory(file.getParentFile());
+        OutputStream os = null;
+        try {
+            os = new BufferedOutputStream(new FileOutputStream(file));
+            properties.storeToXML(os, null);
+        } catch (IOException e) {
+            LOGGER.log(Level.INFO, "Failed to save application types cache", e); // NOI18N
+        } finally {
+            try {
+                if (os != null) os.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.INFO, "Problem closing output stream", e); // NOI18N
+            }
+        }
+    }
+
+}
@@ -26,8 +26,13 @@
 package com.sun.tools.visualvm.application.type;
 
 import com.sun.tools.visualvm.application.Application;
+import com.sun.tools.visualvm.application.jvm.JvmFactory;
 import com.sun.tools.visualvm.core.model.ModelFactory;
 import com.sun.tools.visualvm.core.model.ModelProvider;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * The ApplicationTypeFactory class is a factory class for getting the
@@ -51,6 +56,7 @@ public final class ApplicationTypeFactory extends ModelFactory<ApplicationType,A
         if (appTypeFactory == null) {
             appTypeFactory = new ApplicationTypeFactory();
             appTypeFactory.registerProvider(appTypeFactory);
+            appTypeFactory.registerProvider(appTypeFactory.new CachingProvider());
             appTypeFactory.registerProvider(new MainClassApplicationTypeFactory());
             appTypeFactory.registerProvider(new NetBeansApplicationTypeFactory());
             appTypeFactory.registerProvider(new JavaPluginApplicationTypeFactory());
@@ -85,4 +91,84 @@ public final class ApplicationTypeFactory extends ModelFactory<ApplicationType,A
     public ApplicationType createModelFor(Application app) {
         return new DefaultApplicationType(app);
     }
+    
+    
+    /**
+     * Consults the registered providers on behalf of the factory and remembers
+     * the provider which recognized the application by its fingerprint. Next
+     * time an application with the same fingerprint is detected, the remembered
+     * provider is asked first. Only specific types are remembered, and only if
+     * the providers skipped by asking the remembered one first recognize
+     * the application just by its fingerprint.
+     */
+    private class CachingProvider implements ModelProvider<ApplicationType,Application> {
+        
+        // Built-in providers deciding just by main class and arguments,
+        // subclasses may use other data and are not included
+        private final Set<Class> fingerprintProviders = new HashSet(Arrays.asList(
+            MainClassApplicationTypeFactory.class,
+            NetBeansApplicationTypeFactory.class,
+            JavaPluginApplicationTypeFactory.class,
+            JavaWebStartApplicationTypeFactory.class,
+            JDeveloperApplicationTypeFactory.class,
+            MavenApplicationTypeFactory.class,
+            IntellijApplicationTypeFactory.class
+        ));
+        
+        private final ApplicationTypeCache cache = new ApplicationTypeCache();
+        
+        public ApplicationType createModelFor(Application app) {
+            ApplicationFingerprint fingerprint = ApplicationFingerprint.get(JvmFactory.getJVMFor(app));
+            if (fingerprint == null) return null;   // let the providers decide as usual
+            
+            List<ModelProvider<ApplicationType,Application>> providers = getProviders();
+            providers.remove(this);
+            StringBuilder signature = new StringBuilder();
+            for (ModelProvider provider : providers)
+                signature.append(provider.getClass().getName()).append(' ');    // NOI18N
+            String providersSignature = signature.toString();
+            String key = fingerprint.getKey();
+            
+            String cachedProvider = cache.getProvider(key, providersSignature);
+            if (cachedProvider != null) {
+                for (ModelProvider<ApplicationType,Application> provider : providers) {
+                    if (cachedProvider.equals(provider.getClass().getName())) {
+                        ApplicationType type = provider.createModelFor(app);
+                        if (isSpecific(provider, type)) return type;
+                        break;
+                    }
+                }
+            }
+            
+            boolean cacheable = true;
+            for (ModelProvider<ApplicationType,Application> provider : providers) {
+                ApplicationType type = provider.createModelFor(app);
+                if (type != null) {
+                    if (cacheable && isSpecific(provider, type))
+                        cache.setProvider(key, providersSignature, provider.getClass().getName());
+                    return type;
+                }
+                // Skipping the provider next time could change the result
+                if (!decidesByFingerprint(provider, fingerprint)) cacheable = false;
+            }
+            return null;
+        }
+        
+        public int priority() {
+            return Integer.MAX_VALUE;
+        }
+        
+        // The fallback generic type is not worth remembering
+        private boolean isSpecific(ModelProvider provider, ApplicationType type) {
+            return type != null && provider != ApplicationTypeFactory.this &&
+                   !(type instanceof DefaultApplicationType);
+        }
+        
+        private boolean decidesByFingerprint(ModelProvider provider, ApplicationFingerprint fingerprint) {
+            Class providerClass = provider.getClass();
+            // Eclipse native launcher is recognized by system properties
+            if (providerClass == EclipseApplicationTypeFactory.class) return fingerprint.hasMainClass();
+            return fingerprintProviders.contains(providerClass);
+        }
+    }
 }
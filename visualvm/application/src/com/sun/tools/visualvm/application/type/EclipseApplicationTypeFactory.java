@@ -38,8 +38,8 @@ import java.util.Properties;
 public class EclipseApplicationTypeFactory extends MainClassApplicationTypeFactory {
     
     private static final String MAIN_CLASS = "org.eclipse.equinox.launcher.Main"; // NOI18N
-    private static final String ECLIPSE_ID = "-Dosgi.requiredJavaVersion="; // NOI18N
-    private static final String ECLIPSE_ID2 = "-XstartOnFirstThread"; // NOI18N
+    static final String ECLIPSE_ID = "-Dosgi.requiredJavaVersion="; // NOI18N
+    static final String ECLIPSE_ID2 = "-XstartOnFirstThread"; // NOI18N
     private static final String ECLIPSE_SYSPROP_ID = "eclipse.buildId"; // NOI18N
     private static final String ECLIPSE_NAME = "Eclipse"; // NOI18N
     
@@ -59,8 +59,8 @@ public class EclipseApplicationTypeFactory extends MainClassApplicationTypeFacto
             return new EclipseApplicationType(app, name);
         }
         if (mainClass == null || mainClass.length() == 0) {    // there is no main class - detect native Windows launcher
-            String args = jvm.getJvmArgs();
-            if (args != null && (args.contains(ECLIPSE_ID) || args.contains(ECLIPSE_ID2))) {
+            if (ApplicationFingerprint.hasMarker(jvm, ECLIPSE_ID) ||
+                ApplicationFingerprint.hasMarker(jvm, ECLIPSE_ID2)) {
                 String name = getName(jvm);
                 if (name != null) {
                     return new EclipseApplicationType(app, name);
@@ -38,7 +38,7 @@ import java.util.Scanner;
 public class IntellijApplicationTypeFactory extends MainClassApplicationTypeFactory {
     
     private static final String MAIN_CLASS = "com.intellij.idea.Main"; // NOI18N
-    private static final String PLATFORM_ID = "-Didea.paths.selector="; // NOI18N
+    static final String PLATFORM_ID = "-Didea.paths.selector="; // NOI18N
     private static final String PLATFORM_PREFIX = "-Didea.platform.prefix="; // NOI18N
     private static final String IDEA_ID = "Idea";  // NOI18N
     private static final String IDEA_NAME = "IntelliJ IDEA"; // NOI18N
@@ -56,8 +56,7 @@ public class IntellijApplicationTypeFactory extends MainClassApplicationTypeFact
             return new IntellijApplicationType(app, getName(jvm));
         }
         if (mainClass == null || mainClass.length() == 0) {    // there is no main class - detect native Windows launcher
-            String args = jvm.getJvmArgs();
-            if (args != null && args.contains(PLATFORM_ID)) {
+            if (ApplicationFingerprint.hasMarker(jvm, PLATFORM_ID)) {
                 return new IntellijApplicationType(app, getName(jvm));
             }
         }
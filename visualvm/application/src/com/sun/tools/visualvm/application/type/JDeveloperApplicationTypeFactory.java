@@ -39,8 +39,8 @@ public class JDeveloperApplicationTypeFactory extends MainClassApplicationTypeFa
     private static final String MAIN_CLASS_11 = "oracle.ide.boot.Launcher"; // NOI18N
     private static final String MAIN_CLASS_10 = "oracle.ideimpl.Main"; // NOI18N
     private static final String IDE_CONF_12 = "\\-Dide.conf=\\S+jdev.conf"; // NOI18N
-    private static final String IDE_CONF_11 = "-Dide.config_pathname="; // NOI18N
-    private static final String IDE_PRODUCT_10 = "-Dide.product=oracle.jdeveloper"; // NOI18N
+    static final String IDE_CONF_11 = "-Dide.config_pathname="; // NOI18N
+    static final String IDE_PRODUCT_10 = "-Dide.product=oracle.jdeveloper"; // NOI18N
 
     private static final Pattern IDE_CONF_12_PATTERN = Pattern.compile(IDE_CONF_12);
     
@@ -57,10 +57,10 @@ public class JDeveloperApplicationTypeFactory extends MainClassApplicationTypeFa
         if (mainClass == null || mainClass.length() == 0) {    // there is no main class - detect native Windows launcher
             String args = jvm.getJvmArgs();
             if (args != null) {
-                if (args.contains(IDE_CONF_11)) {
+                if (ApplicationFingerprint.hasMarker(jvm, IDE_CONF_11)) {
                     return "11g";  // NOI18N
                 }
-                if (args.contains(IDE_PRODUCT_10)) {
+                if (ApplicationFingerprint.hasMarker(jvm, IDE_PRODUCT_10)) {
                     return "10g";  // NOI18N
                 }
                 if (IDE_CONF_12_PATTERN.matcher(args).find()) {
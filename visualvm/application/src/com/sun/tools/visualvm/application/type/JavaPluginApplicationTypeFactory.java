@@ -37,7 +37,7 @@ import com.sun.tools.visualvm.application.jvm.JvmFactory;
 public class JavaPluginApplicationTypeFactory
         extends AbstractModelProvider<ApplicationType, Application> {
 
-    private static final String JAVA_PLUGIN = "-Djavaplugin.version=";  // NOI18N
+    static final String JAVA_PLUGIN = "-Djavaplugin.version=";  // NOI18N
     private static final String JAVA_PLUGIN2_MAIN = "sun.plugin2.main.client.PluginMain"; // NOI18N
 
     /**
@@ -50,9 +50,9 @@ public class JavaPluginApplicationTypeFactory
     public ApplicationType createModelFor(Application application) {
         Jvm jvm = JvmFactory.getJVMFor(application);
         if (jvm.isBasicInfoSupported()) {
-            String args = jvm.getJvmArgs();
-            int plugin_index = args.indexOf(JAVA_PLUGIN);
-            if (plugin_index != -1) {
+            if (ApplicationFingerprint.hasMarker(jvm, JAVA_PLUGIN)) {
+                String args = jvm.getJvmArgs();
+                int plugin_index = args.indexOf(JAVA_PLUGIN);
                 String version;
                 int version_index = plugin_index + JAVA_PLUGIN.length();
                 int space_index = args.indexOf(' ', version_index);
@@ -37,7 +37,7 @@ import com.sun.tools.visualvm.application.jvm.JvmFactory;
 public class JavaWebStartApplicationTypeFactory
         extends AbstractModelProvider<ApplicationType, Application> {
 
-    private static final String JWS = "-Djnlpx.home=";  // NOI18N
+    static final String JWS = "-Djnlpx.home=";  // NOI18N
 
     /**
      * Detects Java Web Start application.
@@ -49,9 +49,7 @@ public class JavaWebStartApplicationTypeFactory
     public ApplicationType createModelFor(Application application) {
         Jvm jvm = JvmFactory.getJVMFor(application);
         if (jvm.isBasicInfoSupported()) {
-            String args = jvm.getJvmArgs();
-            int jws_index = args.indexOf(JWS);
-            if (jws_index != -1) {
+            if (ApplicationFingerprint.hasMarker(jvm, JWS)) {
                 return new JavaWebStartApplicationType("");
             }
         }
@@ -35,8 +35,8 @@ import com.sun.tools.visualvm.application.Application;
 public class MavenApplicationTypeFactory extends MainClassApplicationTypeFactory {
     
     private static final String MAIN_CLASS = "org.codehaus.classworlds.Launcher"; // NOI18N
-    private static final String PROP_1 = "-Dclassworlds.conf="; // NOI18N
-    private static final String PROP_2 = "-Dmaven.home="; // NOI18N
+    static final String PROP_1 = "-Dclassworlds.conf="; // NOI18N
+    static final String PROP_2 = "-Dmaven.home="; // NOI18N
     
     /**
      * Detects Apache Maven. It returns
@@ -47,11 +47,9 @@ public class MavenApplicationTypeFactory extends MainClassApplicationTypeFactory
      */
     public ApplicationType createApplicationTypeFor(Application app, Jvm jvm, String mainClass) {
         if (MAIN_CLASS.equals(mainClass)) {
-            String args = jvm.getJvmArgs();
-            if (args != null) {
-                if (args.contains(PROP_1) && args.contains(PROP_2)) {
-                    return new MavenApplicationType(app);
-                }
+            if (ApplicationFingerprint.hasMarker(jvm, PROP_1) &&
+                ApplicationFingerprint.hasMarker(jvm, PROP_2)) {
+                return new MavenApplicationType(app);
             }
         }
         return null;
@@ -0,0 +1,124 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.application.type;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aho-Corasick automaton finding all the occurrences of up to 64 patterns
+ * in a single pass over the text.
+ */
+final class MultiPatternMatcher {
+
+    private final String[] patterns;
+    private final List<Map<Character, Integer>> transitions = new ArrayList();
+    private final List<Integer> failures = new ArrayList();
+    private final List<Long> outputs = new ArrayList();
+
+
+    MultiPatternMatcher(String... patterns) {
+        if (patterns.length > Long.SIZE)
+            throw new IllegalArgumentException("Too many patterns: " + patterns.length); // NOI18N
+        this.patterns = patterns.clone();
+
+        newState();
+        for (int i = 0; i < patterns.length; i++) {
+            int state = 0;
+            for (char ch : patterns[i].toCharArray()) {
+                Integer next = transitions.get(state).get(ch);
+                if (next == null) {
+                    next = newState();
+                    transitions.get(state).put(ch, next);
+                }
+                state = next;
+            }
+            outputs.set(state, outputs.get(state) | (1L << i));
+        }
+
+        // breadth-first computation of the failure links
+        LinkedList<Integer> queue = new LinkedList();
+        for (Integer state : transitions.get(0).values()) queue.add(state);
+        while (!queue.isEmpty()) {
+            int state = queue.removeFirst();
+            for (Map.Entry<Character, Integer> entry : transitions.get(state).entrySet()) {
+                int next = entry.getValue();
+                queue.add(next);
+                int failure = failures.get(state);
+                while (failure != 0 && !transitions.get(failure).containsKey(entry.getKey()))
+                    failure = failures.get(failure);
+                Integer target = transitions.get(failure).get(entry.getKey());
+                failure = target == null || target == next ? 0 : target;
+                failures.set(next, failure);
+                outputs.set(next, outputs.get(next) | outputs.get(failure));
+            }
+        }
+    }
+
+
+    /**
+     * Returns mask of the patterns found in the text, bit <code>i</code>
+     * is set if the text contains <code>i</code>-th pattern.
+     */
+    long match(String text) {
+        long found = 0;
+        if (text == null) return found;
+
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char ch = text.charAt(i);
+            Integer next = transitions.get(state).get(ch);
+            while (next == null && state != 0) {
+                state = failures.get(state);
+                next = transitions.get(state).get(ch);
+            }
+            state = next == null ? 0 : next;
+            found |= outputs.get(state);
+        }
+        return found;
+    }
+
+    /**
+     * Returns index of the pattern or -1 if the matcher doesn't search for it.
+     */
+    int indexOf(String pattern) {
+        for (int i = 0; i < patterns.length; i++)
+            if (patterns[i].equals(pattern)) return i;
+        return -1;
+    }
+
+
+    private int newState() {
+        transitions.add(new HashMap());
+        failures.add(0);
+        outputs.add(0L);
+        return transitions.size() - 1;
+    }
+
+}
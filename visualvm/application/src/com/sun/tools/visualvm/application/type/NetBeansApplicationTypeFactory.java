@@ -41,13 +41,13 @@ import java.util.regex.Pattern;
 public class NetBeansApplicationTypeFactory extends MainClassApplicationTypeFactory {
     
     private static final String NETBEANS_DIRS = "-Dnetbeans.dirs="; // NOI18N
-    private static final String NB_PLATFORM_HOME = "-Dnetbeans.home="; // NOI18N
+    static final String NB_PLATFORM_HOME = "-Dnetbeans.home="; // NOI18N
     private static final String BRANDING_ID = "--branding "; // NOI18N
     private static final String VISUALVM_ID = "visualvm"; // NOI18N
     private static final String MAIN_CLASS = "org.netbeans.Main"; // NOI18N
     private static final Pattern NBCLUSTER_PATTERN = Pattern.compile("nb[0-9]+\\.[0-9]+");    // NOI18N
     private static final String BUILD_CLUSTER = "cluster"; // NOI18N
-    private static final String VISUALVM_BUILD_WIN_ID = "\\visualvm\\build\\cluster;"; // NOI18N
+    static final String VISUALVM_BUILD_WIN_ID = "\\visualvm\\build\\cluster;"; // NOI18N
     static final String NB_CLUSTER = "nb";    // NOI18N
     static final String PRODUCT_VERSION_PROPERTY="netbeans.productversion";  // NOI18N
     
@@ -56,8 +56,7 @@ public class NetBeansApplicationTypeFactory extends MainClassApplicationTypeFact
             return true;
         }
         if (mainClass == null || mainClass.length() == 0) {    // there is no main class - detect new NB 7.0 windows launcher
-            String args = jvm.getJvmArgs();
-            if (args != null && args.contains(NB_PLATFORM_HOME)) {
+            if (ApplicationFingerprint.hasMarker(jvm, NB_PLATFORM_HOME)) {
                 return true;
             }
         }
@@ -139,7 +138,7 @@ public class NetBeansApplicationTypeFactory extends MainClassApplicationTypeFact
                     // directly from IDE or from ant script.
                     // Check if it is VisualVM on Windows - on other platforms
                     // VisualVM is recognized via branding
-                    if (jvm.getJvmArgs().contains(VISUALVM_BUILD_WIN_ID)) {
+                    if (ApplicationFingerprint.hasMarker(jvm, VISUALVM_BUILD_WIN_ID)) {
                         return new VisualVMApplicationType(app);
                     }
                 }
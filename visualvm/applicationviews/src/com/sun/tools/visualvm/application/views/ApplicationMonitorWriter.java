@@ -0,0 +1,87 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.application.views;
+
+import com.sun.tools.visualvm.application.jvm.Jvm;
+import com.sun.tools.visualvm.application.jvm.MonitoredData;
+import com.sun.tools.visualvm.application.views.monitor.ApplicationMonitorWriterImpl;
+import com.sun.tools.visualvm.core.datasource.Storage;
+import java.io.IOException;
+
+/**
+ * Collects data of the Monitor application subtab without opening the view and
+ * saves them to an application snapshot. The caller provides the monitored
+ * data, typically from a thread collecting other data as well.
+ *
+ * @since VisualVM 1.4
+ */
+public final class ApplicationMonitorWriter {
+
+    private final ApplicationMonitorWriterImpl impl;
+
+
+    /**
+     * Creates new ApplicationMonitorWriter.
+     *
+     * @param jvm Jvm of the monitored application
+     * @param processorsCount number of processors available to the application
+     * @param valuesCount number of values to be kept in the charts
+     */
+    public ApplicationMonitorWriter(Jvm jvm, int processorsCount, int valuesCount) {
+        impl = new ApplicationMonitorWriterImpl(jvm, processorsCount, valuesCount);
+    }
+
+
+    /**
+     * Adds a packet of monitored data.
+     *
+     * @param timestamp time of the data in milliseconds
+     * @param data monitored data, null values are ignored
+     */
+    public void addValues(long timestamp, MonitoredData data) {
+        impl.addValues(timestamp, data);
+    }
+
+    /**
+     * Returns number of daemon threads from the last data packet or -1 if not known.
+     *
+     * @return number of daemon threads from the last data packet or -1 if not known
+     */
+    public long getDaemonThreads() {
+        return impl.getDaemonThreads();
+    }
+
+    /**
+     * Saves the collected data to the storage of an application snapshot.
+     *
+     * @param storage storage of an application snapshot
+     * @throws IOException if an I/O error occurs
+     */
+    public void save(Storage storage) throws IOException {
+        impl.save(storage);
+    }
+
+}
@@ -0,0 +1,67 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.application.views;
+
+import com.sun.tools.visualvm.application.views.threads.ApplicationThreadsWriterImpl;
+import com.sun.tools.visualvm.core.datasource.Storage;
+import java.io.IOException;
+import java.lang.management.ThreadInfo;
+
+/**
+ * Collects data of the Threads application subtab without opening the view and
+ * saves them to an application snapshot. The caller provides thread dumps,
+ * typically taken for other purposes like CPU sampling.
+ *
+ * @since VisualVM 1.4
+ */
+public final class ApplicationThreadsWriter {
+
+    private final ApplicationThreadsWriterImpl impl = new ApplicationThreadsWriterImpl();
+
+
+    /**
+     * Adds states of the threads from a thread dump. Threads missing in the
+     * dump since the previous one are considered terminated.
+     *
+     * @param timestamp time of the thread dump in milliseconds
+     * @param infos thread dump, may contain null elements
+     */
+    public void addThreads(long timestamp, ThreadInfo[] infos) {
+        impl.addThreads(timestamp, infos);
+    }
+
+    /**
+     * Saves the collected data to the storage of an application snapshot.
+     *
+     * @param storage storage of an application snapshot
+     * @param daemonThreads number of daemon threads to be displayed
+     * @throws IOException if an I/O error occurs
+     */
+    public void save(Storage storage, int daemonThreads) throws IOException {
+        impl.save(storage, daemonThreads);
+    }
+
+}
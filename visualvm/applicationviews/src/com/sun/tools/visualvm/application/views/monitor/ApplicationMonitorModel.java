@@ -44,6 +44,7 @@ import com.sun.tools.visualvm.tools.jmx.JvmMXBeansFactory;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.management.MemoryMXBean;
@@ -173,6 +174,16 @@ final class ApplicationMonitorModel {
         return new ApplicationMonitorModel(snapshot, false);
     }
 
+    // Model without a DataSource collecting values passed by the caller
+    static ApplicationMonitorModel create(Jvm jvm, int processorsCount, int chartCache) {
+        ApplicationMonitorModel model = new ApplicationMonitorModel(null, false);
+        model.initialized = true;
+        model.chartCache = chartCache;
+        model.processorsCount = Math.max(processorsCount, 1);
+        model.initialize(jvm);
+        return model;
+    }
+
     
     public DataSource getSource() { return source; }
     public boolean    isLive() { return live; }
@@ -214,6 +225,44 @@ final class ApplicationMonitorModel {
     public long getDeamonThreads() { return daemonThreads; }
     public long getPeakThreads() { return peakThreads; }
     public long getStartedThreads() { return startedThreads; }
+
+    // Returns CPU and GC usage in the last interval in tenths of percent, -1 for
+    // a value not monitored, or null if two data packets are not available yet
+    public long[] getCpuUsage() {
+        if (!cpuMonitoringSupported && !gcMonitoringSupported) return null;
+
+        long upTime = uptime * 1000000;
+        long prevUpTime = this.prevUpTime * 1000000;
+
+        boolean tracksProcessCpuTime = cpuMonitoringSupported && prevProcessCpuTime != -1;
+        long processCpuTime = tracksProcessCpuTime ? this.processCpuTime / processorsCount : -1;
+        long prevProcessCpuTime = tracksProcessCpuTime ? this.prevProcessCpuTime / processorsCount : -1;
+
+        boolean tracksProcessGcTime  = gcMonitoringSupported && prevProcessGcTime != -1;
+        long processGcTime  = tracksProcessGcTime ? this.processGcTime * 1000000 / processorsCount : -1;
+        long prevProcessGcTime  = tracksProcessGcTime ? this.prevProcessGcTime * 1000000 / processorsCount : -1;
+
+        if (this.prevUpTime == -1 || !(tracksProcessCpuTime || tracksProcessGcTime)) return null;
+
+        long upTimeDiff = upTime - prevUpTime;
+        long cpuUsage = -1;
+        long gcUsage = -1;
+
+        if (tracksProcessCpuTime) {
+            long processTimeDiff = processCpuTime - prevProcessCpuTime;
+            cpuUsage = upTimeDiff > 0 ? Math.min((long)(1000 * (float)processTimeDiff /
+                                                 (float)upTimeDiff), 1000) : 0;
+        }
+
+        if (tracksProcessGcTime) {
+            long processGcTimeDiff = processGcTime - prevProcessGcTime;
+            gcUsage = upTimeDiff > 0 ? Math.min((long)(1000 * (float)processGcTimeDiff /
+                                                (float)upTimeDiff), 1000) : 0;
+            if (cpuUsage != -1 && cpuUsage < gcUsage) gcUsage = cpuUsage;
+        }
+
+        return new long[] { cpuUsage, gcUsage };
+    }
     
     
     public synchronized void initialize() {
@@ -299,7 +348,15 @@ final class ApplicationMonitorModel {
         
         initialize();
         
-        Storage storage = snapshot.getStorage();
+        try {
+            save(snapshot.getStorage());
+        } catch (IOException e) {
+            // TODO: log it
+        }
+        
+    }
+
+    void save(Storage storage) throws IOException {
         
         setProperty(storage, SNAPSHOT_VERSION, CURRENT_SNAPSHOT_VERSION);
 
@@ -349,22 +406,14 @@ final class ApplicationMonitorModel {
         
     }
 
-    private static void saveChartSupport(SimpleXYChartSupport chartSupport, File file) {
+    private static void saveChartSupport(SimpleXYChartSupport chartSupport, File file) throws IOException {
         if (chartSupport == null) return;
 
-        OutputStream os = null;
-        
+        OutputStream os = new FileOutputStream(file);
         try {
-            os = new FileOutputStream(file);
             chartSupport.saveValues(os);
-        } catch (Exception e) {
-            // TODO: log it
         } finally {
-            try {
-                if (os != null) os.close();
-            } catch (Exception e) {
-                // TODO: log it
-            }
+            os.close();
         }
     }
 
@@ -453,16 +502,7 @@ final class ApplicationMonitorModel {
             } else {
                 takeHeapDumpSupported = hds.supportsRemoteHeapDump(application);
             }
-            cpuMonitoringSupported = jvm.isCpuMonitoringSupported();
-            gcMonitoringSupported = jvm.isCollectionTimeSupported();
-            memoryMonitoringSupported = jvm.isMemoryMonitoringSupported();
-            classMonitoringSupported = jvm.isClassMonitoringSupported();
-            threadsMonitoringSupported = jvm.isThreadMonitoringSupported();
-            if (memoryMonitoringSupported) {
-                String[] names = jvm.getGenName();
-                heapName = names[0];
-                permgenName = names[1];
-            }
+            initialize(jvm);
         }
 
         memoryMXBean = null;
@@ -500,7 +540,20 @@ final class ApplicationMonitorModel {
 
     }
 
-    private void updateValues(final long time, final MonitoredData data) {
+    private void initialize(Jvm jvm) {
+        cpuMonitoringSupported = jvm.isCpuMonitoringSupported();
+        gcMonitoringSupported = jvm.isCollectionTimeSupported();
+        memoryMonitoringSupported = jvm.isMemoryMonitoringSupported();
+        classMonitoringSupported = jvm.isClassMonitoringSupported();
+        threadsMonitoringSupported = jvm.isThreadMonitoringSupported();
+        if (memoryMonitoringSupported) {
+            String[] names = jvm.getGenName();
+            heapName = names[0];
+            permgenName = names[1];
+        }
+    }
+
+    void updateValues(final long time, final MonitoredData data) {
         timestamp = time;
         if (data != null) {
             prevUpTime = uptime;
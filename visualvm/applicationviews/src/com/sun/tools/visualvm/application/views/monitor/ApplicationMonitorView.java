@@ -282,9 +282,6 @@ class ApplicationMonitorView extends DataSourceView {
         private static final String GC_USAGE = NbBundle.getMessage(ApplicationMonitorView.class, "LBL_Gc_Usage"); // NOI18N
 
         private boolean liveModel;
-        private int processorsCount;
-        private boolean cpuMonitoringSupported;
-        private boolean gcMonitoringSupported;
 
         private SimpleXYChartSupport chartSupport;
 
@@ -299,61 +296,21 @@ class ApplicationMonitorView extends DataSourceView {
         }
 
         public void refresh(ApplicationMonitorModel model) {
-            if (cpuMonitoringSupported || gcMonitoringSupported) {
-
-                long upTime = model.getUpTime() * 1000000;
-                long prevUpTime = model.getPrevUpTime() * 1000000;
-
-                boolean tracksProcessCpuTime = cpuMonitoringSupported &&
-                                               model.getPrevProcessCpuTime() != -1;
-                long processCpuTime = tracksProcessCpuTime ?
-                    model.getProcessCpuTime() / processorsCount : -1;
-                long prevProcessCpuTime = tracksProcessCpuTime ?
-                    model.getPrevProcessCpuTime() / processorsCount : -1;
-
-                boolean tracksProcessGcTime  = gcMonitoringSupported &&
-                                               model.getPrevProcessGcTime() != -1;
-                long processGcTime  = tracksProcessGcTime  ?
-                    model.getProcessGcTime() * 1000000 / processorsCount : -1;
-                long prevProcessGcTime  = tracksProcessGcTime  ?
-                    model.getPrevProcessGcTime() * 1000000 / processorsCount : -1;
-
-                if (prevUpTime != -1 && (tracksProcessCpuTime || tracksProcessGcTime)) {
-
-                    long upTimeDiff = upTime - prevUpTime;
-                    long cpuUsage = -1;
-                    long gcUsage = -1;
-                    String cpuDetail = UNKNOWN;
-                    String gcDetail = UNKNOWN;
-
-                    if (tracksProcessCpuTime) {
-                        long processTimeDiff = processCpuTime - prevProcessCpuTime;
-                        cpuUsage = upTimeDiff > 0 ? Math.min((long)(1000 * (float)processTimeDiff /
-                                                             (float)upTimeDiff), 1000) : 0;
-                        cpuDetail = cpuUsage == -1 ? UNKNOWN : chartSupport.formatPercent(cpuUsage);
-                    }
-
-                    if (tracksProcessGcTime) {
-                        long processGcTimeDiff = processGcTime - prevProcessGcTime;
-                        gcUsage = upTimeDiff > 0 ? Math.min((long)(1000 * (float)processGcTimeDiff /
-                                                            (float)upTimeDiff), 1000) : 0;
-                        if (cpuUsage != -1 && cpuUsage < gcUsage) gcUsage = cpuUsage;
-                        gcDetail = gcUsage == -1 ? UNKNOWN : chartSupport.formatPercent(gcUsage);
-                    }
-                    
-                    if (liveModel)
-                        chartSupport.addValues(model.getTimestamp(), new long[] { Math.max(cpuUsage, 0), Math.max(gcUsage, 0) });
-                    chartSupport.updateDetails(new String[] { cpuDetail, gcDetail });
+            long[] usage = model.getCpuUsage();
+            if (usage != null) {
+                long cpuUsage = usage[0];
+                long gcUsage = usage[1];
+                String cpuDetail = cpuUsage == -1 ? UNKNOWN : chartSupport.formatPercent(cpuUsage);
+                String gcDetail = gcUsage == -1 ? UNKNOWN : chartSupport.formatPercent(gcUsage);
 
-                }
+                if (liveModel)
+                    chartSupport.addValues(model.getTimestamp(), new long[] { Math.max(cpuUsage, 0), Math.max(gcUsage, 0) });
+                chartSupport.updateDetails(new String[] { cpuDetail, gcDetail });
             }
         }
 
         private void initModels(ApplicationMonitorModel model) {
             liveModel = model.isLive();
-            processorsCount = model.getProcessorsCount();
-            cpuMonitoringSupported = model.isCpuMonitoringSupported();
-            gcMonitoringSupported = model.isGcMonitoringSupported();
 
             SimpleXYChartDescriptor chartDescriptor =
                     SimpleXYChartDescriptor.percent(false, 0.1d, model.getChartCache());
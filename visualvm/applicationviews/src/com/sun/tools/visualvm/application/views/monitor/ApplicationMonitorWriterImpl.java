@@ -0,0 +1,132 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.application.views.monitor;
+
+import com.sun.tools.visualvm.application.jvm.Jvm;
+import com.sun.tools.visualvm.application.jvm.MonitoredData;
+import com.sun.tools.visualvm.charts.ChartFactory;
+import com.sun.tools.visualvm.charts.SimpleXYChartDescriptor;
+import com.sun.tools.visualvm.charts.SimpleXYChartSupport;
+import com.sun.tools.visualvm.core.datasource.Storage;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import javax.swing.SwingUtilities;
+
+/**
+ * Collects Monitor tab data using ApplicationMonitorModel and the same charts
+ * as ApplicationMonitorView without creating the view.
+ */
+public final class ApplicationMonitorWriterImpl {
+
+    private final ApplicationMonitorModel model;
+
+    private final SimpleXYChartSupport cpuChartSupport;
+    private final SimpleXYChartSupport heapChartSupport;
+    private final SimpleXYChartSupport permgenChartSupport;
+    private final SimpleXYChartSupport classesChartSupport;
+    private final SimpleXYChartSupport threadsChartSupport;
+
+
+    public ApplicationMonitorWriterImpl(Jvm jvm, int processorsCount, int valuesCount) {
+        model = ApplicationMonitorModel.create(jvm, processorsCount, Math.max(valuesCount, 1));
+        int chartCache = model.getChartCache();
+
+        cpuChartSupport = model.isCpuMonitoringSupported() || model.isGcMonitoringSupported() ?
+            createChartSupport(SimpleXYChartDescriptor.percent(false, 0.1d, chartCache)) : null;
+        model.registerCpuChartSupport(cpuChartSupport);
+
+        boolean memoryMonitoringSupported = model.isMemoryMonitoringSupported();
+        heapChartSupport = memoryMonitoringSupported ? createChartSupport(
+            SimpleXYChartDescriptor.bytes(10 * 1024 * 1024, false, chartCache)) : null;
+        model.registerHeapChartSupport(heapChartSupport);
+        permgenChartSupport = memoryMonitoringSupported ? createChartSupport(
+            SimpleXYChartDescriptor.bytes(10 * 1024 * 1024, false, chartCache)) : null;
+        model.registerPermGenChartSupport(permgenChartSupport);
+
+        classesChartSupport = model.isClassMonitoringSupported() ? createChartSupport(
+            SimpleXYChartDescriptor.decimal(100, false, chartCache)) : null;
+        model.registerClassesChartSupport(classesChartSupport);
+
+        threadsChartSupport = model.isThreadsMonitoringSupported() ? createChartSupport(
+            SimpleXYChartDescriptor.decimal(3, false, chartCache)) : null;
+        model.registerThreadsChartSupport(threadsChartSupport);
+    }
+
+
+    public void addValues(long timestamp, MonitoredData data) {
+        if (data == null) return;
+        model.updateValues(timestamp, data);
+
+        long[] cpuUsage = model.getCpuUsage();
+        if (cpuUsage != null)
+            cpuChartSupport.addValues(timestamp, new long[] { Math.max(cpuUsage[0], 0),
+                                                              Math.max(cpuUsage[1], 0) });
+
+        if (model.isMemoryMonitoringSupported()) {
+            heapChartSupport.addValues(timestamp, new long[] { model.getHeapCapacity(),
+                                                               model.getHeapUsed() });
+            permgenChartSupport.addValues(timestamp, new long[] { model.getPermgenCapacity(),
+                                                                  model.getPermgenUsed() });
+        }
+
+        if (model.isClassMonitoringSupported()) {
+            long sharedClasses = model.getSharedLoaded() - model.getSharedUnloaded();
+            long totalClasses = model.getTotalLoaded() - model.getTotalUnloaded() + sharedClasses;
+            classesChartSupport.addValues(timestamp, new long[] { totalClasses, sharedClasses });
+        }
+
+        if (model.isThreadsMonitoringSupported())
+            threadsChartSupport.addValues(timestamp, new long[] { model.getTotalThreads(),
+                                                                  model.getDeamonThreads() });
+    }
+
+    public long getDaemonThreads() {
+        return model.getDeamonThreads();
+    }
+
+    public void save(Storage storage) throws IOException {
+        // SimpleXYChartSupport.addValues() stores the values in EDT
+        if (!SwingUtilities.isEventDispatchThread()) {
+            try {
+                SwingUtilities.invokeAndWait(new Runnable() { public void run() {} });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while saving " + storage.getDirectory()); // NOI18N
+            } catch (InvocationTargetException e) {
+                throw new IOException(e.getCause().toString());
+            }
+        }
+        model.save(storage);
+    }
+
+
+    private static SimpleXYChartSupport createChartSupport(SimpleXYChartDescriptor descriptor) {
+        // Only the number of items matters for the saved values
+        descriptor.addLineItems("0", "1"); // NOI18N
+        return ChartFactory.createSimpleXYChart(descriptor);
+    }
+
+}
@@ -0,0 +1,161 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.application.views.threads;
+
+import com.sun.tools.visualvm.core.datasource.Storage;
+import java.io.IOException;
+import java.lang.management.ThreadInfo;
+import org.netbeans.lib.profiler.global.CommonConstants;
+import org.netbeans.lib.profiler.results.threads.ThreadData;
+
+/**
+ * Collects Threads tab data without creating the view. Only the state changes
+ * are kept, threads are looked up by id in a primitive hash table so a sample
+ * doesn't allocate unless a new thread appears or a thread changes its state.
+ */
+public final class ApplicationThreadsWriterImpl {
+
+    private long[] tableIds = new long[256];
+    private int[] tableIndexes = new int[256]; // thread index + 1, 0 for empty slot
+
+    private ThreadRecord[] threads = new ThreadRecord[128];
+    private int threadsCount;
+
+    private int sampleStamp;
+    private long startTime = -1;
+    private long endTime = -1;
+
+
+    public void addThreads(long timestamp, ThreadInfo[] infos) {
+        if (startTime == -1) startTime = timestamp;
+        endTime = timestamp;
+        sampleStamp++;
+
+        for (int i = 0; i < infos.length; i++) {
+            ThreadInfo info = infos[i];
+            if (info == null) continue;
+            ThreadRecord thread = getThread(info);
+            thread.sampleStamp = sampleStamp;
+            thread.addState(timestamp, ThreadMXBeanDataManager.getState(info));
+        }
+
+        // threads not reported anymore have terminated
+        for (int i = 0; i < threadsCount; i++) {
+            ThreadRecord thread = threads[i];
+            if (thread.sampleStamp != sampleStamp)
+                thread.addState(timestamp, CommonConstants.THREAD_STATUS_ZOMBIE);
+        }
+    }
+
+    public void save(Storage storage, int daemonThreads) throws IOException {
+        ThreadData[] threadData = new ThreadData[threadsCount];
+        for (int tidx = 0; tidx < threadsCount; tidx++) {
+            ThreadRecord thread = threads[tidx];
+            ThreadData td = new ThreadData(thread.name, ""); // NOI18N
+            for (int sidx = 0; sidx < thread.count; sidx++)
+                td.add(thread.timestamps[sidx], thread.states[sidx]);
+            threadData[tidx] = td;
+        }
+
+        PersistenceSupport.writeDataManager(new PersistenceSupport.SavedThreadsDataManager(
+                startTime, endTime, Math.max(daemonThreads, 0), threadData), storage);
+    }
+
+
+    private ThreadRecord getThread(ThreadInfo info) {
+        long id = info.getThreadId();
+        int mask = tableIds.length - 1;
+        int slot = hash(id) & mask;
+        while (tableIndexes[slot] != 0) {
+            if (tableIds[slot] == id) return threads[tableIndexes[slot] - 1];
+            slot = (slot + 1) & mask;
+        }
+
+        if (threadsCount == threads.length) {
+            ThreadRecord[] newThreads = new ThreadRecord[threadsCount * 2];
+            System.arraycopy(threads, 0, newThreads, 0, threadsCount);
+            threads = newThreads;
+        }
+        ThreadRecord thread = new ThreadRecord(info.getThreadName());
+        threads[threadsCount++] = thread;
+        tableIds[slot] = id;
+        tableIndexes[slot] = threadsCount;
+
+        if (threadsCount * 2 > tableIds.length) rehash();
+        return thread;
+    }
+
+    private void rehash() {
+        long[] oldIds = tableIds;
+        int[] oldIndexes = tableIndexes;
+        tableIds = new long[oldIds.length * 2];
+        tableIndexes = new int[oldIds.length * 2];
+        int mask = tableIds.length - 1;
+        for (int i = 0; i < oldIds.length; i++) {
+            if (oldIndexes[i] == 0) continue;
+            int slot = hash(oldIds[i]) & mask;
+            while (tableIndexes[slot] != 0) slot = (slot + 1) & mask;
+            tableIds[slot] = oldIds[i];
+            tableIndexes[slot] = oldIndexes[i];
+        }
+    }
+
+    private static int hash(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int)(h ^ (h >>> 32));
+    }
+
+
+    private static final class ThreadRecord {
+
+        private final String name;
+        private long[] timestamps = new long[8];
+        private byte[] states = new byte[8];
+        private int count;
+        private int sampleStamp;
+
+        ThreadRecord(String name) {
+            this.name = name;
+        }
+
+        void addState(long timestamp, byte state) {
+            if (count > 0 && states[count - 1] == state) return;
+            if (count == states.length) {
+                long[] newTimestamps = new long[count * 2];
+                byte[] newStates = new byte[count * 2];
+                System.arraycopy(timestamps, 0, newTimestamps, 0, count);
+                System.arraycopy(states, 0, newStates, 0, count);
+                timestamps = newTimestamps;
+                states = newStates;
+            }
+            timestamps[count] = timestamp;
+            states[count] = state;
+            count++;
+        }
+
+    }
+
+}
@@ -62,21 +62,22 @@ final class PersistenceSupport {
     static void saveDataManager(VisualVMThreadsDataManager dm, Storage storage) {
         if (dm == null) return;
 
+        try {
+            writeDataManager(dm, storage);
+        } catch (Exception e) {
+            // TODO: log it
+        }
+    }
+
+    static void writeDataManager(VisualVMThreadsDataManager dm, Storage storage) throws IOException {
         File dir = storage.getDirectory();
-        OutputStream os = null;
+        OutputStream os = new FileOutputStream(new File(dir, THREADS_DATA_FILE));
 
         try {
-            os = new FileOutputStream(new File(dir, THREADS_DATA_FILE));
             saveDataManager(dm, os);
             storage.setCustomProperty(SNAPSHOT_VERSION, CURRENT_SNAPSHOT_VERSION);
-        } catch (Exception e) {
-            // TODO: log it
         } finally {
-            try {
-                if (os != null) os.close();
-            } catch (Exception e) {
-                // TODO: log it
-            }
+            os.close();
         }
     }
 
@@ -166,7 +167,7 @@ final class PersistenceSupport {
     }
 
 
-    private static class SavedThreadsDataManager extends VisualVMThreadsDataManager {
+    static class SavedThreadsDataManager extends VisualVMThreadsDataManager {
 
         private final long startTime;
         private final long endTime;
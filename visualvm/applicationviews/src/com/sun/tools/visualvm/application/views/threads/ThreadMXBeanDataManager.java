@@ -119,6 +119,39 @@ class ThreadMXBeanDataManager extends VisualVMThreadsDataManager {
         changeSupport.removePropertyChangeListener(l);
     }
     
+    static byte getState(ThreadInfo threadInfo) {
+        Thread.State state = threadInfo.getThreadState();
+        switch (state) {
+            case BLOCKED:
+                return CommonConstants.THREAD_STATUS_MONITOR;
+            case RUNNABLE:
+                return CommonConstants.THREAD_STATUS_RUNNING;
+            case TIMED_WAITING:
+            case WAITING:
+                StackTraceElement[] stack = threadInfo.getStackTrace();
+                if (stack.length>0) {
+                    StackTraceElement el = stack[0];
+                    if (isSleeping(el)) return CommonConstants.THREAD_STATUS_SLEEPING;
+                    if (isParked(el)) return CommonConstants.THREAD_STATUS_PARK;
+                }
+                return CommonConstants.THREAD_STATUS_WAIT;
+            case TERMINATED:
+            case NEW:
+                return CommonConstants.THREAD_STATUS_ZOMBIE;
+        }
+        return CommonConstants.THREAD_STATUS_UNKNOWN;
+    }
+
+    private static boolean isSleeping(StackTraceElement element) {
+        return Thread.class.getName().equals(element.getClassName()) &&
+                "sleep".equals(element.getMethodName());    // NOI18N
+    }
+
+    private static boolean isParked(StackTraceElement element) {
+        return "sun.misc.Unsafe".equals(element.getClassName()) &&    // NOI18N
+                "park".equals(element.getMethodName());    // NOI18N
+    }
+
     class ThreadMonitoredDataResponse extends MonitoredNumbersResponse {
 
         ThreadMonitoredDataResponse() {
@@ -173,38 +206,5 @@ class ThreadMXBeanDataManager extends VisualVMThreadsDataManager {
             setDataOnNewThreads(nNewThreads, newThreadsId, newThreadsNames, newThreadsClasses);
             setDataOnThreads(nThreads, timeStamps.length, tids, timeStamps, states);
         }
-
-        byte getState(ThreadInfo threadInfo) {
-            Thread.State state = threadInfo.getThreadState();
-            switch (state) {
-                case BLOCKED:
-                    return CommonConstants.THREAD_STATUS_MONITOR;
-                case RUNNABLE:
-                    return CommonConstants.THREAD_STATUS_RUNNING;
-                case TIMED_WAITING:
-                case WAITING:
-                    StackTraceElement[] stack = threadInfo.getStackTrace();
-                    if (stack.length>0) {
-                        StackTraceElement el = stack[0];
-                        if (isSleeping(el)) return CommonConstants.THREAD_STATUS_SLEEPING;
-                        if (isParked(el)) return CommonConstants.THREAD_STATUS_PARK;
-                    }
-                    return CommonConstants.THREAD_STATUS_WAIT;
-                case TERMINATED:
-                case NEW:
-                    return CommonConstants.THREAD_STATUS_ZOMBIE;
-            }
-            return CommonConstants.THREAD_STATUS_UNKNOWN;
-        }
-
-        boolean isSleeping(StackTraceElement element) {
-            return Thread.class.getName().equals(element.getClassName()) &&
-                    "sleep".equals(element.getMethodName());    // NOI18N
-        }
-
-        boolean isParked(StackTraceElement element) {
-            return "sun.misc.Unsafe".equals(element.getClassName()) &&    // NOI18N
-                    "park".equals(element.getMethodName());    // NOI18N
-        }
     }
 }
@@ -105,7 +105,22 @@ public final class Storage {
         this.directory = directory;
         this.propertiesFile = propertiesFile != null ? new File(directory, propertiesFile) : null;
     }
-    
+
+    /**
+     * Creates new instance of Storage with already loaded custom properties.
+     * The properties are used directly, the storage file is not read.
+     *
+     * @param directory directory where storage data will be stored.
+     * @param propertiesFile filename of storage file.
+     * @param properties custom properties loaded from the storage file.
+     *
+     * @since VisualVM 1.4
+     */
+    public Storage(File directory, String propertiesFile, Properties properties) {
+        this(directory, propertiesFile);
+        this.properties = properties;
+    }
+
     
     /**
      * Returns true if storage directory exists, false otherwise.
@@ -145,9 +160,11 @@ public final class Storage {
     public synchronized String[] getCustomProperties(String[] keys) {
         String[] values = new String[keys.length];
         Properties prop = getCustomProperties(false);
-        if (prop != null)
+        // shared properties may be reloaded concurrently, read them at once
+        if (prop != null) synchronized (prop) {
             for (int i = 0; i < keys.length; i++)
                     values[i] = prop.getProperty(keys[i]);
+        }
         return values;
     }
     
@@ -34,6 +34,9 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -45,6 +48,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
@@ -65,6 +69,8 @@ public final class Utils {
     public static final RequestProcessor FILE_QUEUE = new RequestProcessor("File Queue");   // NOI18N
     
     private static final int COPY_PACKET_SIZE = 16384;
+    private static final long COPY_CHUNK_SIZE = 32 * 1024 * 1024;
+    private static final int CHECKSUM_BUFFER_SIZE = 1024 * 1024;
     private static final Logger LOGGER = Logger.getLogger(Utils.class.getName());
 
     /**
@@ -285,8 +291,32 @@ public final class Utils {
      * @return true if the file was successfully copied, false otherwise.
      */
     public static boolean copyFile(File file, File copy) {
+        return copyFile(file, copy, null, false);
+    }
+    
+    /**
+     * Copies source file to the destination file, returns true if the file was successfully copied.
+     * The data are transferred directly between the file channels without copying them
+     * to the Java heap, the progress is reported to the provided CopyProgress which
+     * can also cancel the copying. Optionally the copy is verified by comparing the
+     * checksums of the source and destination files. If the copying fails, is cancelled
+     * or the verification fails, the destination file is deleted.
+     * 
+     * @param file source file.
+     * @param copy destination file.
+     * @param progress CopyProgress to be notified about the progress or null.
+     * @param verify true if the copy should be verified by checksums, false otherwise.
+     * @return true if the file was successfully copied, false otherwise.
+     * 
+     * @since VisualVM 1.4
+     */
+    public static boolean copyFile(File file, File copy, CopyProgress progress, boolean verify) {
         if (file == null || copy == null) throw new NullPointerException("File cannot be null");    // NOI18N
-        if (!file.isFile() || copy.isDirectory()) throw new IllegalArgumentException("Not a valid file");   // NOI18N       
+        if (!file.isFile() || copy.isDirectory()) throw new IllegalArgumentException("Not a valid file");   // NOI18N
+        
+        long size = file.length();
+        long total = verify ? size * 3 : size; // copying + reading both files
+        boolean copied = false;
         
         FileInputStream fis = null;
         FileOutputStream fos = null;
@@ -295,16 +325,132 @@ public final class Utils {
             fis = new FileInputStream(file);
             fos = new FileOutputStream(copy);
             
-            int bytes;
-            byte[] packet = new byte[COPY_PACKET_SIZE];
-            while ((bytes = fis.read(packet, 0, COPY_PACKET_SIZE)) != -1) fos.write(packet, 0, bytes);
-            return true;
+            FileChannel source = fis.getChannel();
+            FileChannel target = fos.getChannel();
+            
+            long position = 0;
+            while (position < size) {
+                // transferTo may transfer less bytes than requested
+                long transferred = source.transferTo(position, Math.min(COPY_CHUNK_SIZE, size - position), target);
+                if (transferred == 0 && position >= source.size()) {
+                    // nothing more to transfer, the source has been truncated while copying
+                    LOGGER.log(Level.SEVERE, "File " + file + " truncated while copying");  // NOI18N
+                    return false;
+                }
+                position += transferred;
+                if (progress != null && !progress.progress(position, total)) return false;
+            }
+            copied = target.size() == size;
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Error copying file", e);  // NOI18N
-            return false;
         } finally {
             try { if (fos != null) fos.close(); } catch (Exception e) { LOGGER.log(Level.SEVERE, "Problem closing target stream", e); } // NOI18N
             try { if (fis != null) fis.close(); } catch (Exception e) { LOGGER.log(Level.SEVERE, "Problem closing source stream", e); } // NOI18N
+            if (!copied) copy.delete();
+        }
+        
+        if (copied && verify) {
+            long sourceChecksum = getChecksum(file, progress, size, total);
+            long copyChecksum = sourceChecksum == -1 ? -1 : getChecksum(copy, progress, size * 2, total);
+            copied = sourceChecksum != -1 && sourceChecksum == copyChecksum;
+            if (!copied) {
+                if (copyChecksum != -1) LOGGER.log(Level.SEVERE, "Checksums of " + file + " and " + copy + " differ");  // NOI18N
+                copy.delete();
+            }
+        }
+        
+        return copied;
+    }
+    
+    /**
+     * Creates a hard link of the source file if supported by the JDK and the file system,
+     * otherwise copies the source file to the destination file. Returns true if the file
+     * was successfully linked or copied. Linking is only suitable for files which are
+     * not going to be modified, like saved snapshots.
+     * 
+     * @param file source file.
+     * @param copy destination file, must not exist.
+     * @param progress CopyProgress to be notified about the progress or null.
+     * @return true if the file was successfully linked or copied, false otherwise.
+     * 
+     * @since VisualVM 1.4
+     */
+    public static boolean linkOrCopyFile(File file, File copy, CopyProgress progress) {
+        if (file == null || copy == null) throw new NullPointerException("File cannot be null");    // NOI18N
+        if (!file.isFile() || copy.isDirectory()) throw new IllegalArgumentException("Not a valid file");   // NOI18N
+        
+        if (!copy.exists() && createLink(file, copy)) {
+            if (progress != null) progress.progress(file.length(), file.length());
+            return true;
+        }
+        return copyFile(file, copy, progress, false);
+    }
+    
+    /**
+     * Listener notified about the progress of copying a file.
+     * 
+     * @since VisualVM 1.4
+     */
+    public static interface CopyProgress {
+        
+        /**
+         * Invoked after a chunk of the file has been processed.
+         * 
+         * @param bytes number of bytes processed so far.
+         * @param total total number of bytes to be processed.
+         * @return true to continue copying, false to cancel it.
+         */
+        public boolean progress(long bytes, long total);
+        
+    }
+    
+    // Returns CRC32 of the file, -1 if failed or cancelled
+    private static long getChecksum(File file, CopyProgress progress, long offset, long total) {
+        FileInputStream fis = null;
+        try {
+            fis = new FileInputStream(file);
+            FileChannel channel = fis.getChannel();
+            CRC32 crc = new CRC32();
+            ByteBuffer buffer = ByteBuffer.allocate(CHECKSUM_BUFFER_SIZE);
+            long processed = 0;
+            long reported = 0;
+            int bytes;
+            while ((bytes = channel.read(buffer)) != -1) {
+                crc.update(buffer.array(), 0, bytes);
+                buffer.clear();
+                processed += bytes;
+                if (progress != null && processed - reported >= COPY_CHUNK_SIZE) {
+                    reported = processed;
+                    if (!progress.progress(offset + processed, total)) return -1;
+                }
+            }
+            if (progress != null && !progress.progress(offset + processed, total)) return -1;
+            return crc.getValue();
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Error computing checksum", e);  // NOI18N
+            return -1;
+        } finally {
+            try { if (fis != null) fis.close(); } catch (Exception e) { LOGGER.log(Level.SEVERE, "Problem closing stream", e); } // NOI18N
+        }
+    }
+    
+    // Uses java.nio.file.Files.createLink() available since JDK 7
+    private static boolean createLink(File file, File link) {
+        try {
+            Method toPath = File.class.getMethod("toPath"); // NOI18N
+            Class pathClass = Class.forName("java.nio.file.Path"); // NOI18N
+            Class filesClass = Class.forName("java.nio.file.Files"); // NOI18N
+            Method createLink = filesClass.getMethod("createLink", pathClass, pathClass); // NOI18N
+            createLink.invoke(null, toPath.invoke(link), toPath.invoke(file));
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false; // JDK 6
+        } catch (NoSuchMethodException e) {
+            return false; // JDK 6
+        } catch (Exception e) {
+            // Not supported by the file system, different file systems etc.
+            LOGGER.log(Level.FINE, "Failed to link " + file + " to " + link, e);  // NOI18N
+            return false;
         }
     }
     
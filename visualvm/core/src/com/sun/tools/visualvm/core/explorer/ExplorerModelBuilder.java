@@ -35,14 +35,20 @@ import com.sun.tools.visualvm.core.datasupport.Utils;
 import java.awt.Image;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
+import javax.swing.Icon;
 import javax.swing.ImageIcon;
 import javax.swing.SwingUtilities;
 import javax.swing.tree.DefaultTreeModel;
@@ -60,6 +66,9 @@ class ExplorerModelBuilder implements DataChangeListener<DataSource> {
     
     private static final RequestProcessor queue = new RequestProcessor("Explorer Builder Processor");   // NOI18N
     
+    // Delay of coalescing the nodes changes, roughly one frame
+    private static final int UPDATE_DELAY = 16;
+    
     private static ExplorerModelBuilder instance;
     
     private final ExplorerNode explorerRoot;
@@ -68,6 +77,10 @@ class ExplorerModelBuilder implements DataChangeListener<DataSource> {
     private final Map<DataSource, ExplorerNode> nodes = new HashMap();
     private final Map<DataSource, PropertyChangeListener> visibilityListeners = new HashMap();
     private final Map<DataSourceDescriptor, PropertyChangeListener> descriptorListeners = new HashMap();
+    
+    // Accessed only in queue
+    private final Map<Image, Reference<Icon>> icons = new WeakHashMap();
+    private NodesUpdate pendingUpdate;
 
     private static final ExplorerNodesComparator RELATIVE_COMPARATOR =
             new ExplorerNodesComparator(new RelativePositionComparator());
@@ -106,14 +119,24 @@ class ExplorerModelBuilder implements DataChangeListener<DataSource> {
     }
     
     private void processIndependentAddedDataSources(Set<DataSource> added) {
+        Set<DataSource> addedDisplayable = getAddedDisplayable(added,
+                                           Collections.EMPTY_MAP);
+        if (!addedDisplayable.isEmpty()) processAddedDisplayableDataSources(addedDisplayable);
+    }
+    
+    private Set<DataSource> getAddedDisplayable(Set<DataSource> added,
+                                                Map<DataSource, ExplorerNode> addedNodes) {
         Set<DataSource> addedDisplayable = new HashSet();
 
         for (DataSource dataSource : added) {
-            if (isDisplayed(dataSource) && dataSource != DataSource.ROOT) return;
-            if (isDisplayable(dataSource)) addedDisplayable.add(dataSource);
+            if ((isDisplayed(dataSource) || addedNodes.containsKey(dataSource)) &&
+                dataSource != DataSource.ROOT) return Collections.EMPTY_SET;
+            if (isDisplayable(dataSource) || (dataSource.isVisible() &&
+                addedNodes.containsKey(dataSource.getOwner())))
+                addedDisplayable.add(dataSource);
         }
 
-        if (!addedDisplayable.isEmpty()) processAddedDisplayableDataSources(addedDisplayable);
+        return addedDisplayable;
     }
     
     private void processRemovedDataSources(Set<DataSource> removed) {
@@ -145,22 +168,37 @@ class ExplorerModelBuilder implements DataChangeListener<DataSource> {
         });
 
         try {
-            for (DataSource dataSource : addedDisplayable) {
-                if (dataSource != DataSource.ROOT) {
-                    final ExplorerNode node = new ExplorerNode(dataSource);
-                    addedNodes.add(node);
-                    DataSourceDescriptor descriptor = DataSourceDescriptorFactory.getDescriptor(dataSource);
-                    PropertyChangeListener descriptorListener = new PropertyChangeListener() {
-                        public void propertyChange(final PropertyChangeEvent evt) {
-                            queue.post(new Runnable() {
-                                public void run() { updateNode(node, evt); }
-                            });
-                        }
-                    };
-                    descriptor.addPropertyChangeListener(descriptorListener);
-                    descriptorListeners.put(descriptor, descriptorListener);
-                    updateNode(node, descriptor);
+            // Displayable children of the added DataSources are added in the same
+            // batch, level by level so that parent nodes precede their children
+            Map<DataSource, ExplorerNode> addedDataSources = new HashMap();
+            Set<DataSource> level = addedDisplayable;
+            while (!level.isEmpty()) {
+                List<ExplorerNode> levelNodes = new ArrayList();
+                for (DataSource dataSource : level) {
+                    if (dataSource != DataSource.ROOT) {
+                        final ExplorerNode node = new ExplorerNode(dataSource);
+                        levelNodes.add(node);
+                        addedDataSources.put(dataSource, node);
+                        DataSourceDescriptor descriptor = DataSourceDescriptorFactory.getDescriptor(dataSource);
+                        PropertyChangeListener descriptorListener = new PropertyChangeListener() {
+                            public void propertyChange(final PropertyChangeEvent evt) {
+                                queue.post(new Runnable() {
+                                    public void run() { updateNode(node, evt); }
+                                });
+                            }
+                        };
+                        descriptor.addPropertyChangeListener(descriptorListener);
+                        descriptorListeners.put(descriptor, descriptorListener);
+                        updateNode(node, descriptor);
+                    }
                 }
+                Collections.sort(levelNodes, RELATIVE_COMPARATOR);
+                addedNodes.addAll(levelNodes);
+
+                Set<DataSource> addedChildren = new HashSet();
+                for (DataSource dataSource : level)
+                    addedChildren.addAll(dataSource.getRepository().getDataSources());
+                level = getAddedDisplayable(addedChildren, addedDataSources);
             }
         } finally {
             SwingUtilities.invokeLater(new Runnable() {
@@ -168,16 +206,11 @@ class ExplorerModelBuilder implements DataChangeListener<DataSource> {
             });
         }
 
-        Collections.sort(addedNodes, RELATIVE_COMPARATOR);
+        if (addedNodes.isEmpty()) return;
 
         try { SwingUtilities.invokeAndWait(new Runnable() {
             public void run() { addNodes(addedNodes); }
         }); } catch (Exception e) {}
-        
-        Set<DataSource> addedChildren = new HashSet();
-        for (DataSource dataSource : addedDisplayable)
-            addedChildren.addAll(dataSource.getRepository().getDataSources());
-        if (!addedChildren.isEmpty()) processIndependentAddedDataSources(addedChildren);
     }
     
     private void processRemovedDisplayedDataSources(Set<DataSource> removedDisplayed) {
@@ -205,7 +238,7 @@ class ExplorerModelBuilder implements DataChangeListener<DataSource> {
     
     private void updateNode(ExplorerNode node, DataSourceDescriptor descriptor) {
         node.setName(descriptor.getName());
-        node.setIcon(descriptor.getIcon() == null ? null : new ImageIcon(descriptor.getIcon()));
+        node.setIcon(getIcon(descriptor.getIcon()));
         node.setPreferredPosition(descriptor.getPreferredPosition());
         node.setComparator(descriptor.getChildrenComparator());
         node.setAutoExpansionPolicy(descriptor.getAutoExpansionPolicy());
@@ -217,37 +250,13 @@ class ExplorerModelBuilder implements DataChangeListener<DataSource> {
 
         // Node name needs to be updated
         if (DataSourceDescriptor.PROPERTY_NAME.equals(property)) {
-            String name = (String)newValue;
-            Runnable updater = node.setName(name) ?
-                new Runnable() {
-                    public void run() { updateContainer(node.getParent()); }
-                } : new Runnable() {
-                    public void run() { explorerModel.nodeChanged(node); }
-                };
-            try { SwingUtilities.invokeAndWait(updater); } catch (Exception e) {}
+            getPendingUpdate().names.put(node, (String)newValue);
         // Node icon needs to be updated
         } else if (DataSourceDescriptor.PROPERTY_ICON.equals(property)) {
-            Image icon = (Image)newValue;
-            node.setIcon(icon == null ? null : new ImageIcon(icon));
-            try { SwingUtilities.invokeAndWait(new Runnable() {
-                public void run() { explorerModel.nodeChanged(node); }
-            }); } catch (Exception e) {}
+            getPendingUpdate().icons.put(node, getIcon((Image)newValue));
         // Node position within its parent needs to be updated
         } else if (DataSourceDescriptor.PROPERTY_PREFERRED_POSITION.equals(property)) {
-            Integer preferredPosition = (Integer)newValue;
-            node.setPreferredPosition(preferredPosition);
-            final ExplorerNode parent = (ExplorerNode)node.getParent();
-            if (parent != null) {
-                try { SwingUtilities.invokeAndWait(new Runnable() {
-                    public void run() {
-                        int nodeIndex = parent.getIndex(node);
-                        parent.remove(node);
-                        explorerModel.nodesWereRemoved(parent, new int[] { nodeIndex }, new Object[] { node });
-                        parent.addNode(node);
-                        explorerModel.nodesWereInserted(parent, new int[] { parent.getIndex(node) });
-                    }
-                }); } catch (Exception e) {}
-            }
+            getPendingUpdate().positions.put(node, (Integer)newValue);
         } else if (DataSourceDescriptor.PROPERTY_CHILDREN_COMPARATOR.equals(property)) {
             final Comparator<DataSource> comparator = (Comparator<DataSource>)newValue;
             SwingUtilities.invokeLater(new Runnable() {
@@ -259,6 +268,33 @@ class ExplorerModelBuilder implements DataChangeListener<DataSource> {
             node.setAutoExpansionPolicy((Integer)evt.getNewValue());
         }
     }
+    
+    private Icon getIcon(Image image) {
+        if (image == null) return null;
+        Reference<Icon> iconRef = icons.get(image);
+        Icon icon = iconRef == null ? null : iconRef.get();
+        if (icon == null) {
+            icon = new ImageIcon(image);
+            icons.put(image, new WeakReference(icon));
+        }
+        return icon;
+    }
+    
+    private NodesUpdate getPendingUpdate() {
+        if (pendingUpdate == null) {
+            pendingUpdate = new NodesUpdate();
+            queue.post(new Runnable() {
+                public void run() {
+                    final NodesUpdate update = pendingUpdate;
+                    pendingUpdate = null;
+                    SwingUtilities.invokeLater(new Runnable() {
+                        public void run() { update.apply(); }
+                    });
+                }
+            }, UPDATE_DELAY);
+        }
+        return pendingUpdate;
+    }
 
     private void updateContainer(TreeNode node) {
         // Save selection
@@ -278,18 +314,21 @@ class ExplorerModelBuilder implements DataChangeListener<DataSource> {
         Set<DataSource> selectedDataSources = ExplorerSupport.sharedInstance().getSelectedDataSources();
         
         // Add nodes and create parent entries
+        // Parents added in this batch are not notified separately
+        Set<ExplorerNode> addedSet = new HashSet(added);
         for (ExplorerNode node : added) {
             DataSource dataSource = node.getUserObject();
             ExplorerNode nodeParent = getNodeFor(dataSource.getOwner());
             nodes.put(dataSource, node);
             nodeParent.addNode(node);
-            indexes.put(nodeParent, new ArrayList());
+            if (!addedSet.contains(nodeParent)) indexes.put(nodeParent, new ArrayList());
         }
         
         // Compute children indexes
         for (ExplorerNode node : added) {
             ExplorerNode nodeParent = (ExplorerNode)node.getParent();
-            indexes.get(nodeParent).add(nodeParent.getIndex(node));
+            List<Integer> parentIndexes = indexes.get(nodeParent);
+            if (parentIndexes != null) parentIndexes.add(nodeParent.getIndex(node));
         }
 
         // Notify tree model
@@ -380,6 +419,11 @@ class ExplorerModelBuilder implements DataChangeListener<DataSource> {
         return nodes.get(dataSource) != null;
     }
     
+    // Must be called in EDT
+    private boolean isInTree(ExplorerNode node) {
+        return node.getParent() != null && nodes.get(node.getUserObject()) == node;
+    }
+    
     private boolean isDisplayable(DataSource dataSource) {
         if (dataSource == DataSource.ROOT) return true;
         return dataSource.isVisible() && isDisplayed(dataSource.getOwner());
@@ -397,6 +441,122 @@ class ExplorerModelBuilder implements DataChangeListener<DataSource> {
     }
 
 
+    /**
+     * Changes of the nodes collected in queue during UPDATE_DELAY and applied
+     * to the tree at once, at most one notification per parent node.
+     */
+    private class NodesUpdate {
+        
+        final Map<ExplorerNode, String> names = new LinkedHashMap();
+        final Map<ExplorerNode, Icon> icons = new LinkedHashMap();
+        final Map<ExplorerNode, Integer> positions = new LinkedHashMap();
+        
+        // Must be called in EDT
+        void apply() {
+            Set<ExplorerNode> changedContainers = new HashSet();
+            Map<ExplorerNode, Set<ExplorerNode>> changedNodes = new HashMap();
+            Map<ExplorerNode, Set<ExplorerNode>> movedNodes = new HashMap();
+            
+            // Update all the nodes first, each affected parent is sorted once below
+            for (Map.Entry<ExplorerNode, String> entry : names.entrySet()) {
+                ExplorerNode node = entry.getKey();
+                boolean inTree = isInTree(node);
+                if (node.updateName(entry.getValue()) && inTree)
+                    changedContainers.add((ExplorerNode)node.getParent());
+                else if (inTree) addChild(changedNodes, node);
+            }
+            for (Map.Entry<ExplorerNode, Icon> entry : icons.entrySet()) {
+                ExplorerNode node = entry.getKey();
+                node.setIcon(entry.getValue());
+                if (isInTree(node)) addChild(changedNodes, node);
+            }
+            for (Map.Entry<ExplorerNode, Integer> entry : positions.entrySet()) {
+                ExplorerNode node = entry.getKey();
+                node.setPreferredPosition(entry.getValue());
+                if (isInTree(node)) addChild(movedNodes, node);
+            }
+            
+            // Containers are notified as a whole, their children separately only
+            // when not already covered by the structure change
+            changedNodes.keySet().removeAll(changedContainers);
+            
+            for (Map.Entry<ExplorerNode, Set<ExplorerNode>> entry : changedNodes.entrySet()) {
+                ExplorerNode parent = entry.getKey();
+                Set<ExplorerNode> children = entry.getValue();
+                if (movedNodes.containsKey(parent)) children.removeAll(movedNodes.get(parent));
+                if (children.isEmpty()) continue;
+                int[] indexes = new int[children.size()];
+                int i = 0;
+                for (ExplorerNode child : children) indexes[i++] = parent.getIndex(child);
+                Arrays.sort(indexes);
+                explorerModel.nodesChanged(parent, indexes);
+            }
+            
+            if (movedNodes.isEmpty() && changedContainers.isEmpty()) return;
+            
+            // Save selection
+            Set<DataSource> selectedDataSources = ExplorerSupport.sharedInstance().
+                                                  getSelectedDataSources();
+            
+            // Moving the nodes sorts their parent
+            for (Map.Entry<ExplorerNode, Set<ExplorerNode>> entry : movedNodes.entrySet()) {
+                ExplorerNode parent = entry.getKey();
+                moveNodes(parent, entry.getValue(), !changedContainers.contains(parent));
+            }
+            
+            for (ExplorerNode container : changedContainers) {
+                if (!movedNodes.containsKey(container)) container.sortChildren();
+                explorerModel.nodeStructureChanged(container);
+            }
+            
+            // Try to restore selection
+            ExplorerSupport.sharedInstance().selectDataSources(selectedDataSources);
+        }
+        
+        private void addChild(Map<ExplorerNode, Set<ExplorerNode>> children, ExplorerNode node) {
+            ExplorerNode parent = (ExplorerNode)node.getParent();
+            Set<ExplorerNode> set = children.get(parent);
+            if (set == null) {
+                set = new HashSet();
+                children.put(parent, set);
+            }
+            set.add(node);
+        }
+        
+        private void moveNodes(ExplorerNode parent, Set<ExplorerNode> moved, boolean notify) {
+            if (!notify) {
+                // Structure change of the parent is fired instead
+                for (ExplorerNode node : moved) parent.remove(node);
+                parent.addNodes(moved);
+                return;
+            }
+            
+            List<IndexNodePair> removedList = new ArrayList();
+            for (ExplorerNode node : moved)
+                removedList.add(new IndexNodePair(parent.getIndex(node), node));
+            Collections.sort(removedList);
+            
+            int[] removedIndexes = new int[removedList.size()];
+            Object[] removedNodes = new Object[removedList.size()];
+            for (int i = 0; i < removedIndexes.length; i++) {
+                IndexNodePair pair = removedList.get(i);
+                removedIndexes[i] = pair.index;
+                removedNodes[i] = pair.node;
+                parent.remove(pair.node);
+            }
+            explorerModel.nodesWereRemoved(parent, removedIndexes, removedNodes);
+            
+            parent.addNodes(moved);
+            int[] addedIndexes = new int[moved.size()];
+            int i = 0;
+            for (ExplorerNode node : moved) addedIndexes[i++] = parent.getIndex(node);
+            Arrays.sort(addedIndexes);
+            explorerModel.nodesWereInserted(parent, addedIndexes);
+        }
+        
+    }
+
+
     private static class RelativePositionComparator extends DataSourcesComparator {
 
         protected int getRelativePosition(DataSource d, int positionType) {
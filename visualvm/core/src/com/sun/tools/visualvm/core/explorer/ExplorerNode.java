@@ -135,6 +135,13 @@ final class ExplorerNode extends DefaultMutableTreeNode implements Positionable
     
     
     boolean setName(String name) {
+        boolean changed = updateName(name);
+        if (changed) ((ExplorerNode)parent).sortChildren();
+        return changed;
+    }
+    
+    // Doesn't sort the parent, returns true if the parent needs to be sorted
+    boolean updateName(String name) {
         // No parent, no structure changes
         if (parent == null) {
             this.name = name;
@@ -142,7 +149,6 @@ final class ExplorerNode extends DefaultMutableTreeNode implements Positionable
         // Name changed
         } else if (this.name == null || !this.name.equals(name)) {
             this.name = name;
-            ((ExplorerNode)parent).sortChildren();
             return true;
         // Name unchanged
         } else {
@@ -181,7 +187,7 @@ final class ExplorerNode extends DefaultMutableTreeNode implements Positionable
     }
 
 
-    private void sortChildren() {
+    void sortChildren() {
         if (getChildCount() == 0) return;
         Collections.sort(children, comparator);
     }
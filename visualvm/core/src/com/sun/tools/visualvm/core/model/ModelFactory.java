@@ -29,19 +29,29 @@ import com.sun.tools.visualvm.core.datasource.DataSource;
 import com.sun.tools.visualvm.core.datasupport.ClassNameComparator;
 import com.sun.tools.visualvm.core.datasupport.DataChangeListener;
 import com.sun.tools.visualvm.core.datasupport.DataChangeSupport;
+import com.sun.tools.visualvm.core.datasupport.DataRemovedListener;
 import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.SoftReference;
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Logger;
+import org.openide.util.RequestProcessor;
 
 /**
  * This is abstact factory class for getting model
@@ -53,26 +63,43 @@ import java.util.logging.Logger;
  * to obtain the model for dataSource. First model 
  * obtained from ModelProvider is associated with
  * dataSource and returned in the future.
+ * The model is cached until the dataSource is removed or
+ * until it is released by {@link #releaseModel(DataSource)}.
+ * Models of already removed datasources are cached softly.
  * @author Tomas Hurka
  */
 public abstract class ModelFactory<M extends Model,D extends DataSource> {
     final protected static Logger LOGGER = Logger.getLogger(ModelFactory.class.getName());
     
+    /** processor resolving models for getModelAsync() */
+    private static final RequestProcessor MODEL_PROCESSOR =
+            new RequestProcessor("ModelFactory Processor", 5); // NOI18N
+    
     /** special marker for null model  */
     private final Reference<M> NULL_MODEL;
     /** set of registered providers */
     private SortedSet<ModelProvider<M, D>> providers;
     /** providers cannot be changed, when getModel() is running */
     private ReadWriteLock providersLock;
-    /** model cache */
-    private Map<DataSourceKey<D>,Reference<M>> modelCache;    
+    /** model cache, resolved and pending models, guarded by itself */
+    private Map<DataSourceKey<D>,ModelEntry> modelCache;
+    /** keys of garbage collected datasources */
+    private ReferenceQueue<D> collectedKeys;
+    /** releases cached models of removed datasources */
+    private DataRemovedListener<D> removedListener;
     /** asynchronous change support */
     private DataChangeSupport<ModelProvider<M, D>> factoryChange;
     
     protected ModelFactory() {
         NULL_MODEL = new SoftReference(null);
         providers = new TreeSet(new ModelProviderComparator());
-        modelCache = Collections.synchronizedMap(new HashMap());
+        modelCache = new HashMap();
+        collectedKeys = new ReferenceQueue();
+        removedListener = new DataRemovedListener<D>() {
+            public void dataRemoved(D dataSource) {
+                releaseModel(dataSource);
+            }
+        };
         factoryChange = new DataChangeSupport();
         providersLock = new ReentrantReadWriteLock();
     }
@@ -80,47 +107,69 @@ public abstract class ModelFactory<M extends Model,D extends DataSource> {
     /**
      * Returns model for dataSource. If model is in the cache
      * return it, otherwise consult registered ModelProviders.
+     * If the model is being resolved by another thread, waits for it.
      * @param dataSource {@link DataSource} for which {@link Model} should be returned
      * @return model for dataSource or <CODE>null</CODE> 
      * if there is not model associated with this dataSource.
      */ 
     public final M getModel(D dataSource) {
-        // take a read lock for providers
-        Lock rlock = providersLock.readLock();
-        rlock.lock();
-        try {
-            // allow concurrent access to cache for different instances of DataSource
-            // note that DataSourceKey uses reference-equality in place of object-equality 
-            // for DataSource
-            synchronized (dataSource) {
-                DataSourceKey<D> key = new DataSourceKey(dataSource);
-                Reference<M> modelRef = modelCache.get(key);
-                M model = null;
-
-                if (modelRef != null) {
-                    if (modelRef == NULL_MODEL) {  // cached null model, return null
-                        return null;
-                    }
-                    model = modelRef.get(); // if model is in cache return it,
-                    if (model != null) {    // otherwise get it from providers
-                        return model;
-                    }
-                }
-                // try to get model from registered providers
-                for (ModelProvider<M, D> factory : providers) {
-                    model = factory.createModelFor(dataSource);
-                    if (model != null) {  // we have model, put it into cache
-                        modelCache.put(key,new SoftReference(model));
-                        break;
-                    }
-                }
-                if (model == null) {  // model was not found - cache null model
-                    modelCache.put(key,NULL_MODEL);
+        while (true) {
+            ModelEntry entry = getEntry(dataSource);
+            // ModelProvider asking for the model it is just creating
+            if (entry.isResolvedByCurrentThread()) return createModel(dataSource);
+            
+            FutureTask<M> task = entry.task;
+            M resolvedModel = entry.resolvedModel;
+            if (resolvedModel != null) return resolvedModel;
+            Reference<M> modelRef = entry.model;
+            if (modelRef != null) {
+                if (modelRef == NULL_MODEL) return null;
+                M model = modelRef.get();
+                if (model != null) return model;
+                removeEntry(entry); // softly cached model has been collected
+            } else if (task != null) {
+                task.run(); // no-op if the model is already being resolved
+                try {
+                    return getResult(task);
+                } catch (CancellationException e) {
+                    // not expected, the task is never exposed to the callers
+                    removeEntry(entry);
                 }
-                return model;
             }
-        } finally {
-            rlock.unlock();
+        }
+    }
+    
+    /**
+     * Returns model for dataSource without blocking the calling thread.
+     * If model is not in the cache, registered ModelProviders are consulted
+     * in a background thread. Each call returns a new Future, cancelling it
+     * doesn't affect other callers waiting for the same model.
+     * @param dataSource {@link DataSource} for which {@link Model} should be returned
+     * @return Future providing model for dataSource or <CODE>null</CODE>
+     * if there is not model associated with this dataSource.
+     * @since VisualVM 1.4
+     */
+    public final Future<M> getModelAsync(final D dataSource) {
+        FutureTask<M> future = new FutureTask<M>(new Callable<M>() {
+            public M call() {
+                return getModel(dataSource);
+            }
+        });
+        if (getEntry(dataSource).isResolved()) future.run();
+        else MODEL_PROCESSOR.post(future);
+        return future;
+    }
+    
+    /**
+     * Releases the cached model for dataSource. Next request for the model
+     * consults the registered ModelProviders again. Models of removed
+     * datasources are released automatically.
+     * @param dataSource {@link DataSource} for which {@link Model} should be released
+     * @since VisualVM 1.4
+     */
+    public final void releaseModel(D dataSource) {
+        synchronized (modelCache) {
+            modelCache.remove(new DataSourceKey(dataSource, null));
         }
     }
     
@@ -169,6 +218,23 @@ public abstract class ModelFactory<M extends Model,D extends DataSource> {
          }
     }
     
+    /**
+     * Returns registered providers in the order in which they are consulted
+     * to obtain the model.
+     * @return list of registered {@link ModelProvider}s
+     * @since VisualVM 1.4
+     */
+    protected final List<ModelProvider<M, D>> getProviders() {
+        // take a read lock for providers
+        Lock rlock = providersLock.readLock();
+        rlock.lock();
+        try {
+            return new ArrayList(providers);
+        } finally {
+            rlock.unlock();
+        }
+    }
+    
     /**
      * Add data change listener. Data change is fired when 
      * {@link ModelProvider} is registered/unregister. 
@@ -199,7 +265,150 @@ public abstract class ModelFactory<M extends Model,D extends DataSource> {
     }
     
     private void clearCache() {
-        modelCache.clear();
+        synchronized (modelCache) {
+            modelCache.clear();
+        }
+    }
+    
+    private ModelEntry getEntry(D dataSource) {
+        boolean created = false;
+        ModelEntry entry;
+        synchronized (modelCache) {
+            expungeCollectedKeys();
+            // note that DataSourceKey uses reference-equality in place of object-equality 
+            // for DataSource
+            entry = modelCache.get(new DataSourceKey(dataSource, null));
+            if (entry == null) {
+                DataSourceKey<D> key = new DataSourceKey(dataSource, collectedKeys);
+                entry = new ModelEntry(key);
+                modelCache.put(key, entry);
+                created = true;
+            }
+        }
+        // models of already removed datasources are just cached softly
+        if (created && !dataSource.isRemoved()) dataSource.notifyWhenRemoved(removedListener);
+        return entry;
+    }
+    
+    private void removeEntry(ModelEntry entry) {
+        synchronized (modelCache) {
+            if (modelCache.get(entry.key) == entry) modelCache.remove(entry.key);
+        }
+    }
+    
+    private void expungeCollectedKeys() {
+        Reference<? extends D> key;
+        while ((key = collectedKeys.poll()) != null) modelCache.remove(key);
+    }
+    
+    private M createModel(D dataSource) {
+        // take a read lock for providers
+        Lock rlock = providersLock.readLock();
+        rlock.lock();
+        try {
+            // try to get model from registered providers
+            for (ModelProvider<M, D> factory : providers) {
+                M model = factory.createModelFor(dataSource);
+                if (model != null) return model;
+            }
+            return null;
+        } finally {
+            rlock.unlock();
+        }
+    }
+    
+    /**
+     * Consults the registered providers for the model of datasource
+     * referenced by the key.
+     */
+    private class ModelResolver implements Callable<M> {
+        private final DataSourceKey<D> key;
+        private volatile Thread thread;
+        
+        ModelResolver(DataSourceKey<D> key) {
+            this.key = key;
+        }
+        
+        public M call() {
+            D dataSource = key.get();
+            if (dataSource == null) return null;
+            thread = Thread.currentThread();
+            try {
+                return createModel(dataSource);
+            } finally {
+                thread = null;
+            }
+        }
+    }
+    
+    private static <M> M getResult(FutureTask<M> task) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return task.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) throw (RuntimeException)cause;
+                    if (cause instanceof Error) throw (Error)cause;
+                    throw new RuntimeException(cause);
+                }
+            }
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Cached model of datasource. Resolving the model is serialized per datasource,
+     * threads asking for the same model wait for the first one to resolve it.
+     * The resolved model is held strongly until the datasource is removed,
+     * the removal listener releases the whole entry then. Model of already
+     * removed datasource is referenced softly. The task is released once
+     * the model is resolved.
+     */
+    private class ModelEntry {
+        private final DataSourceKey<D> key;
+        private final ModelResolver resolver;
+        private volatile FutureTask<M> task;
+        private volatile M resolvedModel;
+        private volatile Reference<M> model;
+        
+        ModelEntry(DataSourceKey<D> key) {
+            this.key = key;
+            resolver = new ModelResolver(key);
+            task = new FutureTask<M>(resolver) {
+                protected void done() {
+                    resolved(this);
+                }
+            };
+        }
+        
+        boolean isResolvedByCurrentThread() {
+            return resolver.thread == Thread.currentThread();
+        }
+        
+        boolean isResolved() {
+            if (resolvedModel != null) return true;
+            Reference<M> modelRef = model;
+            return modelRef != null && (modelRef == NULL_MODEL || modelRef.get() != null);
+        }
+        
+        private void resolved(FutureTask<M> resolvedTask) {
+            try {
+                M m = resolvedTask.get();
+                D dataSource = key.get();
+                if (m == null) model = NULL_MODEL;
+                else if (dataSource != null && !dataSource.isRemoved()) resolvedModel = m;
+                else model = new SoftReference(m);
+                task = null;
+            } catch (Exception e) {
+                // do not cache failures, next request tries the providers again
+                removeEntry(this);
+            }
+        }
     }
     
     /** compare ModelProvider-s using priority. Providers with higher priority
@@ -227,26 +436,25 @@ public abstract class ModelFactory<M extends Model,D extends DataSource> {
      *  reference-equality of DataSources when implementing hashCode and equals
      *  this class is used as keys in modelCache
      */
-    private static class DataSourceKey<D extends DataSource>  {
-        Reference<D> weakReference;
+    private static class DataSourceKey<D extends DataSource> extends WeakReference<D> {
+        // hash code must not change when datasource is collected
+        private final int hashCode;
         
-        DataSourceKey(D ds) {
-            weakReference = new WeakReference(ds);
+        DataSourceKey(D ds, ReferenceQueue<D> queue) {
+            super(ds, queue);
+            hashCode = ds.hashCode();
         }
         
         public int hashCode() {
-            D ds = weakReference.get();
-            if (ds != null) {
-                return ds.hashCode();
-            }
-            return 0;
+            return hashCode;
         }
         
         public boolean equals(Object obj) {
+            if (obj == this) return true;
             if (obj == null) return false;
             if (obj instanceof DataSourceKey) {
-                D ds = weakReference.get();
-                D otherDs = ((DataSourceKey<D>)obj).weakReference.get();
+                D ds = get();
+                D otherDs = ((DataSourceKey<D>)obj).get();
                 
                 return ds != null && ds == otherDs;
             }
@@ -254,8 +462,8 @@ public abstract class ModelFactory<M extends Model,D extends DataSource> {
         }
         
         public String toString() {
-            DataSource ds = weakReference.get();
-            return "DataSourceKey for "+System.identityHashCode(this)+" for "+ds==null?"NULL":ds.toString();    // NOI18N
+            DataSource ds = get();
+            return "DataSourceKey for "+System.identityHashCode(this)+" for "+(ds==null?"NULL":ds.toString());    // NOI18N
         }
     }
 }
@@ -160,6 +160,11 @@ class DefaultScheduledTask implements ScheduledTask, SchedulerTask {
         suspendedFrom = Quantum.SUSPENDED;
     }
 
+    // Changes the interval applied by the next resume() of a suspended task
+    void setResumeInterval(Quantum interval) {
+        if (isSuspended()) suspendedFrom = interval;
+    }
+
     /**
      * @see ScheduledTask#isSuspended()
      */
@@ -0,0 +1,545 @@
+/*
+ * Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.tools.visualvm.core.scheduler;
+
+import com.sun.tools.visualvm.core.datasource.DataSource;
+import com.sun.tools.visualvm.core.ui.DataSourceWindowManager;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.Timer;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+/**
+ * Global governor of the periodic refreshes of data source views. Each
+ * registered Client declares the interval it wants to be refreshed at, the
+ * target it polls (typically the DataSource) and whether it's currently
+ * displayed to the user. The governor keeps the total number of refreshes per
+ * second within a global budget and the refreshes of a single target within
+ * a per-target budget. When a budget is exceeded, background (hidden) clients
+ * are slowed down first, the foreground clients are only slowed down when the
+ * budget doesn't cover them alone.
+ * <p>
+ * The budgets default to 20 refreshes per second in total and 5 refreshes per
+ * second for a single target and can be changed using the
+ * com.sun.tools.visualvm.core.scheduler.RefreshGovernor.budget and
+ * com.sun.tools.visualvm.core.scheduler.RefreshGovernor.targetBudget system
+ * properties.
+ *
+ * @since VisualVM 1.4
+ */
+public final class RefreshGovernor {
+
+    private static final Logger LOGGER = Logger.getLogger(RefreshGovernor.class.getName());
+
+    private static final int DEFAULT_BUDGET = Integer.getInteger(
+            RefreshGovernor.class.getName() + ".budget", 20); // NOI18N
+    private static final int DEFAULT_TARGET_BUDGET = Integer.getInteger(
+            RefreshGovernor.class.getName() + ".targetBudget", 5); // NOI18N
+
+    /**
+     * The longest interval in milliseconds a client is slowed down to.
+     */
+    public static final int MAX_INTERVAL = 30000;
+
+    private static final Quantum EVALUATION_INTERVAL = Quantum.seconds(1);
+
+    private static RefreshGovernor INSTANCE;
+
+    // @GuardedBy this
+    private final List<Client> clients = new ArrayList<Client>();
+    // @GuardedBy this
+    private ScheduledTask evaluationTask;
+    // @GuardedBy this
+    private int budget = DEFAULT_BUDGET;
+    // @GuardedBy this
+    private int targetBudget = DEFAULT_TARGET_BUDGET;
+
+    private final Set<ChangeListener> listeners = new CopyOnWriteArraySet<ChangeListener>();
+
+
+    /**
+     * Returns singleton instance of RefreshGovernor.
+     *
+     * @return singleton instance of RefreshGovernor.
+     */
+    public static synchronized RefreshGovernor sharedInstance() {
+        if (INSTANCE == null) INSTANCE = new RefreshGovernor();
+        return INSTANCE;
+    }
+
+
+    /**
+     * Registers a client to be governed. The effective interval of the client
+     * is computed immediately and then re-evaluated every second.
+     *
+     * @param client client to be governed.
+     */
+    public void register(Client client) {
+        synchronized (this) {
+            if (clients.contains(client)) return;
+            clients.add(client);
+            if (evaluationTask == null) evaluationTask = Scheduler.sharedInstance().
+                    schedule(new SchedulerTask() {
+                        public void onSchedule(long timeStamp) { update(); }
+                    }, EVALUATION_INTERVAL, false);
+        }
+        update();
+    }
+
+    /**
+     * Registers a ScheduledTask to be governed. The interval the task is
+     * currently scheduled at is considered to be the requested interval, the
+     * governor only prolongs it when the budget is exceeded. Intervals set by
+     * the owner of the task become the new requested interval, a suspended task
+     * doesn't consume the budget. The task is a foreground client while the
+     * window displaying views of the target DataSource is showing.
+     *
+     * @param task task to be governed.
+     * @param target target polled by the task.
+     * @param name display name of the task.
+     * @return Client representing the task, to be used for unregistering it.
+     */
+    public Client register(ScheduledTask task, Object target, String name) {
+        Client client = new TaskClient(task, target, name);
+        register(client);
+        return client;
+    }
+
+    /**
+     * Registers a Timer to be governed. The delay the timer is currently
+     * running with is considered to be the requested interval, the governor
+     * only prolongs it when the budget is exceeded. A stopped timer doesn't
+     * consume the budget. The timer is a foreground client while the window
+     * displaying views of the target DataSource is showing.
+     *
+     * @param timer timer to be governed.
+     * @param target target polled by the timer.
+     * @param name display name of the timer.
+     * @return Client representing the timer, to be used for unregistering it.
+     */
+    public Client register(Timer timer, Object target, String name) {
+        Client client = new TimerClient(timer, target, name);
+        register(client);
+        return client;
+    }
+
+    /**
+     * Unregisters a governed client. A ScheduledTask or Timer is restored to
+     * the interval requested by its owner.
+     *
+     * @param client client to be unregistered.
+     */
+    public void unregister(Client client) {
+        synchronized (this) {
+            if (!clients.remove(client)) return;
+            if (clients.isEmpty() && evaluationTask != null) {
+                Scheduler.sharedInstance().unschedule(evaluationTask);
+                evaluationTask = null;
+            }
+        }
+        synchronized (this) { client.effectiveInterval = 0; }
+        notifyClient(client, client.getRestoredInterval());
+        update();
+    }
+
+    /**
+     * Returns the clients governed for the target.
+     *
+     * @param target target of the clients or null for all clients.
+     * @return the clients governed for the target.
+     */
+    public synchronized List<Client> getClients(Object target) {
+        List<Client> targetClients = new ArrayList<Client>();
+        for (Client client : clients)
+            if (target == null || target.equals(client.getTarget()))
+                targetClients.add(client);
+        return targetClients;
+    }
+
+    /**
+     * Sets the total number of refreshes per second.
+     *
+     * @param budget total number of refreshes per second.
+     */
+    public void setBudget(int budget) {
+        if (budget <= 0) throw new IllegalArgumentException("Budget must be positive: " + budget); // NOI18N
+        synchronized (this) { this.budget = budget; }
+        update();
+    }
+
+    /**
+     * Returns the total number of refreshes per second.
+     *
+     * @return total number of refreshes per second.
+     */
+    public synchronized int getBudget() {
+        return budget;
+    }
+
+    /**
+     * Sets the number of refreshes per second of a single target.
+     *
+     * @param targetBudget number of refreshes per second of a single target.
+     */
+    public void setTargetBudget(int targetBudget) {
+        if (targetBudget <= 0) throw new IllegalArgumentException("Budget must be positive: " + targetBudget); // NOI18N
+        synchronized (this) { this.targetBudget = targetBudget; }
+        update();
+    }
+
+    /**
+     * Returns the number of refreshes per second of a single target.
+     *
+     * @return number of refreshes per second of a single target.
+     */
+    public synchronized int getTargetBudget() {
+        return targetBudget;
+    }
+
+    /**
+     * Adds a listener notified when the effective interval of any client
+     * changes. The listener is notified in a scheduler thread.
+     *
+     * @param listener listener to be added.
+     */
+    public void addChangeListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener notified when the effective interval of any client
+     * changes.
+     *
+     * @param listener listener to be removed.
+     */
+    public void removeChangeListener(ChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Re-evaluates the effective intervals of all clients. Invoked
+     * periodically, clients may invoke it to apply their change immediately.
+     */
+    public void update() {
+        List<Client> changed = new ArrayList<Client>();
+
+        synchronized (this) {
+            Map<Client, Double> rates = new HashMap<Client, Double>();
+            Map<Object, List<Client>> targets = new HashMap<Object, List<Client>>();
+            for (Client client : clients) {
+                int requested = client.getRequestedInterval();
+                if (requested <= 0) continue;
+                rates.put(client, Double.valueOf(1000d / requested));
+                List<Client> targetClients = targets.get(client.getTarget());
+                if (targetClients == null) {
+                    targetClients = new ArrayList<Client>();
+                    targets.put(client.getTarget(), targetClients);
+                }
+                targetClients.add(client);
+            }
+
+            for (List<Client> targetClients : targets.values())
+                allocate(targetClients, rates, targetBudget);
+            allocate(new ArrayList<Client>(rates.keySet()), rates, budget);
+
+            for (Client client : clients) {
+                Double rate = rates.get(client);
+                int interval = rate == null ? 0 : getInterval(client, rate.doubleValue());
+                if (interval != client.effectiveInterval) {
+                    client.effectiveInterval = interval;
+                    changed.add(client);
+                }
+            }
+        }
+
+        if (changed.isEmpty()) return;
+
+        for (Client client : changed) notifyClient(client, client.getEffectiveInterval());
+        ChangeEvent event = new ChangeEvent(this);
+        for (ChangeListener listener : listeners) listener.stateChanged(event);
+    }
+
+
+    private static int getInterval(Client client, double rate) {
+        int requested = client.getRequestedInterval();
+        if (requested <= 0) return 0;
+        if (rate >= 1000d / requested) return requested;
+        return (int)Math.min(MAX_INTERVAL, Math.ceil(1000d / rate));
+    }
+
+    private static void notifyClient(Client client, int interval) {
+        if (interval <= 0) return;
+        try {
+            client.effectiveIntervalChanged(interval);
+        } catch (Throwable t) {
+            LOGGER.log(Level.WARNING, "Failed to apply effective interval of " + client, t); // NOI18N
+        }
+    }
+
+    // Scales the rates of the clients to fit the budget, background clients first
+    private static void allocate(List<Client> clients, Map<Client, Double> rates, double budget) {
+        double foreground = 0;
+        double background = 0;
+        List<Client> foregroundClients = new ArrayList<Client>();
+        List<Client> backgroundClients = new ArrayList<Client>();
+        for (Client client : clients) {
+            double rate = rates.get(client);
+            if (client.isForeground()) {
+                foreground += rate;
+                foregroundClients.add(client);
+            } else {
+                background += rate;
+                backgroundClients.add(client);
+            }
+        }
+
+        if (foreground + background <= budget) return;
+
+        if (foreground > budget) {
+            scale(foregroundClients, rates, budget / foreground);
+            scale(backgroundClients, rates, 0);
+        } else {
+            scale(backgroundClients, rates, (budget - foreground) / background);
+        }
+    }
+
+    private static void scale(List<Client> clients, Map<Client, Double> rates, double factor) {
+        for (Client client : clients)
+            rates.put(client, Double.valueOf(Math.max(1000d / MAX_INTERVAL,
+                      rates.get(client) * factor)));
+    }
+
+
+    private RefreshGovernor() {}
+
+
+    /**
+     * Periodically refreshed consumer of the refresh budget.
+     *
+     * @since VisualVM 1.4
+     */
+    public static abstract class Client {
+
+        private final Object target;
+        private final String name;
+        // @GuardedBy RefreshGovernor
+        private volatile int effectiveInterval;
+
+        /**
+         * Creates new Client.
+         *
+         * @param target target polled by the client, typically a DataSource.
+         * @param name display name of the client.
+         */
+        protected Client(Object target, String name) {
+            this.target = target;
+            this.name = name;
+        }
+
+        /**
+         * Returns target polled by the client.
+         *
+         * @return target polled by the client.
+         */
+        public final Object getTarget() {
+            return target;
+        }
+
+        /**
+         * Returns display name of the client.
+         *
+         * @return display name of the client.
+         */
+        public final String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the interval in milliseconds the client wants to be refreshed
+         * at, 0 or a negative value if the client is currently not refreshing.
+         *
+         * @return the requested interval in milliseconds.
+         */
+        public abstract int getRequestedInterval();
+
+        /**
+         * Returns true if the client is currently displayed to the user.
+         * Background clients are slowed down first.
+         *
+         * @return true if the client is currently displayed to the user.
+         */
+        public abstract boolean isForeground();
+
+        /**
+         * Returns the interval in milliseconds the client should be refreshed
+         * at, never shorter than the requested interval.
+         *
+         * @return the effective interval in milliseconds.
+         */
+        public final int getEffectiveInterval() {
+            return Math.max(effectiveInterval, getRequestedInterval());
+        }
+
+        /**
+         * Returns true if the client is slowed down by the governor.
+         *
+         * @return true if the client is slowed down by the governor.
+         */
+        public final boolean isThrottled() {
+            int requested = getRequestedInterval();
+            return requested > 0 && effectiveInterval > requested;
+        }
+
+        /**
+         * Invoked when the effective interval of the client has changed, also
+         * when the client is unregistered to restore the requested interval. The
+         * default implementation does nothing, clients driving their own timer
+         * should apply the interval to the timer.
+         *
+         * @param interval the new effective interval in milliseconds.
+         */
+        protected void effectiveIntervalChanged(int interval) {}
+
+        // Interval to restore when the client is unregistered
+        int getRestoredInterval() {
+            return getRequestedInterval();
+        }
+
+        public String toString() {
+            return name + " [" + target + "]"; // NOI18N
+        }
+
+    }
+
+
+    // Foreground if any window showing the views of the target is showing
+    private static boolean isTargetShowing(Object target) {
+        return target instanceof DataSource && DataSourceWindowManager.
+                sharedInstance().isDataSourceShowing((DataSource)target);
+    }
+
+
+    private static final class TaskClient extends Client {
+
+        private final ScheduledTask task;
+        // @GuardedBy this
+        private Quantum requested;
+        // @GuardedBy this
+        private Quantum applied;
+
+        TaskClient(ScheduledTask task, Object target, String name) {
+            super(target, name);
+            this.task = task;
+        }
+
+        public synchronized int getRequestedInterval() {
+            Quantum current = task.getInterval();
+            if (Quantum.SUSPENDED.equals(current)) return 0;
+            // The owner has changed the interval since it was last governed
+            if (!current.equals(applied)) {
+                requested = current;
+                applied = null;
+            }
+            return (int)Math.min(Integer.MAX_VALUE,
+                    requested.unit.toMillis(requested.interval));
+        }
+
+        public boolean isForeground() {
+            return isTargetShowing(getTarget());
+        }
+
+        // Restored also for a suspended task, applied when it's resumed
+        synchronized int getRestoredInterval() {
+            return requested == null ? 0 : (int)Math.min(Integer.MAX_VALUE,
+                    requested.unit.toMillis(requested.interval));
+        }
+
+        protected synchronized void effectiveIntervalChanged(int interval) {
+            if (requested == null) return;
+            // Whole seconds allow the task to share a SchedulingPipe with others
+            Quantum quantum = interval <= requested.unit.toMillis(requested.interval) ?
+                    requested : Quantum.seconds((interval + 999) / 1000);
+            applied = quantum.equals(requested) ? null : quantum;
+            if (task.isSuspended()) {
+                if (task instanceof DefaultScheduledTask)
+                    ((DefaultScheduledTask)task).setResumeInterval(quantum);
+            } else if (!quantum.equals(task.getInterval())) {
+                task.setInterval(quantum);
+            }
+        }
+
+    }
+
+
+    private static final class TimerClient extends Client {
+
+        private final Timer timer;
+        // @GuardedBy this
+        private int requested;
+        // @GuardedBy this
+        private int applied;
+
+        TimerClient(Timer timer, Object target, String name) {
+            super(target, name);
+            this.timer = timer;
+        }
+
+        public synchronized int getRequestedInterval() {
+            if (!timer.isRunning()) return 0;
+            int current = timer.getDelay();
+            // The owner has changed the delay since it was last governed
+            if (current != applied) {
+                requested = current;
+                applied = 0;
+            }
+            return requested;
+        }
+
+        public boolean isForeground() {
+            return isTargetShowing(getTarget());
+        }
+
+        // Restored also for a stopped timer, applied when it's restarted
+        synchronized int getRestoredInterval() {
+            return requested;
+        }
+
+        protected synchronized void effectiveIntervalChanged(int interval) {
+            if (requested <= 0) return;
+            applied = interval;
+            timer.setDelay(interval);
+        }
+
+    }
+
+}
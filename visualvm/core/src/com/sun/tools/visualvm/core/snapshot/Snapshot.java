@@ -109,9 +109,9 @@ public abstract class Snapshot extends DataSource {
     public void save(File directory) {
         File f = getFile();
         if (f != null && f.isFile()) {  
-            // File is not null and will be copied to the directory
+            // File is not null and will be linked or copied to the directory
             File saveFile = Utils.getUniqueFile(directory, f.getName());    
-            Utils.copyFile(f, saveFile);
+            Utils.linkOrCopyFile(f, saveFile, null);
             // If there are any custom properties defined, store them to <file>.properties
             getStorage().saveCustomPropertiesTo(new File(saveFile.getAbsolutePath() + Storage.DEFAULT_PROPERTIES_EXT));
         }
@@ -169,12 +169,12 @@ public abstract class Snapshot extends DataSource {
         if (f != null) {
             String customPropertiesFileName = f.getName() + Storage.DEFAULT_PROPERTIES_EXT;
             if (f.isDirectory()) {
-                return new Storage(f, customPropertiesFileName);
+                return SnapshotsCatalog.sharedInstance().createStorage(f, customPropertiesFileName);
 //                if (new File(f, customPropertiesFileName).exists()) return new Storage(f, customPropertiesFileName);
 //                else return new Storage(f);
             } else if (f.isFile()) {
                 File directory = f.getParentFile();
-                return new Storage(directory, customPropertiesFileName);
+                return SnapshotsCatalog.sharedInstance().createStorage(directory, customPropertiesFileName);
 //                if (new File(directory, customPropertiesFileName).exists()) return new Storage(directory, customPropertiesFileName);
 //                else return new Storage(directory);
             }
@@ -0,0 +1,586 @@
+/*
+ * Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.tools.visualvm.core.snapshot;
+
+import com.sun.tools.visualvm.core.datasource.DataSource;
+import com.sun.tools.visualvm.core.datasource.DataSourceRepository;
+import com.sun.tools.visualvm.core.datasource.Storage;
+import com.sun.tools.visualvm.core.datasupport.DataChangeEvent;
+import com.sun.tools.visualvm.core.datasupport.DataChangeListener;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.openide.util.RequestProcessor;
+
+/**
+ * Persistent catalog of snapshots saved in the persistent storage directory.
+ * For each directory and snapshot category the catalog indexes the snapshot
+ * files with their time and size, and the custom properties of their
+ * Storages. Snapshots are registered from the catalog without listing the
+ * directories or reading the properties files, the files are validated in
+ * background and the catalog is updated when snapshots are added or removed.
+ *
+ * Snapshots in other than the persistent storage directory are not indexed,
+ * they are always registered from the directory listing.
+ *
+ * @since VisualVM 1.4
+ */
+public final class SnapshotsCatalog {
+
+    private static final Logger LOGGER = Logger.getLogger(SnapshotsCatalog.class.getName());
+
+    private static final String CATALOG_FILE = "snapshots.catalog"; // NOI18N
+    private static final String CATALOG_HEADER = "VisualVMSnapshotsCatalog"; // NOI18N
+    private static final int CATALOG_VERSION = 1;
+    private static final int SAVE_DELAY = 2000;
+
+    private static SnapshotsCatalog sharedInstance;
+
+    private final RequestProcessor processor =
+            new RequestProcessor("Snapshots Catalog Processor"); // NOI18N
+    private final RequestProcessor.Task saveTask;
+
+    private final File catalogFile;
+    private final String indexedPath;
+
+    // @GuardedBy this
+    private final Map<String, Directory> directories = new HashMap();
+    // @GuardedBy this
+    private final Map<String, CachedProperties> properties = new HashMap();
+    // @GuardedBy this
+    private final Map<Snapshot, File> snapshotFiles = new WeakHashMap();
+
+
+    /**
+     * Factory creating Snapshot instances for the snapshot files.
+     *
+     * @param <X> type of the created snapshots.
+     */
+    public static interface SnapshotFactory<X extends Snapshot> {
+
+        /**
+         * Returns new Snapshot for the file or null if the file is not a
+         * valid snapshot.
+         *
+         * @param file snapshot file
+         * @param owner DataSource owning the snapshot
+         * @return new Snapshot for the file or null
+         */
+        public X createSnapshot(File file, DataSource owner);
+
+    }
+
+
+    /**
+     * Returns singleton instance of SnapshotsCatalog.
+     *
+     * @return singleton instance of SnapshotsCatalog.
+     */
+    public static synchronized SnapshotsCatalog sharedInstance() {
+        if (sharedInstance == null) sharedInstance = new SnapshotsCatalog();
+        return sharedInstance;
+    }
+
+
+    /**
+     * Registers snapshots of the category found in the directory to the
+     * owner's repository. Snapshots of an indexed directory are registered
+     * immediately from the catalog and the directory is validated in background,
+     * snapshots created or deleted since the catalog was updated are registered
+     * or unregistered later.
+     *
+     * @param <X> type of the snapshots.
+     * @param owner DataSource owning the snapshots.
+     * @param directory directory containing the snapshots.
+     * @param category category of the snapshots.
+     * @param factory factory creating the snapshots.
+     */
+    public <X extends Snapshot> void registerSnapshots(final DataSource owner, final File directory,
+                                                       final SnapshotCategory<X> category,
+                                                       final SnapshotFactory<? extends X> factory) {
+        File[] files;
+        boolean validate = false;
+        String key = getKey(directory, category);
+
+        if (key == null) {
+            files = directory.listFiles(category.getFilenameFilter());
+        } else {
+            Directory indexed;
+            synchronized (this) {
+                indexed = directories.get(key);
+                files = indexed == null ? null : indexed.getFiles();
+            }
+            if (indexed != null) {
+                validate = true;
+            } else {
+                files = directory.listFiles(category.getFilenameFilter());
+                if (files != null) {
+                    indexed = new Directory(category.getType().getName(), directory.getPath());
+                    indexed.entries.putAll(createEntries(files));
+                    synchronized (this) { directories.put(key, indexed); }
+                    saveTask.schedule(SAVE_DELAY);
+                }
+            }
+        }
+        if (files != null && files.length > 0) {
+            Set<X> snapshots = new HashSet();
+            for (File file : files) {
+                X snapshot = factory.createSnapshot(file, owner);
+                if (snapshot != null) snapshots.add(snapshot);
+            }
+            if (!snapshots.isEmpty()) owner.getRepository().addDataSources(snapshots);
+        }
+
+        if (validate) processor.post(new Runnable() {
+            public void run() { validate(owner, directory, category, factory); }
+        });
+    }
+
+    /**
+     * Returns Storage for the snapshot with the custom properties loaded from
+     * the catalog. The properties file is read only if the properties are not
+     * indexed yet or if the directory is not indexed at all.
+     *
+     * @param directory storage directory.
+     * @param propertiesFile filename of storage file.
+     * @return Storage for the snapshot.
+     */
+    public Storage createStorage(File directory, String propertiesFile) {
+        File file = new File(directory, propertiesFile);
+        String path = file.getPath();
+        if (!isIndexed(path)) return new Storage(directory, propertiesFile);
+
+        CachedProperties cached;
+        synchronized (this) { cached = properties.get(path); }
+        if (cached == null) {
+            long time = file.lastModified();
+            // no properties file yet, the Storage creates it when needed
+            if (time == 0) return new Storage(directory, propertiesFile);
+            cached = new CachedProperties(time, loadProperties(file, time));
+            synchronized (this) { properties.put(path, cached); }
+            saveTask.schedule(SAVE_DELAY);
+        }
+        return new Storage(directory, propertiesFile, cached.properties);
+    }
+
+
+    private <X extends Snapshot> void validate(DataSource owner, File directory, SnapshotCategory<X> category,
+                                               SnapshotFactory<? extends X> factory) {
+        String key = getKey(directory, category);
+        File[] files = directory.listFiles(category.getFilenameFilter());
+        Map<File, Entry> current = files == null ? null : createEntries(files);
+
+        Set<File> added = new HashSet();
+        Set<File> removed = new HashSet();
+        boolean changed = false;
+        synchronized (this) {
+            Directory indexed = directories.get(key);
+            if (indexed == null) return;
+            if (current == null) {
+                removed.addAll(indexed.entries.keySet());
+                directories.remove(key);
+            } else {
+                changed = indexed.update(current, added, removed);
+            }
+            for (File file : removed) removeProperties(file);
+        }
+        changed |= validateProperties(directory);
+
+        if (!added.isEmpty()) {
+            Set<X> snapshots = new HashSet();
+            for (File file : added) {
+                X snapshot = factory.createSnapshot(file, owner);
+                if (snapshot != null) snapshots.add(snapshot);
+            }
+            if (!snapshots.isEmpty()) owner.getRepository().addDataSources(snapshots);
+        }
+        if (!removed.isEmpty()) {
+            Set<X> snapshots = new HashSet();
+            for (X snapshot : owner.getRepository().getDataSources(category.getType()))
+                if (removed.contains(snapshot.getFile())) snapshots.add(snapshot);
+            if (!snapshots.isEmpty()) owner.getRepository().removeDataSources(snapshots);
+        }
+
+        if (changed || !added.isEmpty() || !removed.isEmpty()) saveTask.schedule(SAVE_DELAY);
+    }
+
+    // Reloads changed properties of the snapshots in the directory in place,
+    // the Properties instances are shared with the Storages
+    private boolean validateProperties(File directory) {
+        String prefix = directory.getPath() + File.separator;
+        List<String> paths = new ArrayList();
+        synchronized (this) {
+            for (String path : properties.keySet())
+                if (path.startsWith(prefix) && path.indexOf(File.separatorChar, prefix.length()) == -1)
+                    paths.add(path);
+        }
+
+        boolean changed = false;
+        for (String path : paths) {
+            CachedProperties cached;
+            synchronized (this) { cached = properties.get(path); }
+            if (cached == null) continue;
+            File file = new File(path);
+            long time = file.lastModified();
+            if (time == cached.time) continue;
+            updateProperties(cached.properties, loadProperties(file, time));
+            cached.time = time;
+            // deleted properties file, the Storages keep the emptied properties
+            if (time == 0) synchronized (this) {
+                if (properties.get(path) == cached) properties.remove(path);
+            }
+            changed = true;
+        }
+        return changed;
+    }
+
+    private void snapshotsAdded(Set<Snapshot> snapshots) {
+        // file attributes are read before taking the lock
+        Map<Snapshot, File> files = new HashMap();
+        Map<File, String> keys = new HashMap();
+        Map<File, Entry> entries = new HashMap();
+        for (Snapshot snapshot : snapshots) {
+            File file = snapshot.getFile();
+            if (file == null) continue;
+            File directory = file.getParentFile();
+            String key = directory == null ? null : getKey(directory, snapshot.getCategory());
+            if (key == null) continue;
+            files.put(snapshot, file);
+            keys.put(file, key);
+            entries.put(file, new Entry(file.lastModified(), file.length()));
+        }
+        if (files.isEmpty()) return;
+
+        boolean changed = false;
+        synchronized (this) {
+            snapshotFiles.putAll(files);
+            for (Map.Entry<File, String> entry : keys.entrySet()) {
+                File file = entry.getKey();
+                Directory indexed = directories.get(entry.getValue());
+                if (indexed != null && !indexed.entries.containsKey(file)) {
+                    indexed.entries.put(file, entries.get(file));
+                    changed = true;
+                }
+            }
+        }
+        if (changed) saveTask.schedule(SAVE_DELAY);
+    }
+
+    private void snapshotsRemoved(Set<Snapshot> snapshots) {
+        boolean changed = false;
+        synchronized (this) {
+            for (Snapshot snapshot : snapshots) {
+                // the file is already cleared for a removed snapshot
+                File file = snapshotFiles.remove(snapshot);
+                if (file == null) continue;
+                Directory indexed = directories.get(getKey(file.getParentFile(), snapshot.getCategory()));
+                if (indexed != null && indexed.entries.remove(file) != null) changed = true;
+                changed |= removeProperties(file);
+            }
+        }
+        if (changed) saveTask.schedule(SAVE_DELAY);
+    }
+
+    // @GuardedBy this
+    private boolean removeProperties(File file) {
+        // <file>.properties next to the file or any properties inside the directory
+        String path = file.getPath();
+        String dirPrefix = path + File.separator;
+        boolean removed = properties.remove(path + Storage.DEFAULT_PROPERTIES_EXT) != null;
+        Iterator<String> paths = properties.keySet().iterator();
+        while (paths.hasNext()) {
+            if (paths.next().startsWith(dirPrefix)) {
+                paths.remove();
+                removed = true;
+            }
+        }
+        return removed;
+    }
+
+    private String getKey(File directory, SnapshotCategory category) {
+        String path = directory.getPath();
+        if (!isIndexed(path)) return null;
+        return category.getType().getName() + File.pathSeparator + path;
+    }
+
+    private boolean isIndexed(String path) {
+        return indexedPath != null && path.startsWith(indexedPath);
+    }
+
+
+    // Updates the shared properties in place, properties present in both
+    // versions never disappear for the concurrent readers
+    private static void updateProperties(Properties target, Properties loaded) {
+        synchronized (target) {
+            target.keySet().retainAll(loaded.keySet());
+            target.putAll(loaded);
+        }
+    }
+
+    private static Map<File, Entry> createEntries(File[] files) {
+        Map<File, Entry> entries = new HashMap();
+        for (File file : files) entries.put(file, new Entry(file.lastModified(), file.length()));
+        return entries;
+    }
+
+    private static Properties loadProperties(File file, long time) {
+        Properties loaded = new Properties();
+        if (time == 0) return loaded; // no properties file
+
+        InputStream is = null;
+        try {
+            is = new BufferedInputStream(new FileInputStream(file));
+            loaded.loadFromXML(is);
+        } catch (Exception e) {
+            LOGGER.log(Level.INFO, "Error loading properties " + file, e); // NOI18N
+        } finally {
+            try {
+                if (is != null) is.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.INFO, "Problem closing input stream", e); // NOI18N
+            }
+        }
+        return loaded;
+    }
+
+
+    private void load() {
+        if (!catalogFile.isFile()) return;
+
+        DataInputStream dis = null;
+        try {
+            dis = new DataInputStream(new BufferedInputStream(new FileInputStream(catalogFile)));
+            if (!CATALOG_HEADER.equals(dis.readUTF()) || dis.readInt() != CATALOG_VERSION) return;
+
+            int directoriesCount = dis.readInt();
+            for (int i = 0; i < directoriesCount; i++) {
+                Directory directory = new Directory(readString(dis), readString(dis));
+                int entriesCount = dis.readInt();
+                File parent = new File(directory.path);
+                for (int j = 0; j < entriesCount; j++) {
+                    File file = new File(parent, readString(dis));
+                    directory.entries.put(file, new Entry(dis.readLong(), dis.readLong()));
+                }
+                directories.put(directory.category + File.pathSeparator + directory.path, directory);
+            }
+
+            int propertiesCount = dis.readInt();
+            for (int i = 0; i < propertiesCount; i++) {
+                String path = readString(dis);
+                long time = dis.readLong();
+                Properties props = new Properties();
+                int count = dis.readInt();
+                for (int j = 0; j < count; j++) props.setProperty(readString(dis), readString(dis));
+                // missing properties files are not cached
+                if (time != 0) properties.put(path, new CachedProperties(time, props));
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.INFO, "Failed to load snapshots catalog, will be recreated", e); // NOI18N
+            directories.clear();
+            properties.clear();
+        } finally {
+            try {
+                if (dis != null) dis.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.INFO, "Problem closing input stream", e); // NOI18N
+            }
+        }
+    }
+
+    private void save() {
+        if (!Storage.persistentStorageDirectoryExists()) return;
+
+        // the catalog is serialized in memory, the file is written without the lock
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            DataOutputStream dos = new DataOutputStream(bytes);
+            dos.writeUTF(CATALOG_HEADER);
+            dos.writeInt(CATALOG_VERSION);
+            synchronized (this) {
+                dos.writeInt(directories.size());
+                for (Directory directory : directories.values()) {
+                    writeString(dos, directory.category);
+                    writeString(dos, directory.path);
+                    dos.writeInt(directory.entries.size());
+                    for (Map.Entry<File, Entry> entry : directory.entries.entrySet()) {
+                        writeString(dos, entry.getKey().getName());
+                        dos.writeLong(entry.getValue().time);
+                        dos.writeLong(entry.getValue().size);
+                    }
+                }
+
+                dos.writeInt(properties.size());
+                for (Map.Entry<String, CachedProperties> entry : properties.entrySet()) {
+                    CachedProperties cached = entry.getValue();
+                    Properties props = (Properties)cached.properties.clone();
+                    writeString(dos, entry.getKey());
+                    dos.writeLong(cached.time);
+                    dos.writeInt(props.size());
+                    for (String name : props.stringPropertyNames()) {
+                        writeString(dos, name);
+                        writeString(dos, props.getProperty(name));
+                    }
+                }
+            }
+            dos.flush();
+        } catch (IOException e) {
+            LOGGER.log(Level.INFO, "Failed to save snapshots catalog", e); // NOI18N
+            return;
+        }
+
+        OutputStream os = null;
+        try {
+            os = new FileOutputStream(catalogFile);
+            bytes.writeTo(os);
+        } catch (IOException e) {
+            LOGGER.log(Level.INFO, "Failed to save snapshots catalog", e); // NOI18N
+        } finally {
+            try {
+                if (os != null) os.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.INFO, "Problem closing output stream", e); // NOI18N
+            }
+        }
+    }
+
+    // DataOutput.writeUTF is limited to 64kB, property values may be longer
+    private static void writeString(DataOutputStream dos, String string) throws IOException {
+        byte[] bytes = string.getBytes("UTF-8"); // NOI18N
+        dos.writeInt(bytes.length);
+        dos.write(bytes);
+    }
+
+    private static String readString(DataInputStream dis) throws IOException {
+        byte[] bytes = new byte[dis.readInt()];
+        dis.readFully(bytes);
+        return new String(bytes, "UTF-8"); // NOI18N
+    }
+
+
+    private SnapshotsCatalog() {
+        String persistentPath = Storage.getPersistentStorageDirectoryString();
+        indexedPath = persistentPath == null ? null : new File(persistentPath).getPath() + File.separator;
+        catalogFile = new File(persistentPath, CATALOG_FILE);
+        saveTask = processor.create(new Runnable() {
+            public void run() { save(); }
+        });
+
+        load();
+
+        DataSourceRepository.sharedInstance().addDataChangeListener(new DataChangeListener<Snapshot>() {
+            public void dataChanged(DataChangeEvent<Snapshot> event) {
+                if (!event.getAdded().isEmpty()) snapshotsAdded(event.getAdded());
+                if (!event.getRemoved().isEmpty()) snapshotsRemoved(event.getRemoved());
+            }
+        }, Snapshot.class);
+    }
+
+
+    private static final class Directory {
+
+        final String category;
+        final String path;
+        final Map<File, Entry> entries = new HashMap();
+
+        Directory(String category, String path) {
+            this.category = category;
+            this.path = path;
+        }
+
+        File[] getFiles() {
+            return entries.keySet().toArray(new File[entries.size()]);
+        }
+
+        // Updates the entries to match the current ones, returns true if any entry changed
+        boolean update(Map<File, Entry> current, Set<File> added, Set<File> removed) {
+            boolean changed = false;
+            Set<File> existing = new HashSet(entries.keySet());
+            for (Map.Entry<File, Entry> currentEntry : current.entrySet()) {
+                File file = currentEntry.getKey();
+                Entry entry = entries.get(file);
+                if (entry == null) {
+                    entries.put(file, currentEntry.getValue());
+                    added.add(file);
+                } else {
+                    existing.remove(file);
+                    Entry updated = currentEntry.getValue();
+                    if (entry.time != updated.time || entry.size != updated.size) {
+                        entry.time = updated.time;
+                        entry.size = updated.size;
+                        changed = true;
+                    }
+                }
+            }
+            for (File file : existing) entries.remove(file);
+            removed.addAll(existing);
+            return changed;
+        }
+
+    }
+
+    private static final class Entry {
+
+        long time;
+        long size;
+
+        Entry(long time, long size) {
+            this.time = time;
+            this.size = size;
+        }
+
+    }
+
+    private static final class CachedProperties {
+
+        volatile long time;
+        final Properties properties;
+
+        CachedProperties(long time, Properties properties) {
+            this.time = time;
+            this.properties = properties;
+        }
+
+    }
+
+}
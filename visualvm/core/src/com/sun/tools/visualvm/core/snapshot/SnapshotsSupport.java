@@ -35,6 +35,9 @@ import javax.swing.JFileChooser;
 import javax.swing.SwingUtilities;
 import org.netbeans.api.progress.ProgressHandle;
 import org.netbeans.api.progress.ProgressHandleFactory;
+import org.openide.DialogDisplayer;
+import org.openide.NotifyDescriptor;
+import org.openide.util.Cancellable;
 import org.openide.util.ImageUtilities;
 import org.openide.util.NbBundle;
 import org.openide.util.RequestProcessor;
@@ -48,6 +51,7 @@ import org.openide.windows.WindowManager;
 public final class SnapshotsSupport {
     
     private static final Image SNAPSHOT_BADGE = ImageUtilities.loadImage("com/sun/tools/visualvm/core/ui/resources/snapshotBadge.png", true);    // NOI18N
+    private static final int COPY_PROGRESS_UNITS = 100;
     
     private static SnapshotsSupport instance;
 
@@ -85,11 +89,24 @@ public final class SnapshotsSupport {
             RequestProcessor.getDefault().post(new Runnable() {
                 public void run() {
                     ProgressHandle pHandle = null;
+                    final boolean[] cancelled = new boolean[1];
                     try {
-                        pHandle = ProgressHandleFactory.createHandle(NbBundle.getMessage(SnapshotsSupport.class, "LBL_Saving",DataSourceDescriptorFactory.getDescriptor(snapshot).getName()));  // NOI18N
+                        pHandle = ProgressHandleFactory.createHandle(NbBundle.getMessage(SnapshotsSupport.class, "LBL_Saving",DataSourceDescriptorFactory.getDescriptor(snapshot).getName()),  // NOI18N
+                                new Cancellable() {
+                                    public boolean cancel() { cancelled[0] = true; return true; }
+                                });
                         pHandle.setInitialDelay(0);
-                        pHandle.start();
-                        Utils.copyFile(file, copy);
+                        pHandle.start(COPY_PROGRESS_UNITS);
+                        final ProgressHandle pHandleP = pHandle;
+                        boolean saved = Utils.copyFile(file, copy, new Utils.CopyProgress() {
+                            public boolean progress(long bytes, long total) {
+                                if (total > 0) pHandleP.progress((int)(bytes * COPY_PROGRESS_UNITS / total));
+                                return !cancelled[0];
+                            }
+                        }, true);
+                        if (!saved && !cancelled[0]) DialogDisplayer.getDefault().notifyLater(
+                                new NotifyDescriptor.Message(NbBundle.getMessage(SnapshotsSupport.class,
+                                "MSG_Save_failed", copy.getAbsolutePath()), NotifyDescriptor.ERROR_MESSAGE)); // NOI18N
                     } finally {
                         final ProgressHandle pHandleF = pHandle;
                         SwingUtilities.invokeLater(new Runnable() {
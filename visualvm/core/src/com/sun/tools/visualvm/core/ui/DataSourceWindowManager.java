@@ -79,6 +79,21 @@ public final class DataSourceWindowManager {
         return DataSourceViewsManager.sharedInstance().hasViewsFor(dataSource);
     }
     
+    /**
+     * Returns true if the DataSource has opened views and the window displaying
+     * them is currently showing, false otherwise.
+     *
+     * @param dataSource DataSource to check.
+     * @return true if the window displaying views of the DataSource is showing, false otherwise.
+     *
+     * @since VisualVM 1.4
+     */
+    public boolean isDataSourceShowing(DataSource dataSource) {
+        if (!openedViews.containsKey(dataSource)) return false;
+        DataSourceWindow window = openedWindows.get(getViewMaster(dataSource));
+        return window != null && window.isShowing();
+    }
+
     /**
      * Opens the DataSource and selects the view.
      * 
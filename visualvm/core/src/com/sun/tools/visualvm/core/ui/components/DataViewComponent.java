@@ -35,6 +35,7 @@ import java.awt.event.MouseEvent;
 import javax.swing.JComponent;
 import javax.swing.JPanel;
 import javax.swing.JSplitPane;
+import javax.swing.event.ChangeListener;
 import javax.swing.plaf.basic.BasicSplitPaneDivider;
 import javax.swing.plaf.basic.BasicSplitPaneUI;
 
@@ -526,12 +527,86 @@ public final class DataViewComponent extends JPanel {
          */
         public DetailsView(String name, String description, int preferredPosition, JComponent view, JComponent[] options) {
             tab = new DisplayArea.Tab(name, description, preferredPosition, view, options);
+            tab.setEventSource(this);
+        }
+        
+        /**
+         * Creates new instance of DetailsView with lazily created UI component. The component
+         * is created when the view is revealed for the first time.
+         * 
+         * @param name name of the view.
+         * @param description description of the view.
+         * @param preferredPosition preferred position of the view among other views.
+         * @param view LazyView creating the UI component to be shown.
+         * @param options components to be shown in view's caption.
+         * 
+         * @since VisualVM 1.4
+         */
+        public DetailsView(String name, String description, int preferredPosition, LazyView view, JComponent[] options) {
+            tab = new DisplayArea.Tab(name, description, preferredPosition, view, options);
+            tab.setEventSource(this);
+        }
+        
+        /**
+         * Returns true if the view is currently showing on the screen, false if it
+         * hasn't been created yet, its tab is not selected, its details area is
+         * hidden or the DataViewComponent is not showing. Views which are not showing
+         * should not poll for data.
+         * 
+         * @return true if the view is currently showing on the screen, false otherwise.
+         * 
+         * @since VisualVM 1.4
+         */
+        public boolean isShowing() {
+            return tab.isViewShowing();
+        }
+        
+        /**
+         * Adds a listener notified when the view is shown or hidden. The source of
+         * the ChangeEvent is the DetailsView. Must be invoked in EDT.
+         * 
+         * @param listener listener to be added.
+         * 
+         * @since VisualVM 1.4
+         */
+        public void addVisibilityListener(ChangeListener listener) {
+            tab.addVisibilityListener(listener);
+        }
+        
+        /**
+         * Removes a listener notified when the view is shown or hidden.
+         * Must be invoked in EDT.
+         * 
+         * @param listener listener to be removed.
+         * 
+         * @since VisualVM 1.4
+         */
+        public void removeVisibilityListener(ChangeListener listener) {
+            tab.removeVisibilityListener(listener);
         }
         
         private DisplayArea.Tab getTab() { return tab; }
         
     }
     
+    /**
+     * Lazily created UI component of a DetailsView. Allows to postpone creating
+     * a costly component and starting its data polling until the view is revealed.
+     * 
+     * @since VisualVM 1.4
+     */
+    public static abstract class LazyView {
+        
+        /**
+         * Creates the UI component of the view. Invoked once in EDT when the view
+         * is revealed for the first time.
+         * 
+         * @return UI component of the view.
+         */
+        protected abstract JComponent createView();
+        
+    }
+    
     /**
      * Configuration of the MasterView.
      */
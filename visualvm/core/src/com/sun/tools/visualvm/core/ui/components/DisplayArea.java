@@ -48,6 +48,8 @@ import javax.swing.JCheckBox;
 import javax.swing.JComponent;
 import javax.swing.JPanel;
 import javax.swing.SwingUtilities;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 import org.openide.util.NbBundle;
 
 /**
@@ -62,6 +64,17 @@ class DisplayArea extends JComponent {
         initComponents();
         setClosable(true);
         setVisible(false); // No tabs added yet
+        
+        // Lazy views of the selected tab are created once the area is revealed
+        addHierarchyListener(new HierarchyListener() {
+            public void hierarchyChanged(HierarchyEvent e) {
+                if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0 && isShowing()) {
+                    Tab selectedTab = getSelectedTab();
+                    if (selectedTab != null && !selectedTab.isViewCreated())
+                        viewContainer.setSelectedView(selectedTab.getView());
+                }
+            }
+        });
     }
 
     void setCaption(String caption) {
@@ -152,7 +165,8 @@ class DisplayArea extends JComponent {
 
         tabsContainer.setSelectedTab(tab);
         optionsContainer.setSelectedOptions(tab);
-        viewContainer.setSelectedView(tab.getView());
+        if (tab.isViewCreated() || isShowing()) viewContainer.setSelectedView(tab.getView());
+        else viewContainer.setSelectedView(null); // Created when revealed
     }
 
     Tab getSelectedTab() {
@@ -259,7 +273,13 @@ class DisplayArea extends JComponent {
         private String description;
         private int preferredPosition;
         private JComponent view;
+        private DataViewComponent.LazyView lazyView;
         private JComponent[] options;
+        
+        private Object eventSource = this;
+        private boolean viewShowing;
+        private List<ChangeListener> visibilityListeners;
+        private HierarchyListener visibilityTracker;
 
         Tab(String name, JComponent view) { this(name, null, POSITION_AT_THE_END, view, null); }
         Tab(String name, String description, int preferredPosition, JComponent view, JComponent[] options) {
@@ -269,6 +289,10 @@ class DisplayArea extends JComponent {
             setView(view);
             setOptions(options);
         }
+        Tab(String name, String description, int preferredPosition, DataViewComponent.LazyView lazyView, JComponent[] options) {
+            this(name, description, preferredPosition, (JComponent)null, options);
+            this.lazyView = lazyView;
+        }
 
         void setName(String name) { this.name = name; }
         String getName() { return name; }
@@ -279,8 +303,56 @@ class DisplayArea extends JComponent {
         void setPreferredPosition(int preferredPosition) { this.preferredPosition = preferredPosition; }
         public int getPreferredPosition() { return preferredPosition; }
 
-        void setView(JComponent view) { this.view = view; }
-        JComponent getView() { return view; }
+        void setView(JComponent view) {
+            if (this.view != null && visibilityTracker != null)
+                this.view.removeHierarchyListener(visibilityTracker);
+            this.view = view;
+            if (view != null && visibilityListeners != null) trackVisibility();
+        }
+        JComponent getView() {
+            if (view == null && lazyView != null) {
+                DataViewComponent.LazyView lazy = lazyView;
+                lazyView = null;
+                setView(lazy.createView());
+            }
+            return view;
+        }
+        boolean isViewCreated() { return lazyView == null; }
+        
+        boolean isViewShowing() { return view != null && view.isShowing(); }
+        
+        void setEventSource(Object eventSource) { this.eventSource = eventSource; }
+        
+        void addVisibilityListener(ChangeListener listener) {
+            if (visibilityListeners == null) {
+                visibilityListeners = new ArrayList();
+                if (view != null) trackVisibility();
+            }
+            visibilityListeners.add(listener);
+        }
+        void removeVisibilityListener(ChangeListener listener) {
+            if (visibilityListeners != null) visibilityListeners.remove(listener);
+        }
+        
+        private void trackVisibility() {
+            if (visibilityTracker == null) visibilityTracker = new HierarchyListener() {
+                public void hierarchyChanged(HierarchyEvent e) {
+                    if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0)
+                        updateViewShowing();
+                }
+            };
+            view.addHierarchyListener(visibilityTracker);
+            updateViewShowing();
+        }
+        
+        private void updateViewShowing() {
+            boolean showing = isViewShowing();
+            if (viewShowing == showing) return;
+            viewShowing = showing;
+            ChangeEvent event = new ChangeEvent(eventSource);
+            for (ChangeListener listener : new ArrayList<ChangeListener>(visibilityListeners))
+                listener.stateChanged(event);
+        }
 
         void setOptions(JComponent[] options) { this.options = options != null ? options.clone() : null; }
         JComponent[] getOptions() { return options != null ? options.clone() : null; }
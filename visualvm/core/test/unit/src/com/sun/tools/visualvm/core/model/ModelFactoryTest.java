@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.tools.visualvm.core.model;
+
+import com.sun.tools.visualvm.core.datasource.DataSource;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ModelFactoryTest {
+    private TestFactory factory;
+    private TestProvider provider;
+
+    @Before
+    public void setUp() {
+        factory = new TestFactory();
+        provider = new TestProvider();
+        factory.registerProvider(provider);
+    }
+
+    /**
+     * Cancelling the Future of one caller must not cancel the model
+     * requested by another caller.
+     */
+    @Test
+    public void cancelAsyncIsPerCaller() throws Exception {
+        provider.block();
+        TestDataSource dataSource = new TestDataSource();
+
+        Future<TestModel> future1 = factory.getModelAsync(dataSource);
+        Future<TestModel> future2 = factory.getModelAsync(dataSource);
+        assertTrue(provider.awaitCalled());
+        future1.cancel(true);
+        provider.release();
+
+        TestModel model = future2.get(10, TimeUnit.SECONDS);
+        assertNotNull(model);
+        assertSame(dataSource, model.dataSource);
+        assertFalse(future2.isCancelled());
+        assertSame(model, factory.getModel(dataSource));
+        assertEquals(1, provider.calls.get());
+    }
+
+    /**
+     * Concurrent requests for the same model consult the providers once.
+     */
+    @Test
+    public void concurrentGetModel() throws Exception {
+        provider.block();
+        final TestDataSource dataSource = new TestDataSource();
+        final TestModel[] models = new TestModel[2];
+        Thread[] threads = new Thread[models.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int index = i;
+            threads[i] = new Thread() {
+                public void run() {
+                    models[index] = factory.getModel(dataSource);
+                }
+            };
+            threads[i].start();
+        }
+        assertTrue(provider.awaitCalled());
+        provider.release();
+        for (Thread thread : threads) thread.join(10000);
+
+        assertNotNull(models[0]);
+        assertSame(models[0], models[1]);
+        assertEquals(1, provider.calls.get());
+    }
+
+    /**
+     * Model of an already removed datasource is still cached.
+     */
+    @Test
+    public void removedDataSourceCached() throws Exception {
+        TestDataSource owner = new TestDataSource();
+        TestDataSource dataSource = new TestDataSource();
+        owner.getRepository().addDataSource(dataSource);
+        owner.getRepository().removeDataSource(dataSource);
+        DataSource.EVENT_QUEUE.post(new Runnable() { public void run() {} }).waitFinished();
+        assertTrue(dataSource.isRemoved());
+
+        TestModel model = factory.getModel(dataSource);
+        assertNotNull(model);
+        assertSame(model, factory.getModel(dataSource));
+        assertEquals(1, provider.calls.get());
+    }
+
+    /**
+     * Model of a live datasource is released when it is removed.
+     */
+    @Test
+    public void modelReleasedOnRemove() throws Exception {
+        TestDataSource owner = new TestDataSource();
+        TestDataSource dataSource = new TestDataSource();
+        owner.getRepository().addDataSource(dataSource);
+        DataSource.EVENT_QUEUE.post(new Runnable() { public void run() {} }).waitFinished();
+
+        TestModel model = factory.getModel(dataSource);
+        owner.getRepository().removeDataSource(dataSource);
+        DataSource.EVENT_QUEUE.post(new Runnable() { public void run() {} }).waitFinished();
+
+        assertNotSame(model, factory.getModel(dataSource));
+        assertEquals(2, provider.calls.get());
+    }
+
+    private static class TestDataSource extends DataSource {
+        protected void remove() {
+            // no storage to clean up
+        }
+    }
+
+    private static class TestModel extends Model {
+        private final DataSource dataSource;
+
+        TestModel(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+    }
+
+    private static class TestFactory extends ModelFactory<TestModel, TestDataSource> {
+    }
+
+    private static class TestProvider extends AbstractModelProvider<TestModel, TestDataSource> {
+        private final AtomicInteger calls = new AtomicInteger();
+        private final CountDownLatch called = new CountDownLatch(1);
+        private volatile CountDownLatch blocker;
+
+        void block() {
+            blocker = new CountDownLatch(1);
+        }
+
+        void release() {
+            blocker.countDown();
+        }
+
+        boolean awaitCalled() throws InterruptedException {
+            return called.await(10, TimeUnit.SECONDS);
+        }
+
+        public TestModel createModelFor(TestDataSource dataSource) {
+            calls.incrementAndGet();
+            called.countDown();
+            CountDownLatch latch = blocker;
+            if (latch != null) {
+                try {
+                    latch.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return new TestModel(dataSource);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.tools.visualvm.core.scheduler;
+
+import javax.swing.Timer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class RefreshGovernorTest {
+    private final SchedulerTask dummyTask = new SchedulerTask() {
+        public void onSchedule(long timeStamp) {}
+    };
+
+    private final Object target = new Object();
+    private RefreshGovernor governor;
+    private int budget;
+    private int targetBudget;
+
+    @Before
+    public void setUp() {
+        governor = RefreshGovernor.sharedInstance();
+        budget = governor.getBudget();
+        targetBudget = governor.getTargetBudget();
+        governor.setBudget(100);
+        // Two clients refreshing every second exceed the target budget twice
+        governor.setTargetBudget(1);
+    }
+
+    @After
+    public void tearDown() {
+        for (RefreshGovernor.Client client : governor.getClients(target))
+            governor.unregister(client);
+        governor.setBudget(budget);
+        governor.setTargetBudget(targetBudget);
+    }
+
+    /**
+     * An interval set by the owner of a throttled task becomes its requested
+     * interval and is restored when the task is unregistered.
+     */
+    @Test
+    public void ownerIntervalOfTask() {
+        ScheduledTask task1 = new DefaultScheduledTask(Quantum.seconds(1), dummyTask);
+        ScheduledTask task2 = new DefaultScheduledTask(Quantum.seconds(1), dummyTask);
+        RefreshGovernor.Client client1 = governor.register(task1, target, "task1"); // NOI18N
+        governor.register(task2, target, "task2"); // NOI18N
+        assertEquals(Quantum.seconds(2), task1.getInterval());
+        assertTrue(client1.isThrottled());
+
+        task1.setInterval(Quantum.seconds(4));
+        governor.update();
+        assertEquals(4000, client1.getRequestedInterval());
+        assertEquals(Quantum.seconds(5), task1.getInterval());
+
+        governor.unregister(client1);
+        assertEquals(Quantum.seconds(4), task1.getInterval());
+    }
+
+    /**
+     * A task suspended while throttled resumes with its requested interval
+     * after it has been unregistered.
+     */
+    @Test
+    public void resumeAfterUnregister() {
+        ScheduledTask task1 = new DefaultScheduledTask(Quantum.seconds(1), dummyTask);
+        ScheduledTask task2 = new DefaultScheduledTask(Quantum.seconds(1), dummyTask);
+        RefreshGovernor.Client client1 = governor.register(task1, target, "task1"); // NOI18N
+        governor.register(task2, target, "task2"); // NOI18N
+        assertEquals(Quantum.seconds(2), task1.getInterval());
+
+        task1.suspend();
+        governor.update();
+        assertEquals(0, client1.getRequestedInterval());
+        assertEquals(Quantum.seconds(1), task2.getInterval());
+
+        task1.resume();
+        governor.update();
+        assertEquals(Quantum.seconds(2), task1.getInterval());
+        assertEquals(1000, client1.getRequestedInterval());
+
+        task1.suspend();
+        governor.unregister(client1);
+        task1.resume();
+        assertEquals(Quantum.seconds(1), task1.getInterval());
+    }
+
+    /**
+     * A delay set by the owner of a throttled timer becomes its requested
+     * interval, a stopped timer doesn't consume the budget.
+     */
+    @Test
+    public void ownerDelayOfTimer() {
+        Timer timer1 = new Timer(1000, null);
+        Timer timer2 = new Timer(1000, null);
+        timer1.start();
+        timer2.start();
+        try {
+            RefreshGovernor.Client client1 = governor.register(timer1, target, "timer1"); // NOI18N
+            governor.register(timer2, target, "timer2"); // NOI18N
+            assertEquals(2000, timer1.getDelay());
+
+            timer1.setDelay(4000);
+            governor.update();
+            assertEquals(4000, client1.getRequestedInterval());
+            assertEquals(5000, timer1.getDelay());
+
+            timer1.stop();
+            governor.update();
+            assertEquals(1000, timer2.getDelay());
+
+            governor.unregister(client1);
+            assertEquals(4000, timer1.getDelay());
+        } finally {
+            timer1.stop();
+            timer2.stop();
+        }
+    }
+
+}
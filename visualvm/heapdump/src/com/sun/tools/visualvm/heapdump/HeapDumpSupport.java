@@ -29,6 +29,7 @@ import com.sun.tools.visualvm.heapdump.impl.HeapDumpDescriptorProvider;
 import com.sun.tools.visualvm.heapdump.impl.HeapDumpCategory;
 import com.sun.tools.visualvm.heapdump.impl.HeapDumpViewProvider;
 import com.sun.tools.visualvm.heapdump.impl.HeapDumpProvider;
+import com.sun.tools.visualvm.heapdump.impl.LocalHeapDumpTransferChannel;
 import com.sun.tools.visualvm.application.Application;
 import com.sun.tools.visualvm.application.jvm.JvmFactory;
 import com.sun.tools.visualvm.core.datasource.descriptor.DataSourceDescriptorFactory;
@@ -39,6 +40,8 @@ import com.sun.tools.visualvm.core.ui.PluggableDataSourceViewProvider;
 import com.sun.tools.visualvm.coredump.CoreDump;
 import com.sun.tools.visualvm.tools.jmx.JmxModel;
 import com.sun.tools.visualvm.tools.jmx.JmxModelFactory;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Support for heap dumps in VisualVM.
@@ -52,6 +55,8 @@ public final class HeapDumpSupport {
     private final SnapshotCategory category = new HeapDumpCategory();
     private final HeapDumpProvider heapDumpProvider;
     private final HeapDumpViewProvider heapDumpViewProvider;
+    private final List<HeapDumpTransferChannel> transferChannels =
+            new CopyOnWriteArrayList();
 
 
     /**
@@ -124,6 +129,73 @@ public final class HeapDumpSupport {
         heapDumpProvider.createRemoteHeapDump(application, dumpFile, customizeDumpFile);
     }
     
+    /**
+     * Registers a channel transferring heap dumps from remote systems.
+     * 
+     * @param channel channel to be registered
+     * 
+     * @since VisualVM 1.4
+     */
+    public void registerTransferChannel(HeapDumpTransferChannel channel) {
+        transferChannels.add(0, channel);
+    }
+    
+    /**
+     * Unregisters a channel transferring heap dumps from remote systems.
+     * 
+     * @param channel channel to be unregistered
+     * 
+     * @since VisualVM 1.4
+     */
+    public void unregisterTransferChannel(HeapDumpTransferChannel channel) {
+        transferChannels.remove(channel);
+    }
+    
+    /**
+     * Returns true if a heap dump created by the remote application can be
+     * transferred to the local system, false otherwise.
+     * 
+     * @param application remote application which created the heap dump
+     * @param dumpFile dump file on the remote machine
+     * @return true if the heap dump can be transferred to the local system, false otherwise
+     * 
+     * @since VisualVM 1.4
+     */
+    public boolean supportsRemoteHeapDumpTransfer(Application application, String dumpFile) {
+        return getTransferChannel(application, dumpFile) != null;
+    }
+    
+    /**
+     * Transfers heap dump created by the remote application to the local system
+     * and adds it to the application. An interrupted transfer of the same dump
+     * file is resumed.
+     * 
+     * @param application remote application which created the heap dump
+     * @param dumpFile dump file on the remote machine
+     * @param openView true if the transferred heap dump should be opened, false otherwise
+     * 
+     * @since VisualVM 1.4
+     */
+    public void transferRemoteHeapDump(Application application, String dumpFile, boolean openView) {
+        heapDumpProvider.transferRemoteHeapDump(application, dumpFile, openView);
+    }
+    
+    /**
+     * Returns the most recently registered channel able to transfer the heap dump
+     * created by the remote application or null if there is no such channel.
+     * 
+     * @param application remote application which created the heap dump
+     * @param dumpFile dump file on the remote machine
+     * @return channel able to transfer the heap dump or null
+     * 
+     * @since VisualVM 1.4
+     */
+    public HeapDumpTransferChannel getTransferChannel(Application application, String dumpFile) {
+        for (HeapDumpTransferChannel channel : transferChannels)
+            if (channel.supportsTransfer(application, dumpFile)) return channel;
+        return null;
+    }
+    
     /**
      * Takes heap dump from CoreDump.
      * 
@@ -149,6 +221,7 @@ public final class HeapDumpSupport {
         DataSourceDescriptorFactory.getDefault().registerProvider(new HeapDumpDescriptorProvider());
         heapDumpProvider = new HeapDumpProvider();
         heapDumpProvider.initialize();
+        registerTransferChannel(new LocalHeapDumpTransferChannel());
         
         heapDumpViewProvider = new HeapDumpViewProvider();
         RegisteredSnapshotCategories.sharedInstance().registerCategory(category);
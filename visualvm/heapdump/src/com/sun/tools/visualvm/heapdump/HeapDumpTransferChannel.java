@@ -0,0 +1,169 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.heapdump;
+
+import com.sun.tools.visualvm.application.Application;
+import java.io.IOException;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Channel transferring a heap dump file created on a remote system to the local
+ * system. The file is read in chunks which may be fetched in parallel, each chunk
+ * is compressed and checksummed by the channel.
+ * 
+ * Channels are registered using HeapDumpSupport.registerTransferChannel().
+ *
+ * @since VisualVM 1.4
+ */
+public abstract class HeapDumpTransferChannel {
+    
+    /**
+     * Returns true if the channel is able to transfer the heap dump file created
+     * by the application, false otherwise.
+     * 
+     * @param application application which created the heap dump
+     * @param file heap dump file on the remote system
+     * @return true if the channel is able to transfer the heap dump file, false otherwise
+     */
+    public abstract boolean supportsTransfer(Application application, String file);
+    
+    /**
+     * Returns size of the heap dump file on the remote system.
+     * 
+     * @param application application which created the heap dump
+     * @param file heap dump file on the remote system
+     * @return size of the heap dump file
+     * @throws IOException if the file size cannot be determined
+     */
+    public abstract long getFileSize(Application application, String file) throws IOException;
+    
+    /**
+     * Reads a chunk of the heap dump file on the remote system. The method may
+     * be invoked concurrently from several threads for different chunks.
+     * 
+     * @param application application which created the heap dump
+     * @param file heap dump file on the remote system
+     * @param offset offset of the chunk in the file
+     * @param length length of the chunk, shorter only for the last chunk of the file
+     * @return compressed and checksummed chunk
+     * @throws IOException if the chunk cannot be read
+     */
+    public abstract Chunk readChunk(Application application, String file,
+                                    long offset, int length) throws IOException;
+    
+    
+    /**
+     * Creates a Chunk by compressing the data and computing its checksum.
+     * Intended for channel implementations running in the VisualVM process.
+     * 
+     * @param data uncompressed data
+     * @param length length of the data
+     * @return new Chunk
+     */
+    protected static Chunk createChunk(byte[] data, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, length);
+        
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data, 0, length);
+            deflater.finish();
+            byte[] compressed = new byte[Math.max(64, length + (length >> 3) + 64)];
+            int compressedLength = 0;
+            while (!deflater.finished()) {
+                if (compressedLength == compressed.length) {
+                    byte[] grown = new byte[compressed.length * 2];
+                    System.arraycopy(compressed, 0, grown, 0, compressedLength);
+                    compressed = grown;
+                }
+                compressedLength += deflater.deflate(compressed, compressedLength,
+                                                     compressed.length - compressedLength);
+            }
+            return new Chunk(compressed, compressedLength, length, crc.getValue());
+        } finally {
+            deflater.end();
+        }
+    }
+    
+    
+    /**
+     * Chunk of a heap dump file compressed by java.util.zip.Deflater, with
+     * CRC32 checksum of the uncompressed data.
+     */
+    public static final class Chunk {
+        
+        private final byte[] data;
+        private final int dataLength;
+        private final int length;
+        private final long checksum;
+        
+        /**
+         * Creates new instance of Chunk.
+         * 
+         * @param data compressed data
+         * @param dataLength length of the compressed data
+         * @param length length of the uncompressed data
+         * @param checksum CRC32 checksum of the uncompressed data
+         */
+        public Chunk(byte[] data, int dataLength, int length, long checksum) {
+            this.data = data;
+            this.dataLength = dataLength;
+            this.length = length;
+            this.checksum = checksum;
+        }
+        
+        /**
+         * Returns the compressed data.
+         * 
+         * @return compressed data
+         */
+        public byte[] getData() { return data; }
+        
+        /**
+         * Returns length of the compressed data.
+         * 
+         * @return length of the compressed data
+         */
+        public int getDataLength() { return dataLength; }
+        
+        /**
+         * Returns length of the uncompressed data.
+         * 
+         * @return length of the uncompressed data
+         */
+        public int getLength() { return length; }
+        
+        /**
+         * Returns CRC32 checksum of the uncompressed data.
+         * 
+         * @return CRC32 checksum of the uncompressed data
+         */
+        public long getChecksum() { return checksum; }
+        
+    }
+    
+}
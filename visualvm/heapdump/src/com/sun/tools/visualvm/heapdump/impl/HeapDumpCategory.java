@@ -45,7 +45,7 @@ public class HeapDumpCategory extends SnapshotCategory<HeapDump> {
     private static final long MIN_HPROF_SIZE = 1024*1024L;
     private static final String NAME = NbBundle.getMessage(HeapDumpCategory.class, "LBL_Heap_Dumps");   // NOI18N
     private static final String PREFIX = "heapdump";    // NOI18N
-    private static final String SUFFIX = ".hprof";  // NOI18N
+    static final String SUFFIX = ".hprof";  // NOI18N
     
     public HeapDumpCategory() {
         super(NAME, HeapDump.class, PREFIX, SUFFIX, 20);
@@ -36,8 +36,10 @@ import com.sun.tools.visualvm.application.jvm.JvmFactory;
 import com.sun.tools.visualvm.core.datasource.DataSource;
 import com.sun.tools.visualvm.core.datasource.Storage;
 import com.sun.tools.visualvm.core.snapshot.Snapshot;
+import com.sun.tools.visualvm.core.snapshot.SnapshotsCatalog;
 import com.sun.tools.visualvm.core.ui.DataSourceWindowManager;
 import com.sun.tools.visualvm.heapdump.HeapDumpSupport;
+import com.sun.tools.visualvm.heapdump.HeapDumpTransferChannel;
 import com.sun.tools.visualvm.tools.jmx.JmxModel;
 import com.sun.tools.visualvm.tools.jmx.JmxModelFactory;
 import com.sun.tools.visualvm.tools.sa.SaModel;
@@ -47,7 +49,6 @@ import java.awt.Dialog;
 import java.awt.Dimension;
 import java.io.File;
 import java.io.IOException;
-import java.util.HashSet;
 import java.util.Properties;
 import java.util.Set;
 import java.util.logging.Level;
@@ -63,6 +64,7 @@ import org.openide.DialogDescriptor;
 import org.openide.DialogDisplayer;
 import org.openide.NotifyDescriptor;
 import org.openide.awt.Mnemonics;
+import org.openide.util.Cancellable;
 import org.openide.util.NbBundle;
 import org.openide.util.RequestProcessor;
 
@@ -75,6 +77,13 @@ public class HeapDumpProvider {
     
     private final static Logger LOGGER = Logger.getLogger(HeapDumpProvider.class.getName());
     
+    private static final SnapshotsCatalog.SnapshotFactory<HeapDumpImpl> SNAPSHOT_FACTORY =
+            new SnapshotsCatalog.SnapshotFactory<HeapDumpImpl>() {
+        public HeapDumpImpl createSnapshot(File file, DataSource owner) {
+            return new HeapDumpImpl(file, owner);
+        }
+    };
+    
     public void createHeapDump(final Application application, final boolean openView) {
         RequestProcessor.getDefault().post(new Runnable() {
             public void run() {
@@ -136,9 +145,17 @@ public class HeapDumpProvider {
                 if (file == null) return;
 
                 if (model.takeHeapDump(file)) {
-                    DialogDisplayer.getDefault().notifyLater(new NotifyDescriptor.
-                            Message(NbBundle.getMessage(HeapDumpProvider.class,
-                            "MSG_Dump_ok", file), NotifyDescriptor.INFORMATION_MESSAGE)); // NOI18N
+                    if (HeapDumpSupport.getInstance().supportsRemoteHeapDumpTransfer(application, file)) {
+                        NotifyDescriptor nd = new NotifyDescriptor.Confirmation(
+                                NbBundle.getMessage(HeapDumpProvider.class, "MSG_Dump_transfer", file), // NOI18N
+                                NotifyDescriptor.YES_NO_OPTION);
+                        if (DialogDisplayer.getDefault().notify(nd) == NotifyDescriptor.YES_OPTION)
+                            transferRemoteHeapDump(application, file, true);
+                    } else {
+                        DialogDisplayer.getDefault().notifyLater(new NotifyDescriptor.
+                                Message(NbBundle.getMessage(HeapDumpProvider.class,
+                                "MSG_Dump_ok", file), NotifyDescriptor.INFORMATION_MESSAGE)); // NOI18N
+                    }
                 } else {
                     DialogDisplayer.getDefault().notifyLater(new NotifyDescriptor.
                             Message(NbBundle.getMessage(HeapDumpProvider.class,
@@ -148,6 +165,66 @@ public class HeapDumpProvider {
         });
     }
     
+    public void transferRemoteHeapDump(final Application application, final String dumpFile,
+                                       final boolean openView) {
+        RequestProcessor.getDefault().post(new Runnable() {
+            public void run() {
+                HeapDumpTransferChannel channel = HeapDumpSupport.getInstance().
+                        getTransferChannel(application, dumpFile);
+                if (channel == null) {
+                    DialogDisplayer.getDefault().notifyLater(new NotifyDescriptor.
+                            Message(NbBundle.getMessage(HeapDumpProvider.class,
+                            "MSG_Dump_ok", dumpFile), NotifyDescriptor.INFORMATION_MESSAGE)); // NOI18N
+                    return;
+                }
+                
+                File localFile = new File(application.getStorage().getDirectory(),
+                                          localHeapDumpName(dumpFile));
+                final HeapDumpTransfer transfer = new HeapDumpTransfer(channel,
+                        application, dumpFile, localFile);
+                
+                ProgressHandle pHandle = null;
+                try {
+                    pHandle = ProgressHandleFactory.createHandle(NbBundle.getMessage(
+                            HeapDumpProvider.class, "LBL_Transferring_Heap_Dump"), // NOI18N
+                            new Cancellable() {
+                                public boolean cancel() { transfer.cancel(); return true; }
+                            });
+                    pHandle.setInitialDelay(0);
+                    pHandle.start();
+                    try {
+                        File file = transfer.transfer(pHandle);
+                        if (file != null) {
+                            final HeapDumpImpl heapDump = new HeapDumpImpl(file, application);
+                            application.getRepository().addDataSource(heapDump);
+                            if (openView) DataSource.EVENT_QUEUE.post(new Runnable() {
+                                public void run() { DataSourceWindowManager.sharedInstance().openDataSource(heapDump); }
+                            });
+                        }
+                    } catch (IOException ex) {
+                        LOGGER.log(Level.INFO, "transferRemoteHeapDump", ex); // NOI18N
+                        DialogDisplayer.getDefault().notifyLater(new NotifyDescriptor.
+                                Message(NbBundle.getMessage(HeapDumpProvider.class,
+                                "MSG_Dump_transfer_failed", dumpFile), NotifyDescriptor.ERROR_MESSAGE)); // NOI18N
+                    }
+                } finally {
+                    final ProgressHandle pHandleF = pHandle;
+                    SwingUtilities.invokeLater(new Runnable() {
+                        public void run() { if (pHandleF != null) pHandleF.finish(); }
+                    });
+                }
+            }
+        });
+    }
+    
+    // Remote path may use a different file separator
+    private static String localHeapDumpName(String dumpFile) {
+        String name = dumpFile.substring(Math.max(dumpFile.lastIndexOf('/'),
+                                                  dumpFile.lastIndexOf('\\')) + 1);
+        if (name.isEmpty()) return HeapDumpSupport.getInstance().getCategory().createFileName();
+        return name.endsWith(HeapDumpCategory.SUFFIX) ? name : name + HeapDumpCategory.SUFFIX;
+    }
+    
     private static String defineRemoteFile(JmxModel model, boolean customizeDumpFile) {
         final String[] path = new String[1];
         path[0] = defaultHeapDumpPath(model);
@@ -268,22 +345,16 @@ public class HeapDumpProvider {
         if (snapshot instanceof HeapDumpImpl) return;
         File snapshotFile = snapshot.getFile();
         if (snapshotFile != null && snapshotFile.isDirectory()) {
-            File[] files = snapshotFile.listFiles(HeapDumpSupport.getInstance().getCategory().getFilenameFilter());
-            if (files == null) return;
-            Set<HeapDumpImpl> heapDumps = new HashSet();
-            for (File file : files) heapDumps.add(new HeapDumpImpl(file, snapshot));
-            snapshot.getRepository().addDataSources(heapDumps);
+            SnapshotsCatalog.sharedInstance().registerSnapshots(snapshot, snapshotFile,
+                    HeapDumpSupport.getInstance().getCategory(), SNAPSHOT_FACTORY);
         }
     }
     
     private void processNewApplication(Application application) {
         Storage storage = application.getStorage();
         if (storage.directoryExists()) {
-            File[] files = storage.getDirectory().listFiles(HeapDumpSupport.getInstance().getCategory().getFilenameFilter());
-            if (files == null) return;
-            Set<HeapDumpImpl> heapDumps = new HashSet();
-            for (File file : files) heapDumps.add(new HeapDumpImpl(file, application));
-            application.getRepository().addDataSources(heapDumps);
+            SnapshotsCatalog.sharedInstance().registerSnapshots(application, storage.getDirectory(),
+                    HeapDumpSupport.getInstance().getCategory(), SNAPSHOT_FACTORY);
         }
     }
     
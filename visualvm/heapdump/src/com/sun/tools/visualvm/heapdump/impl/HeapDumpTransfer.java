@@ -0,0 +1,242 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.heapdump.impl;
+
+import com.sun.tools.visualvm.application.Application;
+import com.sun.tools.visualvm.core.datasupport.Utils;
+import com.sun.tools.visualvm.heapdump.HeapDumpTransferChannel;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import org.netbeans.api.progress.ProgressHandle;
+import org.openide.util.RequestProcessor;
+
+/**
+ * Transfers a heap dump file from the remote system using a HeapDumpTransferChannel.
+ * Chunks of the file are fetched in parallel and written to a partial file, the
+ * indexes of the finished chunks are recorded to a state file so that an interrupted
+ * or cancelled transfer of the same file continues where it stopped.
+ *
+ * @since VisualVM 1.4
+ */
+final class HeapDumpTransfer {
+    
+    private static final Logger LOGGER = Logger.getLogger(HeapDumpTransfer.class.getName());
+    
+    private static final int CHUNK_SIZE = 4 * 1024 * 1024;
+    private static final int PARALLEL_CHUNKS = 4;
+    private static final int CHUNK_RETRIES = 3;
+    
+    private static final String PART_EXT = ".part"; // NOI18N
+    private static final String STATE_EXT = ".chunks"; // NOI18N
+    
+    private static final RequestProcessor PROCESSOR =
+            new RequestProcessor("Heap Dump Transfer", PARALLEL_CHUNKS); // NOI18N
+    
+    private final HeapDumpTransferChannel channel;
+    private final Application application;
+    private final String remoteFile;
+    private final File localFile;
+    
+    private volatile boolean cancelled;
+    private volatile Throwable failure;
+    
+    
+    HeapDumpTransfer(HeapDumpTransferChannel channel, Application application,
+                     String remoteFile, File localFile) {
+        this.channel = channel;
+        this.application = application;
+        this.remoteFile = remoteFile;
+        this.localFile = localFile;
+    }
+    
+    
+    void cancel() {
+        cancelled = true;
+    }
+    
+    /**
+     * Transfers the file, returns the transferred file or null if cancelled.
+     */
+    File transfer(final ProgressHandle pHandle) throws IOException {
+        final long size = channel.getFileSize(application, remoteFile);
+        final int chunks = (int)((size + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        
+        File partFile = new File(localFile.getPath() + PART_EXT);
+        File stateFile = new File(partFile.getPath() + STATE_EXT);
+        final BitSet done = loadState(partFile, stateFile, size, chunks);
+        
+        final DataOutputStream state = openState(stateFile, size, done);
+        final RandomAccessFile part;
+        try {
+            part = new RandomAccessFile(partFile, "rw"); // NOI18N
+        } catch (IOException e) {
+            state.close();
+            throw e;
+        }
+        try {
+            part.setLength(size);
+            
+            final AtomicInteger nextChunk = new AtomicInteger();
+            final AtomicInteger finishedChunks = new AtomicInteger(done.cardinality());
+            pHandle.switchToDeterminate(Math.max(chunks, 1));
+            pHandle.progress(finishedChunks.get());
+            
+            Runnable worker = new Runnable() {
+                public void run() {
+                    try {
+                        int chunk;
+                        while (!cancelled && failure == null && (chunk = nextChunk.getAndIncrement()) < chunks) {
+                            synchronized (done) { if (done.get(chunk)) continue; }
+                            
+                            long offset = (long)chunk * CHUNK_SIZE;
+                            int length = (int)Math.min(CHUNK_SIZE, size - offset);
+                            byte[] data = fetchChunk(offset, length);
+                            
+                            synchronized (part) {
+                                part.seek(offset);
+                                part.write(data, 0, length);
+                            }
+                            synchronized (done) {
+                                done.set(chunk);
+                                state.writeInt(chunk);
+                                state.flush();
+                            }
+                            pHandle.progress(finishedChunks.incrementAndGet());
+                        }
+                    } catch (Throwable t) {
+                        // any failure of the channel stops the transfer
+                        if (failure == null) failure = t;
+                    }
+                }
+            };
+            
+            RequestProcessor.Task[] workers = new RequestProcessor.Task[Math.min(PARALLEL_CHUNKS, chunks)];
+            for (int i = 0; i < workers.length; i++) workers[i] = PROCESSOR.post(worker);
+            for (RequestProcessor.Task task : workers) task.waitFinished();
+        } finally {
+            try { state.close(); } catch (IOException e) { LOGGER.log(Level.INFO, "Problem closing state file", e); } // NOI18N
+            try { part.close(); } catch (IOException e) { LOGGER.log(Level.INFO, "Problem closing partial file", e); } // NOI18N
+        }
+        
+        if (failure instanceof IOException) throw (IOException)failure;
+        if (failure != null) throw (IOException)new IOException("Failed to transfer " + // NOI18N
+                                                 remoteFile).initCause(failure);
+        if (cancelled) return null;
+        if (done.cardinality() != chunks) throw new IOException("Incomplete transfer of " + remoteFile); // NOI18N
+        
+        // Do not overwrite a previously transferred heap dump
+        File file = localFile.exists() ? Utils.getUniqueFile(localFile.getParentFile(), localFile.getName()) : localFile;
+        if (!partFile.renameTo(file)) throw new IOException("Cannot rename " + partFile + " to " + file); // NOI18N
+        stateFile.delete();
+        return file;
+    }
+    
+    
+    private byte[] fetchChunk(long offset, int length) throws IOException {
+        byte[] data = new byte[length];
+        for (int attempt = 1; attempt <= CHUNK_RETRIES; attempt++) {
+            HeapDumpTransferChannel.Chunk chunk = channel.readChunk(application, remoteFile, offset, length);
+            if (chunk.getLength() == length && inflate(chunk, data)) {
+                CRC32 crc = new CRC32();
+                crc.update(data, 0, length);
+                if (crc.getValue() == chunk.getChecksum()) return data;
+            }
+            LOGGER.log(Level.INFO, "Corrupted chunk at offset {0} of {1}, attempt {2}", // NOI18N
+                       new Object[] { offset, remoteFile, attempt });
+        }
+        throw new IOException("Failed to transfer chunk at offset " + offset + " of " + remoteFile); // NOI18N
+    }
+    
+    private static boolean inflate(HeapDumpTransferChannel.Chunk chunk, byte[] data) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(chunk.getData(), 0, chunk.getDataLength());
+            int length = 0;
+            while (length < data.length && !inflater.finished()) {
+                int inflated = inflater.inflate(data, length, data.length - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                length += inflated;
+            }
+            return length == data.length;
+        } catch (DataFormatException e) {
+            return false;
+        } finally {
+            inflater.end();
+        }
+    }
+    
+    // State file: file size, chunk size and indexes of the finished chunks
+    private static BitSet loadState(File partFile, File stateFile, long size, int chunks) {
+        BitSet done = new BitSet(chunks);
+        if (!partFile.isFile() || !stateFile.isFile()) return done;
+        
+        DataInputStream dis = null;
+        try {
+            dis = new DataInputStream(new BufferedInputStream(new FileInputStream(stateFile)));
+            if (dis.readLong() != size || dis.readInt() != CHUNK_SIZE) return done;
+            try {
+                while (true) {
+                    int chunk = dis.readInt();
+                    if (chunk >= 0 && chunk < chunks) done.set(chunk);
+                }
+            } catch (EOFException e) {
+                // End of state file, possibly truncated by an interrupted write
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.INFO, "Failed to read transfer state " + stateFile, e); // NOI18N
+            done.clear();
+        } finally {
+            try { if (dis != null) dis.close(); } catch (IOException e) { LOGGER.log(Level.INFO, "Problem closing state file", e); } // NOI18N
+        }
+        return done;
+    }
+    
+    // Rewrites the state file to drop a possibly truncated record
+    private static DataOutputStream openState(File stateFile, long size, BitSet done) throws IOException {
+        DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(stateFile)));
+        dos.writeLong(size);
+        dos.writeInt(CHUNK_SIZE);
+        for (int chunk = done.nextSetBit(0); chunk >= 0; chunk = done.nextSetBit(chunk + 1)) dos.writeInt(chunk);
+        dos.flush();
+        return dos;
+    }
+    
+}
@@ -0,0 +1,66 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.heapdump.impl;
+
+import com.sun.tools.visualvm.application.Application;
+import com.sun.tools.visualvm.heapdump.HeapDumpTransferChannel;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * HeapDumpTransferChannel reading heap dumps directly from the local file system,
+ * used for remote applications running on the same host.
+ *
+ * @since VisualVM 1.4
+ */
+public final class LocalHeapDumpTransferChannel extends HeapDumpTransferChannel {
+    
+    public boolean supportsTransfer(Application application, String file) {
+        // the same path on another host is a different file
+        return application.isLocalApplication() && new File(file).isFile();
+    }
+
+    public long getFileSize(Application application, String file) throws IOException {
+        File f = new File(file);
+        if (!f.isFile()) throw new FileNotFoundException(file);
+        return f.length();
+    }
+
+    public Chunk readChunk(Application application, String file, long offset, int length) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r"); // NOI18N
+        try {
+            byte[] data = new byte[length];
+            raf.seek(offset);
+            raf.readFully(data);
+            return createChunk(data, length);
+        } finally {
+            raf.close();
+        }
+    }
+    
+}
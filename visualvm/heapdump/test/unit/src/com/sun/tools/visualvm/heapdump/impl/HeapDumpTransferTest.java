@@ -0,0 +1,191 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.heapdump.impl;
+
+import com.sun.tools.visualvm.application.Application;
+import com.sun.tools.visualvm.heapdump.HeapDumpTransferChannel;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.netbeans.api.progress.ProgressHandleFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Transfers heap dumps through LocalHeapDumpTransferChannel.
+ */
+public class HeapDumpTransferTest {
+
+    // spans three chunks, the last one partial
+    private static final int DUMP_SIZE = 10 * 1024 * 1024 + 123;
+
+    private File directory;
+    private File dumpFile;
+    private File localFile;
+    private byte[] dump;
+
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("heapdumptransfer", ""); // NOI18N
+        directory.delete();
+        directory.mkdir();
+        dumpFile = new File(directory, "remote.hprof"); // NOI18N
+        localFile = new File(directory, "local.hprof"); // NOI18N
+
+        dump = new byte[DUMP_SIZE];
+        new Random(0).nextBytes(dump);
+        FileOutputStream fos = new FileOutputStream(dumpFile);
+        try {
+            fos.write(dump);
+        } finally {
+            fos.close();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        for (File file : directory.listFiles()) file.delete();
+        directory.delete();
+    }
+
+
+    @Test
+    public void transfer() throws IOException {
+        CountingChannel channel = new CountingChannel(-1, false);
+        File file = transfer(channel);
+
+        assertEquals(localFile, file);
+        assertArrayEquals(dump, read(file));
+        assertEquals(3, channel.reads.get());
+        assertEquals(2, directory.listFiles().length); // no partial or state file left
+    }
+
+    @Test
+    public void failedChunkStopsTransfer() {
+        try {
+            transfer(new CountingChannel(2, false));
+            fail("Transfer should fail"); // NOI18N
+        } catch (IOException e) {
+            assertFalse(localFile.exists());
+        }
+    }
+
+    @Test
+    public void unexpectedFailureStopsTransfer() {
+        try {
+            transfer(new CountingChannel(1, true));
+            fail("Transfer should fail"); // NOI18N
+        } catch (IOException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+            assertFalse(localFile.exists());
+        }
+    }
+
+    @Test
+    public void resumedTransfer() throws IOException {
+        try {
+            transfer(new CountingChannel(2, false));
+            fail("Transfer should fail"); // NOI18N
+        } catch (IOException e) {
+            // the chunks before the failing one are transferred
+        }
+
+        CountingChannel channel = new CountingChannel(-1, false);
+        File file = transfer(channel);
+
+        assertArrayEquals(dump, read(file));
+        assertEquals(1, channel.reads.get());
+    }
+
+    @Test
+    public void existingDumpNotOverwritten() throws IOException {
+        FileOutputStream fos = new FileOutputStream(localFile);
+        fos.close();
+
+        File file = transfer(new CountingChannel(-1, false));
+
+        assertFalse(localFile.equals(file));
+        assertEquals(0, localFile.length());
+        assertArrayEquals(dump, read(file));
+    }
+
+
+    private File transfer(CountingChannel channel) throws IOException {
+        HeapDumpTransfer transfer = new HeapDumpTransfer(channel, null, dumpFile.getPath(), localFile);
+        return transfer.transfer(ProgressHandleFactory.createHandle("Transfer")); // NOI18N
+    }
+
+    private static byte[] read(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r"); // NOI18N
+        try {
+            byte[] data = new byte[(int)raf.length()];
+            raf.readFully(data);
+            return data;
+        } finally {
+            raf.close();
+        }
+    }
+
+
+    // Reads the local file, optionally failing for one chunk
+    private static class CountingChannel extends HeapDumpTransferChannel {
+
+        private final LocalHeapDumpTransferChannel channel = new LocalHeapDumpTransferChannel();
+        private final AtomicInteger reads = new AtomicInteger();
+        private final long failingOffset;
+        private final boolean unexpected;
+
+        CountingChannel(int failingChunk, boolean unexpected) {
+            failingOffset = failingChunk == -1 ? -1 : failingChunk * 4L * 1024 * 1024;
+            this.unexpected = unexpected;
+        }
+
+        public boolean supportsTransfer(Application application, String file) {
+            return true;
+        }
+
+        public long getFileSize(Application application, String file) throws IOException {
+            return channel.getFileSize(application, file);
+        }
+
+        public Chunk readChunk(Application application, String file, long offset, int length) throws IOException {
+            if (offset == failingOffset) {
+                if (unexpected) throw new IllegalStateException("Channel failure"); // NOI18N
+                throw new IOException("Channel failure"); // NOI18N
+            }
+            reads.incrementAndGet();
+            return channel.readChunk(application, file, offset, length);
+        }
+
+    }
+
+}
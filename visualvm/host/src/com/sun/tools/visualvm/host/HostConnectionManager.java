@@ -0,0 +1,229 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.host;
+
+import com.sun.tools.visualvm.host.impl.Ping;
+import java.net.InetSocketAddress;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.openide.util.RequestProcessor;
+
+/**
+ * Establishes connections to hosts asynchronously. Before each connection
+ * attempt the target port is probed by a non-blocking connect, all probes are
+ * processed in parallel by a single thread so unreachable hosts don't block
+ * any worker thread. Failed attempts are retried with exponential backoff
+ * until the connection succeeds, the Host is removed or the task is cancelled.
+ * A task whose connection has been lost can be reconnected, its backoff
+ * continues from the previous attempts instead of starting over.
+ *
+ * @since VisualVM 1.4
+ */
+public final class HostConnectionManager {
+
+    private static final Logger LOGGER = Logger.getLogger(HostConnectionManager.class.getName());
+
+    private static final RequestProcessor PROCESSOR =
+            new RequestProcessor("Host Connections Processor", 10); // NOI18N
+
+    private static HostConnectionManager instance;
+
+    /**
+     * Returns singleton instance of HostConnectionManager.
+     *
+     * @return singleton instance of HostConnectionManager
+     */
+    public static synchronized HostConnectionManager sharedInstance() {
+        if (instance == null) instance = new HostConnectionManager();
+        return instance;
+    }
+
+
+    /**
+     * Starts connecting the task immediately.
+     *
+     * @param task connection task
+     */
+    public void connect(ConnectionTask task) {
+        connect(task, 0);
+    }
+
+    /**
+     * Starts connecting the task after the defined delay.
+     *
+     * @param task connection task
+     * @param delay delay in milliseconds
+     */
+    public void connect(final ConnectionTask task, int delay) {
+        PROCESSOR.post(new Runnable() {
+            public void run() { probe(task); }
+        }, delay);
+    }
+
+    /**
+     * Starts connecting the task again after its connection has been lost.
+     * The retry delay continues the backoff of the previous attempts, it's
+     * reset only if the connection has been established for at least the
+     * maximum retry delay.
+     *
+     * @param task connection task which has already connected
+     */
+    public void reconnect(ConnectionTask task) {
+        connect(task, task.restart());
+    }
+
+
+    private void probe(final ConnectionTask task) {
+        if (task.isFinished()) return;
+
+        InetSocketAddress address = task.getProbeAddress();
+        if (address == null || address.isUnresolved()) {
+            attempt(task, true);
+        } else {
+            Ping.probe(address, task.getProbeTimeout(), new Ping.Callback() {
+                public void probeFinished(final boolean reachable) {
+                    PROCESSOR.post(new Runnable() {
+                        public void run() { attempt(task, reachable); }
+                    });
+                }
+            });
+        }
+    }
+
+    private void attempt(final ConnectionTask task, boolean reachable) {
+        if (task.isFinished()) return;
+
+        boolean finished;
+        try {
+            finished = reachable ? task.connect() : task.unreachable();
+        } catch (Throwable t) {
+            LOGGER.log(Level.INFO, "Connection to " + task.getHost() + " failed", t); // NOI18N
+            finished = false;
+        }
+
+        if (finished) task.connected();
+        else PROCESSOR.post(new Runnable() {
+            public void run() { probe(task); }
+        }, task.nextRetryDelay());
+    }
+
+
+    /**
+     * Connection to be established by the HostConnectionManager.
+     */
+    public static abstract class ConnectionTask {
+
+        private final Host host;
+        private final InetSocketAddress probeAddress;
+        private final int probeTimeout;
+        private final int initialRetryDelay;
+        private final int maxRetryDelay;
+
+        private volatile boolean cancelled;
+        private volatile boolean connected;
+        private long connectedTime;
+        private int retries;
+
+
+        /**
+         * Creates new ConnectionTask.
+         *
+         * @param host Host to connect to
+         * @param probeAddress address to probe before each connection attempt or null to connect directly
+         * @param probeTimeout timeout of the probe in milliseconds
+         * @param initialRetryDelay delay of the first retry in milliseconds, each next retry doubles the delay
+         * @param maxRetryDelay maximum delay between two retries in milliseconds
+         */
+        protected ConnectionTask(Host host, InetSocketAddress probeAddress, int probeTimeout,
+                                 int initialRetryDelay, int maxRetryDelay) {
+            this.host = host;
+            this.probeAddress = probeAddress;
+            this.probeTimeout = probeTimeout;
+            this.initialRetryDelay = initialRetryDelay;
+            this.maxRetryDelay = maxRetryDelay;
+        }
+
+
+        /**
+         * Returns the Host to connect to.
+         *
+         * @return Host to connect to
+         */
+        public final Host getHost() { return host; }
+
+        /**
+         * Cancels the task, no more connection attempts will be made.
+         */
+        public final void cancel() { cancelled = true; }
+
+        /**
+         * Returns true if the task has been cancelled or finished or its Host has been removed.
+         *
+         * @return true if the task has been cancelled or finished or its Host has been removed
+         */
+        public final boolean isFinished() { return cancelled || connected || host.isRemoved(); }
+
+
+        /**
+         * Invoked in a worker thread when the probe succeeded to establish
+         * the connection. May block.
+         *
+         * @return true if the task is finished, false to retry later
+         */
+        protected abstract boolean connect();
+
+        /**
+         * Invoked in a worker thread when the probe failed. Default
+         * implementation returns false to retry later.
+         *
+         * @return true if the task is finished, false to retry later
+         */
+        protected boolean unreachable() { return false; }
+
+
+        InetSocketAddress getProbeAddress() { return probeAddress; }
+
+        int getProbeTimeout() { return probeTimeout; }
+
+        synchronized void connected() {
+            connected = true;
+            connectedTime = System.currentTimeMillis();
+        }
+
+        synchronized int restart() {
+            connected = false;
+            if (System.currentTimeMillis() - connectedTime >= maxRetryDelay) retries = 0;
+            return nextRetryDelay();
+        }
+
+        synchronized int nextRetryDelay() {
+            long delay = (long)initialRetryDelay << Math.min(retries++, 16);
+            return (int)Math.min(delay, maxRetryDelay);
+        }
+
+    }
+
+}
@@ -32,55 +32,71 @@ import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class Ping {
   
+  private static final Logger LOGGER = Logger.getLogger(Ping.class.getName());
+  
   // The default daytime port
   static int RMIREGISTRY_PORT = 1099;
   
+  // Timeout of the probes used for scanning the local network
+  static int SCAN_TIMEOUT = 2000;
+  
   // The port we'll actually use
   int port = RMIREGISTRY_PORT;
-  List<InetAddress> foundHosts;
+  
+  // Connector shared by all asynchronous probes, started lazily
+  private static Connector sharedConnector;
+  
+  
+  // Receives the result of a probe. Invoked in the connector thread, must
+  // not block.
+  //
+  public static interface Callback {
+    public void probeFinished(boolean reachable);
+  }
+  
   
   // Representation of a ping target
   //
-  class Target {
+  static class Target {
     
     InetSocketAddress address;
     SocketChannel channel;
-    boolean failure;
-    long connectStart;
-    long connectFinish = 0;
-    Boolean status;
+    SelectionKey key;
+    long deadline;
+    Callback callback;
+    boolean done;
     
-    Target(InetAddress host,int port) {
-      address = new InetSocketAddress(host,port);
+    Target(InetSocketAddress address, int timeout, Callback callback) {
+      this.address = address;
+      this.deadline = System.currentTimeMillis() + timeout;
+      this.callback = callback;
     }
     
-    private void done() {
-      status = Boolean.valueOf(connectFinish != 0);
-      if (status.booleanValue()) {
-        foundHosts.add(address.getAddress());
+    private void done(boolean reachable) {
+      if (done) return;
+      done = true;
+      if (key != null) key.cancel();
+      if (channel != null) {
+        try { channel.close(); } catch (IOException x) { }
       }
-    }
-    
-    private void status() {
-      if (status == null) {
-        System.out.println("Status: "+address.getAddress().getHostAddress()+" no status");
-      } else {
-        System.out.println("Status: "+address.getHostName()+" "+status);
+      try {
+        callback.probeFinished(reachable);
+      } catch (Throwable t) {
+        LOGGER.log(Level.WARNING, "Failed to process probe result for " + address, t); // NOI18N
       }
     }
   }
   
   
-  // Thread for printing targets as they're heard from
-  //
-  
-  
   // Thread for connecting to all targets in parallel via a single selector
   //
   static class Connector
@@ -91,11 +107,17 @@ public class Ping {
     // register a channel with the selector while the connector thread is
     // blocked in the selector then we will block.
     //
-    LinkedList pending = new LinkedList();
+    LinkedList<Target> pending = new LinkedList<Target>();
     
-    Connector() throws IOException {
+    // Targets registered with the selector, accessed only by the connector
+    // thread
+    //
+    List<Target> active = new ArrayList<Target>();
+    
+    Connector(String name) throws IOException {
       sel = Selector.open();
-      setName("Connector"); // NOI18N
+      setName(name);
+      setDaemon(true);
     }
     
     // Initiate a connection sequence to the given target and add the
@@ -108,11 +130,11 @@ public class Ping {
         // Open the channel, set it to non-blocking, initiate connect
         sc = SocketChannel.open();
         sc.configureBlocking(false);
-        sc.connect(t.address);
-        
-        // Record the time we started
         t.channel = sc;
-        t.connectStart = System.currentTimeMillis();
+        if (sc.connect(t.address)) {
+          t.done(true);
+          return;
+        }
         
         // Add the new channel to the pending list
         synchronized (pending) {
@@ -123,22 +145,16 @@ public class Ping {
         sel.wakeup();
         
       } catch (IOException x) {
-        if (sc != null) {
-          try {
-            sc.close();
-          } catch (IOException xx) { }
-        }
-        t.failure = true;
-        t.done();
+        t.done(false);
       }
     }
     
     // Process any targets in the pending list
     //
-    void processPendingTargets() throws IOException {
+    void processPendingTargets() {
       synchronized (pending) {
         while (pending.size() > 0) {
-          Target t = (Target)pending.removeFirst();
+          Target t = pending.removeFirst();
           try {
             
             // Register the channel with the selector, indicating
@@ -146,15 +162,14 @@ public class Ping {
             // target object so that we can get the target back
             // after the key is added to the selector's
             // selected-key set
-            t.channel.register(sel, SelectionKey.OP_CONNECT, t);
+            t.key = t.channel.register(sel, SelectionKey.OP_CONNECT, t);
+            active.add(t);
             
           } catch (IOException x) {
             
             // Something went wrong, so close the channel and
             // record the failure
-            t.channel.close();
-            t.failure = true;
-            t.done();
+            t.done(false);
           }
           
         }
@@ -163,11 +178,11 @@ public class Ping {
     
     // Process keys that have become selected
     //
-    void processSelectedKeys() throws IOException {
-      for (Iterator i = sel.selectedKeys().iterator(); i.hasNext();) {
+    void processSelectedKeys() {
+      for (Iterator<SelectionKey> i = sel.selectedKeys().iterator(); i.hasNext();) {
         
         // Retrieve the next key and remove it from the set
-        SelectionKey sk = (SelectionKey)i.next();
+        SelectionKey sk = i.next();
         i.remove();
         
         // Retrieve the target and the channel
@@ -177,22 +192,42 @@ public class Ping {
         // Attempt to complete the connection sequence
         try {
           if (sc.finishConnect()) {
-            sk.cancel();
-            t.connectFinish = System.currentTimeMillis();
-            sc.close();
-            t.done();
+            active.remove(t);
+            t.done(true);
           }
         } catch (IOException x) {
-          sc.close();
-          t.failure = true;
-          t.done();
+          active.remove(t);
+          t.done(false);
+        }
+      }
+    }
+    
+    // Fail targets which didn't connect in time
+    //
+    void processTimeouts() {
+      long time = System.currentTimeMillis();
+      for (Iterator<Target> i = active.iterator(); i.hasNext();) {
+        Target t = i.next();
+        if (t.deadline <= time) {
+          i.remove();
+          t.done(false);
         }
       }
     }
     
+    // Time to the nearest deadline, 0 if there's no active target
+    //
+    long nextTimeout() {
+      if (active.isEmpty()) return 0;
+      long deadline = Long.MAX_VALUE;
+      for (Target t : active) deadline = Math.min(deadline, t.deadline);
+      return Math.max(deadline - System.currentTimeMillis(), 1);
+    }
+    
     volatile boolean shutdown = false;
     
-    // Invoked by the main thread when it's time to shut down
+    // Invoked by the main thread when it's time to shut down, fails
+    // all targets still in progress
     //
     void shutdown() {
       shutdown = true;
@@ -204,16 +239,20 @@ public class Ping {
     public void run() {
       for (;;) {
         try {
-          int n = sel.select();
+          long timeout = nextTimeout();
+          int n = timeout == 0 ? sel.select() : sel.select(timeout);
           if (n > 0)
             processSelectedKeys();
           processPendingTargets();
+          processTimeouts();
           if (shutdown) {
+            for (Target t : active) t.done(false);
+            active.clear();
             sel.close();
             return;
           }
         } catch (IOException x) {
-          x.printStackTrace();
+          LOGGER.log(Level.INFO, "Connector failed", x); // NOI18N
         }
       }
     }
@@ -221,31 +260,58 @@ public class Ping {
   }
   
   
+  // Starts probing the address, the callback is notified once the connection
+  // is established, refused or the timeout elapses. All probes share a single
+  // connector thread.
+  //
+  public static void probe(InetSocketAddress address, int timeout, Callback callback) {
+    Connector connector;
+    synchronized (Ping.class) {
+      if (sharedConnector == null) {
+        try {
+          sharedConnector = new Connector("Host Reachability Prober"); // NOI18N
+          sharedConnector.start();
+        } catch (IOException x) {
+          LOGGER.log(Level.INFO, "Failed to start connector", x); // NOI18N
+          callback.probeFinished(false);
+          return;
+        }
+      }
+      connector = sharedConnector;
+    }
+    connector.add(new Target(address, timeout, callback));
+  }
+  
+  
   public List<InetAddress> getActiveHosts()
       throws InterruptedException, IOException {
     port = RMIREGISTRY_PORT;
     InetAddress localAdd = InetAddress.getLocalHost();
-    //System.out.println("Local Address :"+localAdd.getHostAddress());
     byte[] addr = localAdd.getAddress();
-    foundHosts = new ArrayList();
+    final List<InetAddress> foundHosts =
+            Collections.synchronizedList(new ArrayList<InetAddress>());
     
-    // Create the threads and start them up
-    Connector connector = new Connector();
+    // Create the thread and start it up
+    Connector connector = new Connector("Connector"); // NOI18N
     connector.start();
 
     // Create the targets and add them to the connector
     for (int i=1;i<255;i++) {
       addr[addr.length-1]=(byte)i;
-      Target t = new Target(InetAddress.getByAddress(addr),port);
-      connector.add(t);
+      final InetAddress host = InetAddress.getByAddress(addr);
+      connector.add(new Target(new InetSocketAddress(host,port), SCAN_TIMEOUT, new Callback() {
+        public void probeFinished(boolean reachable) {
+          if (reachable) foundHosts.add(host);
+        }
+      }));
     }
     
     // Wait for everything to finish
-    Thread.sleep(2000);
+    Thread.sleep(SCAN_TIMEOUT);
     connector.shutdown();
     connector.join();
     foundHosts.remove(localAdd);
-    return foundHosts;
+    return new ArrayList<InetAddress>(foundHosts);
   }
   
 }
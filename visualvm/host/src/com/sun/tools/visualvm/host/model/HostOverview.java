@@ -148,4 +148,15 @@ public abstract class HostOverview extends Model  {
      */ 
     public abstract String getHostAddress();
     
+    /**
+     * Returns detailed statistics of the host like utilization of each CPU core,
+     * disk and network throughput. The default implementation returns null.
+     * 
+     * @return detailed statistics of the host or null if not available
+     * @since VisualVM 1.4
+     */ 
+    public HostStatistics getHostStatistics() {
+        return null;
+    }
+    
 }
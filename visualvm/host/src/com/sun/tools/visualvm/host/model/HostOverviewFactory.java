@@ -28,6 +28,7 @@ package com.sun.tools.visualvm.host.model;
 import com.sun.tools.visualvm.core.model.ModelFactory;
 import com.sun.tools.visualvm.core.model.ModelProvider;
 import com.sun.tools.visualvm.host.Host;
+import org.openide.util.Utilities;
 
 /**
  * The HostOverviewFactory class is a factory class for getting the
@@ -69,7 +70,8 @@ public final class HostOverviewFactory extends ModelFactory<HostOverview,Host> i
     
     /**
      * Default {@link ModelProvider} implementation, which creates 
-     * HostOverview for localhost. If you want to extend HostOverviewFactory use 
+     * HostOverview for localhost. On Linux the HostOverview also provides
+     * detailed {@link HostStatistics} read from the /proc filesystem. If you want to extend HostOverviewFactory use 
      * {@link HostOverviewFactory#registerProvider(ModelProvider)} to register the new instances
      * of {@link ModelProvider} for the different types of {@link Host}.
      * @param host host
@@ -77,6 +79,10 @@ public final class HostOverviewFactory extends ModelFactory<HostOverview,Host> i
      */
     public HostOverview createModelFor(Host host) {
         if (Host.LOCALHOST.equals(host)) {
+            if (Utilities.getOperatingSystem() == Utilities.OS_LINUX &&
+                LinuxHostOverview.isSupported()) {
+                return new LinuxHostOverview();
+            }
             return new LocalHostOverview();
         }
         return null;
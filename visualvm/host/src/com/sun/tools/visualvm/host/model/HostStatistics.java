@@ -0,0 +1,178 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.host.model;
+
+/**
+ * Snapshot of detailed host statistics like CPU utilization, disk and network
+ * throughput. CPU utilization values are in tenths of percent (0 - 1000),
+ * throughput values are in bytes per second computed since the previous
+ * snapshot.
+ *
+ * @since VisualVM 1.4
+ */
+public final class HostStatistics {
+
+    private final long timestamp;
+    private final int cpuUser;
+    private final int cpuSystem;
+    private final int cpuIoWait;
+    private final int cpuSteal;
+    private final int cpuIdle;
+    private final int[] coreUsage;
+    private final long memoryAvailable;
+    private final long memoryCached;
+    private final long memoryBuffers;
+    private final long diskReadRate;
+    private final long diskWriteRate;
+    private final long networkReceiveRate;
+    private final long networkTransmitRate;
+
+
+    HostStatistics(long timestamp, int cpuUser, int cpuSystem, int cpuIoWait,
+                   int cpuSteal, int cpuIdle, int[] coreUsage,
+                   long memoryAvailable, long memoryCached, long memoryBuffers,
+                   long diskReadRate, long diskWriteRate,
+                   long networkReceiveRate, long networkTransmitRate) {
+        this.timestamp = timestamp;
+        this.cpuUser = cpuUser;
+        this.cpuSystem = cpuSystem;
+        this.cpuIoWait = cpuIoWait;
+        this.cpuSteal = cpuSteal;
+        this.cpuIdle = cpuIdle;
+        this.coreUsage = coreUsage;
+        this.memoryAvailable = memoryAvailable;
+        this.memoryCached = memoryCached;
+        this.memoryBuffers = memoryBuffers;
+        this.diskReadRate = diskReadRate;
+        this.diskWriteRate = diskWriteRate;
+        this.networkReceiveRate = networkReceiveRate;
+        this.networkTransmitRate = networkTransmitRate;
+    }
+
+
+    /**
+     * Returns time when the statistics have been collected.
+     *
+     * @return time when the statistics have been collected in milliseconds
+     */
+    public long getTimestamp() { return timestamp; }
+
+    /**
+     * Returns relative time spent by all processors in user mode.
+     *
+     * @return relative time spent in user mode (0 - 1000)
+     */
+    public int getCpuUser() { return cpuUser; }
+
+    /**
+     * Returns relative time spent by all processors in system mode including
+     * servicing interrupts.
+     *
+     * @return relative time spent in system mode (0 - 1000)
+     */
+    public int getCpuSystem() { return cpuSystem; }
+
+    /**
+     * Returns relative time spent by all processors waiting for I/O to complete.
+     *
+     * @return relative time spent waiting for I/O (0 - 1000)
+     */
+    public int getCpuIoWait() { return cpuIoWait; }
+
+    /**
+     * Returns relative time stolen by the hypervisor for other virtual machines.
+     *
+     * @return relative stolen time (0 - 1000)
+     */
+    public int getCpuSteal() { return cpuSteal; }
+
+    /**
+     * Returns relative time all processors have been idle.
+     *
+     * @return relative idle time (0 - 1000)
+     */
+    public int getCpuIdle() { return cpuIdle; }
+
+    /**
+     * Returns utilization of each processor core.
+     *
+     * @return relative busy time of each core (0 - 1000)
+     */
+    public int[] getCoreUsage() { return coreUsage.clone(); }
+
+    /**
+     * Returns amount of memory available for starting new applications
+     * without swapping.
+     *
+     * @return available memory in bytes or -1 if not known
+     */
+    public long getMemoryAvailable() { return memoryAvailable; }
+
+    /**
+     * Returns amount of memory used by the page cache.
+     *
+     * @return page cache size in bytes or -1 if not known
+     */
+    public long getMemoryCached() { return memoryCached; }
+
+    /**
+     * Returns amount of memory used by the block device buffers.
+     *
+     * @return buffers size in bytes or -1 if not known
+     */
+    public long getMemoryBuffers() { return memoryBuffers; }
+
+    /**
+     * Returns number of bytes read from all physical disks per second.
+     *
+     * @return number of bytes read per second
+     */
+    public long getDiskReadRate() { return diskReadRate; }
+
+    /**
+     * Returns number of bytes written to all physical disks per second.
+     *
+     * @return number of bytes written per second
+     */
+    public long getDiskWriteRate() { return diskWriteRate; }
+
+    /**
+     * Returns number of bytes received by all network interfaces except
+     * the loopback per second.
+     *
+     * @return number of bytes received per second
+     */
+    public long getNetworkReceiveRate() { return networkReceiveRate; }
+
+    /**
+     * Returns number of bytes transmitted by all network interfaces except
+     * the loopback per second.
+     *
+     * @return number of bytes transmitted per second
+     */
+    public long getNetworkTransmitRate() { return networkTransmitRate; }
+
+}
@@ -0,0 +1,272 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.host.model;
+
+import java.io.File;
+
+/**
+ * HostOverview of the local Linux host backed by the /proc filesystem. Provides
+ * detailed HostStatistics, memory values are read from /proc/meminfo. The
+ * files are kept open and parsed from reusable buffers, rates are computed
+ * from the previous values.
+ */
+class LinuxHostOverview extends LocalHostOverview {
+
+    // All callers within this interval share the same data
+    private static final long DATA_VALIDITY = 500;
+
+    private static final int CPU_FIELDS = 8;
+    private static final int USER = 0;
+    private static final int NICE = 1;
+    private static final int SYSTEM = 2;
+    private static final int IDLE = 3;
+    private static final int IOWAIT = 4;
+    private static final int IRQ = 5;
+    private static final int SOFTIRQ = 6;
+    private static final int STEAL = 7;
+
+    private static final int SECTOR_SIZE = 512;
+
+    private static final byte[] CPU = ProcFile.bytes("cpu"); // NOI18N
+    private static final byte[] MEM_TOTAL = ProcFile.bytes("MemTotal"); // NOI18N
+    private static final byte[] MEM_FREE = ProcFile.bytes("MemFree"); // NOI18N
+    private static final byte[] MEM_AVAILABLE = ProcFile.bytes("MemAvailable"); // NOI18N
+    private static final byte[] BUFFERS = ProcFile.bytes("Buffers"); // NOI18N
+    private static final byte[] CACHED = ProcFile.bytes("Cached"); // NOI18N
+    private static final byte[] SWAP_TOTAL = ProcFile.bytes("SwapTotal"); // NOI18N
+    private static final byte[] SWAP_FREE = ProcFile.bytes("SwapFree"); // NOI18N
+    private static final byte[] LOOPBACK = ProcFile.bytes("lo"); // NOI18N
+
+    private final ProcFile stat = new ProcFile("/proc/stat", 8192); // NOI18N
+    private final ProcFile meminfo = new ProcFile("/proc/meminfo", 4096); // NOI18N
+    private final ProcFile diskstats = new ProcFile("/proc/diskstats", 4096); // NOI18N
+    private final ProcFile netdev = new ProcFile("/proc/net/dev", 2048); // NOI18N
+
+    private final byte[][] disks;
+
+    private long lastTime = -1;
+    private long[] lastCpu = new long[0];
+    private long[] cpu = new long[0];
+    private final long[] cpuDeltas = new long[CPU_FIELDS];
+    private final int[] coreTimes = new int[CPU_FIELDS];
+    private long lastDiskRead;
+    private long lastDiskWrite;
+    private long lastNetReceive;
+    private long lastNetTransmit;
+
+    private long dataTime = Long.MIN_VALUE;
+    private long totalPhysicalMemory;
+    private long freePhysicalMemory;
+    private long totalSwapSpace;
+    private long freeSwapSpace;
+    private HostStatistics statistics;
+
+
+    LinuxHostOverview() {
+        disks = getPhysicalDisks();
+        refreshData();
+    }
+
+
+    static boolean isSupported() {
+        return new File("/proc/stat").canRead() && new File("/proc/meminfo").canRead(); // NOI18N
+    }
+
+
+    public synchronized long getTotalPhysicalMemorySize() {
+        refresh();
+        return totalPhysicalMemory;
+    }
+
+    public synchronized long getFreePhysicalMemorySize() {
+        refresh();
+        return freePhysicalMemory;
+    }
+
+    public synchronized long getTotalSwapSpaceSize() {
+        refresh();
+        return totalSwapSpace;
+    }
+
+    public synchronized long getFreeSwapSpaceSize() {
+        refresh();
+        return freeSwapSpace;
+    }
+
+    public synchronized HostStatistics getHostStatistics() {
+        refresh();
+        return statistics;
+    }
+
+
+    private void refresh() {
+        if (System.currentTimeMillis() - dataTime >= DATA_VALIDITY) refreshData();
+    }
+
+    private void refreshData() {
+        dataTime = System.currentTimeMillis();
+        long time = System.nanoTime();
+        long interval = lastTime == -1 ? 0 : time - lastTime;
+        lastTime = time;
+
+        long memoryAvailable = -1;
+        long memoryCached = -1;
+        long memoryBuffers = -1;
+        if (meminfo.read()) {
+            totalPhysicalMemory = kBytes(meminfo.getValue(MEM_TOTAL, 1));
+            freePhysicalMemory = kBytes(meminfo.getValue(MEM_FREE, 1));
+            totalSwapSpace = kBytes(meminfo.getValue(SWAP_TOTAL, 1));
+            freeSwapSpace = kBytes(meminfo.getValue(SWAP_FREE, 1));
+            memoryAvailable = kBytes(meminfo.getValue(MEM_AVAILABLE, 1));
+            memoryCached = kBytes(meminfo.getValue(CACHED, 1));
+            memoryBuffers = kBytes(meminfo.getValue(BUFFERS, 1));
+        }
+
+        // --- CPU: first line is the summary, then one line per core
+        int cpuLines = stat.read() ? readCpu() : 0;
+        boolean cpuValid = interval > 0 && cpuLines > 0 && lastCpu.length == cpu.length;
+        int[] cpuTimes = new int[CPU_FIELDS];
+        int[] coreUsage = new int[Math.max(cpuLines - 1, 0)];
+        if (cpuValid) {
+            computeUsage(0, cpuTimes);
+            for (int i = 0; i < coreUsage.length; i++) {
+                computeUsage(i + 1, coreTimes);
+                coreUsage[i] = 1000 - coreTimes[IDLE] - coreTimes[IOWAIT];
+            }
+        }
+        long[] swap = lastCpu;
+        lastCpu = cpu;
+        cpu = swap;
+
+        // --- Disks: sectors read and written by physical disks
+        long diskRead = 0;
+        long diskWrite = 0;
+        if (disks.length > 0 && diskstats.read()) {
+            for (int line = 0; line != -1; line = diskstats.nextLine(line)) {
+                int name = diskstats.token(line, 2);
+                if (isDisk(name)) {
+                    diskRead += diskstats.parseLong(diskstats.token(line, 5));
+                    diskWrite += diskstats.parseLong(diskstats.token(line, 9));
+                }
+            }
+        }
+        diskRead *= SECTOR_SIZE;
+        diskWrite *= SECTOR_SIZE;
+
+        // --- Network: bytes received and transmitted by all interfaces except lo
+        long netReceive = 0;
+        long netTransmit = 0;
+        if (netdev.read()) {
+            int line = netdev.nextLine(netdev.nextLine(0)); // skip the two header lines
+            for (; line != -1; line = netdev.nextLine(line)) {
+                if (netdev.tokenEquals(netdev.token(line, 0), LOOPBACK)) continue;
+                netReceive += Math.max(netdev.parseLong(netdev.token(line, 1)), 0);
+                netTransmit += Math.max(netdev.parseLong(netdev.token(line, 9)), 0);
+            }
+        }
+
+        statistics = new HostStatistics(dataTime,
+                cpuTimes[USER], cpuTimes[SYSTEM], cpuTimes[IOWAIT],
+                cpuTimes[STEAL], cpuValid ? cpuTimes[IDLE] : 1000, coreUsage,
+                memoryAvailable, memoryCached, memoryBuffers,
+                rate(diskRead, lastDiskRead, interval),
+                rate(diskWrite, lastDiskWrite, interval),
+                rate(netReceive, lastNetReceive, interval),
+                rate(netTransmit, lastNetTransmit, interval));
+
+        lastDiskRead = diskRead;
+        lastDiskWrite = diskWrite;
+        lastNetReceive = netReceive;
+        lastNetTransmit = netTransmit;
+    }
+
+    private int readCpu() {
+        int lines = 0;
+        for (int line = 0; line != -1; line = stat.nextLine(line)) {
+            if (!stat.startsWith(stat.token(line, 0), CPU)) break;
+            lines++;
+        }
+        if (cpu.length != lines * CPU_FIELDS) cpu = new long[lines * CPU_FIELDS];
+
+        int index = 0;
+        for (int line = 0; index < cpu.length; line = stat.nextLine(line)) {
+            for (int i = 0; i < CPU_FIELDS; i++)
+                cpu[index++] = Math.max(stat.parseLong(stat.token(line, i + 1)), 0);
+        }
+        return lines;
+    }
+
+    private void computeUsage(int line, int[] times) {
+        int offset = line * CPU_FIELDS;
+        long total = 0;
+        long[] deltas = cpuDeltas;
+        for (int i = 0; i < CPU_FIELDS; i++) {
+            deltas[i] = Math.max(cpu[offset + i] - lastCpu[offset + i], 0);
+            total += deltas[i];
+            times[i] = 0;
+        }
+        if (total == 0) {
+            times[IDLE] = 1000;
+            return;
+        }
+        times[USER] = (int)((deltas[USER] + deltas[NICE]) * 1000 / total);
+        times[SYSTEM] = (int)((deltas[SYSTEM] + deltas[IRQ] + deltas[SOFTIRQ]) * 1000 / total);
+        times[IDLE] = (int)(deltas[IDLE] * 1000 / total);
+        times[IOWAIT] = (int)(deltas[IOWAIT] * 1000 / total);
+        times[STEAL] = (int)(deltas[STEAL] * 1000 / total);
+    }
+
+    private boolean isDisk(int pos) {
+        for (byte[] disk : disks)
+            if (diskstats.tokenEquals(pos, disk)) return true;
+        return false;
+    }
+
+    private static byte[][] getPhysicalDisks() {
+        // Only devices backed by a physical device, skips partitions and
+        // virtual devices like loop, ram or device mapper
+        File[] devices = new File("/sys/block").listFiles(); // NOI18N
+        if (devices == null) return new byte[0][];
+        int count = 0;
+        byte[][] disks = new byte[devices.length][];
+        for (File device : devices)
+            if (new File(device, "device").exists()) // NOI18N
+                disks[count++] = ProcFile.bytes(device.getName());
+        byte[][] physicalDisks = new byte[count][];
+        System.arraycopy(disks, 0, physicalDisks, 0, count);
+        return physicalDisks;
+    }
+
+    private static long kBytes(long value) {
+        return value == -1 ? -1 : value * 1024;
+    }
+
+    private static long rate(long value, long lastValue, long interval) {
+        if (interval <= 0 || value < lastValue) return 0;
+        return (long)((value - lastValue) * 1000000000d / interval);
+    }
+
+}
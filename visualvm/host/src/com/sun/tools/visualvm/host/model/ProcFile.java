@@ -0,0 +1,270 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.host.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * Reads a /proc file into a reusable buffer and provides allocation-free
+ * access to its lines and tokens. Tokens are separated by spaces, tabs and
+ * colons. The file is either kept open between the reads or opened for each
+ * read, which should be used for per-thread files to not run out of file
+ * descriptors.
+ *
+ * @since VisualVM 1.4
+ */
+public final class ProcFile {
+
+    private final File file;
+    private final boolean keepOpen;
+
+    private RandomAccessFile raf;
+    private byte[] buffer;
+    private int length;
+
+
+    /**
+     * Creates new ProcFile kept open between the reads.
+     *
+     * @param path path of the file
+     * @param bufferSize initial size of the buffer, grows as needed
+     */
+    public ProcFile(String path, int bufferSize) {
+        this(new File(path), bufferSize, true);
+    }
+
+    /**
+     * Creates new ProcFile.
+     *
+     * @param file the file
+     * @param bufferSize initial size of the buffer, grows as needed
+     * @param keepOpen true if the file should be kept open between the reads
+     */
+    public ProcFile(File file, int bufferSize, boolean keepOpen) {
+        this.file = file;
+        this.keepOpen = keepOpen;
+        buffer = new byte[bufferSize];
+    }
+
+
+    /**
+     * Converts an ASCII string to bytes to be compared with the tokens.
+     *
+     * @param string ASCII string
+     * @return bytes of the string
+     */
+    public static byte[] bytes(String string) {
+        byte[] bytes = new byte[string.length()];
+        for (int i = 0; i < bytes.length; i++) bytes[i] = (byte)string.charAt(i);
+        return bytes;
+    }
+
+
+    /**
+     * Checks whether the file exists and can be read.
+     *
+     * @return true if the file can be read, false otherwise
+     */
+    public boolean canRead() {
+        return file.canRead();
+    }
+
+    /**
+     * Reads current content of the file.
+     *
+     * @return true if the file has been read, false if it's not available
+     * anymore (for example the process or thread has finished)
+     */
+    public boolean read() {
+        try {
+            if (raf == null) raf = new RandomAccessFile(file, "r"); // NOI18N
+            raf.seek(0);
+            int pos = 0;
+            int read;
+            while ((read = raf.read(buffer, pos, buffer.length - pos)) > 0) {
+                pos += read;
+                if (pos == buffer.length) {
+                    byte[] newBuffer = new byte[buffer.length * 2];
+                    System.arraycopy(buffer, 0, newBuffer, 0, pos);
+                    buffer = newBuffer;
+                }
+            }
+            length = pos;
+            if (!keepOpen) closeFile();
+            return true;
+        } catch (IOException e) {
+            close();
+            return false;
+        }
+    }
+
+    /**
+     * Closes the file and discards the content read. The file is opened
+     * again by the next read.
+     */
+    public void close() {
+        length = 0;
+        closeFile();
+    }
+
+    private void closeFile() {
+        if (raf != null) {
+            try { raf.close(); } catch (IOException e) {}
+            raf = null;
+        }
+    }
+
+
+    /**
+     * Returns start of the line following the line starting at pos.
+     *
+     * @param pos start of a line
+     * @return start of the next line or -1 if there's no next line
+     */
+    public int nextLine(int pos) {
+        while (pos < length && buffer[pos] != '\n') pos++;
+        return ++pos < length ? pos : -1;
+    }
+
+    /**
+     * Returns start of a token on the line.
+     *
+     * @param line start of the line
+     * @param index 0-based index of the token
+     * @return start of the token or -1 if the line doesn't contain the token
+     */
+    public int token(int line, int index) {
+        int pos = skipSeparators(line);
+        for (int i = 0; i < index; i++) {
+            while (pos < length && !isSeparator(buffer[pos]) && buffer[pos] != '\n') pos++;
+            pos = skipSeparators(pos);
+        }
+        return pos < length && buffer[pos] != '\n' ? pos : -1;
+    }
+
+    /**
+     * Checks whether the token starting at pos equals to the value.
+     *
+     * @param pos start of the token as returned by {@link #token(int, int)}, may be -1
+     * @param value bytes of the value, see {@link #bytes(String)}
+     * @return true if the whole token equals to the value, false otherwise
+     */
+    public boolean tokenEquals(int pos, byte[] value) {
+        if (!startsWith(pos, value)) return false;
+        int end = pos + value.length;
+        return end == length || isSeparator(buffer[end]) || buffer[end] == '\n';
+    }
+
+    /**
+     * Checks whether the content at pos starts with the prefix.
+     *
+     * @param pos position in the content, may be -1
+     * @param prefix bytes of the prefix, see {@link #bytes(String)}
+     * @return true if the content at pos starts with the prefix, false otherwise
+     */
+    public boolean startsWith(int pos, byte[] prefix) {
+        if (pos < 0 || pos + prefix.length > length) return false;
+        for (int i = 0; i < prefix.length; i++)
+            if (buffer[pos + i] != prefix[i]) return false;
+        return true;
+    }
+
+    /**
+     * Parses the non-negative decimal number starting at pos. Parsing stops
+     * at the first character which is not a digit.
+     *
+     * @param pos start of the number, may be -1
+     * @return value of the number or -1 if there's no number at pos
+     */
+    public long parseLong(int pos) {
+        if (pos < 0) return -1;
+        long value = 0;
+        boolean digits = false;
+        while (pos < length) {
+            byte b = buffer[pos++];
+            if (b < '0' || b > '9') break;
+            value = value * 10 + (b - '0');
+            digits = true;
+        }
+        return digits ? value : -1;
+    }
+
+    /**
+     * Returns numeric value of the token on the line starting with key,
+     * typically used for files like /proc/meminfo.
+     *
+     * @param key first token of the line
+     * @param index index of the token containing the value
+     * @return value or -1 if not found
+     */
+    public long getValue(byte[] key, int index) {
+        for (int line = 0; line != -1; line = nextLine(line))
+            if (tokenEquals(token(line, 0), key)) return parseLong(token(line, index));
+        return -1;
+    }
+
+    /**
+     * Returns numeric value of a field of a /proc/[pid]/stat file. The fields
+     * are numbered as described in proc(5), the 'comm' field may contain
+     * whitespace so the values are located from the closing parenthesis.
+     *
+     * @param number 1-based number of the field as documented in proc(5), must be > 3
+     * @return value of the field or -1 if not found
+     */
+    public long getStatField(int number) {
+        int start = statFieldsStart();
+        return start == -1 ? -1 : parseLong(token(start, number - 3));
+    }
+
+    /**
+     * Returns the 'state' field (3) of a /proc/[pid]/stat file.
+     *
+     * @return state of the process or thread or 0 if not available
+     */
+    public byte getStatState() {
+        int start = statFieldsStart();
+        return start == -1 || start >= length ? 0 : buffer[start];
+    }
+
+
+    private int statFieldsStart() {
+        for (int pos = length - 1; pos >= 0; pos--)
+            if (buffer[pos] == ')') return skipSeparators(pos + 1);
+        return -1;
+    }
+
+    private int skipSeparators(int pos) {
+        while (pos < length && isSeparator(buffer[pos])) pos++;
+        return pos;
+    }
+
+    private static boolean isSeparator(byte b) {
+        return b == ' ' || b == '\t' || b == ':'; // NOI18N
+    }
+
+}
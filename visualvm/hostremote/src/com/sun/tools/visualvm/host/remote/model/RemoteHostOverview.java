@@ -32,46 +32,66 @@ import com.sun.tools.visualvm.host.Host;
 import com.sun.tools.visualvm.host.model.HostOverview;
 import com.sun.tools.visualvm.tools.jmx.JmxModel;
 import com.sun.tools.visualvm.tools.jmx.JmxModelFactory;
-import com.sun.tools.visualvm.tools.jmx.JvmMXBeans;
-import com.sun.tools.visualvm.tools.jmx.JvmMXBeansFactory;
 import java.io.IOException;
 import java.lang.management.ManagementFactory;
-import java.lang.management.OperatingSystemMXBean;
-import java.lang.reflect.UndeclaredThrowableException;
-import java.rmi.ConnectException;
 import java.util.Properties;
 import java.util.Set;
-import javax.management.AttributeNotFoundException;
+import javax.management.Attribute;
+import javax.management.AttributeList;
 import javax.management.InstanceNotFoundException;
-import javax.management.MBeanException;
 import javax.management.MBeanServerConnection;
 import javax.management.MalformedObjectNameException;
 import javax.management.ObjectName;
 import javax.management.ReflectionException;
 
 /**
+ * HostOverview of a remote host obtained from the OperatingSystem MXBean of
+ * any application connected using JMX. Static attributes are fetched only once,
+ * the dynamic attributes are fetched by a single getAttributes call which is
+ * shared by all callers within DATA_VALIDITY interval.
  *
  * @author Tomas Hurka
  */
 class RemoteHostOverview extends HostOverview  {
     private static final ObjectName osMXBeanName = getOperatingSystemMXBeanName();
+    private static final String NameAttr = "Name";                                          // NOI18N
+    private static final String VersionAttr = "Version";                                    // NOI18N
+    private static final String ArchAttr = "Arch";                                          // NOI18N
+    private static final String AvailableProcessorsAttr = "AvailableProcessors";            // NOI18N
+    private static final String SystemLoadAverageAttr = "SystemLoadAverage";                // NOI18N
     private static final String TotalPhysicalMemorySizeAttr = "TotalPhysicalMemorySize";    // NOI18N
     private static final String TotalPhysicalMemorySizeAttr1 = "TotalPhysicalMemory";       // NOI18N
     private static final String FreePhysicalMemorySizeAttr = "FreePhysicalMemorySize";      // NOI18N
     private static final String TotalSwapSpaceSizeAttr = "TotalSwapSpaceSize";              // NOI18N
     private static final String FreeSwapSpaceSizeAttr = "FreeSwapSpaceSize";                // NOI18N
+
+    private static final String[] STATIC_ATTRS = new String[] {
+        NameAttr, VersionAttr, ArchAttr, AvailableProcessorsAttr
+    };
+    private static final String[] DYNAMIC_ATTRS = new String[] {
+        SystemLoadAverageAttr, TotalPhysicalMemorySizeAttr, TotalPhysicalMemorySizeAttr1,
+        FreePhysicalMemorySizeAttr, TotalSwapSpaceSizeAttr, FreeSwapSpaceSizeAttr
+    };
+
+    // All views refreshing within this interval share a single remote request
+    private static final long DATA_VALIDITY = 1000;
     
-    private volatile OperatingSystemMXBean osMXBean;
     private volatile MBeanServerConnection connection;
-    private volatile boolean loadAverageAvailable;
     private volatile Application jmxApp;
-    private String totalPhysicalMemorySizeAttr;
     private Host remoteHost;
     private boolean staticDataInitialized;
     private String name;
     private String version;
     private String patchLevel;
     private String arch;
+    private int availableProcessors = -1;
+
+    private long dataTimestamp;
+    private double systemLoadAverage = -1;
+    private long totalPhysicalMemorySize = -1;
+    private long freePhysicalMemorySize = -1;
+    private long totalSwapSpaceSize = -1;
+    private long freeSwapSpaceSize = -1;
     
     RemoteHostOverview(Host h) {
         remoteHost = h;
@@ -98,94 +118,37 @@ class RemoteHostOverview extends HostOverview  {
     }
     
     public int getAvailableProcessors() {
-        checkJmxApp();
-        if (jmxApp == null) {
-            return -1;
-        }
-        try {
-            return osMXBean.getAvailableProcessors();
-        } catch (UndeclaredThrowableException ex) {
-            if (ex.getCause() instanceof ConnectException) {
-                jmxApp = null;
-                return getAvailableProcessors();
-            }
-            throw ex;
-        }
+        initStaticData();
+        return availableProcessors;
     }
     
     public String getHostName() {
         return remoteHost.getHostName();
     }
     
-    public double getSystemLoadAverage() {
-        if (loadAverageAvailable) {
-            checkJmxApp();
-            if (jmxApp == null) {
-                return -1;
-            }
-            try {
-                return osMXBean.getSystemLoadAverage();
-            } catch (UndeclaredThrowableException ex) {
-                if (ex.getCause() instanceof ConnectException) {
-                    jmxApp = null;
-                    return getSystemLoadAverage();
-                }
-                throw ex;
-            }
-        }
-        return -1;
+    public synchronized double getSystemLoadAverage() {
+        refreshData();
+        return systemLoadAverage;
     }
     
-    public long getTotalPhysicalMemorySize() {
-        checkJmxApp();
-        if (jmxApp == null) {
-            return -1;
-        }
-        try {
-            return getAttribute(totalPhysicalMemorySizeAttr);
-        } catch (IOException ex) {
-            jmxApp = null;
-            return getTotalPhysicalMemorySize();            
-        }
+    public synchronized long getTotalPhysicalMemorySize() {
+        refreshData();
+        return totalPhysicalMemorySize;
     }
     
-    public long getFreePhysicalMemorySize() {
-        checkJmxApp();
-        if (jmxApp == null) {
-            return -1;
-        }
-        try {
-            return getAttribute(FreePhysicalMemorySizeAttr);
-        } catch (IOException ex) {
-            jmxApp = null;
-            return getTotalPhysicalMemorySize();            
-        }
+    public synchronized long getFreePhysicalMemorySize() {
+        refreshData();
+        return freePhysicalMemorySize;
     }
     
-    public long getTotalSwapSpaceSize() {
-        checkJmxApp();
-        if (jmxApp == null) {
-            return -1;
-        }
-        try {
-            return getAttribute(TotalSwapSpaceSizeAttr);
-        } catch (IOException ex) {
-            jmxApp = null;
-            return getTotalPhysicalMemorySize();            
-        }
+    public synchronized long getTotalSwapSpaceSize() {
+        refreshData();
+        return totalSwapSpaceSize;
     }
     
-    public long getFreeSwapSpaceSize() {
-        checkJmxApp();
-        if (jmxApp == null) {
-            return -1;
-        }
-        try {
-            return getAttribute(FreeSwapSpaceSizeAttr);
-        } catch (IOException ex) {
-            jmxApp = null;
-            return getTotalPhysicalMemorySize();            
-        }
+    public synchronized long getFreeSwapSpaceSize() {
+        refreshData();
+        return freeSwapSpaceSize;
     }
     
     public String getHostAddress() {
@@ -194,20 +157,46 @@ class RemoteHostOverview extends HostOverview  {
     
     private synchronized void initStaticData() {
         if (staticDataInitialized) return;
-        checkJmxApp();
-        if (jmxApp == null) return;
+        AttributeList attrs = getAttributes(STATIC_ATTRS);
+        if (attrs == null) return;
         Properties sysProp = JvmFactory.getJVMFor(jmxApp).getSystemProperties();
-        name = osMXBean.getName();
-        version = osMXBean.getVersion();
+        name = (String)getValue(attrs, NameAttr);
+        version = (String)getValue(attrs, VersionAttr);
         patchLevel = sysProp.getProperty("sun.os.patch.level", ""); // NOI18N
-        arch = osMXBean.getArch();
+        arch = (String)getValue(attrs, ArchAttr);
         String bits = sysProp.getProperty("sun.arch.data.model"); // NOI18N
         if (bits != null) {
             arch += " "+bits+"bit";   // NOI18N
         }
+        availableProcessors = (int)getLong(attrs, AvailableProcessorsAttr);
         staticDataInitialized = true;
     }
     
+    private synchronized void refreshData() {
+        long time = System.currentTimeMillis();
+        if (time - dataTimestamp < DATA_VALIDITY) return;
+        dataTimestamp = time;
+        
+        AttributeList attrs = getAttributes(DYNAMIC_ATTRS);
+        if (attrs == null) {
+            systemLoadAverage = -1;
+            totalPhysicalMemorySize = -1;
+            freePhysicalMemorySize = -1;
+            totalSwapSpaceSize = -1;
+            freeSwapSpaceSize = -1;
+            return;
+        }
+        Object load = getValue(attrs, SystemLoadAverageAttr);
+        systemLoadAverage = load instanceof Number ? ((Number)load).doubleValue() : -1;
+        totalPhysicalMemorySize = getLong(attrs, TotalPhysicalMemorySizeAttr);
+        if (totalPhysicalMemorySize == -1) {
+            totalPhysicalMemorySize = getLong(attrs, TotalPhysicalMemorySizeAttr1);
+        }
+        freePhysicalMemorySize = getLong(attrs, FreePhysicalMemorySizeAttr);
+        totalSwapSpaceSize = getLong(attrs, TotalSwapSpaceSizeAttr);
+        freeSwapSpaceSize = getLong(attrs, FreeSwapSpaceSizeAttr);
+    }
+    
     private Application getJMXApplication() {
         Set<Application> apps = remoteHost.getRepository().getDataSources(Application.class);
         
@@ -216,34 +205,9 @@ class RemoteHostOverview extends HostOverview  {
             JmxModel jmx = JmxModelFactory.getJmxModelFor(app);
             
             if (jmx != null && jmx.getConnectionState().equals(JmxModel.ConnectionState.CONNECTED)) {
-                JvmMXBeans mxbeans = JvmMXBeansFactory.getJvmMXBeans(jmx);
                 connection = jmx.getMBeanServerConnection();
                 
-                if (mxbeans != null && connection != null) {
-                    osMXBean = mxbeans.getOperatingSystemMXBean();
-                    loadAverageAvailable = false;
-                    try {
-                        loadAverageAvailable = osMXBean.getSystemLoadAverage() >= 0;
-                    } catch (UndeclaredThrowableException ex) {
-                        Throwable cause = ex.getCause();
-                        if (!(cause instanceof AttributeNotFoundException)) {
-                            throw ex;
-                        }
-                    }
-                    try {
-                        connection.getAttribute(osMXBeanName, TotalPhysicalMemorySizeAttr);
-                        totalPhysicalMemorySizeAttr = TotalPhysicalMemorySizeAttr;
-                    } catch (AttributeNotFoundException ex) {
-                        totalPhysicalMemorySizeAttr = TotalPhysicalMemorySizeAttr1;
-                    } catch (InstanceNotFoundException ex) {
-                        throw new RuntimeException(ex);
-                    } catch (ReflectionException ex) {
-                        throw new RuntimeException(ex);
-                    } catch (MBeanException ex) {
-                        throw new RuntimeException(ex);
-                    } catch (IOException ex) {
-                        throw new RuntimeException(ex);
-                    }
+                if (connection != null) {
                     return app;
                 }
             }
@@ -257,19 +221,38 @@ class RemoteHostOverview extends HostOverview  {
         }
     }
     
-    private long getAttribute(String name) throws IOException {
-        Object val = null;
-        try {
-            val = connection.getAttribute(osMXBeanName, name);
-        } catch (AttributeNotFoundException ex) {
-            return -1;
-        } catch (InstanceNotFoundException ex) {
-            throw new RuntimeException(ex);
-        } catch (MBeanException ex) {
-            throw new RuntimeException(ex);
-        } catch (ReflectionException ex) {
-            throw new RuntimeException(ex);
+    private synchronized AttributeList getAttributes(String[] names) {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            checkJmxApp();
+            if (jmxApp == null) {
+                return null;
+            }
+            try {
+                return connection.getAttributes(osMXBeanName, names);
+            } catch (IOException ex) {
+                // connection lost, retry using another application
+                jmxApp = null;
+            } catch (InstanceNotFoundException ex) {
+                throw new RuntimeException(ex);
+            } catch (ReflectionException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+        return null;
+    }
+    
+    private static Object getValue(AttributeList attrs, String name) {
+        for (Object attr : attrs) {
+            Attribute attribute = (Attribute)attr;
+            if (name.equals(attribute.getName())) {
+                return attribute.getValue();
+            }
         }
+        return null;
+    }
+    
+    private static long getLong(AttributeList attrs, String name) {
+        Object val = getValue(attrs, name);
         if (val instanceof Number) {
             return ((Number)val).longValue();
         }
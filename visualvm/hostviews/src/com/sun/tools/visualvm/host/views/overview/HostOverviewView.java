@@ -31,8 +31,10 @@ import com.sun.tools.visualvm.charts.SimpleXYChartSupport;
 import com.sun.tools.visualvm.host.Host;
 import com.sun.tools.visualvm.core.datasupport.DataRemovedListener;
 import com.sun.tools.visualvm.core.options.GlobalPreferences;
+import com.sun.tools.visualvm.core.scheduler.RefreshGovernor;
 import com.sun.tools.visualvm.host.model.HostOverview;
 import com.sun.tools.visualvm.host.model.HostOverviewFactory;
+import com.sun.tools.visualvm.host.model.HostStatistics;
 import com.sun.tools.visualvm.core.ui.DataSourceView;
 import com.sun.tools.visualvm.core.ui.components.DataViewComponent;
 import com.sun.tools.visualvm.core.ui.components.NotSupportedDisplayer;
@@ -57,7 +59,10 @@ class HostOverviewView extends DataSourceView implements DataRemovedListener<Hos
     
     private static final String IMAGE_PATH = "com/sun/tools/visualvm/host/views/resources/overview.png";    // NOI18N
 
+    private static final int REFRESH_INTERVAL = 2000;
+
     private Timer timer;
+    private RefreshGovernor.Client governorClient;
     private HostOverview hostOverview;
     
 
@@ -71,10 +76,12 @@ class HostOverviewView extends DataSourceView implements DataRemovedListener<Hos
         
     protected void removed() {
         timer.stop();
+        RefreshGovernor.sharedInstance().unregister(governorClient);
     }
     
     public void dataRemoved(Host dataSource) {
         timer.stop();
+        RefreshGovernor.sharedInstance().unregister(governorClient);
     }
     
     
@@ -83,37 +90,96 @@ class HostOverviewView extends DataSourceView implements DataRemovedListener<Hos
         int chartCache = preferences.getMonitoredHostCache() * 60 /
                          preferences.getMonitoredHostPoll();
 
-        DataViewComponent dvc = new DataViewComponent(
+        final DataViewComponent dvc = new DataViewComponent(
                 new MasterViewSupport((Host)getDataSource()).getMasterView(),
                 new DataViewComponent.MasterViewConfiguration(false));
 
         boolean cpuSupported = hostOverview.getSystemLoadAverage() >= 0;
+        boolean statisticsSupported = hostOverview.getHostStatistics() != null;
         final CpuLoadViewSupport cpuLoadViewSupport = new CpuLoadViewSupport(hostOverview, cpuSupported, chartCache);
+        final DataViewComponent.DetailsView cpuLoadView = cpuLoadViewSupport.getDetailsView();
         dvc.configureDetailsArea(new DataViewComponent.DetailsAreaConfiguration(NbBundle.getMessage(HostOverviewView.class, "LBL_CPU"), true), DataViewComponent.TOP_LEFT); // NOI18N
-        dvc.addDetailsView(cpuLoadViewSupport.getDetailsView(), DataViewComponent.TOP_LEFT);
-        if (!cpuSupported) dvc.hideDetailsArea(DataViewComponent.TOP_LEFT);
+        // CPU utilization replaces the unsupported CPU load view
+        if (cpuSupported || !statisticsSupported)
+            dvc.addDetailsView(cpuLoadView, DataViewComponent.TOP_LEFT);
+        if (!cpuSupported && !statisticsSupported) dvc.hideDetailsArea(DataViewComponent.TOP_LEFT);
+
+        final CpuUtilizationViewSupport cpuUtilizationViewSupport = statisticsSupported ?
+                new CpuUtilizationViewSupport(chartCache) : null;
+        final DataViewComponent.DetailsView cpuUtilizationView = cpuUtilizationViewSupport != null ?
+                cpuUtilizationViewSupport.getDetailsView() : null;
+        if (cpuUtilizationView != null)
+            dvc.addDetailsView(cpuUtilizationView, DataViewComponent.TOP_LEFT);
 
         final PhysicalMemoryViewSupport physicalMemoryViewSupport = new PhysicalMemoryViewSupport(chartCache);
+        final DataViewComponent.DetailsView physicalMemoryView = physicalMemoryViewSupport.getDetailsView();
         dvc.configureDetailsArea(new DataViewComponent.DetailsAreaConfiguration(NbBundle.getMessage(HostOverviewView.class, "LBL_Memory"), true), DataViewComponent.TOP_RIGHT); // NOI18N
-        dvc.addDetailsView(physicalMemoryViewSupport.getDetailsView(), DataViewComponent.TOP_RIGHT);
+        dvc.addDetailsView(physicalMemoryView, DataViewComponent.TOP_RIGHT);
 
         final SwapMemoryViewSupport swapMemoryViewSupport = new SwapMemoryViewSupport(chartCache);
-        dvc.addDetailsView(swapMemoryViewSupport.getDetailsView(), DataViewComponent.TOP_RIGHT);
+        final DataViewComponent.DetailsView swapMemoryView = swapMemoryViewSupport.getDetailsView();
+        dvc.addDetailsView(swapMemoryView, DataViewComponent.TOP_RIGHT);
+
+        final ThroughputViewSupport diskViewSupport = statisticsSupported ?
+                new ThroughputViewSupport(NbBundle.getMessage(HostOverviewView.class, "LBL_Disk_IO"), // NOI18N
+                                          NbBundle.getMessage(HostOverviewView.class, "LBL_Disk_read"), // NOI18N
+                                          NbBundle.getMessage(HostOverviewView.class, "LBL_Disk_write"), // NOI18N
+                                          chartCache) : null;
+        final ThroughputViewSupport networkViewSupport = statisticsSupported ?
+                new ThroughputViewSupport(NbBundle.getMessage(HostOverviewView.class, "LBL_Network_IO"), // NOI18N
+                                          NbBundle.getMessage(HostOverviewView.class, "LBL_Network_received"), // NOI18N
+                                          NbBundle.getMessage(HostOverviewView.class, "LBL_Network_transmitted"), // NOI18N
+                                          chartCache) : null;
+        final DataViewComponent.DetailsView diskView = statisticsSupported ?
+                diskViewSupport.getDetailsView() : null;
+        final DataViewComponent.DetailsView networkView = statisticsSupported ?
+                networkViewSupport.getDetailsView() : null;
+        if (statisticsSupported) {
+            dvc.configureDetailsArea(new DataViewComponent.DetailsAreaConfiguration(NbBundle.getMessage(HostOverviewView.class, "LBL_Disk"), true), DataViewComponent.BOTTOM_LEFT); // NOI18N
+            dvc.addDetailsView(diskView, DataViewComponent.BOTTOM_LEFT);
+            dvc.configureDetailsArea(new DataViewComponent.DetailsAreaConfiguration(NbBundle.getMessage(HostOverviewView.class, "LBL_Network"), true), DataViewComponent.BOTTOM_RIGHT); // NOI18N
+            dvc.addDetailsView(networkView, DataViewComponent.BOTTOM_RIGHT);
+        }
 
-        timer = new Timer(2000, new ActionListener() {
+        timer = new Timer(REFRESH_INTERVAL, new ActionListener() {
             public void actionPerformed(ActionEvent e) {
                 final long time = System.currentTimeMillis();
                 SwingUtilities.invokeLater(new Runnable() {
                     public void run() {
+                        // Hidden charts keep sampling the cheap local data, the charts
+                        // sharing a details area would lose their history otherwise
                         cpuLoadViewSupport.refresh(hostOverview, time);
                         physicalMemoryViewSupport.refresh(hostOverview, time);
                         swapMemoryViewSupport.refresh(hostOverview, time);
+                        HostStatistics statistics = cpuUtilizationViewSupport == null ?
+                                null : hostOverview.getHostStatistics();
+                        if (statistics != null) {
+                            cpuUtilizationViewSupport.refresh(statistics, time);
+                            diskViewSupport.refresh(statistics.getDiskReadRate(),
+                                                    statistics.getDiskWriteRate(), time);
+                            networkViewSupport.refresh(statistics.getNetworkReceiveRate(),
+                                                       statistics.getNetworkTransmitRate(), time);
+                        }
                     }
                 });
             }
         });
         timer.setInitialDelay(800);
         timer.start();
+        governorClient = new RefreshGovernor.Client(getDataSource(), getName()) {
+            public int getRequestedInterval() {
+                return timer.isRunning() ? REFRESH_INTERVAL : 0;
+            }
+            public boolean isForeground() {
+                return dvc.isShowing();
+            }
+            protected void effectiveIntervalChanged(final int interval) {
+                SwingUtilities.invokeLater(new Runnable() {
+                    public void run() { timer.setDelay(interval); }
+                });
+            }
+        };
+        RefreshGovernor.sharedInstance().register(governorClient);
         ((Host)getDataSource()).notifyWhenRemoved(this);
         
         return dvc;
@@ -329,4 +395,111 @@ class HostOverviewView extends DataSourceView implements DataRemovedListener<Hos
 
     }
 
+
+    // --- CPU utilization -----------------------------------------------------
+
+    private static class CpuUtilizationViewSupport extends JPanel {
+
+        private static final String CPU_USER = NbBundle.getMessage(HostOverviewView.class, "LBL_Cpu_user"); // NOI18N
+        private static final String CPU_SYSTEM = NbBundle.getMessage(HostOverviewView.class, "LBL_Cpu_system"); // NOI18N
+        private static final String CPU_IOWAIT = NbBundle.getMessage(HostOverviewView.class, "LBL_Cpu_iowait"); // NOI18N
+        private static final String CPU_STEAL = NbBundle.getMessage(HostOverviewView.class, "LBL_Cpu_steal"); // NOI18N
+        private static final String BUSIEST_CORE = NbBundle.getMessage(HostOverviewView.class, "LBL_Busiest_core"); // NOI18N
+
+        private SimpleXYChartSupport chartSupport;
+
+        public CpuUtilizationViewSupport(int chartCache) {
+            initModels(chartCache);
+            initComponents();
+        }
+
+        public DataViewComponent.DetailsView getDetailsView() {
+            return new DataViewComponent.DetailsView(NbBundle.getMessage(HostOverviewView.class, "LBL_CPU_utilization"), null, 20, this, null);    // NOI18N
+        }
+
+        public void refresh(HostStatistics statistics, long time) {
+            long user = statistics.getCpuUser();
+            long system = statistics.getCpuSystem();
+            long iowait = statistics.getCpuIoWait();
+            long steal = statistics.getCpuSteal();
+            long busiestCore = 0;
+            for (int core : statistics.getCoreUsage()) busiestCore = Math.max(busiestCore, core);
+
+            chartSupport.addValues(time, new long[] { user, system, iowait, steal });
+            chartSupport.updateDetails(new String[] { chartSupport.formatPercent(user),
+                                                      chartSupport.formatPercent(system),
+                                                      chartSupport.formatPercent(iowait),
+                                                      chartSupport.formatPercent(steal),
+                                                      chartSupport.formatPercent(busiestCore) });
+        }
+
+        private void initModels(int chartCache) {
+            SimpleXYChartDescriptor chartDescriptor =
+                    SimpleXYChartDescriptor.percent(false, 0.1d, chartCache);
+
+            chartDescriptor.addLineItems(CPU_USER, CPU_SYSTEM, CPU_IOWAIT, CPU_STEAL);
+            chartDescriptor.setDetailsItems(new String[] { CPU_USER, CPU_SYSTEM,
+                                                           CPU_IOWAIT, CPU_STEAL,
+                                                           BUSIEST_CORE });
+
+            chartSupport = ChartFactory.createSimpleXYChart(chartDescriptor);
+        }
+
+        private void initComponents() {
+            setLayout(new BorderLayout());
+            setOpaque(false);
+
+            add(chartSupport.getChart(), BorderLayout.CENTER);
+        }
+
+    }
+
+
+    // --- Disk and network throughput -----------------------------------------
+
+    private static class ThroughputViewSupport extends JPanel {
+
+        private final String name;
+
+        private SimpleXYChartSupport chartSupport;
+
+        public ThroughputViewSupport(String name, String inItem, String outItem, int chartCache) {
+            this.name = name;
+            initModels(inItem, outItem, chartCache);
+            initComponents();
+        }
+
+        public DataViewComponent.DetailsView getDetailsView() {
+            return new DataViewComponent.DetailsView(name, null, 10, this, null);
+        }
+
+        public void refresh(long inRate, long outRate, long time) {
+            chartSupport.addValues(time, new long[] { inRate, outRate });
+            chartSupport.updateDetails(new String[] { formatRate(chartSupport.formatBytes(inRate)),
+                                                      formatRate(chartSupport.formatBytes(outRate)) });
+        }
+
+        private static String formatRate(String value) {
+            return NbBundle.getMessage(HostOverviewView.class, "LBL_Rate", value); // NOI18N
+        }
+
+        private void initModels(String inItem, String outItem, int chartCache) {
+            SimpleXYChartDescriptor chartDescriptor =
+                    SimpleXYChartDescriptor.bytes(1024 * 1024, false, chartCache);
+
+            chartDescriptor.addLineItems(inItem, outItem);
+            chartDescriptor.setDetailsItems(new String[] { inItem, outItem });
+
+            chartSupport = ChartFactory.createSimpleXYChart(chartDescriptor);
+        }
+
+        private void initComponents() {
+            setLayout(new BorderLayout());
+            setOpaque(false);
+
+            add(chartSupport.getChart(), BorderLayout.CENTER);
+        }
+
+    }
+
 }
@@ -33,6 +33,7 @@ import com.sun.tools.visualvm.core.datasource.DataSourceRepository;
 import com.sun.tools.visualvm.core.datasource.Storage;
 import com.sun.tools.visualvm.core.datasupport.DataChangeEvent;
 import com.sun.tools.visualvm.host.Host;
+import com.sun.tools.visualvm.host.HostConnectionManager;
 import com.sun.tools.visualvm.host.HostsSupport;
 import com.sun.tools.visualvm.core.datasource.descriptor.DataSourceDescriptor;
 import com.sun.tools.visualvm.core.datasource.descriptor.DataSourceDescriptorFactory;
@@ -52,6 +53,7 @@ import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.MalformedURLException;
 import java.net.NetworkInterface;
 import java.util.Collections;
@@ -109,6 +111,13 @@ public class JmxApplicationProvider {
     private static final String PROPERTIES_FILE = "jmxapplication" + Storage.DEFAULT_PROPERTIES_EXT;  // NOI18N
     static final String JMX_SUFFIX = ".jmx";  // NOI18N
     
+    // Timeout for checking that the agent port of a persisted application is reachable
+    private static final int PROBE_TIMEOUT = 5000;
+    private static final int INITIAL_RETRY_DELAY = 2000;
+    private static final int MAX_RETRY_DELAY = 30000;
+    // Number of retries of a persisted application whose agent is not reachable
+    private static final int UNREACHABLE_RETRIES = 3;
+    
     private static final String DNSA_KEY = "JMXApplicationProvider_NotifyUnresolved"; // NOI18N
     
     
@@ -430,39 +439,58 @@ public class JmxApplicationProvider {
 
                         for (final Storage storage : storageSet) {
                             final String[] values = storage.getCustomProperties(keys);
-                            RequestProcessor.getDefault().post(new Runnable() {
-                                public void run() {
-                                    try {
-                                        String epid = values[4];
-                                        if (epid == null) {
-                                            // Check for ver 1.0 which didn't support PROPERTY_ENVIRONMENT_PROVIDER
-                                            String sv = storage.getCustomProperty(SNAPSHOT_VERSION);
-                                            if ("1.0".equals(sv)) epid = CredentialsProvider.class.getName(); // NOI18N
-                                        }
-                                        EnvironmentProvider ep = epid == null ? null :
-                                                                 JmxConnectionSupportImpl.
-                                                                 getProvider(epid);
-                                        addJmxApplication(false, null, values[0], values[2],
-                                                          values[3], values[1], ep, storage, values[5]);
-                                    } catch (final JMXException e) {
-                                        if (e.isConfig()) {
-                                            DialogDisplayer.getDefault().notifyLater(
-                                                new NotifyDescriptor.Message(e.
-                                                getMessage(), NotifyDescriptor.
-                                                ERROR_MESSAGE));
-                                        } else {
-                                            String name = values[2];
-                                            if (name == null || name.trim().isEmpty()) name = values[3];
-                                            failedAppsN.add(name);
-                                            failedAppsS.add(storage);
+                            HostConnectionManager.sharedInstance().connect(
+                                new HostConnectionManager.ConnectionTask(host,
+                                        getProbeAddress(host, values[0]), PROBE_TIMEOUT,
+                                        INITIAL_RETRY_DELAY, MAX_RETRY_DELAY) {
+                                    private int unreachableCount;
+                                    protected boolean connect() {
+                                        try {
+                                            String epid = values[4];
+                                            if (epid == null) {
+                                                // Check for ver 1.0 which didn't support PROPERTY_ENVIRONMENT_PROVIDER
+                                                String sv = storage.getCustomProperty(SNAPSHOT_VERSION);
+                                                if ("1.0".equals(sv)) epid = CredentialsProvider.class.getName(); // NOI18N
+                                            }
+                                            EnvironmentProvider ep = epid == null ? null :
+                                                                     JmxConnectionSupportImpl.
+                                                                     getProvider(epid);
+                                            addJmxApplication(false, null, values[0], values[2],
+                                                              values[3], values[1], ep, storage, values[5]);
+                                        } catch (final JMXException e) {
+                                            if (e.isConfig()) {
+                                                DialogDisplayer.getDefault().notifyLater(
+                                                    new NotifyDescriptor.Message(e.
+                                                    getMessage(), NotifyDescriptor.
+                                                    ERROR_MESSAGE));
+                                            } else {
+                                                failed();
+                                            }
                                         }
+                                        finished();
+                                        return true;
+                                    }
+                                    protected boolean unreachable() {
+                                        // Agent port not reachable, retry with backoff before
+                                        // giving up, don't wait for RMI timeouts
+                                        if (++unreachableCount <= UNREACHABLE_RETRIES) return false;
+                                        failed();
+                                        finished();
+                                        return true;
                                     }
-                                    synchronized (persistedAppsCount) {
-                                        persistedAppsCount[0]--;
-                                        if (persistedAppsCount[0] == 0 && !failedAppsN.isEmpty())
-                                            notifyUnresolvedApplications(failedAppsN, failedAppsS);
+                                    private void failed() {
+                                        String name = values[2];
+                                        if (name == null || name.trim().isEmpty()) name = values[3];
+                                        failedAppsN.add(name);
+                                        failedAppsS.add(storage);
+                                    }
+                                    private void finished() {
+                                        synchronized (persistedAppsCount) {
+                                            persistedAppsCount[0]--;
+                                            if (persistedAppsCount[0] == 0 && !failedAppsN.isEmpty())
+                                                notifyUnresolvedApplications(failedAppsN, failedAppsS);
+                                        }
                                     }
-                                }
                             });
                         }
                     }
@@ -482,6 +510,26 @@ public class JmxApplicationProvider {
         }
     }
     
+    // Resolves address of the JMX agent (or RMI registry) to be probed before connecting
+    private InetSocketAddress getProbeAddress(Host host, String connectionString) {
+        try {
+            JMXServiceURL url = getServiceURL(connectionString);
+            int port = url.getPort();
+            String urlPath = url.getURLPath();
+            if (urlPath != null && urlPath.startsWith("/jndi/rmi://")) {   // NOI18N
+                String registry = urlPath.substring("/jndi/rmi://".length()); // NOI18N
+                int slash = registry.indexOf('/');
+                if (slash != -1) registry = registry.substring(0, slash);
+                int colon = registry.lastIndexOf(':');
+                port = colon == -1 ? 1099 : Integer.parseInt(registry.substring(colon + 1));
+            }
+            if (port > 0) return new InetSocketAddress(host.getInetAddress(), port);
+        } catch (Exception e) {
+            // unknown or invalid connection string, connect directly
+        }
+        return null;
+    }
+    
     private static void notifyUnresolvedApplications(final Set<String> failedHostsN, final Set<Storage> failedHostsS) {
         RequestProcessor.getDefault().post(new Runnable() {
             public void run() {
@@ -252,10 +252,10 @@ public class JVMImpl extends Jvm implements JvmstatListener {
         synchronized (listeners) {
             if (listeners.add(l)) {
                 if (monitoredVm != null) {
-                    if (jmxSupport != null) jmxSupport.disableTimer();
+                    if (jmxSupport != null) jmxSupport.stopPolling();
                     monitoredVm.addJvmstatListener(this);
                 } else {
-                    if (jmxSupport != null) jmxSupport.initTimer();
+                    if (jmxSupport != null) jmxSupport.startPolling();
                 }
             }
         }
@@ -268,7 +268,7 @@ public class JVMImpl extends Jvm implements JvmstatListener {
                     if (monitoredVm != null) {
                         monitoredVm.removeJvmstatListener(this);
                     } else {
-                        if (jmxSupport != null) jmxSupport.disableTimer();
+                        if (jmxSupport != null) jmxSupport.stopPolling();
                     }
                 }
             }
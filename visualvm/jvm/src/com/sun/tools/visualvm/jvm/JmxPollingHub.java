@@ -0,0 +1,148 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.jvm;
+
+import com.sun.tools.visualvm.application.jvm.MonitoredData;
+import com.sun.tools.visualvm.core.scheduler.Quantum;
+import com.sun.tools.visualvm.core.scheduler.RefreshGovernor;
+import com.sun.tools.visualvm.core.scheduler.ScheduledTask;
+import com.sun.tools.visualvm.core.scheduler.Scheduler;
+import com.sun.tools.visualvm.core.scheduler.SchedulerTask;
+import com.sun.tools.visualvm.tools.jmx.CachedMBeanServerConnection;
+import com.sun.tools.visualvm.tools.jmx.CachedMBeanServerConnectionFactory;
+import com.sun.tools.visualvm.tools.jmx.JmxModel;
+import com.sun.tools.visualvm.tools.jmx.JvmMXBeans;
+import com.sun.tools.visualvm.tools.jmx.JvmMXBeansFactory;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.Collection;
+import java.util.logging.Logger;
+import org.openide.util.NbBundle;
+
+/**
+ * Periodically reads MonitoredData of a JMX application. The reads go through
+ * a CachedMBeanServerConnection dedicated to the polling which is flushed at
+ * each tick, so all attributes of an MBean are fetched by a single
+ * getAttributes request without invalidating the shared cached connection
+ * used by other views of the application. Polling runs in the shared Scheduler, no dedicated thread
+ * is created for the application. The polling interval is governed by the
+ * RefreshGovernor within the refresh budget of the application.
+ */
+class JmxPollingHub implements SchedulerTask {
+    private final static Logger LOGGER = Logger.getLogger(JmxPollingHub.class.getName());
+
+    private final JmxSupport jmxSupport;
+    private final JVMImpl jvm;
+    private final CachedMBeanServerConnection connection;
+    private final JvmMXBeans mxbeans;
+    // @GuardedBy this
+    private ScheduledTask scheduledTask;
+    // @GuardedBy this
+    private RefreshGovernor.Client governorClient;
+    // @GuardedBy this
+    private boolean polling;
+    private MemoryPoolMXBean permGenPool;
+    private boolean permGenPoolResolved;
+
+    JmxPollingHub(JmxSupport support, JVMImpl vm, JmxModel jmxModel) {
+        jmxSupport = support;
+        jvm = vm;
+        connection = CachedMBeanServerConnectionFactory.createCachedMBeanServerConnection(jmxModel);
+        mxbeans = JvmMXBeansFactory.getJvmMXBeans(connection);
+    }
+
+    synchronized void start(int interval) {
+        if (scheduledTask == null) {
+            scheduledTask = Scheduler.sharedInstance().schedule(this, Quantum.seconds(interval));
+            governorClient = RefreshGovernor.sharedInstance().register(scheduledTask,
+                    jmxSupport.getApplication(), NbBundle.getMessage(
+                    JmxPollingHub.class, "LBL_Monitored_data")); // NOI18N
+        }
+    }
+
+    synchronized void stop() {
+        if (scheduledTask != null) {
+            RefreshGovernor.sharedInstance().unregister(governorClient);
+            governorClient = null;
+            Scheduler.sharedInstance().unschedule(scheduledTask);
+            scheduledTask = null;
+        }
+    }
+
+    public void onSchedule(long timeStamp) {
+        synchronized (this) {
+            // skip the tick if stopped or the previous one is still running
+            if (scheduledTask == null || polling) return;
+            polling = true;
+        }
+        try {
+            connection.flush();
+            MonitoredData data = new MonitoredDataImpl(this);
+            jvm.notifyListeners(data);
+        } catch (UndeclaredThrowableException e) {
+            LOGGER.throwing(JmxPollingHub.class.getName(), "onSchedule", e); // NOI18N
+        } finally {
+            synchronized (this) {
+                polling = false;
+            }
+        }
+    }
+
+    JmxSupport getJmxSupport() {
+        return jmxSupport;
+    }
+
+    JvmMXBeans getJvmMXBeans() {
+        return mxbeans;
+    }
+
+    Collection<GarbageCollectorMXBean> getGarbageCollectorMXBeans() {
+        return mxbeans.getGarbageCollectorMXBeans();
+    }
+
+    long getProcessCPUTime() {
+        return jmxSupport.getProcessCPUTime(connection);
+    }
+
+    MemoryPoolMXBean getPermGenPool() {
+        if (!permGenPoolResolved) {
+            MemoryPoolMXBean pool = jmxSupport.getPermGenPool();
+            if (pool != null) {
+                String name = pool.getName();
+                Collection<MemoryPoolMXBean> pools = mxbeans.getMemoryPoolMXBeans();
+                if (pools != null) for (MemoryPoolMXBean cachedPool : pools) {
+                    if (name.equals(cachedPool.getName())) {
+                        permGenPool = cachedPool;
+                        break;
+                    }
+                }
+            }
+            permGenPoolResolved = true;
+        }
+        return permGenPool;
+    }
+}
@@ -39,11 +39,8 @@ import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryPoolMXBean;
 import java.lang.management.MemoryType;
 import java.lang.management.RuntimeMXBean;
-import java.lang.reflect.UndeclaredThrowableException;
 import java.util.Collection;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.logging.Logger;
 import javax.management.MBeanAttributeInfo;
 import javax.management.MBeanInfo;
@@ -67,7 +64,6 @@ public class JmxSupport implements DataRemovedListener {
     private static final String METASPACE = "Metaspace";       // NOI18N
     private static final String IBM_PERM_GEN = "class storage";    // NOI18N
     private static final ObjectName osName = getOSName();
-    private static long INITIAL_DELAY = 100;
 
     private Application application;
     private JvmMXBeans mxbeans;
@@ -75,7 +71,7 @@ public class JmxSupport implements DataRemovedListener {
     private Object processCPUTimeAttributeLock = new Object();
     private Boolean processCPUTimeAttribute;
     private long processCPUTimeMultiplier;
-    private Timer timer;
+    private JmxPollingHub pollingHub;
     private MemoryPoolMXBean permGenPool;
     private Collection<GarbageCollectorMXBean> gcList;
     private String[] genName;
@@ -86,6 +82,10 @@ public class JmxSupport implements DataRemovedListener {
         app.notifyWhenRemoved(this);
     }
 
+    Application getApplication() {
+        return application;
+    }
+
     RuntimeMXBean getRuntime() {
         JvmMXBeans jmx = getJvmMXBeans();
         if (jmx != null) {
@@ -137,16 +137,19 @@ public class JmxSupport implements DataRemovedListener {
         JmxModel jmx = JmxModelFactory.getJmxModelFor(application);
         
         if (jmx != null && jmx.getConnectionState().equals(ConnectionState.CONNECTED)) {
-           MBeanServerConnection conn = jmx.getMBeanServerConnection();
-            
-           if (conn != null) {
-                try {
-                    Long cputime = (Long)conn.getAttribute(osName,PROCESS_CPU_TIME_ATTR);
-                    
-                    return cputime.longValue()*processCPUTimeMultiplier;
-                } catch (Exception ex) {
-                    LOGGER.throwing(JmxSupport.class.getName(), "hasProcessCPUTimeAttribute", ex); // NOI18N
-                }
+            return getProcessCPUTime(jmx.getMBeanServerConnection());
+        }
+        return -1;
+    }
+    
+    long getProcessCPUTime(MBeanServerConnection conn) {
+        if (conn != null) {
+            try {
+                Long cputime = (Long)conn.getAttribute(osName,PROCESS_CPU_TIME_ATTR);
+
+                return cputime.longValue()*processCPUTimeMultiplier;
+            } catch (Exception ex) {
+                LOGGER.throwing(JmxSupport.class.getName(), "hasProcessCPUTimeAttribute", ex); // NOI18N
             }
         }
         return -1;
@@ -243,28 +246,20 @@ public class JmxSupport implements DataRemovedListener {
         genName[1] = NbBundle.getMessage(JmxSupport.class, "LBL_NA");   // NOI18N        
     }
     
-    void initTimer() {
-        int interval = GlobalPreferences.sharedInstance().getMonitoredDataPoll() * 1000;
-        final JvmMXBeans jmx = getJvmMXBeans();
-        if (jmx != null) {
-            TimerTask task = new TimerTask() {
-                public void run() {
-                    try {
-                        MonitoredData data = new MonitoredDataImpl(JmxSupport.this, jmx);
-                        jvm.notifyListeners(data);
-                    } catch (UndeclaredThrowableException e) {
-                        LOGGER.throwing(JmxSupport.class.getName(), "MonitoredDataImpl<init>", e); // NOI18N
-                    }
-                }
-            };
-            timer = new Timer("JMX MonitoredData timer for "+application.getId());       // NOI18N
-            timer.schedule(task,INITIAL_DELAY,interval);
+    synchronized void startPolling() {
+        if (pollingHub == null) {
+            JmxModel jmxModel = JmxModelFactory.getJmxModelFor(application);
+            if (jmxModel == null || jmxModel.getConnectionState() != ConnectionState.CONNECTED) {
+                return;
+            }
+            pollingHub = new JmxPollingHub(this, jvm, jmxModel);
         }
+        pollingHub.start(GlobalPreferences.sharedInstance().getMonitoredDataPoll());
     }
 
-    void disableTimer() {
-        if (timer != null) {
-            timer.cancel();
+    synchronized void stopPolling() {
+        if (pollingHub != null) {
+            pollingHub.stop();
         }
     }
 
@@ -277,6 +272,6 @@ public class JmxSupport implements DataRemovedListener {
     }
     
     public void dataRemoved(Object dataSource) {
-        disableTimer();
+        stopPolling();
     }
 }
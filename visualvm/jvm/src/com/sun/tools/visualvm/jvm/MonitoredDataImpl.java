@@ -45,12 +45,14 @@ import java.util.logging.Logger;
 public class MonitoredDataImpl extends MonitoredData {
   private final static Logger LOGGER = Logger.getLogger(MonitoredDataImpl.class.getName());
 
-  private MonitoredDataImpl(JmxSupport jmxSupport) {
+  private MonitoredDataImpl(JmxSupport jmxSupport, JmxPollingHub pollingHub) {
     try {
-        Collection<GarbageCollectorMXBean> gcList = jmxSupport.getGarbageCollectorMXBeans();
+        Collection<GarbageCollectorMXBean> gcList = pollingHub != null ?
+                pollingHub.getGarbageCollectorMXBeans() : jmxSupport.getGarbageCollectorMXBeans();
 
         if (jmxSupport.hasProcessCPUTimeAttribute()) {
-            processCpuTime = jmxSupport.getProcessCPUTime();
+            processCpuTime = pollingHub != null ?
+                    pollingHub.getProcessCPUTime() : jmxSupport.getProcessCPUTime();
         }
         if (gcList != null && !gcList.isEmpty()) {
             for (GarbageCollectorMXBean gcBean : gcList) {
@@ -63,7 +65,7 @@ public class MonitoredDataImpl extends MonitoredData {
   }
   
   MonitoredDataImpl(JvmJvmstatModel jvmstatModel,JmxSupport jmxSupport) {
-    this(jmxSupport);
+    this(jmxSupport, (JmxPollingHub)null);
     loadedClasses = jvmstatModel.getLoadedClasses();
     sharedLoadedClasses = jvmstatModel.getSharedLoadedClasses();
     sharedUnloadedClasses = jvmstatModel.getSharedUnloadedClasses();
@@ -80,13 +82,20 @@ public class MonitoredDataImpl extends MonitoredData {
   }
 
   MonitoredDataImpl(JmxSupport jmxSupport,JvmMXBeans jmxModel) {
-    this(jmxSupport);
+    this(jmxSupport, jmxModel, jmxSupport.getPermGenPool(), null);
+  }
+
+  MonitoredDataImpl(JmxPollingHub pollingHub) {
+    this(pollingHub.getJmxSupport(), pollingHub.getJvmMXBeans(), pollingHub.getPermGenPool(), pollingHub);
+  }
+
+  private MonitoredDataImpl(JmxSupport jmxSupport,JvmMXBeans jmxModel,MemoryPoolMXBean permBean,JmxPollingHub pollingHub) {
+    this(jmxSupport, pollingHub);
     RuntimeMXBean runtimeBean = jmxModel.getRuntimeMXBean();
     upTime = runtimeBean.getUptime();
     ClassLoadingMXBean classBean = jmxModel.getClassLoadingMXBean();
     ThreadMXBean threadBean = jmxModel.getThreadMXBean();
     MemoryUsage mem = jmxModel.getMemoryMXBean().getHeapMemoryUsage();
-    MemoryPoolMXBean permBean = jmxSupport.getPermGenPool();
     unloadedClasses = classBean.getUnloadedClassCount();
     loadedClasses = classBean.getLoadedClassCount() + unloadedClasses;
     sharedLoadedClasses = 0;
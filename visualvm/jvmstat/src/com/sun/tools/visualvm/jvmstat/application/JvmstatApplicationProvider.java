@@ -35,10 +35,10 @@ import com.sun.tools.visualvm.core.datasupport.Stateful;
 import com.sun.tools.visualvm.core.options.GlobalPreferences;
 import com.sun.tools.visualvm.core.ui.DesktopUtils;
 import com.sun.tools.visualvm.host.Host;
+import com.sun.tools.visualvm.host.HostConnectionManager;
 import com.sun.tools.visualvm.uisupport.HTMLLabel;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
 import java.io.File;
+import java.net.InetSocketAddress;
 import java.net.URL;
 import java.rmi.ConnectException;
 import java.util.ArrayList;
@@ -50,7 +50,6 @@ import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.SwingUtilities;
-import javax.swing.Timer;
 import org.openide.DialogDisplayer;
 import org.openide.NotifyDescriptor;
 import org.openide.util.NbBundle;
@@ -75,10 +74,17 @@ public class JvmstatApplicationProvider implements DataChangeListener<Host> {
     private static final RequestProcessor PROCESSOR =
             new RequestProcessor("JvmstatApplicationProvider Processor", 10); // NOI18N
     
+    // Timeout for checking that jstatd is reachable before connecting to it
+    private static final int PROBE_TIMEOUT = 5000;
+    // Maximum delay between two attempts to connect to jstatd
+    private static final int MAX_RETRY_DELAY = 5 * 60 * 1000;
+    
     private static JvmstatApplicationProvider instance;
     
     private final Map<String, JvmstatApplication> applications = new HashMap();
     private final Map<Host,Map<HostIdentifier,JvmstatConnection>> hostsListeners = new HashMap();
+    // Connection tasks are kept to continue their backoff after a disconnect
+    private final Map<HostIdentifier,JvmstatConnectionTask> connectionTasks = new HashMap();
     
     static synchronized JvmstatApplicationProvider sharedInstance() {
         if (instance == null) {
@@ -121,10 +127,52 @@ public class JvmstatApplicationProvider implements DataChangeListener<Host> {
     
     private void registerJvmstatConnections(final Host host, final Set<ConnectionDescriptor> descrs) {
         for (ConnectionDescriptor desc : descrs) {
-            int interval = (int)(desc.getRefreshRate()*1000);
-            HostIdentifier hostId = desc.createHostIdentifier(host);
-            registerJvmstatConnection(host,hostId,interval);
+            scheduleJvmstatConnection(host, desc, 0);
+        }
+    }
+    
+    private void scheduleJvmstatConnection(Host host, ConnectionDescriptor desc, int delay) {
+        HostIdentifier hostId = desc.createHostIdentifier(host);
+        if (hostId == null) return;
+        JvmstatConnectionTask task = new JvmstatConnectionTask(host, hostId, desc);
+        synchronized (connectionTasks) {
+            JvmstatConnectionTask previousTask = connectionTasks.put(hostId, task);
+            if (previousTask != null) previousTask.cancel();
+        }
+        HostConnectionManager.sharedInstance().connect(task, delay);
+    }
+    
+    private void rescheduleJvmstatConnection(Host host, HostIdentifier hostId) {
+        ConnectionDescriptor desc = findConnectionDescriptor(host, hostId);
+        if (desc != null) {
+            JvmstatConnectionTask task;
+            synchronized (connectionTasks) {
+                task = connectionTasks.get(hostId);
+            }
+            if (task != null) {
+                HostConnectionManager.sharedInstance().reconnect(task);
+            } else {
+                int delay = GlobalPreferences.sharedInstance().getMonitoredHostPoll() * 1000;
+                scheduleJvmstatConnection(host, desc, delay);
+            }
+        }
+    }
+    
+    private void cancelJvmstatConnection(HostIdentifier hostId) {
+        synchronized (connectionTasks) {
+            JvmstatConnectionTask task = connectionTasks.remove(hostId);
+            if (task != null) task.cancel();
+        }
+    }
+    
+    private ConnectionDescriptor findConnectionDescriptor(Host host, HostIdentifier hostId) {
+        if (host.isRemoved()) return null;
+        for (ConnectionDescriptor desc : HostPropertiesProvider.descriptorsForHost(host)) {
+            if (hostId.equals(desc.createHostIdentifier(host))) {
+                return desc;
+            }
         }
+        return null;
     }
     
     private void processChangedJvmstatConnection(Host host, ConnectionDescriptor changedConnection) {
@@ -139,6 +187,13 @@ public class JvmstatApplicationProvider implements DataChangeListener<Host> {
     private void processFinishedHost(final Host host) {
         if (host == Host.UNKNOWN_HOST) return;
         
+        synchronized (connectionTasks) {
+            Iterator<JvmstatConnectionTask> tasksIt = connectionTasks.values().iterator();
+            while (tasksIt.hasNext()) {
+                if (tasksIt.next().getHost().equals(host)) tasksIt.remove();
+            }
+        }
+        
         synchronized (hostsListeners) {
             Map<HostIdentifier,JvmstatConnection> hostListeners = hostsListeners.get(host);
             
@@ -153,6 +208,8 @@ public class JvmstatApplicationProvider implements DataChangeListener<Host> {
     private void processRemovedJvmstatConnection(final Host host, HostIdentifier hostId) {
         if (host == Host.UNKNOWN_HOST) return;
         
+        cancelJvmstatConnection(hostId);
+        
         synchronized (hostsListeners) {
             Map<HostIdentifier,JvmstatConnection> hostListeners = hostsListeners.get(host);
             
@@ -244,7 +301,8 @@ public class JvmstatApplicationProvider implements DataChangeListener<Host> {
         }
     }
     
-    private void registerJvmstatConnection(Host host, HostIdentifier hostId, int interval) {
+    // Returns false if the connection is not available and should be retried later
+    private boolean registerJvmstatConnection(Host host, HostIdentifier hostId, int interval) {
         // Monitor the Host for new/finished Applications
         // NOTE: the code relies on the fact that the provider is the first listener registered in MonitoredHost of the Host
         // in which case the first obtained event contains all applications already running on the Host
@@ -254,8 +312,7 @@ public class JvmstatApplicationProvider implements DataChangeListener<Host> {
         final MonitoredHost monitoredHost = getMonitoredHost(hostId);
         
         if (monitoredHost == null) { // monitored host not available reschedule
-            rescheduleProcessNewHost(host,hostId);
-            return;
+            return false;
         }
         hostId = monitoredHost.getHostIdentifier();
         monitoredHost.setInterval(interval);
@@ -276,9 +333,10 @@ public class JvmstatApplicationProvider implements DataChangeListener<Host> {
                         NotifyDescriptor.ERROR_MESSAGE));
                 LOGGER.log(Level.INFO, "Jvmstat connection to " + host + " failed.", t); // NOI18N
             } else {
-                rescheduleProcessNewHost(host,hostId);
+                return false;
             }
         }
+        return true;
     }
     
     private String createId(Host host, int pid) {
@@ -386,31 +444,6 @@ public class JvmstatApplicationProvider implements DataChangeListener<Host> {
         return null;
     }
     
-    private void rescheduleProcessNewHost(final Host host,final HostIdentifier hostId) {
-        int timerInterval = GlobalPreferences.sharedInstance().getMonitoredHostPoll();
-        Timer timer = new Timer(timerInterval*1000, new ActionListener() {
-            public void actionPerformed(ActionEvent e) {
-                // do not block EQ - use request processor, processNewHost() can take a long time
-                PROCESSOR.post(new Runnable() {
-                    public void run() {
-                        if (!host.isRemoved()) {
-                            Set<ConnectionDescriptor> descriptors = HostPropertiesProvider.descriptorsForHost(host);
-                            
-                            for (ConnectionDescriptor desc : descriptors) {
-                                if (hostId.equals(desc.createHostIdentifier(host))) {
-                                    int interval = (int)(desc.getRefreshRate()*1000);
-                                    registerJvmstatConnection(host,hostId,interval);
-                                }
-                            }
-                        }
-                    }
-                });
-            }
-        });
-        timer.setRepeats(false);
-        timer.start();
-    }
-    
     public static void register() {
         DataSourceRepository.sharedInstance().addDataChangeListener(sharedInstance(), Host.class);
     }
@@ -461,8 +494,36 @@ public class JvmstatApplicationProvider implements DataChangeListener<Host> {
         
         public void disconnected(HostEvent e) {
             processDisconnectedJvmstat(host, this);
-            rescheduleProcessNewHost(host,monitoredHost.getHostIdentifier());
+            rescheduleJvmstatConnection(host, monitoredHost.getHostIdentifier());
+        }
+    }
+    
+    private class JvmstatConnectionTask extends HostConnectionManager.ConnectionTask {
+        
+        private final HostIdentifier hostId;
+        
+        private JvmstatConnectionTask(Host host, HostIdentifier hostId, ConnectionDescriptor desc) {
+            super(host, getProbeAddress(host, desc), PROBE_TIMEOUT,
+                  GlobalPreferences.sharedInstance().getMonitoredHostPoll() * 1000,
+                  MAX_RETRY_DELAY);
+            this.hostId = hostId;
+        }
+        
+        protected boolean connect() {
+            Host host = getHost();
+            // connection could have been removed or changed in the meantime
+            ConnectionDescriptor desc = findConnectionDescriptor(host, hostId);
+            if (desc == null) return true;
+            int interval = (int)(desc.getRefreshRate()*1000);
+            return registerJvmstatConnection(host, hostId, interval);
         }
+        
+    }
+    
+    private static InetSocketAddress getProbeAddress(Host host, ConnectionDescriptor desc) {
+        // local jvmstat doesn't use any port
+        if (desc.getPort() < 0 || Host.LOCALHOST.equals(host)) return null;
+        return new InetSocketAddress(host.getInetAddress(), desc.getPort());
     }
     
 }
@@ -32,6 +32,7 @@ import com.sun.tools.visualvm.core.ui.DataSourceView;
 import com.sun.tools.visualvm.core.ui.DesktopUtils;
 import com.sun.tools.visualvm.core.ui.components.DataViewComponent;
 import com.sun.tools.visualvm.profiling.presets.PresetSelector;
+import com.sun.tools.visualvm.profiling.presets.ProfilerPreset;
 import com.sun.tools.visualvm.profiling.presets.ProfilerPresets;
 import com.sun.tools.visualvm.uisupport.HTMLLabel;
 import com.sun.tools.visualvm.uisupport.HTMLTextArea;
@@ -91,6 +92,8 @@ final class ApplicationProfilerView extends DataSourceView {
     private PresetSelector refSelector;
     
     private boolean classSharingBreaksProfiling;
+    
+    private boolean profileCPUOnCreate;
 
     
     public ApplicationProfilerView(final Application application) {
@@ -121,6 +124,16 @@ final class ApplicationProfilerView extends DataSourceView {
         if (memorySettingsC != null) memorySettings.copySettings(memorySettingsC);
     }
     
+    void profileCPU(ProfilerPreset preset) {
+        cpuSettings.profilePreset(preset, new Runnable() {
+            public void run() {
+                // the view may still be opening, profiling starts once created
+                if (masterViewSupport != null) masterViewSupport.startCPUProfiling();
+                else profileCPUOnCreate = true;
+            }
+        });
+    }
+    
     private PresetSelector createSelector(Runnable presetSynchronizer, Application application) {
         PresetSelector selector = ProfilerPresets.getInstance().createSelector(
                                   application, refSelector, presetSynchronizer);
@@ -146,6 +159,13 @@ final class ApplicationProfilerView extends DataSourceView {
         dvc.addDetailsView(memorySettings.getDetailsView(), DataViewComponent.TOP_RIGHT);
         dvc.hideDetailsArea(DataViewComponent.TOP_RIGHT);
         
+        if (profileCPUOnCreate) {
+            profileCPUOnCreate = false;
+            SwingUtilities.invokeLater(new Runnable() {
+                public void run() { masterViewSupport.startCPUProfiling(); }
+            });
+        }
+        
         return dvc;
     }
     
@@ -266,6 +286,13 @@ final class ApplicationProfilerView extends DataSourceView {
             return view;
         }
         
+        private void startCPUProfiling() {
+            // profiling of another application or a pending state change
+            if (applicationTerminated || !cpuButton.isEnabled()) return;
+            cpuButton.setSelected(true);
+            handleCPUProfiling();
+        }
+        
         private void handleCPUProfiling() {
           if (internalChange) return;
 
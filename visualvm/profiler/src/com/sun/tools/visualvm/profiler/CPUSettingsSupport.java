@@ -29,6 +29,7 @@ import com.sun.tools.visualvm.core.ui.components.DataViewComponent;
 import com.sun.tools.visualvm.core.ui.components.ScrollableContainer;
 import com.sun.tools.visualvm.profiling.presets.PresetSelector;
 import com.sun.tools.visualvm.profiling.presets.ProfilerCPUPanel;
+import com.sun.tools.visualvm.profiling.presets.ProfilerPreset;
 import java.awt.BorderLayout;
 import java.awt.Component;
 import javax.swing.BorderFactory;
@@ -47,6 +48,9 @@ public abstract class CPUSettingsSupport {
     private ProfilerCPUPanel panel;
     private PresetSelector selector;
     
+    private ProfilerPreset pendingPreset;
+    private Runnable pendingProfiler;
+    
     
     DataViewComponent.DetailsView getDetailsView() {
         return new DataViewComponent.DetailsView(NbBundle.getMessage(
@@ -71,6 +75,14 @@ public abstract class CPUSettingsSupport {
         selector.synchronizeWith(settings.selector);
     }
     
+    // Selects the preset and invokes the profiler once its settings are loaded
+    void profilePreset(ProfilerPreset preset, Runnable profiler) {
+        getComponent(); // initialize selector
+        pendingPreset = preset;
+        pendingProfiler = profiler;
+        selector.selectTemporaryPreset(preset);
+    }
+    
     public abstract boolean presetValid();
     
     public boolean settingsValid() { return panel.settingsValid(); }
@@ -90,7 +102,16 @@ public abstract class CPUSettingsSupport {
         };
         
         selector = createSelector(new Runnable() {
-            public void run() { panel.loadFromPreset(selector.getSelectedPreset()); }
+            public void run() {
+                ProfilerPreset preset = selector.getSelectedPreset();
+                panel.loadFromPreset(preset);
+                if (preset != null && preset == pendingPreset) {
+                    Runnable profiler = pendingProfiler;
+                    pendingPreset = null;
+                    pendingProfiler = null;
+                    profiler.run();
+                }
+            }
         });
         selector.setBorder(BorderFactory.createEmptyBorder(10, 10, 5, 10));
         
@@ -36,6 +36,7 @@ import com.sun.tools.visualvm.core.datasupport.Stateful;
 import com.sun.tools.visualvm.core.ui.DataSourceView;
 import com.sun.tools.visualvm.core.ui.DataSourceWindowManager;
 import com.sun.tools.visualvm.host.Host;
+import com.sun.tools.visualvm.profiling.presets.ProfilerPreset;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
@@ -432,6 +433,18 @@ public final class ProfilerSupport {
         selectProfilerView(application, null, null);
     }
     
+    void profileCPU(Application application, final ProfilerPreset preset) {
+        if (application == null) return;
+        final DataSourceView activeView = profilerViewProvider.view(application);
+        if (activeView == null) return;
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                DataSourceWindowManager.sharedInstance().selectView(activeView);
+                ((ApplicationProfilerView)activeView).profileCPU(preset);
+            }
+        });
+    }
+    
     private void selectProfilerView(Application application, final CPUSettingsSupport cpu, final MemorySettingsSupport memory) {
         if (application == null) return;
         final DataSourceView activeView = profilerViewProvider.view(application);
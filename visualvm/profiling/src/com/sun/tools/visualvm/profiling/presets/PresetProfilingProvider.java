@@ -0,0 +1,55 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.profiling.presets;
+
+import com.sun.tools.visualvm.application.Application;
+
+/**
+ * Provider starting instrumented profiling of an application configured by
+ * a ProfilerPreset. Registered providers are available in the default Lookup.
+ *
+ * @since VisualVM 1.4
+ */
+public abstract class PresetProfilingProvider {
+
+    /**
+     * Returns true if the application can be profiled by this provider.
+     *
+     * @param application application to be profiled
+     * @return true if the application can be profiled, false otherwise
+     */
+    public abstract boolean supportsProfiling(Application application);
+
+    /**
+     * Opens the profiler for the application, selects the preset and starts
+     * CPU profiling using its root methods and instrumentation filter.
+     *
+     * @param application application to be profiled
+     * @param preset preset defining the CPU profiling settings
+     */
+    public abstract void profileCPU(Application application, ProfilerPreset preset);
+
+}
@@ -52,6 +52,7 @@ public final class PresetSelector extends JPanel {
     
     private final ProfilerPreset defaultPreset;
     private ProfilerPreset customPreset;
+    private ProfilerPreset temporaryPreset;
     
     private final String selector;
     private boolean savingCustom;
@@ -102,6 +103,25 @@ public final class PresetSelector extends JPanel {
         });
     }
     
+    /**
+     * Selects a preset created by a tool, for example from sampled data.
+     * The preset is offered next to the custom preset until it is saved
+     * or replaced by another temporary preset, the custom preset is kept.
+     *
+     * @param preset preset to be selected
+     * @since VisualVM 1.4
+     */
+    public void selectTemporaryPreset(final ProfilerPreset preset) {
+        // Need to invokeLater, to be called after updatePresets() in constructor
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                temporaryPreset = preset;
+                if (refSelector != null) refSelector.temporaryPreset = temporaryPreset;
+                updatePresets(preset);
+            }
+        });
+    }
+
     public ProfilerPreset customize(boolean presetValid) {
         if (customPreset == null) {
             customPreset = new ProfilerPreset(NbBundle.getMessage(
@@ -129,7 +149,7 @@ public final class PresetSelector extends JPanel {
         Object selected = presetsCombo.getSelectedItem();
         if (selected == null) return;
         
-        boolean custom = selected == customPreset;
+        boolean custom = selected == customPreset || selected == temporaryPreset;
         if (customSelected != custom) {
             customSelected = custom;
             presetsButton.setText(custom ? NbBundle.getMessage(PresetSelector.class,
@@ -143,7 +163,7 @@ public final class PresetSelector extends JPanel {
     
     private void actionRequested() {
         if (customSelected) {
-            ProfilerPreset preset = new ProfilerPreset(customPreset);
+            ProfilerPreset preset = new ProfilerPreset(getSelectedPreset());
             preset.setSelector(selector);
             savingCustom = true;
             ProfilerPresets.getInstance().savePreset(preset);
@@ -159,14 +179,19 @@ public final class PresetSelector extends JPanel {
     }
     
     private void updatePresets(ProfilerPreset toSelect) {
-        if (toSelect == null) toSelect =
-                (ProfilerPreset)presetsCombo.getSelectedItem();
+        ProfilerPreset selected = (ProfilerPreset)presetsCombo.getSelectedItem();
+        if (toSelect == null) toSelect = selected;
         internalChange = true;
         
         presetsCombo.removeAllItems();
         presetsCombo.addItem(defaultPreset);
-        if (savingCustom) customPreset = null;
+        if (savingCustom) {
+            // the saved preset is listed among the defined presets now
+            if (selected == temporaryPreset) temporaryPreset = null;
+            else customPreset = null;
+        }
         if (customPreset != null) presetsCombo.addItem(customPreset);
+        if (temporaryPreset != null) presetsCombo.addItem(temporaryPreset);
         ProfilerPresets.PresetsModel presets =
                 ProfilerPresets.getInstance().getPresets();
         for (int i = 0; i < presets.size(); i++)
@@ -41,6 +41,10 @@ public final class ProfilerPreset {
     private static final String PROP_SAMPLING_RATE_S = "prof_preset_samplingRate_s"; // NOI18N
     private static final String PROP_REFRESH_RATE_S = "prof_preset_refreshRate_s"; // NOI18N
     private static final String PROP_SAMPLING_REFRESH_RATE_S = "prof_preset_samplingRefreshRate_s"; // NOI18N
+    private static final String PROP_STACK_DEPTH_S = "prof_preset_stackDepth_s"; // NOI18N
+    private static final String PROP_THREADS_FILTER_MODE_S = "prof_preset_threadsFilterMode_s"; // NOI18N
+    private static final String PROP_THREADS_FILTER_S = "prof_preset_threadsFilter_s"; // NOI18N
+    private static final String PROP_RUNNABLES_S = "prof_preset_runnables_s"; // NOI18N
     private static final String PROP_ROOTS_P = "prof_preset_roots_p"; // NOI18N
     private static final String PROP_RUNNABLES_P = "prof_preset_runnables_p"; // NOI18N
     private static final String PROP_FILTER_MODE_P = "prof_preset_filterMode_p"; // NOI18N
@@ -57,6 +61,10 @@ public final class ProfilerPreset {
     private int samplingRateS;
     private int refreshRateS;
     private int samplingRefreshRateS;
+    private int stackDepthS;
+    private boolean threadsFilterModeS;
+    private String threadsFilterS;
+    private boolean runnablesS;
     private String rootsP;
     private boolean runnablesP;
     private boolean filterModeP;
@@ -75,6 +83,10 @@ public final class ProfilerPreset {
         this.samplingRateS = 100;
         this.refreshRateS = 1000;
         this.samplingRefreshRateS = 1000;
+        this.stackDepthS = 0;
+        this.threadsFilterModeS = true;
+        this.threadsFilterS = ""; // NOI18N
+        this.runnablesS = false;
         this.rootsP = ""; // NOI18N
         this.runnablesP = true;
         this.filterModeP = true;
@@ -93,6 +105,10 @@ public final class ProfilerPreset {
         this.samplingRateS = preset.samplingRateS;
         this.refreshRateS = preset.refreshRateS;
         this.samplingRefreshRateS = preset.samplingRefreshRateS;
+        this.stackDepthS = preset.stackDepthS;
+        this.threadsFilterModeS = preset.threadsFilterModeS;
+        this.threadsFilterS = preset.threadsFilterS;
+        this.runnablesS = preset.runnablesS;
         this.rootsP = preset.rootsP;
         this.runnablesP = preset.runnablesP;
         this.filterModeP = preset.filterModeP;
@@ -111,6 +127,10 @@ public final class ProfilerPreset {
         samplingRateS = prefs.getInt(prefix + PROP_SAMPLING_RATE_S, 100);
         refreshRateS = prefs.getInt(prefix + PROP_REFRESH_RATE_S, 1000);
         samplingRefreshRateS = prefs.getInt(prefix + PROP_SAMPLING_REFRESH_RATE_S, 1000);
+        stackDepthS = prefs.getInt(prefix + PROP_STACK_DEPTH_S, 0);
+        threadsFilterModeS = prefs.getBoolean(prefix + PROP_THREADS_FILTER_MODE_S, true);
+        threadsFilterS = prefs.get(prefix + PROP_THREADS_FILTER_S, ""); // NOI18N
+        runnablesS = prefs.getBoolean(prefix + PROP_RUNNABLES_S, false);
         rootsP = prefs.get(prefix + PROP_ROOTS_P, ""); // NOI18N
         runnablesP = prefs.getBoolean(prefix + PROP_RUNNABLES_P, true);
         filterModeP = prefs.getBoolean(prefix + PROP_FILTER_MODE_P, true);
@@ -129,6 +149,10 @@ public final class ProfilerPreset {
         prefs.putInt(prefix + PROP_SAMPLING_RATE_S, samplingRateS);
         prefs.putInt(prefix + PROP_REFRESH_RATE_S, refreshRateS);
         prefs.putInt(prefix + PROP_SAMPLING_REFRESH_RATE_S, samplingRefreshRateS);
+        prefs.putInt(prefix + PROP_STACK_DEPTH_S, stackDepthS);
+        prefs.putBoolean(prefix + PROP_THREADS_FILTER_MODE_S, threadsFilterModeS);
+        prefs.put(prefix + PROP_THREADS_FILTER_S, threadsFilterS);
+        prefs.putBoolean(prefix + PROP_RUNNABLES_S, runnablesS);
         prefs.put(prefix + PROP_ROOTS_P, rootsP);
         prefs.putBoolean(prefix + PROP_RUNNABLES_P, runnablesP);
         prefs.putBoolean(prefix + PROP_FILTER_MODE_P, filterModeP);
@@ -204,6 +228,38 @@ public final class ProfilerPreset {
         return samplingRefreshRateS;
     }
 
+    public void setStackDepthS(int stackDepth) {
+        this.stackDepthS = stackDepth;
+    }
+
+    public int getStackDepthS() {
+        return stackDepthS;
+    }
+
+    public void setThreadsFilterModeS(boolean threadsFilterMode) {
+        this.threadsFilterModeS = threadsFilterMode;
+    }
+
+    public boolean getThreadsFilterModeS() {
+        return threadsFilterModeS;
+    }
+
+    public void setThreadsFilterS(String threadsFilter) {
+        this.threadsFilterS = threadsFilter;
+    }
+
+    public String getThreadsFilterS() {
+        return threadsFilterS;
+    }
+
+    public void setRunnablesS(boolean runnables) {
+        this.runnablesS = runnables;
+    }
+
+    public boolean getRunnablesS() {
+        return runnablesS;
+    }
+
     public void setRootsP(String roots) {
         this.rootsP = roots;
     }
@@ -39,6 +39,7 @@ import java.text.NumberFormat;
 import javax.swing.AbstractButton;
 import javax.swing.BorderFactory;
 import javax.swing.ButtonGroup;
+import javax.swing.JCheckBox;
 import javax.swing.JComboBox;
 import javax.swing.JLabel;
 import javax.swing.JList;
@@ -46,6 +47,7 @@ import javax.swing.JPanel;
 import javax.swing.JRadioButton;
 import javax.swing.JScrollPane;
 import javax.swing.JTextArea;
+import javax.swing.JTextField;
 import javax.swing.ListCellRenderer;
 import javax.swing.UIManager;
 import javax.swing.event.DocumentEvent;
@@ -73,6 +75,12 @@ public abstract class SamplerCPUPanel extends JPanel {
     private JLabel refreshRateLabel;
     private JLabel refreshUnitsLabel;
     private JComboBox refreshRateCombo;
+    private JLabel stackDepthLabel;
+    private JComboBox stackDepthCombo;
+    private JLabel stackDepthUnitsLabel;
+    private JComboBox threadsModeCombo;
+    private JTextField threadsField;
+    private JCheckBox runnablesCheckBox;
     
     private final Runnable validator;
     private boolean filtersValid = true;
@@ -111,6 +119,43 @@ public abstract class SamplerCPUPanel extends JPanel {
     public int getRefreshRate() {
         return (Integer)refreshRateCombo.getSelectedItem();
     }
+
+    /**
+     * Returns maximum depth of sampled stacks, 0 means unlimited depth.
+     *
+     * @since VisualVM 1.4
+     */
+    public int getStackDepth() {
+        return (Integer)stackDepthCombo.getSelectedItem();
+    }
+
+    /**
+     * Returns comma separated names of sampled or ignored threads, '*' matches
+     * any characters.
+     *
+     * @since VisualVM 1.4
+     */
+    public String getThreadsFilter() {
+        return threadsField.getText().trim();
+    }
+
+    /**
+     * Returns true if the threads matching the threads filter are not sampled.
+     *
+     * @since VisualVM 1.4
+     */
+    public boolean isThreadsFilterExclusive() {
+        return threadsModeCombo.getSelectedIndex() == 1;
+    }
+
+    /**
+     * Returns true if only RUNNABLE threads are sampled.
+     *
+     * @since VisualVM 1.4
+     */
+    public boolean isRunnablesOnly() {
+        return runnablesCheckBox.isSelected();
+    }
     
     
     public boolean settingsValid() { return filtersValid; }
@@ -124,6 +169,10 @@ public abstract class SamplerCPUPanel extends JPanel {
         filtersArea.getTextArea().setText(preset.getFilterS());
         sampleRateCombo.setSelectedItem(preset.getSamplingRateS());
         refreshRateCombo.setSelectedItem(preset.getRefreshRateS());
+        stackDepthCombo.setSelectedItem(preset.getStackDepthS());
+        threadsModeCombo.setSelectedIndex(preset.getThreadsFilterModeS() ? 1 : 0);
+        threadsField.setText(preset.getThreadsFilterS());
+        runnablesCheckBox.setSelected(preset.getRunnablesS());
         internalChange = false;
     }
     
@@ -134,6 +183,10 @@ public abstract class SamplerCPUPanel extends JPanel {
         preset.setFilterS(filtersArea.getTextArea().getText());
         preset.setSamplingRateS((Integer)sampleRateCombo.getSelectedItem());
         preset.setRefreshRateS((Integer)refreshRateCombo.getSelectedItem());
+        preset.setStackDepthS((Integer)stackDepthCombo.getSelectedItem());
+        preset.setThreadsFilterModeS(threadsModeCombo.getSelectedIndex() == 1);
+        preset.setThreadsFilterS(threadsField.getText());
+        preset.setRunnablesS(runnablesCheckBox.isSelected());
     }
     
     public abstract void settingsChanged();
@@ -358,7 +411,7 @@ public abstract class SamplerCPUPanel extends JPanel {
         constraints.gridwidth = 1;
         constraints.anchor = GridBagConstraints.WEST;
         constraints.fill = GridBagConstraints.NONE;
-        constraints.insets = new Insets(1, 10, 10, 5);
+        constraints.insets = new Insets(1, 10, 5, 5);
         add(refreshRateLabel, constraints);
 
         Integer[] refreshRates = new Integer[] { 100, 200, 500, 1000, 2000, 5000, 10000 };
@@ -380,7 +433,7 @@ public abstract class SamplerCPUPanel extends JPanel {
         constraints.gridwidth = 1;
         constraints.anchor = GridBagConstraints.WEST;
         constraints.fill = GridBagConstraints.NONE;
-        constraints.insets = new Insets(1, 0, 10, 5);
+        constraints.insets = new Insets(1, 0, 5, 5);
         add(refreshRateCombo, constraints);
 
         refreshUnitsLabel = new JLabel(NbBundle.getMessage(
@@ -393,7 +446,7 @@ public abstract class SamplerCPUPanel extends JPanel {
         constraints.gridwidth = 1;
         constraints.anchor = GridBagConstraints.WEST;
         constraints.fill = GridBagConstraints.NONE;
-        constraints.insets = new Insets(1, 0, 10, 5);
+        constraints.insets = new Insets(1, 0, 5, 5);
         add(refreshUnitsLabel, constraints);
 
         constraints = new GridBagConstraints();
@@ -402,8 +455,123 @@ public abstract class SamplerCPUPanel extends JPanel {
         constraints.gridwidth = GridBagConstraints.REMAINDER;
         constraints.anchor = GridBagConstraints.WEST;
         constraints.fill = GridBagConstraints.HORIZONTAL;
-        constraints.insets = new Insets(1, 0, 10, 0);
+        constraints.insets = new Insets(1, 0, 5, 0);
+        add(Spacer.create(), constraints);
+
+        stackDepthLabel = new JLabel();
+        setText(stackDepthLabel, NbBundle.getMessage(SamplerCPUPanel.class,
+                "LBL_Stack_depth"), mnemonics); // NOI18N
+        stackDepthLabel.setToolTipText(NbBundle.getMessage(
+                SamplerCPUPanel.class, "TOOLTIP_Stack_depth")); // NOI18N
+        constraints = new GridBagConstraints();
+        constraints.gridx = 0;
+        constraints.gridy = 8;
+        constraints.gridwidth = 1;
+        constraints.anchor = GridBagConstraints.WEST;
+        constraints.fill = GridBagConstraints.NONE;
+        constraints.insets = new Insets(1, 10, 5, 5);
+        add(stackDepthLabel, constraints);
+
+        Integer[] stackDepths = new Integer[] { 0, 8, 16, 32, 64, 128, 256, 512 };
+        stackDepthCombo = new JComboBox(stackDepths) {
+            public Dimension getMinimumSize() { return getPreferredSize(); }
+            public Dimension getMaximumSize() { return getPreferredSize(); }
+        };
+        stackDepthLabel.setLabelFor(stackDepthCombo);
+        stackDepthCombo.setToolTipText(NbBundle.getMessage(
+                SamplerCPUPanel.class, "TOOLTIP_Stack_depth")); // NOI18N
+        stackDepthCombo.setEditable(false);
+        stackDepthCombo.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) { syncUI(); }
+        });
+        stackDepthCombo.setRenderer(new ComboRenderer(stackDepthCombo));
+        constraints = new GridBagConstraints();
+        constraints.gridx = 1;
+        constraints.gridy = 8;
+        constraints.gridwidth = 1;
+        constraints.anchor = GridBagConstraints.WEST;
+        constraints.fill = GridBagConstraints.NONE;
+        constraints.insets = new Insets(1, 0, 5, 5);
+        add(stackDepthCombo, constraints);
+
+        stackDepthUnitsLabel = new JLabel(NbBundle.getMessage(
+                SamplerCPUPanel.class, "LBL_units_frames")); // NOI18N
+        stackDepthUnitsLabel.setToolTipText(NbBundle.getMessage(
+                SamplerCPUPanel.class, "TOOLTIP_Stack_depth")); // NOI18N
+        constraints = new GridBagConstraints();
+        constraints.gridx = 2;
+        constraints.gridy = 8;
+        constraints.gridwidth = 1;
+        constraints.anchor = GridBagConstraints.WEST;
+        constraints.fill = GridBagConstraints.NONE;
+        constraints.insets = new Insets(1, 0, 5, 5);
+        add(stackDepthUnitsLabel, constraints);
+
+        constraints = new GridBagConstraints();
+        constraints.gridx = 3;
+        constraints.gridy = 8;
+        constraints.gridwidth = GridBagConstraints.REMAINDER;
+        constraints.anchor = GridBagConstraints.WEST;
+        constraints.fill = GridBagConstraints.HORIZONTAL;
+        constraints.insets = new Insets(1, 0, 5, 0);
         add(Spacer.create(), constraints);
+
+        threadsModeCombo = new JComboBox(new String[] {
+            NbBundle.getMessage(SamplerCPUPanel.class, "LBL_Threads_Incl_S"), // NOI18N
+            NbBundle.getMessage(SamplerCPUPanel.class, "LBL_Threads_Excl_S") }) { // NOI18N
+            public Dimension getMinimumSize() { return getPreferredSize(); }
+            public Dimension getMaximumSize() { return getPreferredSize(); }
+        };
+        threadsModeCombo.setToolTipText(NbBundle.getMessage(
+                SamplerCPUPanel.class, "TOOLTIP_Threads_Filter_S")); // NOI18N
+        threadsModeCombo.setEditable(false);
+        threadsModeCombo.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) { syncUI(); }
+        });
+        constraints = new GridBagConstraints();
+        constraints.gridx = 0;
+        constraints.gridy = 9;
+        constraints.gridwidth = 1;
+        constraints.anchor = GridBagConstraints.WEST;
+        constraints.fill = GridBagConstraints.NONE;
+        constraints.insets = new Insets(1, 10, 5, 5);
+        add(threadsModeCombo, constraints);
+
+        threadsField = new JTextField();
+        threadsField.setToolTipText(NbBundle.getMessage(
+                SamplerCPUPanel.class, "TOOLTIP_Threads_Filter_S")); // NOI18N
+        threadsField.getDocument().addDocumentListener(new DocumentListener() {
+            public void insertUpdate(DocumentEvent e) { syncUI(); }
+            public void removeUpdate(DocumentEvent e) { syncUI(); }
+            public void changedUpdate(DocumentEvent e) { syncUI(); }
+        });
+        constraints = new GridBagConstraints();
+        constraints.gridx = 1;
+        constraints.gridy = 9;
+        constraints.weightx = 1;
+        constraints.gridwidth = GridBagConstraints.REMAINDER;
+        constraints.anchor = GridBagConstraints.WEST;
+        constraints.fill = GridBagConstraints.HORIZONTAL;
+        constraints.insets = new Insets(1, 0, 5, 10);
+        add(threadsField, constraints);
+
+        runnablesCheckBox = new JCheckBox() {
+            protected void fireActionPerformed(ActionEvent e) { syncUI(); }
+        };
+        setText(runnablesCheckBox, NbBundle.getMessage(SamplerCPUPanel.class,
+                "LBL_Runnables_S"), mnemonics); // NOI18N
+        runnablesCheckBox.setToolTipText(NbBundle.getMessage(
+                SamplerCPUPanel.class, "TOOLTIP_Runnables_S")); // NOI18N
+        runnablesCheckBox.setOpaque(false);
+        runnablesCheckBox.setBorder(referenceLabel.getBorder());
+        constraints = new GridBagConstraints();
+        constraints.gridx = 0;
+        constraints.gridy = 10;
+        constraints.gridwidth = GridBagConstraints.REMAINDER;
+        constraints.anchor = GridBagConstraints.WEST;
+        constraints.fill = GridBagConstraints.NONE;
+        constraints.insets = new Insets(1, 10, 10, 10);
+        add(runnablesCheckBox, constraints);
     }
     
     
@@ -466,8 +634,11 @@ public abstract class SamplerCPUPanel extends JPanel {
         public Component getListCellRendererComponent(JList list, Object value,
                 int index, boolean isSelected, boolean cellHasFocus) {
             
-            return renderer.getListCellRendererComponent(list, NumberFormat.
-                    getInstance().format(value), index, isSelected, cellHasFocus);
+            String text = Integer.valueOf(0).equals(value) ? NbBundle.getMessage(
+                    SamplerCPUPanel.class, "LBL_Unlimited") : // NOI18N
+                    NumberFormat.getInstance().format(value);
+            return renderer.getListCellRendererComponent(list, text, index,
+                    isSelected, cellHasFocus);
         }
 
     }
@@ -32,10 +32,9 @@ import com.sun.tools.visualvm.core.datasource.Storage;
 import com.sun.tools.visualvm.core.datasupport.DataChangeListener;
 import com.sun.tools.visualvm.core.datasupport.DataChangeEvent;
 import com.sun.tools.visualvm.core.snapshot.Snapshot;
+import com.sun.tools.visualvm.core.snapshot.SnapshotsCatalog;
 import com.sun.tools.visualvm.core.ui.DataSourceWindowManager;
 import java.io.File;
-import java.util.Collections;
-import java.util.HashSet;
 import java.util.Set;
 import org.openide.util.RequestProcessor;
 
@@ -46,6 +45,13 @@ import org.openide.util.RequestProcessor;
  */
 final class ProfilerSnapshotProvider {
     
+    private static final SnapshotsCatalog.SnapshotFactory<ProfilerSnapshot> SNAPSHOT_FACTORY =
+            new SnapshotsCatalog.SnapshotFactory<ProfilerSnapshot>() {
+        public ProfilerSnapshot createSnapshot(File file, DataSource owner) {
+            return ProfilerSnapshot.createSnapshot(file, owner);
+        }
+    };
+    
     void createSnapshot(File snapshotFile, Application application, final boolean openView) {
         final ProfilerSnapshot snapshot = ProfilerSnapshot.createSnapshot(snapshotFile, application);
         application.getRepository().addDataSource(snapshot);
@@ -68,28 +74,20 @@ final class ProfilerSnapshotProvider {
         if (snapshot instanceof ProfilerSnapshot) return;
         File snapshotFile = snapshot.getFile();
         if (snapshotFile != null && snapshotFile.isDirectory()) {
-            Set<ProfilerSnapshot> snapshots =findSnapshots(snapshotFile, snapshot);
-            snapshot.getRepository().addDataSources(snapshots);
+            registerSnapshots(snapshotFile, snapshot);
         }
     }
     
     private void processNewApplication(Application application) {
         Storage storage = application.getStorage();
         if (storage.directoryExists()) {
-            Set<ProfilerSnapshot> snapshots = findSnapshots(storage.getDirectory(),application);
-            application.getRepository().addDataSources(snapshots);
+            registerSnapshots(storage.getDirectory(), application);
         }
     }
     
-    private Set<ProfilerSnapshot> findSnapshots(File directory,DataSource app) {
-        File[] files = directory.listFiles(
-                ProfilerSnapshotsSupport.getInstance().getCategory().getFilenameFilter());
-        if (files == null) return Collections.EMPTY_SET;
-        Set<ProfilerSnapshot> snapshots = new HashSet(files.length);
-        for (File file : files) {
-            snapshots.add(ProfilerSnapshot.createSnapshot(file, app));
-        }
-        return snapshots;
+    private void registerSnapshots(File directory, DataSource app) {
+        SnapshotsCatalog.sharedInstance().registerSnapshots(app, directory,
+                ProfilerSnapshotsSupport.getInstance().getCategory(), SNAPSHOT_FACTORY);
     }
     
     
@@ -25,6 +25,7 @@
 
 package com.sun.tools.visualvm.sampler;
 
+import com.sun.tools.visualvm.core.scheduler.RefreshGovernor;
 import com.sun.tools.visualvm.core.ui.components.DataViewComponent;
 import java.util.Timer;
 import org.netbeans.lib.profiler.common.ProfilingSettings;
@@ -46,21 +47,68 @@ public abstract class AbstractSamplerSupport {
 
     protected abstract Timer getTimer();
 
+    /**
+     * Returns the target whose refresh budget the refreshers of this support
+     * share, typically the sampled Application.
+     */
+    protected Object getRefreshTarget() {
+        return null;
+    }
+
 
     public static abstract class Refresher {
         private static final long REFRESH_THRESHOLD = 100;
         private long lastRefresh;
+        private RefresherClient governorClient;
 
         public synchronized final void refresh() {
+            refresh(REFRESH_THRESHOLD);
+        }
+
+        /**
+         * Refreshes on a tick of the periodic refresh timer. Ticks are skipped
+         * while the refresher is slowed down by the RefreshGovernor.
+         */
+        public synchronized final void periodicRefresh() {
+            long threshold = REFRESH_THRESHOLD;
+            if (governorClient != null) {
+                boolean showing = checkRefresh();
+                governorClient.tick(getRefreshRate(), showing);
+                if (!showing) return;
+                if (governorClient.isThrottled()) threshold = Math.max(threshold,
+                        governorClient.getEffectiveInterval() - REFRESH_THRESHOLD);
+            }
+            refresh(threshold);
+        }
+
+        private void refresh(long threshold) {
             if (checkRefresh()) {
                 long currentTime = System.currentTimeMillis();
-                if (currentTime - lastRefresh >= REFRESH_THRESHOLD) {
+                if (currentTime - lastRefresh >= threshold) {
                     lastRefresh = currentTime;
                     doRefresh();
                 }
             }
         }
 
+        /**
+         * Registers the refresher with the RefreshGovernor.
+         */
+        public synchronized final void register(Object target, String name) {
+            if (governorClient != null) return;
+            governorClient = new RefresherClient(target, name);
+            RefreshGovernor.sharedInstance().register(governorClient);
+        }
+
+        /**
+         * Unregisters the refresher from the RefreshGovernor.
+         */
+        public synchronized final void unregister() {
+            if (governorClient == null) return;
+            RefreshGovernor.sharedInstance().unregister(governorClient);
+            governorClient = null;
+        }
+
         public abstract void setRefreshRate(int refreshRate);
         public abstract int getRefreshRate();
 
@@ -68,4 +116,38 @@ public abstract class AbstractSamplerSupport {
         protected abstract void doRefresh();
     }
 
+
+    // Refresher state is sampled on the timer ticks, the governor reads it in the scheduler thread
+    private static class RefresherClient extends RefreshGovernor.Client {
+        // ticks are missing for a while after the timer is stopped
+        private static final long INACTIVE_THRESHOLD = 5000;
+
+        private volatile long lastTick;
+        private volatile int refreshRate;
+        private volatile boolean showing;
+
+        RefresherClient(Object target, String name) {
+            super(target, name);
+        }
+
+        void tick(int rate, boolean visible) {
+            boolean changed = rate != refreshRate || visible != showing ||
+                              getRequestedInterval() <= 0;
+            lastTick = System.currentTimeMillis();
+            refreshRate = rate;
+            showing = visible;
+            if (changed) RefreshGovernor.sharedInstance().update();
+        }
+
+        public int getRequestedInterval() {
+            int rate = refreshRate;
+            long idle = System.currentTimeMillis() - lastTick;
+            return idle > Math.max(INACTIVE_THRESHOLD, 3L * rate) ? 0 : rate;
+        }
+
+        public boolean isForeground() {
+            return showing;
+        }
+    }
+
 }
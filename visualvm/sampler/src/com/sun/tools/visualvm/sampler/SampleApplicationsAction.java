@@ -0,0 +1,166 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.sampler;
+
+import com.sun.tools.visualvm.application.Application;
+import com.sun.tools.visualvm.application.jvm.JvmFactory;
+import com.sun.tools.visualvm.core.datasource.DataSource;
+import com.sun.tools.visualvm.core.datasource.DataSourceRepository;
+import com.sun.tools.visualvm.core.datasupport.Stateful;
+import com.sun.tools.visualvm.core.ui.DataSourceWindowManager;
+import com.sun.tools.visualvm.core.ui.actions.MultiDataSourceAction;
+import com.sun.tools.visualvm.profiling.snapshot.ProfilerSnapshot;
+import com.sun.tools.visualvm.sampler.cpu.MergedCPUSampler;
+import java.awt.Dialog;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.JButton;
+import javax.swing.SwingUtilities;
+import org.netbeans.lib.profiler.results.cpu.CPUResultsSnapshot;
+import org.netbeans.modules.profiler.LoadedSnapshot;
+import org.openide.DialogDescriptor;
+import org.openide.DialogDisplayer;
+import org.openide.NotifyDescriptor;
+import org.openide.util.NbBundle;
+import org.openide.util.RequestProcessor;
+
+/**
+ * Samples CPU of several applications at once and merges the results. For a
+ * single selected application all available applications with the same main
+ * class are sampled.
+ */
+final class SampleApplicationsAction extends MultiDataSourceAction<Application> {
+
+    private static final Logger LOGGER = Logger.getLogger(SampleApplicationsAction.class.getName());
+
+    private static final int SAMPLING_RATE = 100;
+
+    private static SampleApplicationsAction instance;
+
+    public static synchronized SampleApplicationsAction instance() {
+        if (instance == null)
+            instance = new SampleApplicationsAction();
+        return instance;
+    }
+
+
+    protected void actionPerformed(final Set<Application> selected, ActionEvent actionEvent) {
+        RequestProcessor.getDefault().post(new Runnable() {
+            public void run() {
+                final List<Application> applications = selected.size() == 1 ?
+                        getSimilarApplications(selected.iterator().next()) :
+                        new ArrayList<Application>(selected);
+                SwingUtilities.invokeLater(new Runnable() {
+                    public void run() { openSession(applications); }
+                });
+            }
+        });
+    }
+
+    protected boolean isEnabled(Set<Application> applications) {
+        for (Application application : applications)
+            if (!SamplerSupport.getInstance().supportsProfiling(application)) return false;
+        return true;
+    }
+
+
+    private static List<Application> getSimilarApplications(Application application) {
+        List<Application> applications = new ArrayList<Application>();
+        applications.add(application);
+        String mainClass = JvmFactory.getJVMFor(application).getMainClass();
+        if (mainClass == null || mainClass.length() == 0) return applications;
+
+        Set<Application> available = DataSourceRepository.sharedInstance().getDataSources(Application.class);
+        for (Application other : available) {
+            if (other == application || other.getState() != Stateful.STATE_AVAILABLE) continue;
+            if (mainClass.equals(JvmFactory.getJVMFor(other).getMainClass())) applications.add(other);
+        }
+        return applications;
+    }
+
+    private static void openSession(List<Application> applications) {
+        final Application master = applications.get(0);
+        final MergedCPUSampler sampler = new MergedCPUSampler(applications, SAMPLING_RATE);
+
+        JButton snapshotButton = new JButton(NbBundle.getMessage(
+                SampleApplicationsAction.class, "LBL_Snapshot")); // NOI18N
+        snapshotButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) { takeSnapshot(sampler, master); }
+        });
+
+        DialogDescriptor dd = new DialogDescriptor(sampler.getComponent(),
+                NbBundle.getMessage(SampleApplicationsAction.class, "LBL_Sample_Applications", // NOI18N
+                Integer.toString(sampler.getApplicationsCount())), false,
+                new Object[] { snapshotButton, DialogDescriptor.CLOSED_OPTION },
+                DialogDescriptor.CLOSED_OPTION, 0, null, null);
+        dd.setClosingOptions(new Object[] { DialogDescriptor.CLOSED_OPTION });
+        Dialog dialog = DialogDisplayer.getDefault().createDialog(dd);
+        dialog.addWindowListener(new WindowAdapter() {
+            public void windowClosed(WindowEvent e) { sampler.stop(); }
+        });
+        sampler.start();
+        dialog.setVisible(true);
+    }
+
+    private static void takeSnapshot(final MergedCPUSampler sampler, final Application master) {
+        RequestProcessor.getDefault().post(new Runnable() {
+            public void run() {
+                LoadedSnapshot ls = null;
+                try {
+                    ls = sampler.takeNPSSnapshot(master.getStorage().getDirectory());
+                } catch (CPUResultsSnapshot.NoDataAvailableException e) {
+                    DialogDisplayer.getDefault().notifyLater(new NotifyDescriptor.Message(NbBundle.getMessage(
+                            SampleApplicationsAction.class, "MSG_No_save_data_cpu"), NotifyDescriptor.WARNING_MESSAGE)); // NOI18N
+                } catch (Throwable t) {
+                    LOGGER.log(Level.WARNING, "Failed to save merged profiler snapshot for " + master, t); // NOI18N
+                }
+                if (ls != null) {
+                    final ProfilerSnapshot ps = ProfilerSnapshot.createSnapshot(ls.getFile(), master);
+                    master.getRepository().addDataSource(ps);
+                    DataSource.EVENT_QUEUE.post(new Runnable() {
+                        public void run() {
+                            DataSourceWindowManager.sharedInstance().openDataSource(ps);
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+
+    private SampleApplicationsAction() {
+        super(Application.class);
+        putValue(NAME, NbBundle.getMessage(SampleApplicationsAction.class, "MSG_Sample_Applications")); // NOI18N
+        putValue(SHORT_DESCRIPTION, NbBundle.getMessage(SampleApplicationsAction.class, "DESCR_Sample_Applications")); // NOI18N
+    }
+}
@@ -25,6 +25,7 @@
 
 package com.sun.tools.visualvm.sampler;
 
+import com.sun.tools.visualvm.sampler.cpu.BackgroundCPUSampler;
 import com.sun.tools.visualvm.sampler.cpu.ThreadInfoProvider;
 import com.sun.tools.visualvm.sampler.cpu.ThreadsCPU;
 import com.sun.tools.visualvm.sampler.memory.MemorySettingsSupport;
@@ -37,12 +38,15 @@ import com.sun.tools.visualvm.core.datasource.DataSource;
 import com.sun.tools.visualvm.core.datasource.descriptor.DataSourceDescriptorFactory;
 import com.sun.tools.visualvm.core.datasupport.Stateful;
 import com.sun.tools.visualvm.core.datasupport.Utils;
+import com.sun.tools.visualvm.core.scheduler.RefreshGovernor;
 import com.sun.tools.visualvm.core.ui.DataSourceWindowManager;
 import com.sun.tools.visualvm.core.ui.components.DataViewComponent;
 import com.sun.tools.visualvm.core.ui.components.ScrollableContainer;
 import com.sun.tools.visualvm.core.ui.components.Spacer;
 import com.sun.tools.visualvm.heapdump.HeapDumpSupport;
+import com.sun.tools.visualvm.profiling.presets.PresetProfilingProvider;
 import com.sun.tools.visualvm.profiling.presets.PresetSelector;
+import com.sun.tools.visualvm.profiling.presets.ProfilerPreset;
 import com.sun.tools.visualvm.profiling.presets.ProfilerPresets;
 import com.sun.tools.visualvm.profiling.snapshot.ProfilerSnapshot;
 import com.sun.tools.visualvm.sampler.cpu.CPUSamplerSupport;
@@ -80,10 +84,15 @@ import java.util.logging.Logger;
 import javax.swing.BorderFactory;
 import javax.swing.ImageIcon;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JComboBox;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JToggleButton;
 import javax.swing.SwingUtilities;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import org.netbeans.lib.profiler.common.ProfilingSettings;
 import org.netbeans.lib.profiler.common.ProfilingSettingsPresets;
 import org.netbeans.lib.profiler.results.cpu.CPUResultsSnapshot;
 import org.netbeans.lib.profiler.results.memory.SampledMemoryResultsSnapshot;
@@ -92,6 +101,7 @@ import org.netbeans.modules.profiler.ResultsManager;
 import org.openide.DialogDisplayer;
 import org.openide.NotifyDescriptor;
 import org.openide.util.ImageUtilities;
+import org.openide.util.Lookup;
 import org.openide.util.NbBundle;
 import org.openide.util.RequestProcessor;
 
@@ -106,6 +116,8 @@ final class SamplerImpl {
 
     private static enum State { TERMINATED, INACTIVE, CPU, MEMORY, TRANSITION };
 
+    private static final int[] BACKGROUND_MINUTES = new int[] { 1, 5, 10, 15 };
+
     private Application application;
     private Timer timer;
 
@@ -114,8 +126,9 @@ final class SamplerImpl {
     private String memoryStatus = NbBundle.getMessage(SamplerImpl.class, "MSG_Checking_Availability"); // NOI18N
 
     private boolean cpuProfilingSupported;
-    private AbstractSamplerSupport cpuSampler;
+    private CPUSamplerSupport cpuSampler;
     private CPUSettingsSupport cpuSettings;
+    private BackgroundCPUSampler backgroundSampler;
 
     private boolean memoryProfilingSupported;
     private AbstractSamplerSupport memorySampler;
@@ -129,6 +142,14 @@ final class SamplerImpl {
 
     private State state = State.TRANSITION;
 
+    private final ChangeListener refreshListener = new ChangeListener() {
+        public void stateChanged(ChangeEvent e) {
+            SwingUtilities.invokeLater(new Runnable() {
+                public void run() { updateStatus(); }
+            });
+        }
+    };
+
 
     SamplerImpl(Application application) {
         this.application = application;
@@ -164,6 +185,7 @@ final class SamplerImpl {
     DataViewComponent.MasterView getMasterView() {
         initComponents();
         setState(State.INACTIVE);
+        RefreshGovernor.sharedInstance().addChangeListener(refreshListener);
 
         final HierarchyListener hl = new HierarchyListener() {
             public void hierarchyChanged(HierarchyEvent e) {
@@ -208,11 +230,13 @@ final class SamplerImpl {
 
     private synchronized void terminate() {
         State currentState = getState();
+        RefreshGovernor.sharedInstance().removeChangeListener(refreshListener);
 
         if (cpuSampler != null) {
             if (State.CPU.equals(currentState)) cpuSampler.stopSampling();
             cpuSampler.terminate();
         }
+        if (backgroundSampler != null) backgroundSampler.stop();
         if (memorySampler != null) {
             if (State.MEMORY.equals(currentState)) memorySampler.stopSampling();
             memorySampler.terminate();
@@ -292,7 +316,34 @@ final class SamplerImpl {
                     break;
             }
 
+            String refreshRates = null;
+            if (State.CPU.equals(getState()) || State.MEMORY.equals(getState())) {
+                StringBuilder builder = new StringBuilder();
+                boolean throttled = false;
+                for (RefreshGovernor.Client client : RefreshGovernor.sharedInstance().
+                                                     getClients(application)) {
+                    int requested = client.getRequestedInterval();
+                    if (requested <= 0) continue;
+                    Double effective = Double.valueOf(client.getEffectiveInterval() / 1000d);
+                    builder.append("<br>"); // NOI18N
+                    if (client.isThrottled()) {
+                        throttled = true;
+                        builder.append(NbBundle.getMessage(SamplerImpl.class,
+                                "LBL_Refresh_rate_slowed", client.getName(), effective, // NOI18N
+                                Double.valueOf(requested / 1000d)));
+                    } else {
+                        builder.append(NbBundle.getMessage(SamplerImpl.class,
+                                "LBL_Refresh_rate", client.getName(), effective)); // NOI18N
+                    }
+                }
+                if (builder.length() > 0) refreshRates = "<html>" + NbBundle.getMessage( // NOI18N
+                        SamplerImpl.class, "LBL_Refresh_rates") + builder + "</html>"; // NOI18N
+                if (throttled) status = NbBundle.getMessage(SamplerImpl.class,
+                        "MSG_Refresh_slowed", status); // NOI18N
+            }
+
             statusValueLabel.setText(status);
+            statusValueLabel.setToolTipText(refreshRates);
         }
     }
 
@@ -371,6 +422,14 @@ final class SamplerImpl {
                     break;
             }
         }
+        if (backgroundCheckBox != null) {
+            boolean available = backgroundSampler != null && !State.TERMINATED.equals(getState());
+            boolean running = available && backgroundSampler.isRunning();
+            backgroundCheckBox.setEnabled(available);
+            backgroundCheckBox.setSelected(running);
+            minutesCombo.setEnabled(running);
+            backgroundSnapshotButton.setEnabled(running);
+        }
     }
 
 
@@ -390,6 +449,7 @@ final class SamplerImpl {
                         RequestProcessor.getDefault().post(new Runnable() {
                             public void run() {
                                 cpuSettings.saveSettings();
+                                cpuSampler.setDumpSettings(cpuSettings.getDumpSettings());
                                 setState(cpuSampler.startSampling(
                                          cpuSettings.getSettings(),
                                          cpuSettings.getSamplingRate(),
@@ -509,15 +569,7 @@ final class SamplerImpl {
                                 } catch (Throwable t) {
                                     LOGGER.log(Level.WARNING, "Failed to save profiler snapshot for " + application, t); // NOI18N
                                 }
-                                if (ls != null) {
-                                    final ProfilerSnapshot ps = ProfilerSnapshot.createSnapshot(ls.getFile(), application);
-                                    application.getRepository().addDataSource(ps);
-                                    if (openView) DataSource.EVENT_QUEUE.post(new Runnable() {
-                                        public void run() {
-                                            DataSourceWindowManager.sharedInstance().openDataSource(ps);
-                                        }
-                                    });
-                                }
+                                if (ls != null) addCpuSnapshot(ls, openView);
                             }
                         });
                     }
@@ -542,7 +594,33 @@ final class SamplerImpl {
                         }
                     };
                     
-                cpuSampler = new CPUSamplerSupport(ti, tcpu, snapshotDumper, threadDumper) {
+                final PresetProfilingProvider profilingProvider =
+                        Lookup.getDefault().lookup(PresetProfilingProvider.class);
+                CPUSamplerSupport.HotSpotsProfiler hotSpotsProfiler = profilingProvider == null ? null :
+                    new CPUSamplerSupport.HotSpotsProfiler() {
+                        public void profileHotSpots(final ProfilerPreset preset) {
+                            RequestProcessor.getDefault().post(new Runnable() {
+                                public void run() {
+                                    if (!profilingProvider.supportsProfiling(application)) {
+                                        DialogDisplayer.getDefault().notifyLater(new NotifyDescriptor.Message(NbBundle.getMessage(
+                                                SamplerImpl.class, "MSG_Hot_spots_unsupported"), NotifyDescriptor.WARNING_MESSAGE)); // NOI18N
+                                        return;
+                                    }
+                                    // sampling would distort the instrumented results
+                                    SwingUtilities.invokeLater(new Runnable() {
+                                        public void run() { handleStopProfiling(); }
+                                    });
+                                    profilingProvider.profileCPU(application, preset);
+                                }
+                            });
+                        }
+                    };
+                    
+                cpuSampler = new CPUSamplerSupport(ti, tcpu, snapshotDumper, threadDumper, hotSpotsProfiler) {
+                    protected Timer getTimer() { return SamplerImpl.this.getTimer(); }
+                    protected Object getRefreshTarget() { return application; }
+                };
+                backgroundSampler = new BackgroundCPUSampler(ti) {
                     protected Timer getTimer() { return SamplerImpl.this.getTimer(); }
                 };
                 SwingUtilities.invokeLater(new Runnable() {
@@ -577,6 +655,49 @@ final class SamplerImpl {
         });
     }
 
+    private void addCpuSnapshot(LoadedSnapshot ls, boolean openView) {
+        final ProfilerSnapshot ps = ProfilerSnapshot.createSnapshot(ls.getFile(), application);
+        application.getRepository().addDataSource(ps);
+        if (openView) DataSource.EVENT_QUEUE.post(new Runnable() {
+            public void run() {
+                DataSourceWindowManager.sharedInstance().openDataSource(ps);
+            }
+        });
+    }
+
+    private void handleBackgroundSampling() {
+        if (backgroundSampler == null) return;
+        if (backgroundCheckBox.isSelected()) {
+            backgroundSampler.setRetention(BACKGROUND_MINUTES[minutesCombo.getSelectedIndex()]);
+            backgroundSampler.start();
+        } else {
+            backgroundSampler.stop();
+        }
+        updateButtons();
+    }
+
+    private void handleBackgroundSnapshot() {
+        final BackgroundCPUSampler sampler = backgroundSampler;
+        if (sampler == null || !sampler.isRunning()) return;
+        final int minutes = BACKGROUND_MINUTES[minutesCombo.getSelectedIndex()];
+        final ProfilingSettings settings = cpuSettings.getSettings();
+        RequestProcessor.getDefault().post(new Runnable() {
+            public void run() {
+                LoadedSnapshot ls = null;
+                try {
+                    ls = sampler.takeNPSSnapshot(application.getStorage().getDirectory(),
+                                                 minutes, settings);
+                } catch (CPUResultsSnapshot.NoDataAvailableException e) {
+                    DialogDisplayer.getDefault().notifyLater(new NotifyDescriptor.Message(NbBundle.getMessage(
+                            SamplerImpl.class, "MSG_No_save_data_cpu"), NotifyDescriptor.WARNING_MESSAGE)); // NOI18N
+                } catch (Throwable t) {
+                    LOGGER.log(Level.WARNING, "Failed to save background CPU snapshot for " + application, t); // NOI18N
+                }
+                if (ls != null) addCpuSnapshot(ls, true);
+            }
+        });
+    }
+
     private void initializeMemorySampling() {
         RequestProcessor.getDefault().post(new Runnable() {
             public void run() {
@@ -712,6 +833,7 @@ final class SamplerImpl {
                                 }
                                 if (ls != null) {
                                     final ProfilerSnapshot ps = ProfilerSnapshot.createSnapshot(ls.getFile(), application);
+                                    dumper.saveHistogram(ps);
                                     application.getRepository().addDataSource(ps);
                                     if (openView) DataSource.EVENT_QUEUE.post(new Runnable() {
                                         public void run() {
@@ -722,6 +844,9 @@ final class SamplerImpl {
                             }
                         });
                     }
+                    public File getHistogramsDirectory() {
+                        return application.getStorage().getDirectory();
+                    }
                 };
                 MemorySamplerSupport.HeapDumper heapDumper = noHeapDump != null ? null :
                     new MemorySamplerSupport.HeapDumper() {
@@ -732,6 +857,7 @@ final class SamplerImpl {
                     };
                 memorySampler = new MemorySamplerSupport(jvm, hasPermGenHisto, threadsMemory, memoryBean, snapshotDumper, heapDumper) {
                     protected Timer getTimer() { return SamplerImpl.this.getTimer(); }
+                    protected Object getRefreshTarget() { return application; }
                 };
                 SwingUtilities.invokeLater(new Runnable() {
                     public void run() {
@@ -947,6 +1073,88 @@ final class SamplerImpl {
         constraints.insets = new Insets(0, 0, 0, 0);
         view.add(Spacer.create(), constraints);
 
+        // backgroundLabel
+        backgroundLabel = new JLabel(NbBundle.getMessage(SamplerImpl.class, "LBL_Background")); // NOI18N
+        backgroundLabel.setFont(backgroundLabel.getFont().deriveFont(Font.BOLD));
+        backgroundLabel.setOpaque(false);
+        constraints = new GridBagConstraints();
+        constraints.gridx = 0;
+        constraints.gridy = 4;
+        constraints.gridwidth = 1;
+        constraints.fill = GridBagConstraints.NONE;
+        constraints.anchor = GridBagConstraints.WEST;
+        constraints.insets = new Insets(0, 8, 4, 0);
+        view.add(backgroundLabel, constraints);
+
+        // backgroundCheckBox
+        backgroundCheckBox = new JCheckBox(NbBundle.getMessage(SamplerImpl.class, "LBL_Background_cpu")); // NOI18N
+        backgroundCheckBox.setToolTipText(NbBundle.getMessage(SamplerImpl.class, "TOOLTIP_Background_cpu")); // NOI18N
+        backgroundCheckBox.setOpaque(false);
+        backgroundCheckBox.setEnabled(false);
+        backgroundCheckBox.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) { handleBackgroundSampling(); }
+        });
+        constraints = new GridBagConstraints();
+        constraints.gridx = 2;
+        constraints.gridy = 4;
+        constraints.gridwidth = 2;
+        constraints.fill = GridBagConstraints.NONE;
+        constraints.anchor = GridBagConstraints.WEST;
+        constraints.insets = new Insets(0, 4, 4, 0);
+        view.add(backgroundCheckBox, constraints);
+
+        // minutesCombo
+        String[] minutesItems = new String[BACKGROUND_MINUTES.length];
+        for (int i = 0; i < minutesItems.length; i++)
+            minutesItems[i] = NbBundle.getMessage(SamplerImpl.class, "LBL_Last_minutes", // NOI18N
+                                                  Integer.toString(BACKGROUND_MINUTES[i]));
+        minutesCombo = new JComboBox(minutesItems);
+        minutesCombo.setSelectedIndex(1);
+        minutesCombo.setEnabled(false);
+        minutesCombo.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                // keep enough samples for the selected period
+                if (backgroundSampler != null)
+                    backgroundSampler.setRetention(BACKGROUND_MINUTES[minutesCombo.getSelectedIndex()]);
+            }
+        });
+        constraints = new GridBagConstraints();
+        constraints.gridx = 4;
+        constraints.gridy = 4;
+        constraints.gridwidth = 1;
+        constraints.fill = GridBagConstraints.NONE;
+        constraints.anchor = GridBagConstraints.WEST;
+        constraints.insets = new Insets(0, 8, 4, 0);
+        view.add(minutesCombo, constraints);
+
+        // backgroundSnapshotButton
+        backgroundSnapshotButton = new JButton(NbBundle.getMessage(SamplerImpl.class, "LBL_Background_snapshot")); // NOI18N
+        backgroundSnapshotButton.setToolTipText(NbBundle.getMessage(SamplerImpl.class, "TOOLTIP_Background_snapshot")); // NOI18N
+        backgroundSnapshotButton.setEnabled(false);
+        backgroundSnapshotButton.setDefaultCapable(false);
+        backgroundSnapshotButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) { handleBackgroundSnapshot(); }
+        });
+        constraints = new GridBagConstraints();
+        constraints.gridx = 5;
+        constraints.gridy = 4;
+        constraints.gridwidth = 1;
+        constraints.fill = GridBagConstraints.NONE;
+        constraints.anchor = GridBagConstraints.WEST;
+        constraints.insets = new Insets(0, 8, 4, 0);
+        view.add(backgroundSnapshotButton, constraints);
+
+        // filler3
+        constraints = new GridBagConstraints();
+        constraints.gridx = 6;
+        constraints.gridy = 4;
+        constraints.weightx = 1;
+        constraints.gridwidth = GridBagConstraints.REMAINDER;
+        constraints.fill = GridBagConstraints.HORIZONTAL;
+        constraints.anchor = GridBagConstraints.NORTHWEST;
+        constraints.insets = new Insets(0, 0, 0, 0);
+        view.add(Spacer.create(), constraints);
+
         Dimension cpuD     = cpuButton.getPreferredSize();
         Dimension memoryD  = memoryButton.getPreferredSize();
         Dimension stopD    = stopButton.getPreferredSize();
@@ -969,6 +1177,10 @@ final class SamplerImpl {
     private JButton stopButton;
     private JLabel statusLabel;
     private HTMLLabel statusValueLabel;
+    private JLabel backgroundLabel;
+    private JCheckBox backgroundCheckBox;
+    private JComboBox minutesCombo;
+    private JButton backgroundSnapshotButton;
 
     private static int refLabelHeight = -1;
     private static int getRefLabelHeight() {
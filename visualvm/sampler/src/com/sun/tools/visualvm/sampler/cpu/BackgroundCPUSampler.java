@@ -0,0 +1,150 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.sampler.cpu;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ThreadInfo;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.netbeans.lib.profiler.common.ProfilingSettings;
+import org.netbeans.lib.profiler.results.cpu.CPUResultsSnapshot.NoDataAvailableException;
+import org.netbeans.lib.profiler.results.cpu.StackTraceSnapshotBuilder;
+import org.netbeans.modules.profiler.LoadedSnapshot;
+
+/**
+ * Low-rate CPU sampler which keeps the recent thread dumps of an application
+ * in a bounded buffer. A regular CPU snapshot of the last minutes can be
+ * created at any time without starting the CPU sampler in advance. The buffer
+ * grows to retain the dumps of the retention time, up to its maximum capacity.
+ * The Sampler view runs the background sampling of its application while the
+ * view is open and the sampling is enabled in it.
+ */
+public abstract class BackgroundCPUSampler {
+
+    private static final Logger LOGGER = Logger.getLogger(BackgroundCPUSampler.class.getName());
+
+    /** Default sampling rate in milliseconds */
+    public static final int DEFAULT_SAMPLING_RATE = 1000;
+    /** Default maximum number of retained thread samples, ~36MB of buffer memory */
+    public static final int DEFAULT_MAX_CAPACITY = 2 * 1024 * 1024;
+    /** Default retention time in minutes */
+    public static final int DEFAULT_RETENTION = 5;
+
+    private final ThreadInfoProvider threadInfoProvider;
+    private final StackSamplesBuffer buffer;
+    private final int samplingRate;
+
+    private TimerTask samplerTask;
+
+
+    public BackgroundCPUSampler(ThreadInfoProvider tip) {
+        this(tip, DEFAULT_SAMPLING_RATE, DEFAULT_MAX_CAPACITY);
+    }
+
+    public BackgroundCPUSampler(ThreadInfoProvider tip, int samplingRate, int maxCapacity) {
+        threadInfoProvider = tip;
+        this.samplingRate = samplingRate;
+        buffer = new StackSamplesBuffer(maxCapacity);
+        setRetention(DEFAULT_RETENTION);
+    }
+
+
+    /**
+     * Sets the time period for which the samples should be retained. Samples
+     * already dropped from the buffer are not restored by a longer period.
+     *
+     * @param minutes retention time in minutes
+     */
+    public void setRetention(int minutes) {
+        buffer.setRetention(minutes * 60 * 1000000000L);
+    }
+
+
+    public synchronized void start() {
+        if (samplerTask != null) return;
+        samplerTask = new TimerTask() {
+            public void run() {
+                try {
+                    ThreadInfo[] infos = threadInfoProvider.dumpAllThreads();
+                    buffer.addDump(infos, System.nanoTime());
+                } catch (Throwable t) {
+                    LOGGER.log(Level.INFO, "Background CPU sampling failed", t); // NOI18N
+                    stop();
+                }
+            }
+        };
+        getTimer().scheduleAtFixedRate(samplerTask, 0, samplingRate);
+    }
+
+    public synchronized void stop() {
+        if (samplerTask != null) {
+            samplerTask.cancel();
+            samplerTask = null;
+        }
+        buffer.clear();
+    }
+
+    public synchronized boolean isRunning() {
+        return samplerTask != null;
+    }
+
+    /**
+     * Returns the time in milliseconds covered by the retained samples.
+     */
+    public long getBufferedTime() {
+        long first = buffer.getFirstTimestamp();
+        return first == -1 ? 0 : (System.nanoTime() - first) / 1000000;
+    }
+
+    /**
+     * Creates and saves a CPU snapshot from the samples of the last minutes.
+     *
+     * @param directory directory to save the snapshot to
+     * @param minutes number of minutes to include in the snapshot
+     * @param settings settings providing the instrumentation filter
+     * @return saved snapshot
+     */
+    public LoadedSnapshot takeNPSSnapshot(File directory, int minutes, ProfilingSettings settings)
+            throws IOException, NoDataAvailableException {
+        final StackFilter stackFilter = new StackFilter(CPUSamplerSupport.createPackageFilter(settings));
+        final StackTraceSnapshotBuilder builder =
+                new StackTraceSnapshotBuilder(1, CPUSamplerSupport.createNoneFilter());
+        long since = System.nanoTime() - minutes * 60 * 1000000000L;
+        buffer.replay(since, new StackSamplesBuffer.DumpVisitor() {
+            public void visit(ThreadInfo[] infos, long timestamp) {
+                builder.addStacktrace(stackFilter.filter(infos), timestamp);
+            }
+        });
+        return CPUSamplerSupport.saveSnapshot(builder, directory);
+    }
+
+
+    protected abstract Timer getTimer();
+
+}
@@ -0,0 +1,94 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.sampler.cpu;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ThreadInfo;
+import org.netbeans.lib.profiler.results.cpu.CPUResultsSnapshot.NoDataAvailableException;
+import org.netbeans.lib.profiler.results.cpu.StackTraceSnapshotBuilder;
+import org.netbeans.modules.profiler.LoadedSnapshot;
+
+/**
+ * Non-visual CPU sampling of a single application. Each sample dumps the
+ * threads once, the stacks are added to the snapshot builder and the dump is
+ * returned to the caller so it can be reused for other purposes, for example
+ * tracking thread states, without querying the application again.
+ */
+public final class CPURecording {
+
+    private final ThreadInfoProvider threadInfoProvider;
+    private final ThreadInfoProvider.DumpSettings dumpSettings;
+    private final StackTraceSnapshotBuilder builder;
+    private int samplesCount;
+
+    /**
+     * Creates new CPURecording.
+     *
+     * @param threadInfoProvider initialized ThreadInfoProvider of the application
+     * @param dumpSettings selection of the sampled threads, may be null
+     */
+    public CPURecording(ThreadInfoProvider threadInfoProvider, ThreadInfoProvider.DumpSettings dumpSettings) {
+        this.threadInfoProvider = threadInfoProvider;
+        this.dumpSettings = dumpSettings;
+
+        builder = new StackTraceSnapshotBuilder(1, CPUSamplerSupport.createNoneFilter());
+    }
+
+    /**
+     * Takes a single sample.
+     *
+     * @param timestamp timestamp of the sample in nanoseconds
+     * @return sampled threads, may contain null elements
+     */
+    public ThreadInfo[] sample(long timestamp) {
+        ThreadInfo[] infos = threadInfoProvider.dumpThreads(dumpSettings);
+        synchronized (builder) {
+            builder.addStacktrace(infos, timestamp);
+            samplesCount++;
+        }
+        return infos;
+    }
+
+    public int getSamplesCount() {
+        synchronized (builder) {
+            return samplesCount;
+        }
+    }
+
+    /**
+     * Creates and saves a CPU snapshot of all the samples taken so far.
+     *
+     * @param directory directory to save the snapshot to
+     * @return saved snapshot
+     */
+    public LoadedSnapshot saveSnapshot(File directory) throws IOException, NoDataAvailableException {
+        synchronized (builder) {
+            return CPUSamplerSupport.saveSnapshot(builder, directory);
+        }
+    }
+
+}
@@ -28,6 +28,7 @@ package com.sun.tools.visualvm.sampler.cpu;
 import com.sun.tools.visualvm.core.datasupport.Utils;
 import com.sun.tools.visualvm.core.options.GlobalPreferences;
 import com.sun.tools.visualvm.core.ui.components.DataViewComponent;
+import com.sun.tools.visualvm.profiling.presets.ProfilerPreset;
 import com.sun.tools.visualvm.sampler.AbstractSamplerSupport;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
@@ -62,6 +63,7 @@ public abstract class CPUSamplerSupport extends AbstractSamplerSupport {
     private final ThreadInfoProvider threadInfoProvider;
     private final SnapshotDumper snapshotDumper;
     private final ThreadDumper threadDumper;
+    private final HotSpotsProfiler hotSpotsProfiler;
 
     private Timer timer;
     private TimerTask samplerTask;
@@ -69,6 +71,9 @@ public abstract class CPUSamplerSupport extends AbstractSamplerSupport {
     private int refreshRate;
 
     private StackTraceSnapshotBuilder builder;
+    private SampledCallTree callTree;
+    private StackFilter stackFilter;
+    private volatile ThreadInfoProvider.DumpSettings dumpSettings;
 
     private volatile boolean sampleRunning;
     private final Object updateLock = new Object();
@@ -83,11 +88,13 @@ public abstract class CPUSamplerSupport extends AbstractSamplerSupport {
     private ThreadsCPUView threadCPUView;
     private ThreadsCPU threadsCPU;
 
-    public CPUSamplerSupport(ThreadInfoProvider tip, ThreadsCPU tcpu, SnapshotDumper snapshotDumper, ThreadDumper threadDumper) {
+    public CPUSamplerSupport(ThreadInfoProvider tip, ThreadsCPU tcpu, SnapshotDumper snapshotDumper,
+                             ThreadDumper threadDumper, HotSpotsProfiler hotSpotsProfiler) {
         threadInfoProvider = tip;
         threadsCPU = tcpu;
         this.snapshotDumper = snapshotDumper;
         this.threadDumper = threadDumper;
+        this.hotSpotsProfiler = hotSpotsProfiler;
 
         refreshRate = GlobalPreferences.sharedInstance().getMonitoredDataPoll() * 1000;
 
@@ -131,7 +138,7 @@ public abstract class CPUSamplerSupport extends AbstractSamplerSupport {
 
     public DataViewComponent.DetailsView[] getDetailsView() {
         if (detailsViews == null) {
-            cpuView = new CPUView(refresher, snapshotDumper, threadDumper);
+            cpuView = new CPUView(refresher, snapshotDumper, threadDumper, hotSpotsProfiler);
             detailsViews = new DataViewComponent.DetailsView[threadsCPU != null ? 2:1];
             detailsViews[0] = new DataViewComponent.DetailsView(NbBundle.getMessage(
                 CPUSamplerSupport.class, "LBL_Cpu_samples"), null, 10, cpuView, null); // NOI18N
@@ -149,38 +156,51 @@ public abstract class CPUSamplerSupport extends AbstractSamplerSupport {
         return detailsViews.clone();
     }
 
+    /**
+     * Sets the threads and stack depth to be sampled by the next sampling session.
+     */
+    public void setDumpSettings(ThreadInfoProvider.DumpSettings settings) {
+        dumpSettings = settings;
+    }
+
     public boolean startSampling(ProfilingSettings settings, int samplingRate, int refreshRate) {
-        InstrumentationFilter filter = new InstrumentationFilter();
-        SimpleFilter sf = (SimpleFilter)settings.getSelectedInstrumentationFilter();
-        filter.setFilterStrings(sf.getFilterValue());
-        filter.setFilterType(convertFilterType(sf.getFilterType()));
-        builder = snapshotDumper.getNewBuilder(filter);
+        // frames are filtered once by the StackFilter, the builder and the call tree get filtered stacks
+        stackFilter = new StackFilter(createPackageFilter(settings));
+        builder = snapshotDumper.getNewBuilder();
+        callTree = new SampledCallTree(PackagePrefixFilter.NONE, builder.collectionTwoTimeStamps());
                 
         refresher.setRefreshRate(refreshRate);
 
+        final SampledCallTree tree = callTree;
         SwingUtilities.invokeLater(new Runnable() {
             public void run() {
-                cpuView.setResultsPanel(new SampledLivePanel(builder));
+                cpuView.setResultsPanel(new SampledLivePanel(tree));
             }
         });
 
         if (timer == null) timer = getTimer();
-        samplerTask = new SamplerTask(builder);
+        samplerTask = new SamplerTask(stackFilter, builder, callTree);
 
         timer.scheduleAtFixedRate(samplerTask, 0, samplingRate);
         
         if (threadsCPU != null) {
             threadCPUTimer = new javax.swing.Timer(refreshRate, new ActionListener() {
                 public void actionPerformed(ActionEvent e) {
-                    threadCPURefresher.refresh();
+                    threadCPURefresher.periodicRefresh();
                 }
             });
             threadCPURefresher.setRefreshRate(refreshRate);
+            threadCPURefresher.register(getRefreshTarget(), NbBundle.getMessage(
+                    CPUSamplerSupport.class, "LBL_ThreadAlloc")); // NOI18N
         }
+        refresher.register(getRefreshTarget(), NbBundle.getMessage(
+                CPUSamplerSupport.class, "LBL_Cpu_samples")); // NOI18N
         return true;
     }
 
     public synchronized void stopSampling() {
+        refresher.unregister();
+        if (threadCPURefresher != null) threadCPURefresher.unregister();
         if (samplerTask != null) {
             samplerTask.cancel();
             samplerTask = null;
@@ -199,6 +219,8 @@ public abstract class CPUSamplerSupport extends AbstractSamplerSupport {
         if (cpuView != null) cpuView.terminate();
         if (threadCPUView != null) threadCPUView.terminate();
         builder = null;  // release data
+        callTree = null;
+        stackFilter = null;
     }
 
 
@@ -244,7 +266,39 @@ public abstract class CPUSamplerSupport extends AbstractSamplerSupport {
             });
     }
 
-    private int convertFilterType(int simpleFilterrType) {
+    // Filter of StackTraceSnapshotBuilder fed by stacks filtered by StackFilter
+    static InstrumentationFilter createNoneFilter() {
+        InstrumentationFilter filter = new InstrumentationFilter();
+        filter.setFilterType(InstrumentationFilter.INSTR_FILTER_NONE);
+        filter.setFilterStrings(""); // NOI18N
+        return filter;
+    }
+
+    static PackagePrefixFilter createPackageFilter(ProfilingSettings settings) {
+        SimpleFilter sf = (SimpleFilter)settings.getSelectedInstrumentationFilter();
+        return PackagePrefixFilter.create(sf.getFilterValue(), convertFilterType(sf.getFilterType()));
+    }
+
+    static LoadedSnapshot saveSnapshot(StackTraceSnapshotBuilder builder, File directory)
+            throws IOException, NoDataAvailableException {
+        long time = System.currentTimeMillis();
+        CPUResultsSnapshot snapshot = builder.createSnapshot(time);
+        LoadedSnapshot ls = new LoadedSnapshot(snapshot, ProfilingSettingsPresets.createCPUPreset(), null, null);
+        File file = Utils.getUniqueFile(directory,
+                ResultsManager.getDefault().getDefaultSnapshotFileName(ls),
+                "." + ResultsManager.SNAPSHOT_EXTENSION); // NOI18N
+        DataOutputStream dos = new DataOutputStream(new FileOutputStream(file));
+        try {
+            ls.save(dos);
+            ls.setFile(file);
+            ls.setSaved(true);
+        } finally {
+            dos.close();
+        }
+        return ls;
+    }
+
+    private static int convertFilterType(int simpleFilterrType) {
         if (simpleFilterrType == SimpleFilter.SIMPLE_FILTER_NONE) {
             return InstrumentationFilter.INSTR_FILTER_NONE;
         }
@@ -260,11 +314,15 @@ public abstract class CPUSamplerSupport extends AbstractSamplerSupport {
 
     private class SamplerTask extends TimerTask {
 
+        private final StackFilter stackFilter;
         private final StackTraceSnapshotBuilder builder;
+        private final SampledCallTree callTree;
         private final Set samplingThreads = new HashSet();
 
-        public SamplerTask(StackTraceSnapshotBuilder builder) {
+        public SamplerTask(StackFilter stackFilter, StackTraceSnapshotBuilder builder, SampledCallTree callTree) {
+            this.stackFilter = stackFilter;
             this.builder = builder;
+            this.callTree = callTree;
         }
 
         public void run() {
@@ -272,7 +330,7 @@ public abstract class CPUSamplerSupport extends AbstractSamplerSupport {
             sampleRunning = true;
             synchronized (updateLock) {
                 try {
-                    ThreadInfo[] infos = threadInfoProvider.dumpAllThreads();
+                    ThreadInfo[] infos = stackFilter.filter(threadInfoProvider.dumpThreads(dumpSettings));
                     long timestamp = System.nanoTime();
                     String samplingThreadName = findSamplingThread(infos);
                     if (samplingThreadName != null) {
@@ -282,10 +340,11 @@ public abstract class CPUSamplerSupport extends AbstractSamplerSupport {
                         }
                     }
                     builder.addStacktrace(infos, timestamp);
+                    callTree.addStacktrace(infos, timestamp);
 
                     currentLiveUpdate = timestamp / 1000000;
                     if (currentLiveUpdate - lastLiveUpdate >= refreshRate)
-                        refresher.refresh();
+                        refresher.periodicRefresh();
 
                 } catch (Throwable ex) {
                     terminate();
@@ -323,31 +382,21 @@ public abstract class CPUSamplerSupport extends AbstractSamplerSupport {
         public abstract void takeThreadDump(boolean openView);
     }
 
+    public static abstract class HotSpotsProfiler {
+        public abstract void profileHotSpots(ProfilerPreset preset);
+    }
+
     public static abstract class SnapshotDumper {
         private StackTraceSnapshotBuilder builder;
                 
-        StackTraceSnapshotBuilder getNewBuilder(InstrumentationFilter filter) {
-            builder = new StackTraceSnapshotBuilder(1,filter);
+        StackTraceSnapshotBuilder getNewBuilder() {
+            builder = new StackTraceSnapshotBuilder(1, createNoneFilter());
             return builder;
         }
         
         public final LoadedSnapshot takeNPSSnapshot(File directory) throws IOException, NoDataAvailableException {
             if (builder == null) throw new IllegalStateException("Builder is null"); // NOI18N
-            long time = System.currentTimeMillis();
-            CPUResultsSnapshot snapshot = builder.createSnapshot(time);
-            LoadedSnapshot ls = new LoadedSnapshot(snapshot, ProfilingSettingsPresets.createCPUPreset(), null, null);
-            File file = Utils.getUniqueFile(directory,
-                    ResultsManager.getDefault().getDefaultSnapshotFileName(ls),
-                    "." + ResultsManager.SNAPSHOT_EXTENSION); // NOI18N
-            DataOutputStream dos = new DataOutputStream(new FileOutputStream(file));
-            try {
-                ls.save(dos);
-                ls.setFile(file);
-                ls.setSaved(true);
-            } finally {
-                dos.close();
-            }
-            return ls;
+            return saveSnapshot(builder, directory);
         }
 
         public abstract void takeSnapshot(boolean openView);
@@ -59,6 +59,11 @@ public abstract class CPUSettingsSupport {
     public int getSamplingRate() { return panel.getSamplingRate(); }
     
     public int getRefreshRate() { return panel.getRefreshRate(); }
+
+    public ThreadInfoProvider.DumpSettings getDumpSettings() {
+        return new ThreadInfoProvider.DumpSettings(panel.getStackDepth(), panel.getThreadsFilter(),
+                                                   panel.isThreadsFilterExclusive(), panel.isRunnablesOnly());
+    }
     
     public void saveSettings() {
         // NOTE: might save custom configuration here
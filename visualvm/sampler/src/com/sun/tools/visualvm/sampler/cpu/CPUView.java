@@ -25,6 +25,7 @@
 
 package com.sun.tools.visualvm.sampler.cpu;
 
+import com.sun.tools.visualvm.profiling.presets.ProfilerPreset;
 import com.sun.tools.visualvm.sampler.AbstractSamplerSupport;
 import com.sun.tools.visualvm.uisupport.TransparentToolBar;
 import java.awt.BorderLayout;
@@ -37,11 +38,14 @@ import javax.swing.AbstractButton;
 import javax.swing.BorderFactory;
 import javax.swing.ImageIcon;
 import javax.swing.JButton;
+import javax.swing.JComponent;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JToggleButton;
 import javax.swing.SwingConstants;
+import org.openide.DialogDisplayer;
+import org.openide.NotifyDescriptor;
 import org.openide.util.ImageUtilities;
 import org.openide.util.NbBundle;
 
@@ -56,15 +60,20 @@ final class CPUView extends JPanel {
     
     private final CPUSamplerSupport.SnapshotDumper snapshotDumper;
     private final CPUSamplerSupport.ThreadDumper threadDumper;
+    private final CPUSamplerSupport.HotSpotsProfiler hotSpotsProfiler;
 
     private SampledLivePanel resultsPanel;
+    private FlameGraphPanel flameGraphPanel;
+    private JScrollPane flameGraphScroll;
 
 
     CPUView(AbstractSamplerSupport.Refresher refresher, CPUSamplerSupport.SnapshotDumper
-            snapshotDumper, CPUSamplerSupport.ThreadDumper threadDumper) {
+            snapshotDumper, CPUSamplerSupport.ThreadDumper threadDumper,
+            CPUSamplerSupport.HotSpotsProfiler hotSpotsProfiler) {
         this.refresher = refresher;
         this.snapshotDumper = snapshotDumper;
         this.threadDumper = threadDumper;
+        this.hotSpotsProfiler = hotSpotsProfiler;
         
         initComponents();
 
@@ -83,7 +92,13 @@ final class CPUView extends JPanel {
             remove(resultsPanel);
             resultsPanel = null;
         }
+        if (flameGraphScroll != null) {
+            remove(flameGraphScroll);
+            flameGraphScroll = null;
+            flameGraphPanel = null;
+        }
         snapshotButton.setEnabled(false);
+        hotSpotsButton.setEnabled(false);
         add(noDataLabel, BorderLayout.CENTER);
         noDataLabel.invalidate();
         validate();
@@ -101,17 +116,44 @@ final class CPUView extends JPanel {
             JScrollPane resultsScroll = (JScrollPane)resultsPanel.getComponent(0);
             resultsScroll.setBorder(BorderFactory.createEmptyBorder());
             resultsScroll.setViewportBorder(BorderFactory.createEmptyBorder());
-            add(resultsPanel, BorderLayout.CENTER);
-            resultsPanel.invalidate();
-            validate();
-            repaint();
+            flameGraphPanel = new FlameGraphPanel(resultsPanel.getCallTree());
+            flameGraphScroll = new JScrollPane(flameGraphPanel);
+            flameGraphScroll.setBorder(BorderFactory.createEmptyBorder());
+            flameGraphScroll.setViewportBorder(BorderFactory.createEmptyBorder());
+            flameGraphScroll.getViewport().setBackground(flameGraphPanel.getBackground());
+            updateResultsView();
         }
 
         if (!isShowing() || (pauseButton.isSelected() && !forceRefresh)) return;
         forceRefresh = false;
-        resultsPanel.updateLiveResults();
+        // only the visible view is updated
+        if (flameGraphButton.isSelected()) flameGraphPanel.refresh();
+        else resultsPanel.updateLiveResults();
 
         snapshotButton.setEnabled(snapshotDumper != null);
+        hotSpotsButton.setEnabled(hotSpotsProfiler != null);
+    }
+
+    private void profileHotSpots() {
+        ProfilerPreset preset = resultsPanel == null ? null :
+                                HotSpotsPreset.createPreset(resultsPanel.getCallTree());
+        if (preset == null) {
+            DialogDisplayer.getDefault().notify(new NotifyDescriptor.Message(NbBundle.getMessage(
+                    CPUView.class, "MSG_No_hot_spots"), NotifyDescriptor.WARNING_MESSAGE)); // NOI18N
+            return;
+        }
+        hotSpotsProfiler.profileHotSpots(preset);
+    }
+
+    private void updateResultsView() {
+        if (resultsPanel == null || noDataLabel.getParent() == this) return;
+        boolean flameGraph = flameGraphButton.isSelected();
+        remove(flameGraph ? resultsPanel : flameGraphScroll);
+        JComponent view = flameGraph ? flameGraphScroll : resultsPanel;
+        add(view, BorderLayout.CENTER);
+        view.invalidate();
+        validate();
+        repaint();
     }
 
     void terminate() {
@@ -182,6 +224,19 @@ final class CPUView extends JPanel {
 
         toolBar.addSeparator();
 
+        flameGraphButton = new JToggleButton(NbBundle.getMessage(CPUView.class, "LBL_Flame_graph")) { // NOI18N
+            protected void fireActionPerformed(ActionEvent event) {
+                updateResultsView();
+                forceRefresh = true;
+                refresher.refresh();
+            }
+        };
+        flameGraphButton.setToolTipText(NbBundle.getMessage(CPUView.class, "TOOLTIP_Flame_graph")); // NOI18N
+        flameGraphButton.setOpaque(false);
+        toolBar.addItem(flameGraphButton);
+
+        toolBar.addSeparator();
+
         snapshotButton = new JButton(NbBundle.getMessage(CPUView.class, "LBL_Snapshot"), // NOI18N)
                 new ImageIcon(ImageUtilities.loadImage(
                 "com/sun/tools/visualvm/sampler/resources/snapshot.png", true))) { // NOI18N)
@@ -193,6 +248,16 @@ final class CPUView extends JPanel {
         snapshotButton.setOpaque(false);
         snapshotButton.setEnabled(false);
         toolBar.addItem(snapshotButton);
+
+        hotSpotsButton = new JButton(NbBundle.getMessage(CPUView.class, "LBL_Profile_hot_spots")) { // NOI18N
+            protected void fireActionPerformed(ActionEvent event) {
+                profileHotSpots();
+            }
+        };
+        hotSpotsButton.setToolTipText(NbBundle.getMessage(CPUView.class, "TOOLTIP_Profile_hot_spots")); // NOI18N
+        hotSpotsButton.setOpaque(false);
+        hotSpotsButton.setEnabled(false);
+        toolBar.addItem(hotSpotsButton);
         
         toolBar.addFiller();
 
@@ -208,7 +273,9 @@ final class CPUView extends JPanel {
 
         int maxHeight = pauseButton.getPreferredSize().height;
         maxHeight = Math.max(maxHeight, refreshButton.getPreferredSize().height);
+        maxHeight = Math.max(maxHeight, flameGraphButton.getPreferredSize().height);
         maxHeight = Math.max(maxHeight, snapshotButton.getPreferredSize().height);
+        maxHeight = Math.max(maxHeight, hotSpotsButton.getPreferredSize().height);
         maxHeight = Math.max(maxHeight, threaddumpButton.getPreferredSize().height);
 
         int width = pauseButton.getPreferredSize().width;
@@ -223,12 +290,24 @@ final class CPUView extends JPanel {
         refreshButton.setPreferredSize(size);
         refreshButton.setMaximumSize(size);
 
+        width = flameGraphButton.getPreferredSize().width;
+        size = new Dimension(width + 5, maxHeight);
+        flameGraphButton.setMinimumSize(size);
+        flameGraphButton.setPreferredSize(size);
+        flameGraphButton.setMaximumSize(size);
+
         width = snapshotButton.getPreferredSize().width;
         size = new Dimension(width + 5, maxHeight);
         snapshotButton.setMinimumSize(size);
         snapshotButton.setPreferredSize(size);
         snapshotButton.setMaximumSize(size);
 
+        width = hotSpotsButton.getPreferredSize().width;
+        size = new Dimension(width + 5, maxHeight);
+        hotSpotsButton.setMinimumSize(size);
+        hotSpotsButton.setPreferredSize(size);
+        hotSpotsButton.setMaximumSize(size);
+
         width = threaddumpButton.getPreferredSize().width;
         size = new Dimension(width + 5, maxHeight);
         threaddumpButton.setMinimumSize(size);
@@ -247,8 +326,10 @@ final class CPUView extends JPanel {
 //    private JLabel refreshUnitsLabel;
 //    private JComboBox refreshCombo;
     private AbstractButton snapshotButton;
+    private AbstractButton hotSpotsButton;
     private AbstractButton pauseButton;
     private AbstractButton refreshButton;
+    private AbstractButton flameGraphButton;
     private AbstractButton threaddumpButton;
     private JLabel noDataLabel;
 
@@ -0,0 +1,229 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.sampler.cpu;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.text.NumberFormat;
+import javax.swing.JComponent;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+import org.openide.util.NbBundle;
+
+/**
+ * Flame graph of the merged sampled stacks. Only the frames wide enough to be
+ * visible are fetched from the call tree on refresh. Clicking a frame zooms
+ * into it, clicking the bottom frame zooms out.
+ */
+final class FlameGraphPanel extends JComponent implements Scrollable {
+
+    private static final int ROW_HEIGHT = 16;
+
+    private final SampledCallTree callTree;
+    private SampledCallTree.FlameFrame root;
+    private int maxDepth;
+    private int[] zoomPath = new int[0];
+    private long lastVersion = -1;
+
+
+    FlameGraphPanel(SampledCallTree callTree) {
+        this.callTree = callTree;
+
+        setOpaque(true);
+        setBackground(Color.WHITE);
+        setToolTipText(""); // NOI18N registers the component for tooltips
+        addMouseListener(new MouseAdapter() {
+            public void mouseClicked(MouseEvent e) {
+                SampledCallTree.FlameFrame frame = getFrameAt(e.getX(), e.getY());
+                if (frame != null) zoom(frame);
+            }
+        });
+        addComponentListener(new ComponentAdapter() {
+            public void componentResized(ComponentEvent e) {
+                // frames hidden at the previous width may be visible now
+                lastVersion = -1;
+                refresh();
+            }
+        });
+    }
+
+
+    void refresh() {
+        long version = callTree.getVersion();
+        if (version == lastVersion) return;
+        lastVersion = version;
+
+        int width = getWidth() > 0 ? getWidth() : 1000;
+        root = callTree.getFlameGraph(zoomPath, 1d / width);
+        maxDepth = getMaxDepth(root);
+        revalidate();
+        repaint();
+    }
+
+    public Dimension getPreferredSize() {
+        return new Dimension(1, (maxDepth + 1) * ROW_HEIGHT);
+    }
+
+    public String getToolTipText(MouseEvent event) {
+        SampledCallTree.FlameFrame frame = getFrameAt(event.getX(), event.getY());
+        if (frame == null) return null;
+        NumberFormat percent = NumberFormat.getPercentInstance();
+        percent.setMaximumFractionDigits(1);
+        return NbBundle.getMessage(FlameGraphPanel.class, "TOOLTIP_Flame_frame", new Object[] { // NOI18N
+               getName(frame), Long.toString(frame.totalTime / 1000000),
+               percent.format(frame.width), Long.toString(frame.selfTime / 1000000) });
+    }
+
+    protected void paintComponent(Graphics g) {
+        g.setColor(getBackground());
+        g.fillRect(0, 0, getWidth(), getHeight());
+        if (root == null) return;
+
+        Rectangle clip = g.getClipBounds();
+        FontMetrics fm = g.getFontMetrics();
+        paintFrame(g, fm, clip, root);
+    }
+
+
+    private void paintFrame(Graphics g, FontMetrics fm, Rectangle clip, SampledCallTree.FlameFrame frame) {
+        int y = getHeight() - (frame.depth + 1) * ROW_HEIGHT;
+        if (y + ROW_HEIGHT < clip.y) return; // all children are above the clip
+        int x = (int)(frame.x * getWidth());
+        int w = Math.max(1, (int)(frame.width * getWidth()) - 1);
+
+        if (y < clip.y + clip.height && x < clip.x + clip.width && x + w > clip.x) {
+            g.setColor(getColor(frame));
+            g.fillRect(x, y, w, ROW_HEIGHT - 1);
+            String name = getName(frame);
+            int textWidth = w - 4;
+            if (textWidth > fm.charWidth('m') * 2) { // NOI18N
+                if (fm.stringWidth(name) > textWidth) name = truncate(name, fm, textWidth);
+                g.setColor(Color.BLACK);
+                g.drawString(name, x + 2, y + ROW_HEIGHT - 1 - (ROW_HEIGHT - fm.getAscent()) / 2);
+            }
+        }
+
+        for (SampledCallTree.FlameFrame child : frame.getChildren())
+            paintFrame(g, fm, clip, child);
+    }
+
+    private SampledCallTree.FlameFrame getFrameAt(int x, int y) {
+        if (root == null) return null;
+        int depth = (getHeight() - y) / ROW_HEIGHT;
+        double position = (double)x / getWidth();
+        SampledCallTree.FlameFrame frame = root;
+        while (frame.depth < depth) {
+            SampledCallTree.FlameFrame found = null;
+            for (SampledCallTree.FlameFrame child : frame.getChildren()) {
+                if (position >= child.x && position < child.x + child.width) {
+                    found = child;
+                    break;
+                }
+            }
+            if (found == null) return null;
+            frame = found;
+        }
+        return frame;
+    }
+
+    private void zoom(SampledCallTree.FlameFrame frame) {
+        int[] newPath;
+        if (frame.depth == 0) {
+            if (zoomPath.length == 0) return;
+            newPath = new int[zoomPath.length - 1];
+            System.arraycopy(zoomPath, 0, newPath, 0, newPath.length);
+        } else {
+            int[] framePath = frame.getPath();
+            newPath = new int[zoomPath.length + framePath.length];
+            System.arraycopy(zoomPath, 0, newPath, 0, zoomPath.length);
+            System.arraycopy(framePath, 0, newPath, zoomPath.length, framePath.length);
+        }
+        zoomPath = newPath;
+        lastVersion = -1;
+        refresh();
+    }
+
+    private String getName(SampledCallTree.FlameFrame frame) {
+        if (frame.methodName == null)
+            return NbBundle.getMessage(FlameGraphPanel.class, "LBL_All_threads"); // NOI18N
+        return frame.methodName;
+    }
+
+    private static String truncate(String name, FontMetrics fm, int width) {
+        // drop the package first, then the end of the name
+        int classStart = name.lastIndexOf('.', name.lastIndexOf('.') - 1) + 1; // NOI18N
+        String shortName = name.substring(classStart);
+        if (fm.stringWidth(shortName) <= width) return shortName;
+        int length = Math.min(shortName.length(), width / Math.max(1, fm.charWidth('m'))); // NOI18N
+        return length < 2 ? "" : shortName.substring(0, length - 1) + ".."; // NOI18N
+    }
+
+    private static Color getColor(SampledCallTree.FlameFrame frame) {
+        if (frame.methodName == null) return Color.LIGHT_GRAY;
+        int classEnd = frame.methodName.lastIndexOf('.'); // NOI18N
+        int hash = frame.methodName.substring(0, Math.max(0, classEnd)).hashCode() & 0x7fffffff;
+        float hue = 0.01f + (hash % 100) / 100f * 0.12f;
+        float saturation = 0.45f + (hash / 100 % 30) / 100f;
+        return Color.getHSBColor(hue, saturation, 0.97f);
+    }
+
+    private static int getMaxDepth(SampledCallTree.FlameFrame frame) {
+        int depth = frame.depth;
+        for (SampledCallTree.FlameFrame child : frame.getChildren())
+            depth = Math.max(depth, getMaxDepth(child));
+        return depth;
+    }
+
+
+    public Dimension getPreferredScrollableViewportSize() {
+        return getPreferredSize();
+    }
+
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? ROW_HEIGHT : 10;
+    }
+
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+    }
+
+    public boolean getScrollableTracksViewportWidth() {
+        return true;
+    }
+
+    public boolean getScrollableTracksViewportHeight() {
+        // fill the viewport and keep the flame graph at the bottom
+        return getParent() != null && getParent().getHeight() > getPreferredSize().height;
+    }
+
+}
@@ -1,71 +0,0 @@
-/*
- * Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
- * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
- *
- * This code is free software; you can redistribute it and/or modify it
- * under the terms of the GNU General Public License version 2 only, as
- * published by the Free Software Foundation.  Oracle designates this
- * particular file as subject to the "Classpath" exception as provided
- * by Oracle in the LICENSE file that accompanied this code.
- *
- * This code is distributed in the hope that it will be useful, but WITHOUT
- * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
- * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
- * version 2 for more details (a copy is included in the LICENSE file that
- * accompanied this code).
- *
- * You should have received a copy of the GNU General Public License version
- * 2 along with this work; if not, write to the Free Software Foundation,
- * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
- *
- * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
- * or visit www.oracle.com if you need additional information or have any
- * questions.
- */
-package com.sun.tools.visualvm.sampler.cpu;
-
-import org.netbeans.lib.profiler.results.RuntimeCCTNodeProcessor;
-import org.netbeans.lib.profiler.results.cpu.FlatProfileContainer;
-import org.netbeans.lib.profiler.results.cpu.FlatProfileProvider;
-import org.netbeans.lib.profiler.results.cpu.cct.nodes.RuntimeCPUCCTNode;
-
-/**
- *
- * @author Tomas Hurka
- */
-final class FlatProfileBuilder implements FlatProfileProvider {
-    //~ Instance fields ----------------------------------------------------------------------------------------------------------
-    
-    private FlatProfileContainer lastFlatProfile = null;
-    private RuntimeCPUCCTNode appNode;
-    private CCTFlattener cctFlattener;
-    
-    
-    //~ Methods ------------------------------------------------------------------------------------------------------------------
-    
-    FlatProfileBuilder(RuntimeCPUCCTNode node, CCTFlattener flattener) {
-        appNode = node;
-        cctFlattener = flattener;
-    }
-    
-    public synchronized FlatProfileContainer createFlatProfile() {
-        if (appNode == null) {
-            return null;
-        }
-//        client.getStatus().beginTrans(false);
-
-        try {
-            RuntimeCCTNodeProcessor.process(
-                appNode, 
-                cctFlattener
-            );
-
-            lastFlatProfile = cctFlattener.getFlatProfile();
-
-        } finally {
-//            client.getStatus().endTrans();
-        }
-
-        return lastFlatProfile;
-    }
-}
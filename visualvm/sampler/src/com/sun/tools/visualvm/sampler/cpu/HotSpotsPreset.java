@@ -0,0 +1,125 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.sampler.cpu;
+
+import com.sun.tools.visualvm.profiling.presets.ProfilerPreset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.openide.util.NbBundle;
+
+/**
+ * Builds a profiler preset instrumenting just the hot spots found by the
+ * sampler. Roots are the classes with the highest self time which together
+ * cover most of the sampled time, the inclusive filter limits instrumentation
+ * to their packages. Time spent in the excluded classes counts for their
+ * nearest caller which is not excluded.
+ */
+final class HotSpotsPreset {
+
+    static final double TIME_COVERAGE = 0.8d;
+    static final int MAX_ROOTS = 10;
+
+    // classes which cannot or should not be instrumented
+    private static final String[] EXCLUDED_PREFIXES = new String[] {
+        "java.", "javax.", "sun.", "sunw.", "com.sun.", "jdk." // NOI18N
+    };
+
+
+    /**
+     * Returns the preset for the hot spots of the call tree or null if no
+     * instrumentable class has been sampled yet.
+     */
+    static ProfilerPreset createPreset(SampledCallTree callTree) {
+        List<String> hotClasses = getHotClasses(callTree.getClassSelfTimes(EXCLUDED_PREFIXES),
+                                                TIME_COVERAGE, MAX_ROOTS);
+        if (hotClasses.isEmpty()) return null;
+
+        ProfilerPreset preset = new ProfilerPreset(NbBundle.getMessage(
+                HotSpotsPreset.class, "LBL_Hot_spots_preset"), ""); // NOI18N
+        preset.setRootsP(join(hotClasses, "\n")); // NOI18N
+        preset.setRunnablesP(false);
+        preset.setFilterModeP(false); // inclusive
+        preset.setFilterP(join(getPackageFilters(hotClasses), ", ")); // NOI18N
+        return preset;
+    }
+
+    /**
+     * Returns the classes with the highest self time, in descending order,
+     * covering the given fraction of the total self time of all classes.
+     * The excluded classes are expected to be attributed to their callers.
+     */
+    static List<String> getHotClasses(Map<String, Long> selfTimes, double coverage, int maxClasses) {
+        List<Map.Entry<String, Long>> entries = new ArrayList<Map.Entry<String, Long>>();
+        long totalTime = 0;
+        for (Map.Entry<String, Long> entry : selfTimes.entrySet()) {
+            entries.add(entry);
+            totalTime += entry.getValue().longValue();
+        }
+        Collections.sort(entries, new Comparator<Map.Entry<String, Long>>() {
+            public int compare(Map.Entry<String, Long> e1, Map.Entry<String, Long> e2) {
+                long t1 = e1.getValue().longValue();
+                long t2 = e2.getValue().longValue();
+                if (t1 != t2) return t1 > t2 ? -1 : 1;
+                return e1.getKey().compareTo(e2.getKey());
+            }
+        });
+
+        List<String> hotClasses = new ArrayList<String>();
+        long coveredTime = 0;
+        for (Map.Entry<String, Long> entry : entries) {
+            if (hotClasses.size() == maxClasses || coveredTime >= totalTime * coverage) break;
+            hotClasses.add(entry.getKey());
+            coveredTime += entry.getValue().longValue();
+        }
+        return hotClasses;
+    }
+
+    static List<String> getPackageFilters(List<String> classNames) {
+        Set<String> filters = new LinkedHashSet<String>();
+        for (String className : classNames) {
+            int dotIndex = className.lastIndexOf('.'); // NOI18N
+            if (dotIndex == -1) filters.add(className); // default package
+            else filters.add(className.substring(0, dotIndex + 1) + "*"); // NOI18N
+        }
+        return new ArrayList<String>(filters);
+    }
+
+
+    private static String join(List<String> values, String separator) {
+        StringBuilder sb = new StringBuilder();
+        for (String value : values) {
+            if (sb.length() > 0) sb.append(separator);
+            sb.append(value);
+        }
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,363 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.sampler.cpu;
+
+import com.sun.tools.visualvm.application.Application;
+import com.sun.tools.visualvm.core.datasource.descriptor.DataSourceDescriptorFactory;
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ThreadInfo;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.BorderFactory;
+import javax.swing.JComponent;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+import org.netbeans.lib.profiler.results.cpu.CPUResultsSnapshot.NoDataAvailableException;
+import org.netbeans.lib.profiler.results.cpu.StackTraceSnapshotBuilder;
+import org.netbeans.modules.profiler.LoadedSnapshot;
+import org.openide.util.NbBundle;
+import org.openide.util.RequestProcessor;
+
+/**
+ * CPU sampler of a set of applications, typically instances of the same
+ * service. The applications are sampled in parallel with staggered timing, the
+ * latest dump of each application is merged into a single snapshot on each
+ * tick. An application without a new dump keeps its threads in the last
+ * sampled state, so its time is not lost when its sampling lags behind the
+ * ticks. Thread names get the application name appended so the time can be
+ * attributed to the individual JVMs.
+ */
+public final class MergedCPUSampler {
+
+    private static final Logger LOGGER = Logger.getLogger(MergedCPUSampler.class.getName());
+
+    private final List<JvmSampler> samplers = new ArrayList<JvmSampler>();
+    private final int samplingRate;
+    private RequestProcessor processor;
+    private final ThreadInfoFactory threadInfoFactory = new ThreadInfoFactory(false);
+
+    private final Object mergeLock = new Object();
+    private final StackTraceSnapshotBuilder builder;
+    private final SampledCallTree callTree;
+
+    private Timer mergeTimer;
+    private volatile boolean running;
+
+    private JPanel component;
+    private FlameGraphPanel flameGraphPanel;
+    private SamplersTableModel samplersModel;
+
+
+    public MergedCPUSampler(Collection<Application> applications, int samplingRate) {
+        this.samplingRate = samplingRate;
+
+        builder = new StackTraceSnapshotBuilder(1, CPUSamplerSupport.createNoneFilter());
+        callTree = new SampledCallTree(PackagePrefixFilter.NONE, true);
+
+        int index = 0;
+        for (Application application : applications)
+            samplers.add(new JvmSampler(application, index++));
+    }
+
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+
+        // connect in parallel, the first samples are staggered over the sampling period
+        processor = new RequestProcessor("Merged CPU Sampler", Math.max(1, samplers.size())); // NOI18N
+        final RequestProcessor samplersProcessor = processor;
+        for (final JvmSampler sampler : samplers) {
+            processor.post(new Runnable() {
+                public void run() { sampler.initialize(samplersProcessor); }
+            });
+        }
+
+        mergeTimer = new Timer("Merged CPU Sampler timer"); // NOI18N
+        mergeTimer.scheduleAtFixedRate(new TimerTask() {
+            private int ticks;
+            public void run() {
+                merge();
+                if (++ticks % Math.max(1, 1000 / samplingRate) == 0) refreshComponent();
+            }
+        }, samplingRate, samplingRate);
+    }
+
+    public synchronized void stop() {
+        if (!running) return;
+        running = false;
+        if (mergeTimer != null) {
+            mergeTimer.cancel();
+            mergeTimer = null;
+        }
+        for (JvmSampler sampler : samplers) sampler.release();
+        if (processor != null) {
+            processor.stop();
+            processor = null;
+        }
+        refreshComponent();
+    }
+
+    public int getApplicationsCount() {
+        return samplers.size();
+    }
+
+    /**
+     * Creates and saves a CPU snapshot of all samples merged so far.
+     */
+    public LoadedSnapshot takeNPSSnapshot(File directory) throws IOException, NoDataAvailableException {
+        synchronized (mergeLock) {
+            return CPUSamplerSupport.saveSnapshot(builder, directory);
+        }
+    }
+
+    /**
+     * Returns component showing the merged flame graph and the sampled applications.
+     */
+    public synchronized JComponent getComponent() {
+        if (component == null) {
+            flameGraphPanel = new FlameGraphPanel(callTree);
+            JScrollPane flameGraphScroll = new JScrollPane(flameGraphPanel);
+            flameGraphScroll.setBorder(BorderFactory.createEmptyBorder());
+            flameGraphScroll.getViewport().setBackground(flameGraphPanel.getBackground());
+
+            samplersModel = new SamplersTableModel();
+            JTable samplersTable = new JTable(samplersModel);
+            JScrollPane samplersScroll = new JScrollPane(samplersTable);
+            samplersScroll.setPreferredSize(new Dimension(600, samplersTable.getRowHeight() *
+                                            Math.min(6, samplers.size() + 1) + 8));
+
+            component = new JPanel(new BorderLayout(0, 5));
+            component.add(flameGraphScroll, BorderLayout.CENTER);
+            component.add(samplersScroll, BorderLayout.SOUTH);
+            component.setPreferredSize(new Dimension(800, 600));
+        }
+        return component;
+    }
+
+
+    private void merge() {
+        // applications without a new dump since the previous tick contribute
+        // their last dump again, leaving them out would make the snapshot
+        // forget their threads and lose the time until their next dump
+        int count = 0;
+        ThreadInfo[][] dumps = new ThreadInfo[samplers.size()][];
+        for (int i = 0; i < dumps.length; i++) {
+            dumps[i] = samplers.get(i).latestDump.get();
+            if (dumps[i] != null) count += dumps[i].length;
+        }
+        if (count == 0) return;
+
+        ThreadInfo[] merged = new ThreadInfo[count];
+        int position = 0;
+        for (ThreadInfo[] dump : dumps) {
+            if (dump == null) continue;
+            System.arraycopy(dump, 0, merged, position, dump.length);
+            position += dump.length;
+        }
+
+        long timestamp = System.nanoTime();
+        synchronized (mergeLock) {
+            builder.addStacktrace(merged, timestamp);
+            callTree.addStacktrace(merged, timestamp);
+        }
+    }
+
+    private void refreshComponent() {
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                if (component == null || !component.isShowing()) return;
+                flameGraphPanel.refresh();
+                samplersModel.fireTableRowsUpdated(0, samplers.size() - 1);
+            }
+        });
+    }
+
+
+    private final class JvmSampler implements Runnable {
+
+        private final Application application;
+        private final String name;
+        private final int index;
+        private final long threadIdBase;
+        private final Map<Long, ThreadRecord> threads = new HashMap<Long, ThreadRecord>();
+
+        private volatile ThreadInfoProvider threadInfoProvider;
+        private volatile RequestProcessor.Task task;
+        private int dumpsCount;
+
+        // last dump taken, null until the first one or after sampling failed
+        private final AtomicReference<ThreadInfo[]> latestDump = new AtomicReference<ThreadInfo[]>();
+        private volatile int samplesCount;
+        private volatile String status = NbBundle.getMessage(MergedCPUSampler.class, "MSG_Connecting"); // NOI18N
+
+        JvmSampler(Application application, int index) {
+            this.application = application;
+            this.index = index;
+            name = DataSourceDescriptorFactory.getDescriptor(application).getName();
+            // thread ids of different JVMs must not collide in the merged dump
+            threadIdBase = (long)(index + 1) << 40;
+        }
+
+        void initialize(RequestProcessor samplersProcessor) {
+            if (!running) return;
+            threads.clear();
+            status = NbBundle.getMessage(MergedCPUSampler.class, "MSG_Connecting"); // NOI18N
+            ThreadInfoProvider tip = new ThreadInfoProvider(application);
+            if (tip.getStatus() != null) {
+                status = tip.getStatus();
+                return;
+            }
+            threadInfoProvider = tip;
+            status = NbBundle.getMessage(MergedCPUSampler.class, "MSG_Sampling"); // NOI18N
+            task = samplersProcessor.create(this);
+            task.schedule(index * samplingRate / samplers.size());
+        }
+
+        // Stops sampling and drops the ThreadInfoProvider and the cached thread data
+        void release() {
+            RequestProcessor.Task t = task;
+            if (t != null) t.cancel();
+            task = null;
+            threadInfoProvider = null;
+            latestDump.set(null);
+        }
+
+        public void run() {
+            ThreadInfoProvider tip = threadInfoProvider;
+            if (!running || tip == null) return;
+            try {
+                latestDump.set(merge(tip.dumpAllThreads()));
+                samplesCount++;
+            } catch (Throwable t) {
+                LOGGER.log(Level.INFO, "Failed to sample " + application, t); // NOI18N
+                status = NbBundle.getMessage(MergedCPUSampler.class, "MSG_Sampling_failed"); // NOI18N
+                latestDump.set(null);
+                return;
+            }
+            RequestProcessor.Task t = task;
+            if (running && t != null) t.schedule(samplingRate);
+        }
+
+        // ThreadInfo of an unchanged thread is reused from the previous dump
+        private ThreadInfo[] merge(ThreadInfo[] infos) {
+            dumpsCount++;
+            ThreadInfo[] merged = new ThreadInfo[infos.length];
+            int count = 0;
+            for (ThreadInfo info : infos) {
+                if (info == null) continue;
+                Long threadId = Long.valueOf(info.getThreadId());
+                StackTraceElement[] stack = info.getStackTrace();
+                ThreadRecord record = threads.get(threadId);
+                if (record == null || record.state != info.getThreadState() ||
+                    !Arrays.equals(record.stack, stack)) {
+                    if (record == null) {
+                        record = new ThreadRecord();
+                        threads.put(threadId, record);
+                    }
+                    record.state = info.getThreadState();
+                    record.stack = stack;
+                    synchronized (threadInfoFactory) {
+                        record.info = threadInfoFactory.create(threadIdBase + info.getThreadId(),
+                                info.getThreadName() + " [" + name + "]", record.state, stack); // NOI18N
+                    }
+                }
+                record.lastDump = dumpsCount;
+                merged[count++] = record.info;
+            }
+
+            if (threads.size() > count) {
+                Iterator<ThreadRecord> iterator = threads.values().iterator();
+                while (iterator.hasNext())
+                    if (iterator.next().lastDump != dumpsCount) iterator.remove();
+            }
+            if (count < merged.length) {
+                ThreadInfo[] trimmed = new ThreadInfo[count];
+                System.arraycopy(merged, 0, trimmed, 0, count);
+                merged = trimmed;
+            }
+            return merged;
+        }
+
+    }
+
+    private static final class ThreadRecord {
+        private Thread.State state;
+        private StackTraceElement[] stack;
+        private ThreadInfo info;
+        private int lastDump;
+    }
+
+    private final class SamplersTableModel extends AbstractTableModel {
+
+        public int getRowCount() {
+            return samplers.size();
+        }
+
+        public int getColumnCount() {
+            return 3;
+        }
+
+        public String getColumnName(int column) {
+            switch (column) {
+                case 0: return NbBundle.getMessage(MergedCPUSampler.class, "COL_Application"); // NOI18N
+                case 1: return NbBundle.getMessage(MergedCPUSampler.class, "COL_Status"); // NOI18N
+                default: return NbBundle.getMessage(MergedCPUSampler.class, "COL_Samples"); // NOI18N
+            }
+        }
+
+        public Class<?> getColumnClass(int column) {
+            return column == 2 ? Integer.class : String.class;
+        }
+
+        public Object getValueAt(int row, int column) {
+            JvmSampler sampler = samplers.get(row);
+            switch (column) {
+                case 0: return sampler.name;
+                case 1: return sampler.status;
+                default: return Integer.valueOf(sampler.samplesCount);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,141 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.sampler.cpu;
+
+import java.util.StringTokenizer;
+import org.netbeans.lib.profiler.global.InstrumentationFilter;
+
+/**
+ * Inclusive or exclusive class name filter compiled into a prefix trie of
+ * the filter patterns. Patterns ending with '*' match all classes with the
+ * given prefix, other patterns match the exact class name, the same way as
+ * InstrumentationFilter does. A class name is matched in a single pass
+ * regardless of the number of patterns.
+ */
+final class PackagePrefixFilter {
+
+    static final PackagePrefixFilter NONE = new PackagePrefixFilter(null, true);
+
+    private static final String SEPARATORS = " ,\t\n\r"; // NOI18N
+
+    private final Node root;
+    private final boolean inclusive;
+
+
+    private PackagePrefixFilter(Node root, boolean inclusive) {
+        this.root = root;
+        this.inclusive = inclusive;
+    }
+
+
+    /**
+     * Creates the filter for the space or comma separated patterns and the
+     * InstrumentationFilter filter type.
+     */
+    static PackagePrefixFilter create(String filterStrings, int filterType) {
+        if (filterType == InstrumentationFilter.INSTR_FILTER_NONE || filterStrings == null)
+            return NONE;
+
+        Node root = null;
+        StringTokenizer tokenizer = new StringTokenizer(filterStrings, SEPARATORS);
+        while (tokenizer.hasMoreTokens()) {
+            String pattern = tokenizer.nextToken().replace('/', '.'); // NOI18N
+            int length = pattern.length();
+            while (length > 0 && pattern.charAt(length - 1) == '*') length--; // NOI18N
+            if (root == null) root = new Node();
+            root.add(pattern, length, length < pattern.length());
+        }
+        if (root == null) return NONE;
+
+        return new PackagePrefixFilter(root, filterType == InstrumentationFilter.INSTR_FILTER_INCLUSIVE);
+    }
+
+    /**
+     * Returns true if the class with the given fully qualified (dotted) name
+     * passes the filter.
+     */
+    boolean passes(String className) {
+        if (root == null) return true;
+        return matches(className) == inclusive;
+    }
+
+
+    private boolean matches(String className) {
+        Node node = root;
+        int length = className.length();
+        for (int i = 0; ; i++) {
+            if (node.wildcard) return true;
+            if (i == length) return node.exact;
+            node = node.getChild(className.charAt(i));
+            if (node == null) return false;
+        }
+    }
+
+
+    private static final class Node {
+
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+
+        // the pattern ends here and matches the exact class name
+        private boolean exact;
+        // the pattern ends here and matches all names with this prefix
+        private boolean wildcard;
+
+        void add(String pattern, int length, boolean prefix) {
+            Node node = this;
+            for (int i = 0; i < length; i++) node = node.getOrCreateChild(pattern.charAt(i));
+            if (prefix) node.wildcard = true;
+            else node.exact = true;
+        }
+
+        Node getChild(char key) {
+            char[] k = keys;
+            for (int i = 0; i < k.length; i++)
+                if (k[i] == key) return children[i];
+            return null;
+        }
+
+        private Node getOrCreateChild(char key) {
+            Node child = getChild(key);
+            if (child == null) {
+                int size = keys.length;
+                char[] newKeys = new char[size + 1];
+                Node[] newChildren = new Node[size + 1];
+                System.arraycopy(keys, 0, newKeys, 0, size);
+                System.arraycopy(children, 0, newChildren, 0, size);
+                child = new Node();
+                newKeys[size] = key;
+                newChildren[size] = child;
+                keys = newKeys;
+                children = newChildren;
+            }
+            return child;
+        }
+
+    }
+
+}
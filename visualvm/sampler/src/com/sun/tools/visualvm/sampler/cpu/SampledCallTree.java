@@ -0,0 +1,467 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.sampler.cpu;
+
+import java.lang.management.ThreadInfo;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.netbeans.lib.profiler.results.cpu.FlatProfileContainer;
+import org.netbeans.lib.profiler.results.cpu.FlatProfileProvider;
+import org.netbeans.lib.profiler.results.cpu.MethodInfoMapper;
+
+/**
+ * Call tree of sampled stacks merged across all threads, updated as the
+ * samples arrive. Each node keeps its self and total time, each method its
+ * self and total time and number of invocations, so neither the flat profile
+ * nor the flame graph needs to walk the whole tree on refresh. When two
+ * timestamps are collected the methods also keep the time of the samples
+ * of running threads, like the flat profile of StackTraceSnapshotBuilder.
+ */
+final class SampledCallTree implements FlatProfileProvider {
+
+    private static final String NATIVE_SUFFIX = "[native]"; // NOI18N
+
+    private final PackagePrefixFilter filter;
+    private final boolean twoTimeStamps;
+    private final Mapper mapper = new Mapper();
+
+    private final Node root = new Node(0);
+    private final Map<Long, ThreadState> threads = new HashMap<Long, ThreadState>();
+
+    // method ids by class and method name, each distinct class is classified
+    // by the filter just once and filtered out classes share the empty map
+    private static final Map<String, Integer> FILTERED_CLASS = new HashMap<String, Integer>(1);
+    private final Map<String, Map<String, Integer>> methodIds = new HashMap<String, Map<String, Integer>>();
+
+    // per method data, method id 0 is reserved for the thread pseudo-method
+    private final List<String> classNames = new ArrayList<String>();
+    private final List<String> methodNames = new ArrayList<String>();
+    private long[] selfTimes = new long[64];
+    private long[] totalTimes = new long[64];
+    // times of the samples of running threads, collected for two timestamps only
+    private long[] selfTimes1;
+    private long[] totalTimes1;
+    private int[] invocations = new int[64];
+    private int[] methodStamps = new int[64];
+    private int stamp;
+
+    private long version;
+
+
+    SampledCallTree(PackagePrefixFilter filter, boolean twoTimeStamps) {
+        this.filter = filter;
+        this.twoTimeStamps = twoTimeStamps;
+        selfTimes1 = new long[twoTimeStamps ? selfTimes.length : 0];
+        totalTimes1 = new long[twoTimeStamps ? totalTimes.length : 0];
+        classNames.add("Thread"); // NOI18N
+        methodNames.add(""); // NOI18N
+    }
+
+
+    synchronized void addStacktrace(ThreadInfo[] infos, long timestamp) {
+        int liveThreads = 0;
+        for (ThreadInfo info : infos) {
+            if (info == null) continue;
+
+            Long threadId = Long.valueOf(info.getThreadId());
+            ThreadState thread = threads.get(threadId);
+            if (thread == null) {
+                thread = new ThreadState(timestamp);
+                threads.put(threadId, thread);
+            }
+            long time = timestamp - thread.lastTimestamp;
+            thread.lastTimestamp = timestamp;
+            long time1 = Thread.State.RUNNABLE.equals(info.getThreadState()) ? time : 0;
+            addStack(thread, info.getStackTrace(), time, time1);
+            liveThreads++;
+        }
+
+        // forget terminated threads
+        if (threads.size() > liveThreads) {
+            Iterator<ThreadState> iterator = threads.values().iterator();
+            while (iterator.hasNext())
+                if (iterator.next().lastTimestamp != timestamp) iterator.remove();
+        }
+        version++;
+    }
+
+    synchronized long getVersion() {
+        return version;
+    }
+
+    MethodInfoMapper getMapper() {
+        return mapper;
+    }
+
+    public synchronized FlatProfileContainer createFlatProfile() {
+        int nMethods = classNames.size();
+        long[] selfMcs = new long[nMethods];
+        long[] totalMcs = new long[nMethods];
+        long[] selfMcs1 = new long[twoTimeStamps ? nMethods : 0];
+        long[] totalMcs1 = new long[twoTimeStamps ? nMethods : 0];
+        int[] nInvocations = new int[nMethods];
+        long wholeGraphTime = 0;
+        long wholeGraphTime1 = 0;
+        for (int i = 1; i < nMethods; i++) {
+            selfMcs[i] = selfTimes[i] / 1000;
+            totalMcs[i] = totalTimes[i] / 1000;
+            nInvocations[i] = invocations[i];
+            wholeGraphTime += selfMcs[i];
+            if (twoTimeStamps) {
+                selfMcs1[i] = selfTimes1[i] / 1000;
+                totalMcs1[i] = totalTimes1[i] / 1000;
+                wholeGraphTime1 += selfMcs1[i];
+            }
+        }
+        return new FlatProfilerContainer(mapper, twoTimeStamps, selfMcs, selfMcs1, totalMcs, totalMcs1,
+                                         nInvocations, new char[0], wholeGraphTime, wholeGraphTime1, nMethods);
+    }
+
+    /**
+     * Returns the frames of the flame graph rooted at the node identified by
+     * the path of method ids. Subtrees narrower than the given fraction of the
+     * root are not included.
+     */
+    synchronized FlameFrame getFlameGraph(int[] rootPath, double minWidth) {
+        Node node = root;
+        for (int i = 0; rootPath != null && i < rootPath.length && node != null; i++)
+            node = node.getChild(rootPath[i]);
+        if (node == null) node = root;
+
+        FlameFrame frame = new FlameFrame(null, node.methodId, getMethodName(node.methodId),
+                                          node.totalTime, node.selfTime, 0, 1);
+        if (node.totalTime > 0) addFlameFrames(frame, node, node.totalTime * minWidth);
+        return frame;
+    }
+
+    /**
+     * Returns the self time in nanoseconds of each sampled class not matching
+     * the excluded prefixes. Self time of a frame of an excluded class is
+     * attributed to its nearest caller of a class which is not excluded, time
+     * of stacks without such a caller is dropped.
+     */
+    synchronized Map<String, Long> getClassSelfTimes(String[] excludedPrefixes) {
+        int nMethods = classNames.size();
+        boolean[] excluded = new boolean[nMethods];
+        excluded[0] = true;
+        for (int i = 1; i < nMethods; i++)
+            excluded[i] = isExcluded(classNames.get(i), excludedPrefixes);
+
+        // self times by the nearest not excluded frame, stack based to survive deep trees
+        long[] methodTimes = new long[nMethods];
+        List<Node> nodes = new ArrayList<Node>();
+        List<Integer> owners = new ArrayList<Integer>();
+        nodes.add(root);
+        owners.add(Integer.valueOf(0));
+        while (!nodes.isEmpty()) {
+            Node node = nodes.remove(nodes.size() - 1);
+            int owner = owners.remove(owners.size() - 1).intValue();
+            if (!excluded[node.methodId]) owner = node.methodId;
+            if (owner != 0) methodTimes[owner] += node.selfTime;
+            if (node.children == null) continue;
+            Integer childOwner = Integer.valueOf(owner);
+            for (Node child : node.children.values()) {
+                nodes.add(child);
+                owners.add(childOwner);
+            }
+        }
+
+        Map<String, Long> classTimes = new HashMap<String, Long>();
+        for (int i = 1; i < nMethods; i++) {
+            if (methodTimes[i] == 0) continue;
+            String className = classNames.get(i);
+            Long time = classTimes.get(className);
+            classTimes.put(className, Long.valueOf(methodTimes[i] + (time == null ? 0 : time.longValue())));
+        }
+        return classTimes;
+    }
+
+    synchronized String getMethodName(int methodId) {
+        if (methodId == 0) return null;
+        return classNames.get(methodId) + "." + methodNames.get(methodId); // NOI18N
+    }
+
+
+    private void addStack(ThreadState thread, StackTraceElement[] stack, long time, long time1) {
+        int[] methods = new int[stack.length];
+        int depth = 0;
+        for (int i = stack.length - 1; i >= 0; i--) {
+            int methodId = getFrameId(stack[i]);
+            if (methodId != -1) methods[depth++] = methodId;
+        }
+
+        // common prefix with the previous stack of the thread is the same call,
+        // nodes of the prefix are reused and only new frames count as invocations
+        int common = 0;
+        int[] lastMethods = thread.lastMethods;
+        while (common < depth && common < thread.lastDepth && lastMethods[common] == methods[common])
+            common++;
+
+        Node[] path = thread.lastPath.length >= depth ? thread.lastPath : new Node[depth];
+        if (path != thread.lastPath) System.arraycopy(thread.lastPath, 0, path, 0, common);
+        Node node = common == 0 ? root : path[common - 1];
+        for (int i = common; i < depth; i++) {
+            node = node.getOrCreateChild(methods[i]);
+            path[i] = node;
+            invocations[methods[i]]++;
+        }
+
+        root.totalTime += time;
+        if (depth == 0) {
+            root.selfTime += time;
+        } else {
+            stamp++;
+            for (int i = 0; i < depth; i++) {
+                path[i].totalTime += time;
+                int methodId = methods[i];
+                if (methodStamps[methodId] != stamp) {
+                    // recursive calls are counted just once
+                    methodStamps[methodId] = stamp;
+                    totalTimes[methodId] += time;
+                    if (twoTimeStamps) totalTimes1[methodId] += time1;
+                }
+            }
+            path[depth - 1].selfTime += time;
+            selfTimes[methods[depth - 1]] += time;
+            if (twoTimeStamps) selfTimes1[methods[depth - 1]] += time1;
+        }
+
+        thread.lastMethods = methods;
+        thread.lastDepth = depth;
+        thread.lastPath = path;
+    }
+
+    /**
+     * Returns the method id of the frame or -1 if the frame does not pass the
+     * filter.
+     */
+    int getFrameId(StackTraceElement frame) {
+        String className = frame.getClassName();
+        Map<String, Integer> classMethodIds = methodIds.get(className);
+        if (classMethodIds == null) {
+            classMethodIds = filter.passes(className) ? new HashMap<String, Integer>() : FILTERED_CLASS;
+            methodIds.put(className, classMethodIds);
+        }
+        if (classMethodIds == FILTERED_CLASS) return -1;
+
+        String methodName = frame.isNativeMethod() ? frame.getMethodName() + NATIVE_SUFFIX :
+                                                     frame.getMethodName();
+        Integer methodId = classMethodIds.get(methodName);
+        if (methodId == null) {
+            methodId = Integer.valueOf(classNames.size());
+            classMethodIds.put(methodName, methodId);
+            classNames.add(className);
+            methodNames.add(methodName);
+            ensureCapacity(classNames.size());
+        }
+        return methodId.intValue();
+    }
+
+    private static boolean isExcluded(String className, String[] excludedPrefixes) {
+        for (String prefix : excludedPrefixes)
+            if (className.startsWith(prefix)) return true;
+        return false;
+    }
+
+    private void ensureCapacity(int size) {
+        if (size <= selfTimes.length) return;
+        int newSize = Math.max(size, selfTimes.length * 2);
+        long[] newSelfTimes = new long[newSize];
+        System.arraycopy(selfTimes, 0, newSelfTimes, 0, selfTimes.length);
+        selfTimes = newSelfTimes;
+        long[] newTotalTimes = new long[newSize];
+        System.arraycopy(totalTimes, 0, newTotalTimes, 0, totalTimes.length);
+        totalTimes = newTotalTimes;
+        int[] newInvocations = new int[newSize];
+        System.arraycopy(invocations, 0, newInvocations, 0, invocations.length);
+        invocations = newInvocations;
+        int[] newMethodStamps = new int[newSize];
+        System.arraycopy(methodStamps, 0, newMethodStamps, 0, methodStamps.length);
+        methodStamps = newMethodStamps;
+        if (twoTimeStamps) {
+            long[] newSelfTimes1 = new long[newSize];
+            System.arraycopy(selfTimes1, 0, newSelfTimes1, 0, selfTimes1.length);
+            selfTimes1 = newSelfTimes1;
+            long[] newTotalTimes1 = new long[newSize];
+            System.arraycopy(totalTimes1, 0, newTotalTimes1, 0, totalTimes1.length);
+            totalTimes1 = newTotalTimes1;
+        }
+    }
+
+    private void addFlameFrames(FlameFrame parent, Node node, double minTime) {
+        if (node.children == null) return;
+
+        // only the visible children are sorted to keep the layout stable
+        List<Node> visible = new ArrayList<Node>();
+        for (Node child : node.children.values())
+            if (child.totalTime >= minTime) visible.add(child);
+        Collections.sort(visible, new Comparator<Node>() {
+            public int compare(Node n1, Node n2) {
+                return getMethodName(n1.methodId).compareTo(getMethodName(n2.methodId));
+            }
+        });
+
+        double x = parent.x;
+        double scale = parent.width / node.totalTime;
+        for (Node child : visible) {
+            FlameFrame frame = new FlameFrame(parent, child.methodId, getMethodName(child.methodId),
+                                              child.totalTime, child.selfTime, x, child.totalTime * scale);
+            parent.addChild(frame);
+            addFlameFrames(frame, child, minTime);
+            x += frame.width;
+        }
+    }
+
+
+    /**
+     * Immutable frame of the flame graph, x and width are fractions of the
+     * flame graph root.
+     */
+    static final class FlameFrame {
+
+        final FlameFrame parent;
+        final int methodId;
+        final String methodName;
+        final long totalTime;
+        final long selfTime;
+        final double x;
+        final double width;
+        final int depth;
+        private List<FlameFrame> children;
+
+        private FlameFrame(FlameFrame parent, int methodId, String methodName,
+                           long totalTime, long selfTime, double x, double width) {
+            this.parent = parent;
+            this.methodId = methodId;
+            this.methodName = methodName;
+            this.totalTime = totalTime;
+            this.selfTime = selfTime;
+            this.x = x;
+            this.width = width;
+            depth = parent == null ? 0 : parent.depth + 1;
+        }
+
+        List<FlameFrame> getChildren() {
+            return children == null ? new ArrayList<FlameFrame>(0) : children;
+        }
+
+        int[] getPath() {
+            int[] path = new int[depth];
+            FlameFrame frame = this;
+            for (int i = depth - 1; i >= 0; i--) {
+                path[i] = frame.methodId;
+                frame = frame.parent;
+            }
+            return path;
+        }
+
+        private void addChild(FlameFrame child) {
+            if (children == null) children = new ArrayList<FlameFrame>();
+            children.add(child);
+        }
+
+    }
+
+    private static final class Node {
+
+        private final int methodId;
+        private long selfTime;
+        private long totalTime;
+        private Map<Integer, Node> children;
+
+        Node(int methodId) {
+            this.methodId = methodId;
+        }
+
+        Node getChild(int childMethodId) {
+            return children == null ? null : children.get(Integer.valueOf(childMethodId));
+        }
+
+        Node getOrCreateChild(int childMethodId) {
+            Node child = getChild(childMethodId);
+            if (child == null) {
+                child = new Node(childMethodId);
+                if (children == null) children = new HashMap<Integer, Node>(4);
+                children.put(Integer.valueOf(childMethodId), child);
+            }
+            return child;
+        }
+
+    }
+
+    private static final class ThreadState {
+
+        private long lastTimestamp;
+        private int[] lastMethods = new int[0];
+        private int lastDepth;
+        private Node[] lastPath = new Node[0];
+
+        ThreadState(long timestamp) {
+            lastTimestamp = timestamp;
+        }
+
+    }
+
+    private final class Mapper extends MethodInfoMapper {
+
+        public String getInstrMethodClass(int methodId) {
+            synchronized (SampledCallTree.this) {
+                return classNames.get(methodId);
+            }
+        }
+
+        public String getInstrMethodName(int methodId) {
+            synchronized (SampledCallTree.this) {
+                return methodNames.get(methodId);
+            }
+        }
+
+        public String getInstrMethodSignature(int methodId) {
+            return ""; // NOI18N
+        }
+
+        public int getMinMethodId() {
+            return 1;
+        }
+
+        public int getMaxMethodId() {
+            synchronized (SampledCallTree.this) {
+                return classNames.size();
+            }
+        }
+
+        public void lock(boolean mutable) {}
+
+        public void unlock() {}
+
+    }
+
+}
@@ -26,12 +26,9 @@ package com.sun.tools.visualvm.sampler.cpu;
 
 import javax.swing.SwingUtilities;
 import javax.swing.table.TableColumnModel;
-import org.netbeans.lib.profiler.global.InstrumentationFilter;
 import org.netbeans.lib.profiler.results.cpu.CPUResultsSnapshot;
 import org.netbeans.lib.profiler.results.cpu.FlatProfileProvider;
 import org.netbeans.lib.profiler.results.cpu.MethodInfoMapper;
-import org.netbeans.lib.profiler.results.cpu.StackTraceSnapshotBuilder;
-import org.netbeans.lib.profiler.results.cpu.cct.nodes.RuntimeCPUCCTNode;
 import org.netbeans.lib.profiler.ui.cpu.CPUResUserActionsHandler;
 import org.netbeans.lib.profiler.ui.cpu.LiveFlatProfileCollectorPanel;
 
@@ -41,20 +38,20 @@ import org.netbeans.lib.profiler.ui.cpu.LiveFlatProfileCollectorPanel;
  */
 final class SampledLivePanel extends LiveFlatProfileCollectorPanel {
     private MethodInfoMapper methodInfoMapper;
-    private StackTraceSnapshotBuilder snapshotBuilder;
+    private SampledCallTree callTree;
     
-    public SampledLivePanel(StackTraceSnapshotBuilder builder) {
+    public SampledLivePanel(SampledCallTree tree) {
         super(null,new DummyHandler(),null,true);
-        methodInfoMapper = builder.getMapper();
-        snapshotBuilder = builder;
+        methodInfoMapper = tree.getMapper();
+        callTree = tree;
     }
     
     public FlatProfileProvider getFlatProfileProvider() {
-        InstrumentationFilter filter = snapshotBuilder.getFilter();
-        boolean twoTimeStamps = snapshotBuilder.collectionTwoTimeStamps();
-        CCTFlattener flattener = new CCTFlattener(twoTimeStamps,methodInfoMapper,filter);
-        RuntimeCPUCCTNode rootNode = (RuntimeCPUCCTNode) snapshotBuilder.getAppRootNode();
-        return new FlatProfileBuilder(rootNode, flattener);
+        return callTree;
+    }
+
+    SampledCallTree getCallTree() {
+        return callTree;
     }
 
     protected String[] getMethodClassNameAndSig(int methodId, int currentView) {
@@ -0,0 +1,143 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.sampler.cpu;
+
+import java.lang.management.ThreadInfo;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Removes frames of the classes not passing the PackagePrefixFilter from the
+ * sampled stacks. Each distinct class is classified just once, the consumers
+ * of the filtered dumps (StackTraceSnapshotBuilder, SampledCallTree) need no
+ * filter of their own. ThreadInfo of a thread whose filtered stack and state
+ * did not change is reused from the previous dump.
+ */
+final class StackFilter {
+
+    private final PackagePrefixFilter filter;
+    private final Map<String, Boolean> classes = new HashMap<String, Boolean>();
+    private final Map<Long, ThreadRecord> threads = new HashMap<Long, ThreadRecord>();
+    private ThreadInfoFactory threadInfoFactory;
+    private int dumpsCount;
+
+
+    StackFilter(PackagePrefixFilter filter) {
+        this.filter = filter;
+    }
+
+
+    /**
+     * Returns the dump with the filtered out frames removed, the dump itself
+     * if no filter is defined.
+     */
+    synchronized ThreadInfo[] filter(ThreadInfo[] infos) {
+        if (filter == PackagePrefixFilter.NONE) return infos;
+
+        dumpsCount++;
+        ThreadInfo[] filtered = new ThreadInfo[infos.length];
+        int recorded = 0;
+        for (int i = 0; i < infos.length; i++) {
+            ThreadInfo info = infos[i];
+            if (info == null) continue;
+            StackTraceElement[] stack = info.getStackTrace();
+            StackTraceElement[] filteredStack = filter(stack);
+            if (filteredStack == stack) {
+                filtered[i] = info;
+                continue;
+            }
+
+            Long threadId = Long.valueOf(info.getThreadId());
+            ThreadRecord record = threads.get(threadId);
+            if (record == null || record.state != info.getThreadState() ||
+                !record.name.equals(info.getThreadName()) || !Arrays.equals(record.stack, filteredStack)) {
+                if (record == null) {
+                    record = new ThreadRecord();
+                    threads.put(threadId, record);
+                }
+                if (threadInfoFactory == null) threadInfoFactory = new ThreadInfoFactory(false);
+                record.name = info.getThreadName();
+                record.state = info.getThreadState();
+                record.stack = filteredStack;
+                record.info = threadInfoFactory.create(info.getThreadId(), record.name,
+                                                       record.state, filteredStack);
+            }
+            record.lastDump = dumpsCount;
+            recorded++;
+            filtered[i] = record.info;
+        }
+
+        // forget terminated threads and threads not filtered anymore
+        if (threads.size() > recorded) {
+            Iterator<ThreadRecord> iterator = threads.values().iterator();
+            while (iterator.hasNext())
+                if (iterator.next().lastDump != dumpsCount) iterator.remove();
+        }
+        return filtered;
+    }
+
+
+    // Returns the stack itself if all its frames pass the filter
+    private StackTraceElement[] filter(StackTraceElement[] stack) {
+        StackTraceElement[] filtered = null;
+        int depth = 0;
+        for (int i = 0; i < stack.length; i++) {
+            if (passes(stack[i].getClassName())) {
+                if (filtered != null) filtered[depth] = stack[i];
+                depth++;
+            } else if (filtered == null) {
+                filtered = new StackTraceElement[stack.length];
+                System.arraycopy(stack, 0, filtered, 0, depth);
+            }
+        }
+        if (filtered == null) return stack;
+
+        StackTraceElement[] trimmed = new StackTraceElement[depth];
+        System.arraycopy(filtered, 0, trimmed, 0, depth);
+        return trimmed;
+    }
+
+    private boolean passes(String className) {
+        Boolean passes = classes.get(className);
+        if (passes == null) {
+            passes = Boolean.valueOf(filter.passes(className));
+            classes.put(className, passes);
+        }
+        return passes.booleanValue();
+    }
+
+
+    private static final class ThreadRecord {
+        private String name;
+        private Thread.State state;
+        private StackTraceElement[] stack;
+        private ThreadInfo info;
+        private int lastDump;
+    }
+
+}
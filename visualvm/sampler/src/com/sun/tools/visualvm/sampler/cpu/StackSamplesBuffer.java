@@ -0,0 +1,332 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.sampler.cpu;
+
+import java.lang.management.ThreadInfo;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded ring buffer of thread dumps. Thread names, stack frames and whole
+ * stacks are interned so that a sample of a thread costs a fixed number of
+ * bytes regardless of its stack depth. The intern tables are compacted to the
+ * entries referenced by the retained samples when they outgrow the buffer.
+ * The buffer grows up to its maximum capacity to retain the dumps taken
+ * within the retention time, older dumps are overwritten first.
+ */
+final class StackSamplesBuffer {
+
+    private static final int MIN_TABLE_LIMIT = 1024;
+    private static final int INITIAL_CAPACITY = 4096;
+
+    private final int maxCapacity;
+    private long retention;
+
+    // per thread sample, indexed by (sample number % capacity)
+    private int capacity;
+    private long[] threadIds;
+    private int[] threadNames;
+    private byte[] threadStates;
+    private int[] threadStacks;
+    private long samplesCount;
+
+    // per dump, indexed by (dump number % dumpsCapacity)
+    private int dumpsCapacity;
+    private long[] dumpTimes;
+    private long[] dumpStarts;
+    private long dumpsCount;
+
+    // oldest dump and sample kept by the last resize
+    private long dumpsFloor;
+    private long samplesFloor;
+
+    private InternTable<String> names = new InternTable<String>();
+    private InternTable<StackTraceElement> frames = new InternTable<StackTraceElement>();
+    private InternTable<StackKey> stacks = new InternTable<StackKey>();
+    private int tablesLimit;
+
+    private static final Thread.State[] STATES = Thread.State.values();
+
+
+    StackSamplesBuffer(int maxCapacity) {
+        this.maxCapacity = maxCapacity;
+        allocate(Math.min(INITIAL_CAPACITY, maxCapacity));
+    }
+
+
+    /**
+     * Sets the time in nanoseconds for which the dumps should be retained.
+     */
+    synchronized void setRetention(long retention) {
+        this.retention = retention;
+    }
+
+    synchronized void addDump(ThreadInfo[] infos, long timestamp) {
+        ensureCapacity(infos.length, timestamp);
+
+        int dumpIndex = (int)(dumpsCount++ % dumpsCapacity);
+        dumpTimes[dumpIndex] = timestamp;
+        dumpStarts[dumpIndex] = samplesCount;
+
+        for (ThreadInfo info : infos) {
+            if (info == null) continue; // thread terminated
+            int index = (int)(samplesCount++ % capacity);
+            threadIds[index] = info.getThreadId();
+            threadNames[index] = names.intern(info.getThreadName());
+            threadStates[index] = (byte)info.getThreadState().ordinal();
+            threadStacks[index] = internStack(info.getStackTrace());
+        }
+
+        if (frames.size() > tablesLimit || stacks.size() > tablesLimit ||
+            names.size() > tablesLimit) compact();
+    }
+
+    synchronized void clear() {
+        samplesCount = 0;
+        dumpsCount = 0;
+        dumpsFloor = 0;
+        samplesFloor = 0;
+        names = new InternTable<String>();
+        frames = new InternTable<StackTraceElement>();
+        stacks = new InternTable<StackKey>();
+        allocate(Math.min(INITIAL_CAPACITY, maxCapacity));
+    }
+
+    /**
+     * Returns timestamp of the oldest retained dump or -1 if the buffer is empty.
+     */
+    synchronized long getFirstTimestamp() {
+        long first = firstDump();
+        return first < dumpsCount ? dumpTimes[(int)(first % dumpsCapacity)] : -1;
+    }
+
+    /**
+     * Replays retained dumps taken at or after the given timestamp, oldest first.
+     */
+    synchronized void replay(long since, DumpVisitor visitor) {
+        ThreadInfoFactory factory = new ThreadInfoFactory(true);
+        StackTraceElement[][] stacksCache = new StackTraceElement[stacks.size()][];
+        for (long dump = firstDump(); dump < dumpsCount; dump++) {
+            int dumpIndex = (int)(dump % dumpsCapacity);
+            long timestamp = dumpTimes[dumpIndex];
+            if (timestamp < since) continue;
+
+            long start = dumpStarts[dumpIndex];
+            long end = dump + 1 < dumpsCount ? dumpStarts[(int)((dump + 1) % dumpsCapacity)] : samplesCount;
+            ThreadInfo[] infos = new ThreadInfo[(int)(end - start)];
+            for (long sample = start; sample < end; sample++) {
+                int index = (int)(sample % capacity);
+                int stackId = threadStacks[index];
+                if (stacksCache[stackId] == null) stacksCache[stackId] = getStack(stackId);
+                infos[(int)(sample - start)] = factory.create(threadIds[index],
+                        names.get(threadNames[index]), STATES[threadStates[index]],
+                        stacksCache[stackId]);
+            }
+            visitor.visit(infos, timestamp);
+        }
+    }
+
+
+    private long firstDump() {
+        long first = Math.max(dumpsFloor, dumpsCount - dumpsCapacity);
+        long oldestSample = oldestSample();
+        while (first < dumpsCount && dumpStarts[(int)(first % dumpsCapacity)] < oldestSample) first++;
+        return first;
+    }
+
+    private long oldestSample() {
+        return Math.max(samplesFloor, samplesCount - capacity);
+    }
+
+    // Grows the buffer if adding the dump would overwrite dumps within the retention time
+    private void ensureCapacity(int dumpSamples, long timestamp) {
+        long since = timestamp - retention;
+        long first = firstDump();
+        while (first < dumpsCount && dumpTimes[(int)(first % dumpsCapacity)] < since) first++;
+
+        long retainedSamples = first < dumpsCount ? samplesCount - dumpStarts[(int)(first % dumpsCapacity)] : 0;
+        long retainedDumps = dumpsCount - first;
+        int newCapacity = capacity;
+        while (newCapacity < maxCapacity && retainedSamples + dumpSamples > newCapacity)
+            newCapacity = (int)Math.min((long)newCapacity * 2, maxCapacity);
+        int newDumpsCapacity = dumpsCapacity;
+        while (newDumpsCapacity < maxCapacity && retainedDumps + 1 > newDumpsCapacity)
+            newDumpsCapacity = (int)Math.min((long)newDumpsCapacity * 2, maxCapacity);
+
+        if (newCapacity != capacity || newDumpsCapacity != dumpsCapacity)
+            resize(newCapacity, newDumpsCapacity);
+    }
+
+    private void allocate(int initialCapacity) {
+        capacity = initialCapacity;
+        threadIds = new long[capacity];
+        threadNames = new int[capacity];
+        threadStates = new byte[capacity];
+        threadStacks = new int[capacity];
+        dumpsCapacity = initialCapacity;
+        dumpTimes = new long[dumpsCapacity];
+        dumpStarts = new long[dumpsCapacity];
+        tablesLimit = Math.max(MIN_TABLE_LIMIT, capacity / 4);
+    }
+
+    private void resize(int newCapacity, int newDumpsCapacity) {
+        long firstDump = firstDump();
+        long oldestSample = firstDump < dumpsCount ? dumpStarts[(int)(firstDump % dumpsCapacity)] : samplesCount;
+
+        long[] newThreadIds = new long[newCapacity];
+        int[] newThreadNames = new int[newCapacity];
+        byte[] newThreadStates = new byte[newCapacity];
+        int[] newThreadStacks = new int[newCapacity];
+        for (long sample = oldestSample; sample < samplesCount; sample++) {
+            int index = (int)(sample % capacity);
+            int newIndex = (int)(sample % newCapacity);
+            newThreadIds[newIndex] = threadIds[index];
+            newThreadNames[newIndex] = threadNames[index];
+            newThreadStates[newIndex] = threadStates[index];
+            newThreadStacks[newIndex] = threadStacks[index];
+        }
+
+        long[] newDumpTimes = new long[newDumpsCapacity];
+        long[] newDumpStarts = new long[newDumpsCapacity];
+        for (long dump = firstDump; dump < dumpsCount; dump++) {
+            int index = (int)(dump % dumpsCapacity);
+            int newIndex = (int)(dump % newDumpsCapacity);
+            newDumpTimes[newIndex] = dumpTimes[index];
+            newDumpStarts[newIndex] = dumpStarts[index];
+        }
+
+        dumpsFloor = firstDump;
+        samplesFloor = oldestSample;
+        capacity = newCapacity;
+        threadIds = newThreadIds;
+        threadNames = newThreadNames;
+        threadStates = newThreadStates;
+        threadStacks = newThreadStacks;
+        dumpsCapacity = newDumpsCapacity;
+        dumpTimes = newDumpTimes;
+        dumpStarts = newDumpStarts;
+        tablesLimit = Math.max(tablesLimit, capacity / 4);
+    }
+
+    private StackTraceElement[] getStack(int stackId) {
+        int[] frameIds = stacks.get(stackId).frames;
+        StackTraceElement[] stack = new StackTraceElement[frameIds.length];
+        for (int i = 0; i < frameIds.length; i++) stack[i] = frames.get(frameIds[i]);
+        return stack;
+    }
+
+    private int internStack(StackTraceElement[] stack) {
+        int[] frameIds = new int[stack.length];
+        for (int i = 0; i < stack.length; i++) frameIds[i] = frames.intern(stack[i]);
+        return stacks.intern(new StackKey(frameIds));
+    }
+
+    private void compact() {
+        InternTable<String> oldNames = names;
+        InternTable<StackTraceElement> oldFrames = frames;
+        InternTable<StackKey> oldStacks = stacks;
+        names = new InternTable<String>();
+        frames = new InternTable<StackTraceElement>();
+        stacks = new InternTable<StackKey>();
+
+        int[] stacksMap = new int[oldStacks.size()];
+        Arrays.fill(stacksMap, -1);
+        for (long sample = oldestSample(); sample < samplesCount; sample++) {
+            int index = (int)(sample % capacity);
+            threadNames[index] = names.intern(oldNames.get(threadNames[index]));
+            int oldStack = threadStacks[index];
+            if (stacksMap[oldStack] == -1) {
+                int[] oldFrameIds = oldStacks.get(oldStack).frames;
+                int[] frameIds = new int[oldFrameIds.length];
+                for (int i = 0; i < frameIds.length; i++)
+                    frameIds[i] = frames.intern(oldFrames.get(oldFrameIds[i]));
+                stacksMap[oldStack] = stacks.intern(new StackKey(frameIds));
+            }
+            threadStacks[index] = stacksMap[oldStack];
+        }
+
+        // Avoid compacting on every dump if most of the entries are still used
+        int used = Math.max(Math.max(frames.size(), stacks.size()), names.size());
+        tablesLimit = Math.max(Math.max(MIN_TABLE_LIMIT, capacity / 4), used * 2);
+    }
+
+
+    static interface DumpVisitor {
+        void visit(ThreadInfo[] infos, long timestamp);
+    }
+
+
+    private static final class InternTable<T> {
+
+        private final Map<T, Integer> ids = new HashMap<T, Integer>();
+        private final List<T> values = new ArrayList<T>();
+
+        int intern(T value) {
+            Integer id = ids.get(value);
+            if (id == null) {
+                id = Integer.valueOf(values.size());
+                ids.put(value, id);
+                values.add(value);
+            }
+            return id.intValue();
+        }
+
+        T get(int id) {
+            return values.get(id);
+        }
+
+        int size() {
+            return values.size();
+        }
+
+    }
+
+    private static final class StackKey {
+
+        private final int[] frames;
+        private final int hash;
+
+        StackKey(int[] frames) {
+            this.frames = frames;
+            hash = Arrays.hashCode(frames);
+        }
+
+        public int hashCode() {
+            return hash;
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof StackKey)) return false;
+            StackKey key = (StackKey)o;
+            return hash == key.hash && Arrays.equals(frames, key.frames);
+        }
+
+    }
+
+}
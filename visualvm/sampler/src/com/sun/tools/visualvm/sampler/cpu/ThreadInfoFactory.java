@@ -0,0 +1,146 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.sampler.cpu;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import javax.management.ObjectName;
+import javax.management.openmbean.ArrayType;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+
+/**
+ * Recreates ThreadInfo instances from buffered samples. ThreadInfo has no
+ * public constructor, the instances are created from CompositeData of the
+ * type used by the local platform ThreadMXBean. Composites of the frames and
+ * optionally of the interned stacks are cached for the lifetime of the factory.
+ */
+final class ThreadInfoFactory {
+
+    private static CompositeType threadInfoType;
+
+    private final Map<StackTraceElement[], CompositeData[]> stacks;
+    private final Map<StackTraceElement, CompositeData> frames =
+            new HashMap<StackTraceElement, CompositeData>();
+    private final CompositeType frameType;
+
+
+    /**
+     * @param cacheStacks true if the stacks passed to the factory are interned
+     */
+    ThreadInfoFactory(boolean cacheStacks) {
+        stacks = cacheStacks ? new IdentityHashMap<StackTraceElement[], CompositeData[]>() : null;
+        frameType = (CompositeType)((ArrayType)getThreadInfoType().getType("stackTrace")). // NOI18N
+                    getElementOpenType();
+    }
+
+
+    ThreadInfo create(long threadId, String threadName, Thread.State threadState,
+                      StackTraceElement[] stack) {
+        CompositeData[] stackData = stacks == null ? null : stacks.get(stack);
+        if (stackData == null) {
+            stackData = new CompositeData[stack.length];
+            for (int i = 0; i < stack.length; i++) stackData[i] = getFrame(stack[i]);
+            if (stacks != null) stacks.put(stack, stackData);
+        }
+
+        Map<String, Object> values = new HashMap<String, Object>();
+        values.put("threadId", Long.valueOf(threadId)); // NOI18N
+        values.put("threadName", threadName); // NOI18N
+        values.put("threadState", threadState.name()); // NOI18N
+        values.put("lockOwnerId", Long.valueOf(-1)); // NOI18N
+        values.put("blockedTime", Long.valueOf(-1)); // NOI18N
+        values.put("waitedTime", Long.valueOf(-1)); // NOI18N
+        values.put("priority", Integer.valueOf(Thread.NORM_PRIORITY)); // NOI18N
+        values.put("stackTrace", stackData); // NOI18N
+        return ThreadInfo.from(createData(getThreadInfoType(), values));
+    }
+
+
+    private CompositeData getFrame(StackTraceElement frame) {
+        CompositeData frameData = frames.get(frame);
+        if (frameData == null) {
+            Map<String, Object> values = new HashMap<String, Object>();
+            values.put("className", frame.getClassName()); // NOI18N
+            values.put("methodName", frame.getMethodName()); // NOI18N
+            values.put("fileName", frame.getFileName()); // NOI18N
+            values.put("lineNumber", Integer.valueOf(frame.getLineNumber())); // NOI18N
+            values.put("nativeMethod", Boolean.valueOf(frame.isNativeMethod())); // NOI18N
+            frameData = createData(frameType, values);
+            frames.put(frame, frameData);
+        }
+        return frameData;
+    }
+
+    // Items not provided by the caller (they differ between JDK versions) get
+    // neutral default values.
+    private static CompositeData createData(CompositeType type, Map<String, Object> values) {
+        String[] keys = type.keySet().toArray(new String[0]);
+        Object[] items = new Object[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            items[i] = values.containsKey(keys[i]) ? values.get(keys[i]) :
+                       getDefaultValue(type.getType(keys[i]));
+        }
+        try {
+            return new CompositeDataSupport(type, keys, items);
+        } catch (OpenDataException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Object getDefaultValue(OpenType<?> type) {
+        if (SimpleType.BOOLEAN.equals(type)) return Boolean.FALSE;
+        if (SimpleType.LONG.equals(type)) return Long.valueOf(0);
+        if (SimpleType.INTEGER.equals(type)) return Integer.valueOf(0);
+        if (type instanceof ArrayType && ((ArrayType<?>)type).getElementOpenType() instanceof CompositeType)
+            return new CompositeData[0];
+        return null;
+    }
+
+    private static synchronized CompositeType getThreadInfoType() {
+        if (threadInfoType == null) {
+            try {
+                ObjectName threadName = new ObjectName(ManagementFactory.THREAD_MXBEAN_NAME);
+                CompositeData data = (CompositeData)ManagementFactory.getPlatformMBeanServer().invoke(
+                        threadName, "getThreadInfo", // NOI18N
+                        new Object[] { Long.valueOf(Thread.currentThread().getId()), Integer.valueOf(1) },
+                        new String[] { long.class.getName(), int.class.getName() });
+                threadInfoType = data.getCompositeType();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return threadInfoType;
+    }
+
+}
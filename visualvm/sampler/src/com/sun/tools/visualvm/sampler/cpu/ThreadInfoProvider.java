@@ -36,6 +36,7 @@ import java.lang.management.ThreadInfo;
 import java.lang.management.ThreadMXBean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.regex.Pattern;
 import org.openide.util.NbBundle;
 
 /**
@@ -103,4 +104,113 @@ public final class ThreadInfoProvider {
         return threadBean.dumpAllThreads(false,false);
     }
 
+    /**
+     * Dumps the threads selected by the settings. Threads are selected using
+     * a stackless ThreadInfo query first, full stacks are then requested only
+     * for the selected threads. When sampling RUNNABLE threads only, the other
+     * live threads stay in the dump with their stackless ThreadInfo, so that
+     * the consumers of the dumps don't take them for terminated threads.
+     */
+    ThreadInfo[] dumpThreads(DumpSettings settings) {
+        if (settings == null || settings.isDefault()) return dumpAllThreads();
+
+        int maxDepth = settings.maxDepth > 0 ? settings.maxDepth : Integer.MAX_VALUE;
+        long[] ids = threadBean.getAllThreadIds();
+        if (settings.threadsFilter == null && !settings.runnablesOnly) {
+            return threadBean.getThreadInfo(ids, maxDepth);
+        }
+
+        ThreadInfo[] infos = threadBean.getThreadInfo(ids, 0);
+        ThreadInfo[] dump = new ThreadInfo[infos.length];
+        long[] selectedIds = new long[infos.length];
+        int[] positions = new int[infos.length];
+        int count = 0;
+        int selected = 0;
+        for (ThreadInfo info : infos) {
+            if (info == null || !settings.acceptsName(info)) continue;
+            if (settings.acceptsState(info)) {
+                selectedIds[selected] = info.getThreadId();
+                positions[selected++] = count;
+            }
+            dump[count++] = info;
+        }
+        if (count < dump.length) {
+            ThreadInfo[] trimmedDump = new ThreadInfo[count];
+            System.arraycopy(dump, 0, trimmedDump, 0, count);
+            dump = trimmedDump;
+        }
+        if (selected == 0) return dump;
+        if (selected < selectedIds.length) {
+            long[] trimmedIds = new long[selected];
+            System.arraycopy(selectedIds, 0, trimmedIds, 0, selected);
+            selectedIds = trimmedIds;
+        }
+
+        infos = threadBean.getThreadInfo(selectedIds, maxDepth);
+        for (int i = 0; i < infos.length; i++) {
+            // the thread has terminated in the meantime
+            if (infos[i] == null) dump[positions[i]] = null;
+            // the thread might have left RUNNABLE state in the meantime, it keeps the stackless info
+            else if (settings.acceptsState(infos[i])) dump[positions[i]] = infos[i];
+        }
+        return dump;
+    }
+
+
+    /**
+     * Selection of the sampled threads and their stack depth.
+     */
+    public static final class DumpSettings {
+
+        private final int maxDepth;
+        private final Pattern threadsFilter;
+        private final boolean excludeThreads;
+        private final boolean runnablesOnly;
+
+        /**
+         * Creates new DumpSettings.
+         *
+         * @param maxDepth maximum depth of sampled stacks, 0 for unlimited depth
+         * @param threadsFilter comma separated thread names, '*' matches any characters
+         * @param excludeThreads true if the threads matching the filter are not sampled
+         * @param runnablesOnly true if only RUNNABLE threads are sampled
+         */
+        public DumpSettings(int maxDepth, String threadsFilter, boolean excludeThreads, boolean runnablesOnly) {
+            this.maxDepth = maxDepth;
+            this.threadsFilter = createPattern(threadsFilter);
+            this.excludeThreads = excludeThreads;
+            this.runnablesOnly = runnablesOnly;
+        }
+
+        boolean isDefault() {
+            return maxDepth <= 0 && threadsFilter == null && !runnablesOnly;
+        }
+
+        boolean acceptsName(ThreadInfo info) {
+            if (threadsFilter == null) return true;
+            return threadsFilter.matcher(info.getThreadName()).matches() != excludeThreads;
+        }
+
+        boolean acceptsState(ThreadInfo info) {
+            return !runnablesOnly || info.getThreadState() == Thread.State.RUNNABLE;
+        }
+
+        private static Pattern createPattern(String filter) {
+            if (filter == null) return null;
+            StringBuilder regex = new StringBuilder();
+            for (String name : filter.split(",")) { // NOI18N
+                name = name.trim();
+                if (name.length() == 0) continue;
+                if (regex.length() > 0) regex.append('|'); // NOI18N
+                String[] parts = name.split("\\*", -1); // NOI18N
+                for (int i = 0; i < parts.length; i++) {
+                    if (i > 0) regex.append(".*"); // NOI18N
+                    if (parts[i].length() > 0) regex.append(Pattern.quote(parts[i]));
+                }
+            }
+            return regex.length() == 0 ? null : Pattern.compile(regex.toString());
+        }
+
+    }
+
 }
@@ -0,0 +1,127 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.sampler.memory;
+
+import com.sun.tools.visualvm.charts.ChartFactory;
+import com.sun.tools.visualvm.charts.SimpleXYChartDescriptor;
+import com.sun.tools.visualvm.charts.SimpleXYChartSupport;
+import java.awt.BorderLayout;
+import java.util.Arrays;
+import javax.swing.BorderFactory;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.SwingConstants;
+import org.openide.util.NbBundle;
+
+/**
+ * Chart of the allocation rates history of the top allocating threads. The
+ * chart is recreated with the full history whenever the set of the top
+ * allocating threads changes, otherwise just the new values are added.
+ */
+final class AllocationRatesChart extends JPanel {
+
+    private final int valuesBuffer;
+
+    private SimpleXYChartSupport chartSupport;
+    private long[] threadIds;
+    private long lastTimestamp = -1;
+
+
+    AllocationRatesChart(int valuesBuffer) {
+        super(new BorderLayout());
+        this.valuesBuffer = valuesBuffer;
+        setOpaque(false);
+        showMessage();
+    }
+
+
+    void refresh(ThreadsAllocationTracker.TopAllocators top) {
+        int threadsCount = top.getThreadsCount();
+        int valuesCount = top.getValuesCount();
+        if (threadsCount == 0 || valuesCount < 2) {
+            if (chartSupport != null) showMessage();
+            return;
+        }
+
+        long[] ids = new long[threadsCount];
+        for (int thread = 0; thread < threadsCount; thread++)
+            ids[thread] = top.getThreadId(thread);
+
+        if (chartSupport == null || !Arrays.equals(ids, threadIds)) {
+            createChart(top);
+            threadIds = ids;
+            lastTimestamp = -1;
+        }
+
+        for (int i = 0; i < valuesCount; i++) {
+            long timestamp = top.getTimestamp(i);
+            if (timestamp <= lastTimestamp) continue;
+            long[] values = new long[threadsCount];
+            for (int thread = 0; thread < threadsCount; thread++)
+                values[thread] = top.getRate(thread, i);
+            chartSupport.addValues(timestamp, values);
+            lastTimestamp = timestamp;
+        }
+
+        String[] details = new String[threadsCount];
+        for (int thread = 0; thread < threadsCount; thread++)
+            details[thread] = NbBundle.getMessage(MemoryView.class, "LBL_Rate_avg", // NOI18N
+                              chartSupport.formatBytes(top.getAverageRate(thread)));
+        chartSupport.updateDetails(details);
+    }
+
+
+    private void createChart(ThreadsAllocationTracker.TopAllocators top) {
+        String[] names = new String[top.getThreadsCount()];
+        for (int thread = 0; thread < names.length; thread++)
+            names[thread] = top.getThreadName(thread);
+
+        SimpleXYChartDescriptor chartDescriptor =
+                SimpleXYChartDescriptor.bytes(1024 * 1024, false, valuesBuffer);
+        chartDescriptor.addLineItems(names);
+        chartDescriptor.setDetailsItems(names);
+
+        chartSupport = ChartFactory.createSimpleXYChart(chartDescriptor);
+        removeAll();
+        add(chartSupport.getChart(), BorderLayout.CENTER);
+        revalidate();
+        repaint();
+    }
+
+    private void showMessage() {
+        chartSupport = null;
+        threadIds = null;
+        JLabel label = new JLabel(NbBundle.getMessage(MemoryView.class,
+                                  "MSG_No_allocation_rates"), SwingConstants.CENTER); // NOI18N
+        label.setBorder(BorderFactory.createEmptyBorder(20, 5, 20, 5));
+        label.setEnabled(false);
+        removeAll();
+        add(label, BorderLayout.CENTER);
+        revalidate();
+        repaint();
+    }
+
+}
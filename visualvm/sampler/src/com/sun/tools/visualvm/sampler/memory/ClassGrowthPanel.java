@@ -0,0 +1,208 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.sampler.memory;
+
+import com.sun.tools.visualvm.application.jvm.HeapHistogram;
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.text.DateFormat;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.BorderFactory;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.table.TableRowSorter;
+import org.openide.DialogDescriptor;
+import org.openide.DialogDisplayer;
+import org.openide.NotifyDescriptor;
+import org.openide.util.NbBundle;
+import org.openide.util.RequestProcessor;
+
+/**
+ * Table of the classes ranked by their growth across the saved histograms.
+ */
+final class ClassGrowthPanel extends JPanel {
+
+    private static final Logger LOGGER = Logger.getLogger(ClassGrowthPanel.class.getName());
+
+
+    /**
+     * Loads the histograms saved in the directory, adds the current histogram
+     * and displays the class growth in a dialog.
+     */
+    static void showClassGrowth(final File directory, final HeapHistogram current) {
+        RequestProcessor.getDefault().post(new Runnable() {
+            public void run() {
+                List<HistogramSnapshot> histograms = loadHistograms(directory);
+                if (current != null) histograms.add(HistogramSnapshot.create(current));
+
+                if (histograms.size() < 2) {
+                    DialogDisplayer.getDefault().notifyLater(new NotifyDescriptor.Message(
+                            NbBundle.getMessage(ClassGrowthPanel.class, "MSG_No_class_growth"), // NOI18N
+                            NotifyDescriptor.WARNING_MESSAGE));
+                    return;
+                }
+
+                final HistogramsDiff diff = new HistogramsDiff(histograms);
+                SwingUtilities.invokeLater(new Runnable() {
+                    public void run() {
+                        DialogDescriptor dd = new DialogDescriptor(new ClassGrowthPanel(diff),
+                                NbBundle.getMessage(ClassGrowthPanel.class, "CAPTION_Class_growth"), // NOI18N
+                                false, new Object[] { DialogDescriptor.CLOSED_OPTION },
+                                DialogDescriptor.CLOSED_OPTION, 0, null, null);
+                        DialogDisplayer.getDefault().createDialog(dd).setVisible(true);
+                    }
+                });
+            }
+        });
+    }
+
+    private static List<HistogramSnapshot> loadHistograms(File directory) {
+        List<HistogramSnapshot> histograms = new ArrayList();
+        File[] files = directory == null ? null : directory.listFiles(new FileFilter() {
+            public boolean accept(File file) {
+                String name = file.getName();
+                // histograms of removed snapshots are ignored
+                return name.endsWith(HistogramSnapshot.FILE_EXT) && file.isFile() &&
+                       HistogramSnapshot.getSnapshotFile(file).isFile();
+            }
+        });
+        if (files == null) return histograms;
+
+        Map<String, String> names = new HashMap();
+        for (File file : files) {
+            try {
+                histograms.add(HistogramSnapshot.load(file, names));
+            } catch (IOException ex) {
+                LOGGER.log(Level.INFO, "Failed to load histogram " + file, ex); // NOI18N
+            }
+        }
+        return histograms;
+    }
+
+
+    private ClassGrowthPanel(HistogramsDiff diff) {
+        super(new BorderLayout(0, 5));
+        setBorder(BorderFactory.createEmptyBorder(10, 10, 5, 10));
+
+        DateFormat format = DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.MEDIUM);
+        JLabel label = new JLabel(NbBundle.getMessage(ClassGrowthPanel.class,
+                "LBL_Class_growth_range", diff.getHistogramsCount(), // NOI18N
+                format.format(new Date(diff.getFirstTime())),
+                format.format(new Date(diff.getLastTime()))));
+        add(label, BorderLayout.NORTH);
+
+        GrowthTableModel model = new GrowthTableModel(diff);
+        JTable table = new JTable(model);
+        table.setRowSorter(new TableRowSorter(model));
+        table.setDefaultRenderer(Long.class, new NumberRenderer());
+        table.getColumnModel().getColumn(0).setPreferredWidth(350);
+        final int steps = diff.getHistogramsCount() - 1;
+        table.getColumnModel().getColumn(3).setCellRenderer(new NumberRenderer() {
+            protected void setValue(Object value) {
+                setText(value == null ? "" : value + "/" + steps); // NOI18N
+            }
+        });
+
+        JScrollPane scroll = new JScrollPane(table);
+        scroll.setPreferredSize(new Dimension(700, 400));
+        add(scroll, BorderLayout.CENTER);
+    }
+
+
+    private static class GrowthTableModel extends AbstractTableModel {
+
+        private static final String[] COLUMNS = new String[] {
+            NbBundle.getMessage(ClassGrowthPanel.class, "COL_Class_name"), // NOI18N
+            NbBundle.getMessage(ClassGrowthPanel.class, "COL_Bytes_growth"), // NOI18N
+            NbBundle.getMessage(ClassGrowthPanel.class, "COL_Instances_growth"), // NOI18N
+            NbBundle.getMessage(ClassGrowthPanel.class, "COL_Growing"), // NOI18N
+            NbBundle.getMessage(ClassGrowthPanel.class, "COL_Last_bytes") // NOI18N
+        };
+
+        private final List<HistogramsDiff.ClassGrowth> classes;
+
+        GrowthTableModel(HistogramsDiff diff) {
+            classes = diff.getClasses();
+        }
+
+        public int getRowCount() { return classes.size(); }
+
+        public int getColumnCount() { return COLUMNS.length; }
+
+        public String getColumnName(int column) { return COLUMNS[column]; }
+
+        public Class getColumnClass(int column) {
+            switch (column) {
+                case 0: return String.class;
+                case 3: return Integer.class;
+                default: return Long.class;
+            }
+        }
+
+        public Object getValueAt(int row, int column) {
+            HistogramsDiff.ClassGrowth growth = classes.get(row);
+            switch (column) {
+                case 0: return growth.getName();
+                case 1: return growth.getBytesGrowth();
+                case 2: return growth.getInstancesGrowth();
+                case 3: return growth.getGrowingSteps();
+                default: return growth.getLastBytes();
+            }
+        }
+
+    }
+
+    private static class NumberRenderer extends DefaultTableCellRenderer {
+
+        private final NumberFormat format = NumberFormat.getInstance();
+
+        NumberRenderer() {
+            setHorizontalAlignment(SwingConstants.TRAILING);
+        }
+
+        protected void setValue(Object value) {
+            setText(value == null ? "" : format.format(value)); // NOI18N
+        }
+
+    }
+
+}
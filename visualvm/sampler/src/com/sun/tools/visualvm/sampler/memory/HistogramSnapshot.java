@@ -0,0 +1,228 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.sampler.memory;
+
+import com.sun.tools.visualvm.application.jvm.HeapHistogram;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Set;
+import org.netbeans.modules.profiler.ResultsManager;
+
+/**
+ * Compact heap histogram of the memory sampler. Each class name is stored
+ * once, the class id is its position in the sorted names so histograms can be
+ * merge-joined by walking the classes in id order. The names are saved with
+ * the prefix shared with the previous name stripped and the values as
+ * variable-length numbers.
+ */
+final class HistogramSnapshot {
+
+    static final String FILE_EXT = ".mhs"; // NOI18N
+    private static final String SNAPSHOT_FILE_EXT = "." + ResultsManager.SNAPSHOT_EXTENSION; // NOI18N
+
+    private static final String SNAPSHOT_HEADER = "HeapHistogramSnapshot"; // NOI18N
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private final long time;
+    private final String[] classNames;
+    private final long[] bytes;
+    private final long[] instances;
+
+
+    private HistogramSnapshot(long time, String[] classNames, long[] bytes, long[] instances) {
+        this.time = time;
+        this.classNames = classNames;
+        this.bytes = bytes;
+        this.instances = instances;
+    }
+
+
+    /**
+     * Returns file of the histogram saved for the given .nps snapshot file.
+     */
+    static File getHistogramFile(File snapshotFile) {
+        String name = snapshotFile.getName();
+        if (name.endsWith(SNAPSHOT_FILE_EXT))
+            name = name.substring(0, name.length() - SNAPSHOT_FILE_EXT.length());
+        return new File(snapshotFile.getParentFile(), name + FILE_EXT);
+    }
+
+    /**
+     * Returns .nps snapshot file the given histogram file has been saved for.
+     */
+    static File getSnapshotFile(File histogramFile) {
+        String name = histogramFile.getName();
+        name = name.substring(0, name.length() - FILE_EXT.length());
+        return new File(histogramFile.getParentFile(), name + SNAPSHOT_FILE_EXT);
+    }
+
+    static HistogramSnapshot create(HeapHistogram histogram) {
+        Set<HeapHistogram.ClassInfo> classes = histogram.getHeapHistogram();
+        HeapHistogram.ClassInfo[] infos = classes.toArray(new HeapHistogram.ClassInfo[classes.size()]);
+        Arrays.sort(infos, new Comparator<HeapHistogram.ClassInfo>() {
+            public int compare(HeapHistogram.ClassInfo c1, HeapHistogram.ClassInfo c2) {
+                return c1.getName().compareTo(c2.getName());
+            }
+        });
+
+        String[] names = new String[infos.length];
+        long[] bytes = new long[infos.length];
+        long[] instances = new long[infos.length];
+        int count = 0;
+        for (HeapHistogram.ClassInfo info : infos) {
+            // classes of the same name from different classloaders share the id
+            if (count > 0 && names[count - 1].equals(info.getName())) {
+                bytes[count - 1] += info.getBytes();
+                instances[count - 1] += info.getInstancesCount();
+            } else {
+                names[count] = info.getName();
+                bytes[count] = info.getBytes();
+                instances[count] = info.getInstancesCount();
+                count++;
+            }
+        }
+        if (count < infos.length) {
+            names = Arrays.copyOf(names, count);
+            bytes = Arrays.copyOf(bytes, count);
+            instances = Arrays.copyOf(instances, count);
+        }
+
+        return new HistogramSnapshot(histogram.getTime().getTime(), names, bytes, instances);
+    }
+
+
+    long getTime() { return time; }
+
+    int getClassesCount() { return classNames.length; }
+
+    String getClassName(int classId) { return classNames[classId]; }
+    long getBytes(int classId) { return bytes[classId]; }
+    long getInstances(int classId) { return instances[classId]; }
+
+
+    void save(File file) throws IOException {
+        DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        try {
+            dos.writeUTF(SNAPSHOT_HEADER); // Snapshot format
+            dos.writeInt(SNAPSHOT_VERSION); // Snapshot version
+            dos.writeLong(time); // Histogram time
+            dos.writeInt(classNames.length); // Classes count
+
+            String previous = ""; // NOI18N
+            for (int i = 0; i < classNames.length; i++) {
+                String name = classNames[i];
+                int prefix = commonPrefix(previous, name);
+                writeVarLong(dos, prefix); // Length of the prefix shared with previous class
+                dos.writeUTF(name.substring(prefix)); // Rest of the class name
+                writeVarLong(dos, bytes[i]); // Bytes
+                writeVarLong(dos, instances[i]); // Instances
+                previous = name;
+            }
+        } finally {
+            dos.close();
+        }
+    }
+
+    /**
+     * Loads a histogram saved by save(File).
+     *
+     * @param file file to load the histogram from
+     * @param names table to intern the class names in, may be null
+     * @return loaded histogram
+     */
+    static HistogramSnapshot load(File file, Map<String, String> names) throws IOException {
+        DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (!SNAPSHOT_HEADER.equals(dis.readUTF()))
+                throw new IOException("Unknown snapshot format"); // NOI18N
+            if (SNAPSHOT_VERSION != dis.readInt())
+                throw new IOException("Unsupported snapshot version"); // NOI18N
+
+            long time = dis.readLong();
+            int count = dis.readInt();
+            String[] classNames = new String[count];
+            long[] bytes = new long[count];
+            long[] instances = new long[count];
+
+            String previous = ""; // NOI18N
+            for (int i = 0; i < count; i++) {
+                int prefix = (int)readVarLong(dis);
+                String name = previous.substring(0, prefix) + dis.readUTF();
+                if (names != null) {
+                    String interned = names.get(name);
+                    if (interned == null) names.put(name, name);
+                    else name = interned;
+                }
+                classNames[i] = name;
+                bytes[i] = readVarLong(dis);
+                instances[i] = readVarLong(dis);
+                previous = name;
+            }
+
+            return new HistogramSnapshot(time, classNames, bytes, instances);
+        } finally {
+            dis.close();
+        }
+    }
+
+
+    private static int commonPrefix(String s1, String s2) {
+        int length = Math.min(s1.length(), s2.length());
+        int i = 0;
+        while (i < length && s1.charAt(i) == s2.charAt(i)) i++;
+        return i;
+    }
+
+    private static void writeVarLong(DataOutputStream dos, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            dos.writeByte((int)((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        dos.writeByte((int)value);
+    }
+
+    private static long readVarLong(DataInputStream dis) throws IOException {
+        long value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = dis.readUnsignedByte();
+            value |= (long)(b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+}
@@ -0,0 +1,170 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.sampler.memory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Growth of the classes across a series of histograms. The histograms are
+ * merge-joined in a single pass over their classes sorted by name, classes
+ * missing in a histogram are counted as having no instances.
+ */
+final class HistogramsDiff {
+
+    private final int histogramsCount;
+    private final long firstTime;
+    private final long lastTime;
+    private final List<ClassGrowth> classes;
+
+
+    /**
+     * Creates the diff of the given histograms.
+     *
+     * @param histograms at least two histograms
+     */
+    HistogramsDiff(List<HistogramSnapshot> histograms) {
+        HistogramSnapshot[] series = histograms.toArray(new HistogramSnapshot[histograms.size()]);
+        Arrays.sort(series, new Comparator<HistogramSnapshot>() {
+            public int compare(HistogramSnapshot h1, HistogramSnapshot h2) {
+                long t1 = h1.getTime();
+                long t2 = h2.getTime();
+                return t1 < t2 ? -1 : (t1 == t2 ? 0 : 1);
+            }
+        });
+
+        histogramsCount = series.length;
+        firstTime = series[0].getTime();
+        lastTime = series[series.length - 1].getTime();
+        classes = new ArrayList();
+
+        int[] positions = new int[series.length];
+        long[] bytes = new long[series.length];
+        long[] instances = new long[series.length];
+
+        while (true) {
+            // next class name in all the histograms
+            String className = null;
+            for (int i = 0; i < series.length; i++) {
+                if (positions[i] < series[i].getClassesCount()) {
+                    String name = series[i].getClassName(positions[i]);
+                    if (className == null || name.compareTo(className) < 0)
+                        className = name;
+                }
+            }
+            if (className == null) break;
+
+            for (int i = 0; i < series.length; i++) {
+                int position = positions[i];
+                if (position < series[i].getClassesCount() &&
+                    className.equals(series[i].getClassName(position))) {
+                    bytes[i] = series[i].getBytes(position);
+                    instances[i] = series[i].getInstances(position);
+                    positions[i]++;
+                } else {
+                    bytes[i] = 0;
+                    instances[i] = 0;
+                }
+            }
+
+            int growingSteps = 0;
+            for (int i = 1; i < series.length; i++)
+                if (bytes[i] > bytes[i - 1]) growingSteps++;
+
+            int last = series.length - 1;
+            classes.add(new ClassGrowth(className, bytes[0], bytes[last],
+                        instances[0], instances[last], growingSteps));
+        }
+
+        Collections.sort(classes, new Comparator<ClassGrowth>() {
+            public int compare(ClassGrowth c1, ClassGrowth c2) {
+                long g1 = c1.getBytesGrowth();
+                long g2 = c2.getBytesGrowth();
+                if (g1 != g2) return g1 > g2 ? -1 : 1;
+                long i1 = c1.getInstancesGrowth();
+                long i2 = c2.getInstancesGrowth();
+                if (i1 != i2) return i1 > i2 ? -1 : 1;
+                return c1.getName().compareTo(c2.getName());
+            }
+        });
+    }
+
+
+    int getHistogramsCount() { return histogramsCount; }
+
+    long getFirstTime() { return firstTime; }
+
+    long getLastTime() { return lastTime; }
+
+    /**
+     * Returns the classes ranked by growth in bytes and instances.
+     */
+    List<ClassGrowth> getClasses() { return classes; }
+
+
+    static final class ClassGrowth {
+
+        private final String name;
+        private final long firstBytes;
+        private final long lastBytes;
+        private final long firstInstances;
+        private final long lastInstances;
+        private final int growingSteps;
+
+
+        ClassGrowth(String name, long firstBytes, long lastBytes,
+                    long firstInstances, long lastInstances, int growingSteps) {
+            this.name = name;
+            this.firstBytes = firstBytes;
+            this.lastBytes = lastBytes;
+            this.firstInstances = firstInstances;
+            this.lastInstances = lastInstances;
+            this.growingSteps = growingSteps;
+        }
+
+
+        String getName() { return name; }
+
+        long getFirstBytes() { return firstBytes; }
+        long getLastBytes() { return lastBytes; }
+        long getBytesGrowth() { return lastBytes - firstBytes; }
+
+        long getFirstInstances() { return firstInstances; }
+        long getLastInstances() { return lastInstances; }
+        long getInstancesGrowth() { return lastInstances - firstInstances; }
+
+        /**
+         * Returns number of histograms where the class grew in bytes compared
+         * to the previous histogram. The steps don't need to be consecutive.
+         */
+        int getGrowingSteps() { return growingSteps; }
+
+    }
+
+}
@@ -27,7 +27,11 @@ package com.sun.tools.visualvm.sampler.memory;
 
 import com.sun.tools.visualvm.application.jvm.HeapHistogram;
 import com.sun.tools.visualvm.application.jvm.Jvm;
+import com.sun.tools.visualvm.core.datasource.DataSource;
+import com.sun.tools.visualvm.core.datasupport.DataRemovedListener;
+import com.sun.tools.visualvm.core.datasupport.Utils;
 import com.sun.tools.visualvm.core.options.GlobalPreferences;
+import com.sun.tools.visualvm.core.snapshot.Snapshot;
 import com.sun.tools.visualvm.core.ui.components.DataViewComponent;
 import com.sun.tools.visualvm.sampler.AbstractSamplerSupport;
 import com.sun.tools.visualvm.sampler.AbstractSamplerSupport.Refresher;
@@ -37,10 +41,15 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.lang.management.MemoryMXBean;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Set;
 import java.util.TimerTask;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import javax.swing.SwingUtilities;
 import javax.swing.Timer;
 import org.netbeans.lib.profiler.common.ProfilingSettings;
@@ -54,6 +63,8 @@ import org.openide.util.NbBundle;
  */
 public abstract class MemorySamplerSupport extends AbstractSamplerSupport {
     
+    private static final Logger LOGGER = Logger.getLogger(MemorySamplerSupport.class.getName());
+    
     private final Jvm jvm;
     private final MemoryMXBean memoryBean;
     private final ThreadsMemory threadsMemory;
@@ -105,6 +116,14 @@ public abstract class MemorySamplerSupport extends AbstractSamplerSupport {
             permgenRefresher.setRefreshRate(samplingRate);
         if (threadAllocRefresher != null)
             threadAllocRefresher.setRefreshRate(samplingRate);
+        heapRefresher.register(getRefreshTarget(), NbBundle.getMessage(
+                MemorySamplerSupport.class, "LBL_Heap_histogram")); // NOI18N
+        if (permgenRefresher != null)
+            permgenRefresher.register(getRefreshTarget(), NbBundle.getMessage(
+                    MemorySamplerSupport.class, "LBL_PermGen_histogram")); // NOI18N
+        if (threadAllocRefresher != null)
+            threadAllocRefresher.register(getRefreshTarget(), NbBundle.getMessage(
+                    MemorySamplerSupport.class, "LBL_ThreadAlloc")); // NOI18N
         if (heapView != null) {
             if (permgenView != null) doRefreshImpl(heapTimer, heapView, permgenView);
             else doRefreshImpl(heapTimer, heapView);
@@ -113,6 +132,9 @@ public abstract class MemorySamplerSupport extends AbstractSamplerSupport {
     }
     
     public synchronized void stopSampling() {
+        heapRefresher.unregister();
+        if (permgenRefresher != null) permgenRefresher.unregister();
+        if (threadAllocRefresher != null) threadAllocRefresher.unregister();
         heapTimer.stop();
         if (permgenTimer != null) {
             permgenTimer.stop();
@@ -138,7 +160,7 @@ public abstract class MemorySamplerSupport extends AbstractSamplerSupport {
         
         heapTimer = new Timer(defaultRefresh, new ActionListener() {
             public void actionPerformed(ActionEvent e) {
-                heapRefresher.refresh();
+                heapRefresher.periodicRefresh();
             }
         });
         heapRefresher = new Refresher() {
@@ -168,7 +190,7 @@ public abstract class MemorySamplerSupport extends AbstractSamplerSupport {
         if (hasPermGenHisto) {
             permgenTimer = new Timer(defaultRefresh, new ActionListener() {
                 public void actionPerformed(ActionEvent e) {
-                    permgenRefresher.refresh();
+                    permgenRefresher.periodicRefresh();
                 }
             });
             permgenRefresher = new Refresher() {
@@ -194,7 +216,7 @@ public abstract class MemorySamplerSupport extends AbstractSamplerSupport {
         if (threadsMemory != null) {
             threadAllocTimer = new Timer(defaultRefresh, new ActionListener() {
                 public void actionPerformed(ActionEvent e) {
-                    threadAllocRefresher.refresh();
+                    threadAllocRefresher.periodicRefresh();
                 }
             });
             threadAllocRefresher = new Refresher() {
@@ -304,12 +326,65 @@ public abstract class MemorySamplerSupport extends AbstractSamplerSupport {
     }
     
     public static abstract class SnapshotDumper {
+        // DataSource references its DataRemovedListeners weakly
+        private static final Set<DataRemovedListener<DataSource>> histogramCleaners =
+                Collections.synchronizedSet(new HashSet<DataRemovedListener<DataSource>>());
+        
         private volatile HeapHistogram lastHistogram;
+        private volatile HeapHistogram snapshotHistogram;
         
         public abstract void takeSnapshot(boolean openView);
         
+        /**
+         * Returns directory where the snapshots and their histograms for the
+         * class growth are saved, or null if the histograms are not saved.
+         *
+         * @since VisualVM 1.4
+         */
+        public File getHistogramsDirectory() {
+            return null;
+        }
+        
+        /**
+         * Saves the histogram of the snapshot created by the last createSnapshot()
+         * call in compact form next to the snapshot file. The histogram is
+         * deleted when the snapshot is removed.
+         *
+         * @param snapshot saved snapshot
+         * @since VisualVM 1.4
+         */
+        public void saveHistogram(Snapshot snapshot) {
+            HeapHistogram histogram = snapshotHistogram;
+            File snapshotFile = snapshot.getFile();
+            if (histogram == null || snapshotFile == null) return;
+            
+            final File file = HistogramSnapshot.getHistogramFile(snapshotFile);
+            try {
+                HistogramSnapshot.create(histogram).save(file);
+            } catch (IOException ex) {
+                LOGGER.log(Level.WARNING, "Failed to save histogram " + file, ex); // NOI18N
+                return;
+            }
+            
+            DataRemovedListener<DataSource> cleaner = new DataRemovedListener<DataSource>() {
+                public void dataRemoved(DataSource dataSource) {
+                    histogramCleaners.remove(this);
+                    Utils.FILE_QUEUE.post(new Runnable() {
+                        public void run() { file.delete(); }
+                    });
+                }
+            };
+            histogramCleaners.add(cleaner);
+            snapshot.notifyWhenRemoved(cleaner);
+        }
+        
+        HeapHistogram getLastHistogram() {
+            return lastHistogram;
+        }
+        
         public SampledMemoryResultsSnapshot createSnapshot(long time) {
             HeapHistogram histogram = lastHistogram;
+            snapshotHistogram = histogram;
 
             if (histogram != null) {
                 ByteArrayOutputStream output = new ByteArrayOutputStream(1024);
@@ -130,6 +130,7 @@ final class MemoryView extends JPanel {
 
     void initSession() {
         if (snapshotButton != null) snapshotButton.setEnabled(false);
+        if (growthButton != null) growthButton.setEnabled(false);
     }
 
     boolean isPaused() {
@@ -194,6 +195,7 @@ final class MemoryView extends JPanel {
         refreshUI();
 
         if (snapshotButton != null) snapshotButton.setEnabled(true);
+        if (growthButton != null) growthButton.setEnabled(true);
     }
 
     void terminate() {
@@ -626,6 +628,19 @@ final class MemoryView extends JPanel {
             snapshotButton.setOpaque(false);
             snapshotButton.setEnabled(false);
             toolBar.addItem(snapshotButton);
+            
+            if (snapshotDumper.getHistogramsDirectory() != null) {
+                growthButton = new JButton(NbBundle.getMessage(MemoryView.class, "LBL_Class_growth")) { // NOI18N
+                    protected void fireActionPerformed(ActionEvent event) {
+                        ClassGrowthPanel.showClassGrowth(snapshotDumper.getHistogramsDirectory(),
+                                                         snapshotDumper.getLastHistogram());
+                    }
+                };
+                growthButton.setToolTipText(NbBundle.getMessage(MemoryView.class, "TOOLTIP_Class_growth")); // NOI18N
+                growthButton.setOpaque(false);
+                growthButton.setEnabled(false);
+                toolBar.addItem(growthButton);
+            }
         }
 
         toolBar.addFiller();
@@ -661,6 +676,7 @@ final class MemoryView extends JPanel {
         int maxHeight = pauseButton.getPreferredSize().height;
         maxHeight = Math.max(maxHeight, refreshButton.getPreferredSize().height);
         if (snapshotButton != null) maxHeight = Math.max(maxHeight, snapshotButton.getPreferredSize().height);
+        if (growthButton != null) maxHeight = Math.max(maxHeight, growthButton.getPreferredSize().height);
         maxHeight = Math.max(maxHeight, deltaButton.getPreferredSize().height);
         maxHeight = Math.max(maxHeight, gcButton.getPreferredSize().height);
         maxHeight = Math.max(maxHeight, heapdumpButton.getPreferredSize().height);
@@ -685,6 +701,14 @@ final class MemoryView extends JPanel {
             snapshotButton.setMaximumSize(size);
         }
 
+        if (growthButton != null) {
+            width = growthButton.getPreferredSize().width;
+            size = new Dimension(width + 5, maxHeight);
+            growthButton.setMinimumSize(size);
+            growthButton.setPreferredSize(size);
+            growthButton.setMaximumSize(size);
+        }
+
         width = deltaButton.getPreferredSize().width;
         size = new Dimension(width + 5, maxHeight);
         deltaButton.setMinimumSize(size);
@@ -825,6 +849,7 @@ final class MemoryView extends JPanel {
 //    private JLabel refreshUnitsLabel;
 //    private JComboBox refreshCombo;
     private AbstractButton snapshotButton;
+    private AbstractButton growthButton;
     private AbstractButton deltaButton;
     private AbstractButton pauseButton;
     private AbstractButton refreshButton;
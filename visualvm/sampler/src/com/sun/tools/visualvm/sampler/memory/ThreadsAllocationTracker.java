@@ -0,0 +1,258 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.sampler.memory;
+
+import java.lang.management.ThreadInfo;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tracks allocation rates of threads over time. Each thread has a row in a
+ * primitive ring of allocation rates, the sum of the rates in the ring is
+ * maintained incrementally and the threads with the highest sums form the
+ * set of top allocators. Rows of terminated threads are kept until their
+ * history rolls out of the ring.
+ */
+final class ThreadsAllocationTracker {
+
+    private final int capacity;
+    private final int topCount;
+
+    private final long[] timestamps;
+    private int head;
+    private int count;
+    private long lastTimestamp = -1;
+    private int sampleStamp;
+
+    private final Map<Long, Integer> slotsMap = new HashMap<Long, Integer>();
+    private long[][] rates = new long[0][];
+    private long[] lastBytes = new long[0];
+    private long[] windowSums = new long[0];
+    private long[] threadIds = new long[0];
+    private String[] threadNames = new String[0];
+    private int[] slotStamps = new int[0];
+    private boolean[] usedSlots = new boolean[0];
+    private int slotsCount;
+
+    private final int[] topSlots;
+    private int topSize;
+
+
+    ThreadsAllocationTracker(int capacity, int topCount) {
+        this.capacity = capacity;
+        this.topCount = topCount;
+        timestamps = new long[capacity];
+        topSlots = new int[topCount];
+    }
+
+
+    /**
+     * Adds a sample of cumulative allocated bytes of the threads.
+     *
+     * @param timestamp time of the sample in milliseconds
+     * @param infos threads of the sample, may contain null elements
+     * @param allocatedBytes cumulative allocated bytes of the threads
+     */
+    synchronized void addSample(long timestamp, ThreadInfo[] infos, long[] allocatedBytes) {
+        long period = lastTimestamp == -1 ? 0 : timestamp - lastTimestamp;
+        lastTimestamp = timestamp;
+        sampleStamp++;
+
+        // roll the oldest values out of the window
+        boolean full = count == capacity;
+        for (int slot = 0; slot < slotsCount; slot++) {
+            if (!usedSlots[slot]) continue;
+            if (full) windowSums[slot] -= rates[slot][head];
+            rates[slot][head] = 0;
+        }
+
+        for (int i = 0; i < infos.length; i++) {
+            ThreadInfo info = infos[i];
+            long bytes = allocatedBytes[i];
+            if (info == null || bytes < 0) continue;
+
+            Integer slotObj = slotsMap.get(info.getThreadId());
+            int slot;
+            long delta;
+            if (slotObj == null) {
+                slot = allocateSlot(info);
+                // the first sample of a thread is the baseline for its rates
+                delta = 0;
+            } else {
+                slot = slotObj.intValue();
+                delta = bytes - lastBytes[slot];
+            }
+            lastBytes[slot] = bytes;
+            slotStamps[slot] = sampleStamp;
+
+            long rate = period > 0 ? Math.max(delta, 0) * 1000 / period : 0;
+            rates[slot][head] = rate;
+            windowSums[slot] += rate;
+        }
+
+        // release terminated threads with no allocations left in the window
+        for (int slot = 0; slot < slotsCount; slot++)
+            if (usedSlots[slot] && slotStamps[slot] != sampleStamp && windowSums[slot] == 0)
+                releaseSlot(slot);
+
+        timestamps[head] = timestamp;
+        head = (head + 1) % capacity;
+        if (count < capacity) count++;
+
+        updateTopSlots();
+    }
+
+    /**
+     * Returns the history of the current top allocators.
+     */
+    synchronized TopAllocators getTopAllocators() {
+        long[] times = new long[count];
+        long[] ids = new long[topSize];
+        String[] names = new String[topSize];
+        long[][] values = new long[topSize][count];
+        long[] averages = new long[topSize];
+
+        int start = (head - count + capacity) % capacity;
+        for (int i = 0; i < count; i++) times[i] = timestamps[(start + i) % capacity];
+        for (int k = 0; k < topSize; k++) {
+            int slot = topSlots[k];
+            ids[k] = threadIds[slot];
+            names[k] = threadNames[slot];
+            averages[k] = windowSums[slot] / Math.max(count, 1);
+            long[] row = rates[slot];
+            for (int i = 0; i < count; i++) values[k][i] = row[(start + i) % capacity];
+        }
+
+        return new TopAllocators(times, ids, names, values, averages);
+    }
+
+
+    private void updateTopSlots() {
+        topSize = 0;
+        for (int slot = 0; slot < slotsCount; slot++) {
+            if (!usedSlots[slot] || windowSums[slot] == 0) continue;
+            long sum = windowSums[slot];
+            if (topSize == topCount && windowSums[topSlots[topSize - 1]] >= sum) continue;
+
+            int pos = topSize < topCount ? topSize++ : topSize - 1;
+            while (pos > 0 && windowSums[topSlots[pos - 1]] < sum) {
+                topSlots[pos] = topSlots[pos - 1];
+                pos--;
+            }
+            topSlots[pos] = slot;
+        }
+    }
+
+    private int allocateSlot(ThreadInfo info) {
+        int slot = 0;
+        while (slot < slotsCount && usedSlots[slot]) slot++;
+        if (slot == slotsCount) {
+            if (slotsCount == usedSlots.length) growSlots();
+            slotsCount++;
+            rates[slot] = new long[capacity];
+        } else {
+            long[] row = rates[slot];
+            for (int i = 0; i < capacity; i++) row[i] = 0;
+        }
+
+        usedSlots[slot] = true;
+        windowSums[slot] = 0;
+        threadIds[slot] = info.getThreadId();
+        threadNames[slot] = info.getThreadName();
+        slotsMap.put(info.getThreadId(), slot);
+        return slot;
+    }
+
+    private void releaseSlot(int slot) {
+        usedSlots[slot] = false;
+        threadNames[slot] = null;
+        slotsMap.remove(threadIds[slot]);
+    }
+
+    private void growSlots() {
+        int newLength = usedSlots.length * 2 + 16;
+
+        long[][] newRates = new long[newLength][];
+        System.arraycopy(rates, 0, newRates, 0, slotsCount);
+        rates = newRates;
+
+        lastBytes = copyOf(lastBytes, newLength);
+        windowSums = copyOf(windowSums, newLength);
+        threadIds = copyOf(threadIds, newLength);
+
+        String[] newNames = new String[newLength];
+        System.arraycopy(threadNames, 0, newNames, 0, slotsCount);
+        threadNames = newNames;
+
+        int[] newStamps = new int[newLength];
+        System.arraycopy(slotStamps, 0, newStamps, 0, slotsCount);
+        slotStamps = newStamps;
+
+        boolean[] newUsed = new boolean[newLength];
+        System.arraycopy(usedSlots, 0, newUsed, 0, slotsCount);
+        usedSlots = newUsed;
+    }
+
+    private static long[] copyOf(long[] array, int length) {
+        long[] copy = new long[length];
+        System.arraycopy(array, 0, copy, 0, array.length);
+        return copy;
+    }
+
+
+    /**
+     * Allocation rates history of the top allocating threads, sorted by the
+     * average allocation rate.
+     */
+    static final class TopAllocators {
+
+        private final long[] timestamps;
+        private final long[] ids;
+        private final String[] names;
+        private final long[][] rates;
+        private final long[] averages;
+
+        private TopAllocators(long[] timestamps, long[] ids, String[] names,
+                              long[][] rates, long[] averages) {
+            this.timestamps = timestamps;
+            this.ids = ids;
+            this.names = names;
+            this.rates = rates;
+            this.averages = averages;
+        }
+
+        int getThreadsCount() { return names.length; }
+        int getValuesCount() { return timestamps.length; }
+
+        long getTimestamp(int index) { return timestamps[index]; }
+        long getThreadId(int thread) { return ids[thread]; }
+        String getThreadName(int thread) { return names[thread]; }
+        long getRate(int thread, int index) { return rates[thread][index]; }
+        long getAverageRate(int thread) { return averages[thread]; }
+
+    }
+
+}
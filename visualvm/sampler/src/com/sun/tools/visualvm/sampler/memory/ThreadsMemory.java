@@ -29,6 +29,8 @@ import java.io.IOException;
 import java.lang.management.ManagementFactory;
 import java.lang.management.ThreadInfo;
 import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.Map;
 import javax.management.InstanceNotFoundException;
 import javax.management.MBeanException;
 import javax.management.MBeanServerConnection;
@@ -42,9 +44,14 @@ import javax.management.ReflectionException;
  */
 public class ThreadsMemory {
     private static final ObjectName THREAD_NAME = getThreadName();
+    static final int HISTORY_SIZE = 120;
+    private static final int TOP_THREADS = 5;
     
     private final ThreadMXBean threadBean;
     private final MBeanServerConnection connection;
+    private final ThreadsAllocationTracker allocationTracker =
+            new ThreadsAllocationTracker(HISTORY_SIZE, TOP_THREADS);
+    private Map<Long,ThreadInfo> threadInfos = new HashMap<Long,ThreadInfo>();
 
     public ThreadsMemory(ThreadMXBean bean, MBeanServerConnection conn) {
         threadBean = bean;
@@ -53,15 +60,47 @@ public class ThreadsMemory {
     
     public ThreadsMemoryInfo getThreadsMemoryInfo() throws MBeanException, ReflectionException, IOException, InstanceNotFoundException {
         long[] ids = threadBean.getAllThreadIds();
-        ThreadInfo[] tids = threadBean.getThreadInfo(ids);
         Object[] args = new Object[] {ids};
         String[] sigs = new String[] {"[J"};  // NOI18N
         long[] memInfo = (long[])connection.invoke(THREAD_NAME, "getThreadAllocatedBytes", args, sigs);   // NOI18N
         long time = System.currentTimeMillis();
+        ThreadInfo[] tids = getThreadInfos(ids);
         
-        return new ThreadsMemoryInfo(time,tids,memInfo);
+        allocationTracker.addSample(time, tids, memInfo);
+        return new ThreadsMemoryInfo(time,tids,memInfo,allocationTracker.getTopAllocators());
     }   
 
+    // ThreadInfos are only fetched for new threads, names of known threads are reused
+    private synchronized ThreadInfo[] getThreadInfos(long[] ids) {
+        Map<Long,ThreadInfo> currentInfos = new HashMap<Long,ThreadInfo>(ids.length*4/3);
+        ThreadInfo[] tids = new ThreadInfo[ids.length];
+        long[] newIds = new long[ids.length];
+        int newCount = 0;
+        
+        for (int i = 0; i < ids.length; i++) {
+            ThreadInfo ti = threadInfos.get(ids[i]);
+            if (ti != null) {
+                tids[i] = ti;
+                currentInfos.put(ids[i], ti);
+            } else {
+                newIds[newCount++] = ids[i];
+            }
+        }
+        if (newCount > 0) {
+            long[] requestedIds = new long[newCount];
+            System.arraycopy(newIds, 0, requestedIds, 0, newCount);
+            ThreadInfo[] newInfos = threadBean.getThreadInfo(requestedIds);
+            for (ThreadInfo ti : newInfos) {
+                if (ti != null) currentInfos.put(ti.getThreadId(), ti);
+            }
+            for (int i = 0; i < ids.length; i++) {
+                if (tids[i] == null) tids[i] = currentInfos.get(ids[i]);
+            }
+        }
+        threadInfos = currentInfos;
+        return tids;
+    }
+
     private static ObjectName getThreadName() {
         try {
             return new ObjectName(ManagementFactory.THREAD_MXBEAN_NAME);
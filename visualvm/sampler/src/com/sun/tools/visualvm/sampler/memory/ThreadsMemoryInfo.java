@@ -43,8 +43,9 @@ class ThreadsMemoryInfo {
     private long totalBytes;
     private long timestamp;
     private long totalDiffBytes;
+    private ThreadsAllocationTracker.TopAllocators topAllocators;
     
-    ThreadsMemoryInfo(long time, ThreadInfo[] tinfo, long[] minfo) {
+    ThreadsMemoryInfo(long time, ThreadInfo[] tinfo, long[] minfo, ThreadsAllocationTracker.TopAllocators top) {
         allocatedBytesMap = new HashMap(threads.size()*4/3);
         totalBytes = 0;
         for (int i = 0; i <tinfo.length; i++) {
@@ -57,6 +58,7 @@ class ThreadsMemoryInfo {
             }
         }
         timestamp = time;
+        topAllocators = top;
     }
     
     List<ThreadInfo> getThreads() {
@@ -67,6 +69,10 @@ class ThreadsMemoryInfo {
         return allocatedBytes;
     }
     
+    ThreadsAllocationTracker.TopAllocators getTopAllocators() {
+        return topAllocators;
+    }
+    
     long getTotalBytes() {
         return totalBytes;
     }
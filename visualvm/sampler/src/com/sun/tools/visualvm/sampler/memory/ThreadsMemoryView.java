@@ -93,7 +93,10 @@ final class ThreadsMemoryView extends JPanel {
     private final MemorySamplerSupport.HeapDumper heapDumper;
     
     private HTMLTextArea area;
+    private AllocationRatesChart ratesChart;
+    private JPanel chartPanel;
     private AbstractButton deltaButton;
+    private AbstractButton historyButton;
     private AbstractButton pauseButton;
     private AbstractButton refreshButton;
     private AbstractButton gcButton;
@@ -191,12 +194,14 @@ final class ThreadsMemoryView extends JPanel {
         customBarCellRenderer.setMaximum(totalBytes);
         updateData(false);
         refreshUI();
+        if (chartPanel.isVisible()) ratesChart.refresh(info.getTopAllocators());
     }
     
     void terminate() {
         pauseButton.setEnabled(false);
         refreshButton.setEnabled(false);
         deltaButton.setEnabled(false);
+        historyButton.setEnabled(false);
         gcButton.setEnabled(false);
         heapdumpButton.setEnabled(false);
     }
@@ -517,6 +522,18 @@ final class ThreadsMemoryView extends JPanel {
         deltaButton.setOpaque(false);
         toolBar.addItem(deltaButton);
         
+        historyButton = new JToggleButton(NbBundle.getMessage(MemoryView.class, "LBL_Rates_history")) { // NOI18N
+            protected void fireActionPerformed(ActionEvent event) {
+                chartPanel.setVisible(isSelected());
+                if (isSelected() && currentThreadsInfo != null)
+                    ratesChart.refresh(currentThreadsInfo.getTopAllocators());
+            }
+        };
+        historyButton.setToolTipText(NbBundle.getMessage(MemoryView.class, "TOOLTIP_Rates_history")); // NOI18N
+        historyButton.setOpaque(false);
+        historyButton.setSelected(true);
+        toolBar.addItem(historyButton);
+        
         toolBar.addFiller();
         
         gcButton = new JButton(NbBundle.getMessage(MemoryView.class, "LBL_Gc")) { // NOI18N
@@ -550,6 +567,7 @@ final class ThreadsMemoryView extends JPanel {
         int maxHeight = pauseButton.getPreferredSize().height;
         maxHeight = Math.max(maxHeight, refreshButton.getPreferredSize().height);
         maxHeight = Math.max(maxHeight, deltaButton.getPreferredSize().height);
+        maxHeight = Math.max(maxHeight, historyButton.getPreferredSize().height);
         maxHeight = Math.max(maxHeight, gcButton.getPreferredSize().height);
         maxHeight = Math.max(maxHeight, heapdumpButton.getPreferredSize().height);
         
@@ -571,6 +589,12 @@ final class ThreadsMemoryView extends JPanel {
         deltaButton.setPreferredSize(size);
         deltaButton.setMaximumSize(size);
         
+        width = historyButton.getPreferredSize().width;
+        size = new Dimension(width + 5, maxHeight);
+        historyButton.setMinimumSize(size);
+        historyButton.setPreferredSize(size);
+        historyButton.setMaximumSize(size);
+        
         width = gcButton.getPreferredSize().width;
         size = new Dimension(width + 5, maxHeight);
         gcButton.setMinimumSize(size);
@@ -594,7 +618,18 @@ final class ThreadsMemoryView extends JPanel {
         areaPanel.add(area, BorderLayout.NORTH);
         areaPanel.add(new SeparatorLine(true), BorderLayout.SOUTH);
         
-        resultsPanel.add(areaPanel, BorderLayout.NORTH);
+        chartPanel = new JPanel(new BorderLayout());
+        chartPanel.setOpaque(false);
+        ratesChart = new AllocationRatesChart(ThreadsMemory.HISTORY_SIZE);
+        chartPanel.add(ratesChart, BorderLayout.CENTER);
+        chartPanel.add(new SeparatorLine(true), BorderLayout.SOUTH);
+        
+        JPanel northPanel = new JPanel(new BorderLayout());
+        northPanel.setOpaque(false);
+        northPanel.add(areaPanel, BorderLayout.NORTH);
+        northPanel.add(chartPanel, BorderLayout.CENTER);
+        
+        resultsPanel.add(northPanel, BorderLayout.NORTH);
         
         add(TransparentToolBar.withSeparator(toolBar), BorderLayout.NORTH);
         
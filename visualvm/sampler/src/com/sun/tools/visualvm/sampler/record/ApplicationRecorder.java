@@ -0,0 +1,186 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.sampler.record;
+
+import com.sun.tools.visualvm.application.Application;
+import com.sun.tools.visualvm.application.jvm.Jvm;
+import com.sun.tools.visualvm.application.jvm.JvmFactory;
+import com.sun.tools.visualvm.application.snapshot.ApplicationSnapshotsSupport;
+import com.sun.tools.visualvm.application.views.ApplicationMonitorWriter;
+import com.sun.tools.visualvm.application.views.ApplicationThreadsWriter;
+import com.sun.tools.visualvm.core.datasource.Storage;
+import com.sun.tools.visualvm.core.datasupport.Utils;
+import com.sun.tools.visualvm.sampler.cpu.CPURecording;
+import com.sun.tools.visualvm.sampler.cpu.ThreadInfoProvider;
+import com.sun.tools.visualvm.tools.jmx.JmxModel;
+import com.sun.tools.visualvm.tools.jmx.JmxModelFactory;
+import com.sun.tools.visualvm.tools.jmx.JvmMXBeans;
+import com.sun.tools.visualvm.tools.jmx.JvmMXBeansFactory;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadInfo;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.netbeans.lib.profiler.results.cpu.CPUResultsSnapshot.NoDataAvailableException;
+import org.netbeans.modules.profiler.LoadedSnapshot;
+
+/**
+ * Records monitor charts, thread states and CPU samples of an application
+ * without any UI. All the data are collected on the calling thread, a single
+ * thread dump per sample serves both the CPU samples and the thread states.
+ * The recording is saved either as an application snapshot (.apps) or as a
+ * CPU snapshot (.nps).
+ */
+final class ApplicationRecorder {
+
+    private static final Logger LOGGER = Logger.getLogger(ApplicationRecorder.class.getName());
+
+    private static final int MONITOR_INTERVAL = 1000;
+
+    private final Application application;
+    private final Jvm jvm;
+    private final int samplingRate;
+    private final CPURecording cpuRecording;
+    private final ApplicationThreadsWriter threadsWriter;
+    private final ApplicationMonitorWriter monitorWriter;
+
+
+    ApplicationRecorder(Application application, ThreadInfoProvider threadInfoProvider,
+                        int samplingRate, long duration) {
+        this.application = application;
+        this.samplingRate = samplingRate;
+
+        jvm = JvmFactory.getJVMFor(application);
+        cpuRecording = new CPURecording(threadInfoProvider, null);
+        threadsWriter = new ApplicationThreadsWriter();
+        monitorWriter = jvm != null && jvm.isMonitoringSupported() ?
+                new ApplicationMonitorWriter(jvm, getProcessorsCount(application),
+                                             (int)(duration / MONITOR_INTERVAL) + 2) : null;
+    }
+
+
+    /**
+     * Records the application until the duration elapses, the application
+     * terminates or the calling thread is interrupted.
+     *
+     * @param duration recording time in milliseconds
+     * @return number of CPU samples recorded
+     */
+    int record(long duration) {
+        long time = System.currentTimeMillis();
+        long endTime = time + duration;
+        long nextSample = time;
+        long nextMonitor = time;
+
+        while (time < endTime) {
+            ThreadInfo[] infos;
+            try {
+                infos = cpuRecording.sample(System.nanoTime());
+            } catch (Throwable t) {
+                LOGGER.log(Level.INFO, "Recording " + application + " failed", t); // NOI18N
+                break;
+            }
+            threadsWriter.addThreads(time, infos);
+
+            if (monitorWriter != null && time >= nextMonitor) {
+                monitorWriter.addValues(time, jvm.getMonitoredData());
+                nextMonitor += MONITOR_INTERVAL;
+            }
+
+            nextSample += samplingRate;
+            time = System.currentTimeMillis();
+            if (nextSample < time) nextSample = time; // do not try to catch up
+            try {
+                Thread.sleep(nextSample - time);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            time = System.currentTimeMillis();
+        }
+
+        return cpuRecording.getSamplesCount();
+    }
+
+    /**
+     * Saves the recorded CPU samples to the given .nps file.
+     */
+    void saveCPUSnapshot(File file) throws IOException, NoDataAvailableException {
+        File directory = file.getAbsoluteFile().getParentFile();
+        LoadedSnapshot snapshot = cpuRecording.saveSnapshot(directory);
+        File saved = snapshot.getFile();
+        if (!saved.equals(file.getAbsoluteFile()) && (file.exists() || !saved.renameTo(file))) {
+            saved.delete();
+            throw new IOException("Cannot create " + file); // NOI18N
+        }
+    }
+
+    /**
+     * Saves all the recorded data to the given .apps archive. The archive
+     * contains the Monitor and Threads view data and the CPU snapshot.
+     */
+    void saveApplicationSnapshot(File file) throws IOException {
+        File directory = Utils.getUniqueFile(Storage.getTemporaryStorageDirectory(),
+                ApplicationSnapshotsSupport.getInstance().getCategory().createFileName());
+        if (!Utils.prepareDirectory(directory))
+            throw new IOException("Cannot create " + directory); // NOI18N
+
+        try {
+            try {
+                cpuRecording.saveSnapshot(directory);
+            } catch (NoDataAvailableException e) {
+                LOGGER.log(Level.INFO, "No CPU samples recorded for " + application); // NOI18N
+            }
+
+            Storage storage = ApplicationSnapshotsSupport.getInstance().
+                    createSnapshotStorage(application, directory);
+
+            if (monitorWriter != null) monitorWriter.save(storage);
+            threadsWriter.save(storage, monitorWriter != null ?
+                               (int)monitorWriter.getDaemonThreads() : 0);
+
+            Utils.createArchive(directory, file);
+        } finally {
+            Utils.delete(directory, true);
+        }
+        if (!file.isFile()) throw new IOException("Cannot create " + file); // NOI18N
+    }
+
+
+    private static int getProcessorsCount(Application application) {
+        JmxModel jmxModel = JmxModelFactory.getJmxModelFor(application);
+        if (jmxModel != null && jmxModel.getConnectionState() == JmxModel.ConnectionState.CONNECTED) {
+            JvmMXBeans mxbeans = JvmMXBeansFactory.getJvmMXBeans(jmxModel);
+            if (mxbeans != null) {
+                OperatingSystemMXBean osbean = mxbeans.getOperatingSystemMXBean();
+                if (osbean != null) return osbean.getAvailableProcessors();
+            }
+        }
+        return 1;
+    }
+
+}
@@ -0,0 +1,162 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.sampler.record;
+
+import com.sun.tools.visualvm.application.Application;
+import com.sun.tools.visualvm.core.datasource.DataSourceRepository;
+import com.sun.tools.visualvm.core.datasource.descriptor.DataSourceDescriptorFactory;
+import com.sun.tools.visualvm.jmx.JmxApplicationException;
+import com.sun.tools.visualvm.jmx.JmxApplicationsSupport;
+import com.sun.tools.visualvm.sampler.cpu.ThreadInfoProvider;
+import java.io.File;
+import java.io.PrintStream;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.netbeans.api.sendopts.CommandException;
+import org.netbeans.spi.sendopts.Env;
+import org.netbeans.spi.sendopts.Option;
+import org.netbeans.spi.sendopts.OptionProcessor;
+import org.openide.util.NbBundle;
+
+/**
+ * Handling of --record commandline option. Records the application defined
+ * by a pid or a JMX connection for the requested time and saves the data as
+ * an application snapshot (.apps) or CPU snapshot (.nps). The option blocks
+ * until the recording is saved so it can be used together with --nogui.
+ */
+public final class Record extends OptionProcessor {
+
+    private static final int TIMEOUT = 10000;
+    private static final int DEFAULT_DURATION = 60;
+    private static final int DEFAULT_SAMPLING_RATE = 100;
+    private static final String CPU_SNAPSHOT_EXT = ".nps"; // NOI18N
+    private static final String APPLICATION_SNAPSHOT_EXT = ".apps"; // NOI18N
+
+    private Option record = Option.requiredArgument(Option.NO_SHORT_NAME, "record"); // NOI18N
+    private Option duration = Option.requiredArgument(Option.NO_SHORT_NAME, "record-duration"); // NOI18N
+    private Option sampling = Option.requiredArgument(Option.NO_SHORT_NAME, "record-sampling"); // NOI18N
+    private Option output = Option.requiredArgument(Option.NO_SHORT_NAME, "record-output"); // NOI18N
+
+    public Record() {
+        String bundle = "com.sun.tools.visualvm.sampler.record.Bundle"; // NOI18N
+        record = Option.shortDescription(record, bundle, "MSG_RECORD"); // NOI18N
+        duration = Option.shortDescription(duration, bundle, "MSG_RECORD_DURATION"); // NOI18N
+        sampling = Option.shortDescription(sampling, bundle, "MSG_RECORD_SAMPLING"); // NOI18N
+        output = Option.shortDescription(output, bundle, "MSG_RECORD_OUTPUT"); // NOI18N
+    }
+
+    protected Set<Option> getOptions() {
+        Set<Option> options = new HashSet<Option>();
+        options.add(record);
+        options.add(duration);
+        options.add(sampling);
+        options.add(output);
+        return options;
+    }
+
+    protected void process(Env env, Map<Option, String[]> optionValues) throws CommandException {
+        String target = getValue(optionValues, record);
+        if (target == null) throw new CommandException(0, NbBundle.getMessage(Record.class, "MSG_NO_RECORD")); // NOI18N
+
+        int durationSec = getInt(optionValues, duration, DEFAULT_DURATION);
+        int samplingRate = getInt(optionValues, sampling, DEFAULT_SAMPLING_RATE);
+
+        String outputName = getValue(optionValues, output);
+        File outputFile = outputName != null ? new File(outputName) :
+                new File("application-" + System.currentTimeMillis() + APPLICATION_SNAPSHOT_EXT); // NOI18N
+        if (!outputFile.isAbsolute()) outputFile = new File(env.getCurrentDirectory(), outputFile.getPath());
+        boolean cpuSnapshot = outputFile.getName().endsWith(CPU_SNAPSHOT_EXT);
+        if (!cpuSnapshot && !outputFile.getName().endsWith(APPLICATION_SNAPSHOT_EXT))
+            outputFile = new File(outputFile.getPath() + APPLICATION_SNAPSHOT_EXT);
+        if (outputFile.exists()) throw new CommandException(0, NbBundle.getMessage(Record.class, "MSG_OUTPUT_EXISTS", outputFile)); // NOI18N
+
+        Application application = getApplication(target);
+        ThreadInfoProvider threadInfoProvider = new ThreadInfoProvider(application);
+        String status = threadInfoProvider.getStatus();
+        if (status != null) throw new CommandException(0, NbBundle.getMessage(Record.class, "MSG_CANNOT_RECORD", target, status)); // NOI18N
+
+        PrintStream out = env.getOutputStream();
+        out.println(NbBundle.getMessage(Record.class, "MSG_RECORDING", DataSourceDescriptorFactory.getDescriptor(application).getName(), Integer.toString(durationSec))); // NOI18N
+        long durationMillis = durationSec * 1000L;
+        ApplicationRecorder recorder = new ApplicationRecorder(application, threadInfoProvider,
+                                                               samplingRate, durationMillis);
+        int samples = recorder.record(durationMillis);
+
+        try {
+            if (cpuSnapshot) recorder.saveCPUSnapshot(outputFile);
+            else recorder.saveApplicationSnapshot(outputFile);
+        } catch (Exception e) {
+            throw new CommandException(0, NbBundle.getMessage(Record.class, "MSG_SAVE_FAILED", outputFile, e.getLocalizedMessage())); // NOI18N
+        }
+        out.println(NbBundle.getMessage(Record.class, "MSG_RECORDED", outputFile, Integer.toString(samples))); // NOI18N
+    }
+
+    private static Application getApplication(String target) throws CommandException {
+        int pid;
+        try {
+            pid = Integer.parseInt(target);
+        } catch (NumberFormatException e) {
+            try {
+                return JmxApplicationsSupport.getInstance().createJmxApplication(target, null, null, null);
+            } catch (JmxApplicationException ex) {
+                throw new CommandException(0, NbBundle.getMessage(Record.class, "MSG_CANNOT_RECORD", target, ex.getLocalizedMessage())); // NOI18N
+            }
+        }
+
+        // local applications are discovered asynchronously after startup
+        long timeout = System.currentTimeMillis() + TIMEOUT;
+        do {
+            Set<Application> applications = DataSourceRepository.sharedInstance().getDataSources(Application.class);
+            for (Application application : applications)
+                if (application.getPid() == pid) return application;
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        } while (System.currentTimeMillis() < timeout);
+
+        throw new CommandException(0, NbBundle.getMessage(Record.class, "MSG_NO_APP_PID", target)); // NOI18N
+    }
+
+    private static String getValue(Map<Option, String[]> optionValues, Option option) {
+        String[] values = optionValues.get(option);
+        return values != null && values.length > 0 ? values[0] : null;
+    }
+
+    private static int getInt(Map<Option, String[]> optionValues, Option option, int defaultValue) throws CommandException {
+        String value = getValue(optionValues, option);
+        if (value == null) return defaultValue;
+        try {
+            int intValue = Integer.parseInt(value);
+            if (intValue > 0) return intValue;
+        } catch (NumberFormatException e) {}
+        throw new CommandException(0, NbBundle.getMessage(Record.class, "MSG_INVALID_VALUE", value)); // NOI18N
+    }
+
+}
@@ -0,0 +1,192 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.sampler.cpu;
+
+import java.lang.management.ThreadInfo;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.netbeans.lib.profiler.global.InstrumentationFilter;
+import org.netbeans.lib.profiler.results.cpu.StackTraceSnapshotBuilder;
+
+/**
+ * This is not a test, this is a simple microbenchmark of the sampling hot
+ * path. It compares classification of sampled frames by InstrumentationFilter
+ * string matching with the PackagePrefixFilter trie and the per-class caches
+ * of SampledCallTree and StackFilter, and StackTraceSnapshotBuilder filtering
+ * the dumps itself with the builder fed by dumps filtered by StackFilter.
+ */
+public class SamplerFilterBenchmark {
+
+    private static final String FILTER =
+            "java.*, javax.*, sun.*, sunw.*, com.sun.*, com.apple.*, apple.awt.*, apple.laf.*, " + // NOI18N
+            "org.netbeans.*, org.openide.*, org.apache.*, org.eclipse.*, com.google.*, jdk.*"; // NOI18N
+
+    private static final String[] PACKAGES = new String[] {
+        "java.lang", "java.util", "java.util.concurrent", "javax.swing", "sun.nio.ch", // NOI18N
+        "com.sun.jmx.mbeanserver", "org.apache.catalina.core", "org.netbeans.lib.profiler", // NOI18N
+        "com.example.app.service", "com.example.app.dao", "com.example.app.web", "org.hibernate.impl" // NOI18N
+    };
+
+    private static final int DISTINCT_FRAMES = 2000;
+    private static final int STACK_DEPTH = 60;
+    private static final int SAMPLES = 20000;
+    private static final int THREADS = 20;
+    private static final int DUMPS = 500;
+    private static final int ROUNDS = 5;
+
+
+    public static void main(String[] args) {
+        StackTraceElement[] frames = createFrames();
+
+        InstrumentationFilter instrFilter = new InstrumentationFilter();
+        instrFilter.setFilterType(InstrumentationFilter.INSTR_FILTER_EXCLUSIVE);
+        instrFilter.setFilterStrings(FILTER);
+        PackagePrefixFilter prefixFilter = PackagePrefixFilter.create(
+                FILTER, InstrumentationFilter.INSTR_FILTER_EXCLUSIVE);
+
+        Random random = new Random(0);
+        int[][] stacks = new int[SAMPLES][STACK_DEPTH];
+        for (int[] stack : stacks)
+            for (int i = 0; i < STACK_DEPTH; i++) stack[i] = random.nextInt(frames.length);
+        ThreadInfo[][] dumps = createDumps(frames, random);
+
+        for (int round = 0; round < ROUNDS; round++) {
+            long time = System.nanoTime();
+            int passed = runInstrumentationFilter(instrFilter, frames, stacks);
+            long instrTime = System.nanoTime() - time;
+
+            time = System.nanoTime();
+            int passed2 = runPrefixFilter(prefixFilter, frames, stacks);
+            long prefixTime = System.nanoTime() - time;
+
+            time = System.nanoTime();
+            int passed3 = runCallTree(new SampledCallTree(prefixFilter, false), frames, stacks);
+            long cachedTime = System.nanoTime() - time;
+
+            System.out.println("Round " + round + ": InstrumentationFilter " + instrTime / 1000000 + // NOI18N
+                    " ms, PackagePrefixFilter " + prefixTime / 1000000 + " ms, SampledCallTree " + // NOI18N
+                    cachedTime / 1000000 + " ms (" + passed + "/" + passed2 + "/" + passed3 + " frames passed)"); // NOI18N
+
+            time = System.nanoTime();
+            runBuilder(new StackTraceSnapshotBuilder(1, instrFilter), null, dumps);
+            long builderTime = System.nanoTime() - time;
+
+            time = System.nanoTime();
+            runBuilder(new StackTraceSnapshotBuilder(1, CPUSamplerSupport.createNoneFilter()),
+                       new StackFilter(prefixFilter), dumps);
+            long stackFilterTime = System.nanoTime() - time;
+
+            System.out.println("Round " + round + ": StackTraceSnapshotBuilder filtering " + // NOI18N
+                    builderTime / 1000000 + " ms, StackFilter and StackTraceSnapshotBuilder " + // NOI18N
+                    stackFilterTime / 1000000 + " ms (" + DUMPS + " dumps)"); // NOI18N
+        }
+    }
+
+
+    // the way the frames were classified before, including the method key lookup
+    private static int runInstrumentationFilter(InstrumentationFilter filter,
+                                                StackTraceElement[] frames, int[][] stacks) {
+        Map<String, Integer> methodIds = new HashMap<String, Integer>();
+        int passed = 0;
+        for (int[] stack : stacks)
+            for (int index : stack) {
+                StackTraceElement frame = copy(frames[index]);
+                if (!filter.passesFilter(frame.getClassName().replace('.', '/'))) continue; // NOI18N
+                String key = frame.getClassName() + "." + frame.getMethodName(); // NOI18N
+                Integer methodId = methodIds.get(key);
+                if (methodId == null) methodIds.put(key, Integer.valueOf(methodIds.size()));
+                passed++;
+            }
+        return passed;
+    }
+
+    private static int runPrefixFilter(PackagePrefixFilter filter,
+                                       StackTraceElement[] frames, int[][] stacks) {
+        int passed = 0;
+        for (int[] stack : stacks)
+            for (int index : stack)
+                if (filter.passes(copy(frames[index]).getClassName())) passed++;
+        return passed;
+    }
+
+    private static int runCallTree(SampledCallTree callTree,
+                                   StackTraceElement[] frames, int[][] stacks) {
+        int passed = 0;
+        for (int[] stack : stacks)
+            for (int index : stack)
+                if (callTree.getFrameId(copy(frames[index])) != -1) passed++;
+        return passed;
+    }
+
+    private static void runBuilder(StackTraceSnapshotBuilder builder, StackFilter stackFilter,
+                                   ThreadInfo[][] dumps) {
+        long timestamp = 0;
+        for (ThreadInfo[] dump : dumps) {
+            timestamp += 10000000;
+            builder.addStacktrace(stackFilter == null ? dump : stackFilter.filter(dump), timestamp);
+        }
+    }
+
+    // sampled frames are deserialized, each sample brings new instances
+    private static StackTraceElement copy(StackTraceElement frame) {
+        return new StackTraceElement(new String(frame.getClassName()), new String(frame.getMethodName()),
+                                     frame.getFileName(), frame.getLineNumber());
+    }
+
+    private static StackTraceElement[] createFrames() {
+        Random random = new Random(1);
+        StackTraceElement[] frames = new StackTraceElement[DISTINCT_FRAMES];
+        for (int i = 0; i < frames.length; i++) {
+            String className = PACKAGES[random.nextInt(PACKAGES.length)] + ".Class" + random.nextInt(200); // NOI18N
+            frames[i] = new StackTraceElement(className, "method" + random.nextInt(20), // NOI18N
+                                              null, random.nextInt(500));
+        }
+        return frames;
+    }
+
+    // each dump changes the top frames of some threads, like a real application
+    private static ThreadInfo[][] createDumps(StackTraceElement[] frames, Random random) {
+        ThreadInfoFactory factory = new ThreadInfoFactory(false);
+        int[][] stacks = new int[THREADS][STACK_DEPTH];
+        for (int[] stack : stacks)
+            for (int i = 0; i < STACK_DEPTH; i++) stack[i] = random.nextInt(frames.length);
+
+        ThreadInfo[][] dumps = new ThreadInfo[DUMPS][THREADS];
+        for (int d = 0; d < DUMPS; d++) {
+            for (int t = 0; t < THREADS; t++) {
+                int[] stack = stacks[t];
+                if (random.nextBoolean())
+                    for (int i = random.nextInt(STACK_DEPTH); i >= 0; i--) stack[i] = random.nextInt(frames.length);
+                StackTraceElement[] sampled = new StackTraceElement[STACK_DEPTH];
+                for (int i = 0; i < STACK_DEPTH; i++) sampled[i] = copy(frames[stack[i]]);
+                dumps[d][t] = factory.create(t + 1, "Thread " + t, Thread.State.RUNNABLE, sampled); // NOI18N
+            }
+        }
+        return dumps;
+    }
+
+}
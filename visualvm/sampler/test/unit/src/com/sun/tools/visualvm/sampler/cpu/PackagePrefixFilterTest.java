@@ -0,0 +1,145 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+package com.sun.tools.visualvm.sampler.cpu;
+
+import java.lang.management.ThreadInfo;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.netbeans.lib.profiler.global.InstrumentationFilter;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that PackagePrefixFilter and the per-class caches of SampledCallTree
+ * and StackFilter classify sampled frames the same way as InstrumentationFilter.
+ */
+public class PackagePrefixFilterTest {
+
+    private static final String FILTER =
+            "java.*, javax.*, sun.*, sunw.*, com.sun.*, com.apple.*, apple.awt.*, apple.laf.*, " + // NOI18N
+            "org.netbeans.*, org.openide.*, org.apache.*, org.eclipse.*, com.google.*, jdk.*"; // NOI18N
+
+    private static final String[] PACKAGES = new String[] {
+        "java.lang", "java.util", "java.util.concurrent", "javax.swing", "sun.nio.ch", // NOI18N
+        "com.sun.jmx.mbeanserver", "org.apache.catalina.core", "org.netbeans.lib.profiler", // NOI18N
+        "com.example.app.service", "com.example.app.dao", "com.example.app.web", "org.hibernate.impl", // NOI18N
+        "javafx.scene", "sunx.misc", "com.sunny", "jdkx", "" // NOI18N
+    };
+
+    private static final int DISTINCT_FRAMES = 2000;
+
+
+    @Test
+    public void exclusiveFilterAgrees() {
+        assertFiltersAgree(InstrumentationFilter.INSTR_FILTER_EXCLUSIVE);
+    }
+
+    @Test
+    public void inclusiveFilterAgrees() {
+        assertFiltersAgree(InstrumentationFilter.INSTR_FILTER_INCLUSIVE);
+    }
+
+    @Test
+    public void noFilterPassesAll() {
+        PackagePrefixFilter filter = PackagePrefixFilter.create(FILTER, InstrumentationFilter.INSTR_FILTER_NONE);
+        for (StackTraceElement frame : createFrames())
+            assertTrue(frame.getClassName(), filter.passes(frame.getClassName()));
+    }
+
+    @Test
+    public void exclusiveFilter() {
+        PackagePrefixFilter filter = PackagePrefixFilter.create(FILTER +
+                ", com.example.app.web.Class7 org/hibernate/impl/Class1", // NOI18N
+                InstrumentationFilter.INSTR_FILTER_EXCLUSIVE);
+        assertFalse(filter.passes("java.lang.String")); // NOI18N
+        assertFalse(filter.passes("com.example.app.web.Class7")); // NOI18N
+        assertFalse(filter.passes("org.hibernate.impl.Class1")); // NOI18N
+        assertTrue(filter.passes("com.example.app.web.Class70")); // NOI18N
+        assertTrue(filter.passes("javafx.scene.Node")); // NOI18N
+        assertTrue(filter.passes("Main")); // NOI18N
+    }
+
+
+    @Test
+    public void stackFilterRemovesFilteredFrames() {
+        InstrumentationFilter instrFilter = new InstrumentationFilter();
+        instrFilter.setFilterType(InstrumentationFilter.INSTR_FILTER_EXCLUSIVE);
+        instrFilter.setFilterStrings(FILTER);
+        StackFilter stackFilter = new StackFilter(PackagePrefixFilter.create(
+                FILTER, InstrumentationFilter.INSTR_FILTER_EXCLUSIVE));
+
+        StackTraceElement[] stack = createFrames();
+        List<StackTraceElement> expected = new ArrayList<StackTraceElement>();
+        for (StackTraceElement frame : stack)
+            if (instrFilter.passesFilter(frame.getClassName().replace('.', '/'))) expected.add(frame); // NOI18N
+
+        ThreadInfoFactory factory = new ThreadInfoFactory(false);
+        ThreadInfo[] dump = new ThreadInfo[] {
+            factory.create(1, "main", Thread.State.RUNNABLE, stack), null // NOI18N
+        };
+        ThreadInfo[] filtered = stackFilter.filter(dump);
+        assertNull(filtered[1]);
+        assertEquals(1, filtered[0].getThreadId());
+        assertEquals(Thread.State.RUNNABLE, filtered[0].getThreadState());
+        assertArrayEquals(expected.toArray(), filtered[0].getStackTrace());
+
+        // unchanged thread keeps its filtered ThreadInfo
+        dump[0] = factory.create(1, "main", Thread.State.RUNNABLE, stack.clone()); // NOI18N
+        assertSame(filtered[0], stackFilter.filter(dump)[0]);
+    }
+
+
+    private static void assertFiltersAgree(int filterType) {
+        InstrumentationFilter instrFilter = new InstrumentationFilter();
+        instrFilter.setFilterType(filterType);
+        instrFilter.setFilterStrings(FILTER);
+        PackagePrefixFilter prefixFilter = PackagePrefixFilter.create(FILTER, filterType);
+        SampledCallTree callTree = new SampledCallTree(prefixFilter, false);
+
+        List<String> mismatches = new ArrayList<String>();
+        for (StackTraceElement frame : createFrames()) {
+            String className = frame.getClassName();
+            boolean expected = instrFilter.passesFilter(className.replace('.', '/')); // NOI18N
+            if (expected != prefixFilter.passes(className) ||
+                expected != (callTree.getFrameId(frame) != -1)) mismatches.add(className);
+        }
+        assertTrue("Mismatching frames: " + mismatches, mismatches.isEmpty()); // NOI18N
+    }
+
+    private static StackTraceElement[] createFrames() {
+        Random random = new Random(1);
+        StackTraceElement[] frames = new StackTraceElement[DISTINCT_FRAMES];
+        for (int i = 0; i < frames.length; i++) {
+            String packageName = PACKAGES[random.nextInt(PACKAGES.length)];
+            String className = (packageName.length() == 0 ? "" : packageName + ".") + // NOI18N
+                               "Class" + random.nextInt(200); // NOI18N
+            frames[i] = new StackTraceElement(className, "method" + random.nextInt(20), // NOI18N
+                                              null, random.nextInt(500));
+        }
+        return frames;
+    }
+
+}
@@ -0,0 +1,195 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.sampler.cpu;
+
+import java.lang.management.ThreadInfo;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.netbeans.lib.profiler.global.InstrumentationFilter;
+import org.netbeans.lib.profiler.results.cpu.FlatProfileContainer;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Checks the flat profile and the flame graph of SampledCallTree built from
+ * small hand-made stacks. Stacks are listed from the top frame down, times
+ * are in milliseconds.
+ */
+public class SampledCallTreeTest {
+
+    private static final long MS = 1000000;
+
+    private final ThreadInfoFactory factory = new ThreadInfoFactory(false);
+
+
+    @Test
+    public void commonPrefixIsSameCall() {
+        SampledCallTree tree = new SampledCallTree(PackagePrefixFilter.NONE, false);
+        tree.addStacktrace(dump(thread(1, "B", "A")), 0); // NOI18N
+        tree.addStacktrace(dump(thread(1, "C", "A")), 10 * MS); // NOI18N
+        tree.addStacktrace(dump(thread(1, "C", "A")), 20 * MS); // NOI18N
+
+        Map<String, long[]> profile = getFlatProfile(tree);
+        assertMethod(profile, "A", 0, 20, 1); // NOI18N
+        assertMethod(profile, "B", 0, 0, 1); // NOI18N
+        assertMethod(profile, "C", 20, 20, 1); // NOI18N
+
+        SampledCallTree.FlameFrame root = tree.getFlameGraph(null, 0.01);
+        assertEquals(20 * MS, root.totalTime);
+        SampledCallTree.FlameFrame a = getOnlyChild(root, "A"); // NOI18N
+        assertEquals(20 * MS, a.totalTime);
+        assertEquals(0, a.selfTime);
+        SampledCallTree.FlameFrame c = getOnlyChild(a, "C"); // NOI18N
+        assertEquals(20 * MS, c.selfTime);
+        assertEquals(1.0, c.width, 0.0001);
+        assertArrayEquals(new int[] { a.methodId, c.methodId }, c.getPath());
+        assertEquals(c.methodId, tree.getFlameGraph(c.getPath(), 0).methodId);
+    }
+
+    @Test
+    public void recursionCountedOnce() {
+        SampledCallTree tree = new SampledCallTree(PackagePrefixFilter.NONE, false);
+        tree.addStacktrace(dump(thread(1, "A", "B", "A")), 0); // NOI18N
+        tree.addStacktrace(dump(thread(1, "A", "B", "A")), 10 * MS); // NOI18N
+
+        Map<String, long[]> profile = getFlatProfile(tree);
+        assertMethod(profile, "A", 10, 10, 2); // NOI18N
+        assertMethod(profile, "B", 0, 10, 1); // NOI18N
+
+        SampledCallTree.FlameFrame a = getOnlyChild(tree.getFlameGraph(null, 0), "A"); // NOI18N
+        SampledCallTree.FlameFrame b = getOnlyChild(a, "B"); // NOI18N
+        SampledCallTree.FlameFrame a2 = getOnlyChild(b, "A"); // NOI18N
+        assertEquals(10 * MS, a.totalTime);
+        assertEquals(0, a.selfTime);
+        assertEquals(10 * MS, a2.selfTime);
+        assertEquals(2, a2.depth - a.depth);
+    }
+
+    @Test
+    public void disappearedThreadIsForgotten() {
+        SampledCallTree tree = new SampledCallTree(PackagePrefixFilter.NONE, false);
+        tree.addStacktrace(dump(thread(1, "A"), thread(2, "B")), 0); // NOI18N
+        tree.addStacktrace(dump(thread(1, "A")), 10 * MS); // NOI18N
+        // thread 2 starts over, its time is counted from its new first sample
+        tree.addStacktrace(dump(thread(1, "A"), null, thread(2, "B")), 20 * MS); // NOI18N
+        tree.addStacktrace(dump(thread(1, "A"), thread(2, "B")), 30 * MS); // NOI18N
+
+        Map<String, long[]> profile = getFlatProfile(tree);
+        assertMethod(profile, "A", 30, 30, 1); // NOI18N
+        assertMethod(profile, "B", 10, 10, 2); // NOI18N
+        assertEquals(40 * MS, tree.getFlameGraph(null, 0).totalTime);
+    }
+
+    @Test
+    public void filteredFramesAreSkipped() {
+        SampledCallTree tree = new SampledCallTree(PackagePrefixFilter.create(
+                "java.*", InstrumentationFilter.INSTR_FILTER_EXCLUSIVE), false); // NOI18N
+        tree.addStacktrace(dump(thread(1, "java.lang.Object", "A", "java.lang.Thread")), 0); // NOI18N
+        tree.addStacktrace(dump(thread(1, "java.lang.Object", "A", "java.lang.Thread")), 10 * MS); // NOI18N
+
+        Map<String, long[]> profile = getFlatProfile(tree);
+        assertEquals(1, profile.size());
+        assertMethod(profile, "A", 10, 10, 1); // NOI18N
+    }
+
+    @Test
+    public void runningTimeWithTwoTimeStamps() {
+        SampledCallTree tree = new SampledCallTree(PackagePrefixFilter.NONE, true);
+        tree.addStacktrace(dump(thread(1, Thread.State.RUNNABLE, "A")), 0); // NOI18N
+        tree.addStacktrace(dump(thread(1, Thread.State.RUNNABLE, "A")), 10 * MS); // NOI18N
+        tree.addStacktrace(dump(thread(1, Thread.State.WAITING, "A")), 30 * MS); // NOI18N
+
+        FlatProfileContainer container = tree.createFlatProfile();
+        assertEquals(1, container.getNRows());
+        assertEquals(30000, container.getTimeInMcs0AtRow(0));
+        assertEquals(30000, container.getTotalTimeInMcs0AtRow(0));
+        assertEquals(10000, container.getTimeInMcs1AtRow(0));
+        assertEquals(10000, container.getTotalTimeInMcs1AtRow(0));
+    }
+
+    @Test
+    public void manyMethods() {
+        String[] frames = new String[200];
+        for (int i = 0; i < frames.length; i++) frames[i] = "M" + i; // NOI18N
+        SampledCallTree tree = new SampledCallTree(PackagePrefixFilter.NONE, true);
+        tree.addStacktrace(dump(thread(1, frames)), 0);
+        tree.addStacktrace(dump(thread(1, frames)), 10 * MS);
+
+        Map<String, long[]> profile = getFlatProfile(tree);
+        assertEquals(frames.length, profile.size());
+        assertMethod(profile, "M0", 10, 10, 1); // NOI18N
+        assertMethod(profile, "M199", 0, 10, 1); // NOI18N
+    }
+
+
+    private ThreadInfo thread(long id, String... classes) {
+        return thread(id, Thread.State.RUNNABLE, classes);
+    }
+
+    private ThreadInfo thread(long id, Thread.State state, String... classes) {
+        StackTraceElement[] stack = new StackTraceElement[classes.length];
+        for (int i = 0; i < classes.length; i++)
+            stack[i] = new StackTraceElement(classes[i], "m", null, -1); // NOI18N
+        return factory.create(id, "Thread " + id, state, stack); // NOI18N
+    }
+
+    private static ThreadInfo[] dump(ThreadInfo... threads) {
+        return threads;
+    }
+
+    // method name -> self time [ms], total time [ms], invocations
+    private static Map<String, long[]> getFlatProfile(SampledCallTree tree) {
+        FlatProfileContainer container = tree.createFlatProfile();
+        Map<String, long[]> profile = new HashMap<String, long[]>();
+        for (int row = 0; row < container.getNRows(); row++) {
+            String method = tree.getMethodName(container.getMethodIdAtRow(row));
+            profile.put(method.substring(0, method.lastIndexOf('.')), new long[] { // NOI18N
+                container.getTimeInMcs0AtRow(row) / 1000, container.getTotalTimeInMcs0AtRow(row) / 1000,
+                container.getNInvocationsAtRow(row)
+            });
+        }
+        return profile;
+    }
+
+    private static void assertMethod(Map<String, long[]> profile, String className,
+                                     long selfTime, long totalTime, int invocations) {
+        long[] values = profile.get(className);
+        assertNotNull(className, values);
+        assertEquals(className + " self time", selfTime, values[0]); // NOI18N
+        assertEquals(className + " total time", totalTime, values[1]); // NOI18N
+        assertEquals(className + " invocations", invocations, values[2]); // NOI18N
+    }
+
+    private static SampledCallTree.FlameFrame getOnlyChild(SampledCallTree.FlameFrame frame, String className) {
+        List<SampledCallTree.FlameFrame> children = frame.getChildren();
+        assertEquals(1, children.size());
+        SampledCallTree.FlameFrame child = children.get(0);
+        assertEquals(className + ".m", child.methodName); // NOI18N
+        return child;
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.threaddump.impl;
+
+import com.sun.tools.visualvm.core.ui.actions.MultiDataSourceAction;
+import com.sun.tools.visualvm.threaddump.ThreadDump;
+import java.awt.event.ActionEvent;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.SwingUtilities;
+import org.openide.DialogDescriptor;
+import org.openide.DialogDisplayer;
+import org.openide.util.NbBundle;
+import org.openide.util.RequestProcessor;
+
+/**
+ * Analyzes a series of selected thread dumps.
+ */
+class CompareThreadDumpsAction extends MultiDataSourceAction<ThreadDump> {
+    
+    private static final Logger LOGGER = Logger.getLogger(CompareThreadDumpsAction.class.getName());
+    
+    private static CompareThreadDumpsAction instance;
+    
+    public static synchronized CompareThreadDumpsAction instance() {
+        if (instance == null) 
+            instance = new CompareThreadDumpsAction();
+        return instance;
+    }
+    
+    
+    protected void actionPerformed(Set<ThreadDump> threadDumps, ActionEvent actionEvent) {
+        final ArrayList<ThreadDump> dumps = new ArrayList<ThreadDump>(threadDumps);
+        final ThreadDumpsAnalysisPanel panel = new ThreadDumpsAnalysisPanel();
+        
+        DialogDescriptor dd = new DialogDescriptor(panel,
+                NbBundle.getMessage(CompareThreadDumpsAction.class, "LBL_Compare_Thread_Dumps"), // NOI18N
+                false, new Object[] { DialogDescriptor.CLOSED_OPTION },
+                DialogDescriptor.CLOSED_OPTION, 0, null, null);
+        DialogDisplayer.getDefault().createDialog(dd).setVisible(true);
+        
+        RequestProcessor.getDefault().post(new Runnable() {
+            public void run() {
+                try {
+                    final ThreadDumpsAnalysis analysis = ThreadDumpsAnalysis.analyze(dumps);
+                    SwingUtilities.invokeLater(new Runnable() {
+                        public void run() { panel.setAnalysis(analysis); }
+                    });
+                } catch (IOException e) {
+                    LOGGER.log(Level.INFO, "Failed to analyze thread dumps", e); // NOI18N
+                    SwingUtilities.invokeLater(new Runnable() {
+                        public void run() { panel.setFailed(); }
+                    });
+                }
+            }
+        });
+    }
+    
+    protected boolean isEnabled(Set<ThreadDump> threadDumps) {
+        return threadDumps.size() > 1;
+    }
+    
+    
+    private CompareThreadDumpsAction() {
+        super(ThreadDump.class);
+        putValue(NAME, NbBundle.getMessage(CompareThreadDumpsAction.class, "MSG_Compare_Thread_Dumps"));  // NOI18N
+        putValue(SHORT_DESCRIPTION, NbBundle.getMessage(CompareThreadDumpsAction.class, "LBL_Compare_Thread_Dumps"));     // NOI18N
+    }
+}
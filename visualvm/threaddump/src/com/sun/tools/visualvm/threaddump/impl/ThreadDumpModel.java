@@ -0,0 +1,251 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.threaddump.impl;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Thread dump parsed into per-thread records. The file is read in a single
+ * streaming pass, lines preceding the first thread form the header, lines
+ * following the threads (deadlocks, JNI references) form the footer.
+ */
+final class ThreadDumpModel {
+    
+    private static final String STATE_PREFIX = "java.lang.Thread.State: "; // NOI18N
+    private static final String FRAME_PREFIX = "at "; // NOI18N
+    private static final String LOCKED_PREFIX = "- locked "; // NOI18N
+    private static final String[] WAITING_PREFIXES = new String[] {
+        "- waiting to lock ", "- waiting on ", "- parking to wait for " }; // NOI18N
+    private static final String SYNCHRONIZERS = "Locked ownable synchronizers:"; // NOI18N
+    private static final String TAB = "        "; // NOI18N
+    // Both jstack and VisualVM start the dump by the time it was taken
+    private static final String TIMESTAMP_FORMAT = "yyyy-MM-dd HH:mm:ss"; // NOI18N
+    
+    private final String[] header;
+    private final List<ThreadRecord> threads;
+    private final String[] footer;
+    private final FrameTable frameTable;
+    
+    
+    private ThreadDumpModel(String[] header, List<ThreadRecord> threads,
+                            String[] footer, FrameTable frameTable) {
+        this.header = header;
+        this.threads = Collections.unmodifiableList(threads);
+        this.footer = footer;
+        this.frameTable = frameTable;
+    }
+    
+    
+    static ThreadDumpModel parse(File file) throws IOException {
+        return parse(file, new FrameTable());
+    }
+    
+    static ThreadDumpModel parse(File file, FrameTable frameTable) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                                new FileInputStream(file), "UTF-8")); // NOI18N
+        try {
+            Parser parser = new Parser(frameTable);
+            String line;
+            while ((line = reader.readLine()) != null) parser.processLine(line);
+            return parser.finish();
+        } finally {
+            reader.close();
+        }
+    }
+    
+    
+    String[] getHeader() {
+        return header;
+    }
+    
+    List<ThreadRecord> getThreads() {
+        return threads;
+    }
+    
+    /**
+     * Returns the time the dump was taken as recorded in its header, -1 if
+     * the header doesn't contain the time.
+     */
+    long getTimestamp() {
+        SimpleDateFormat format = new SimpleDateFormat(TIMESTAMP_FORMAT);
+        format.setLenient(false);
+        for (String line : header) {
+            String text = line.trim();
+            ParsePosition position = new ParsePosition(0);
+            Date date = format.parse(text, position);
+            if (date != null && position.getIndex() == text.length()) return date.getTime();
+        }
+        return -1;
+    }
+    
+    String[] getFooter() {
+        return footer;
+    }
+    
+    FrameTable getFrameTable() {
+        return frameTable;
+    }
+    
+    
+    private static boolean isThreadHeader(String line) {
+        // "Thread-1": lines start a deadlock description, not a thread
+        return line.startsWith("\"") && !line.endsWith("\":"); // NOI18N
+    }
+    
+    private static String getThreadName(String header) {
+        int end = header.indexOf('"', 1); // NOI18N
+        return end == -1 ? header.substring(1) : header.substring(1, end);
+    }
+    
+    
+    private static class Parser {
+        
+        private final FrameTable frameTable;
+        private final List<String> header = new ArrayList<String>();
+        private final List<ThreadRecord> threads = new ArrayList<ThreadRecord>();
+        private final List<String> footer = new ArrayList<String>();
+        
+        // Thread being parsed
+        private String threadHeader;
+        private String state;
+        private String waitedLock;
+        private boolean synchronizers;
+        private final List<String> heldLocks = new ArrayList<String>();
+        private int[] lines = new int[64];
+        private int linesCount;
+        private int[] frames = new int[64];
+        private int framesCount;
+        
+        
+        Parser(FrameTable frameTable) {
+            this.frameTable = frameTable;
+        }
+        
+        
+        void processLine(String line) {
+            if (!footer.isEmpty()) {
+                footer.add(line);
+            } else if (isThreadHeader(line)) {
+                finishThread();
+                threadHeader = line;
+            } else if (line.trim().isEmpty()) {
+                if (threadHeader == null && !header.isEmpty()) header.add(line);
+            } else if (threadHeader == null && threads.isEmpty()) {
+                header.add(line);
+            } else if (!Character.isWhitespace(line.charAt(0))) {
+                finishThread();
+                footer.add(line);
+            } else {
+                processThreadLine(line);
+            }
+        }
+        
+        ThreadDumpModel finish() {
+            finishThread();
+            return new ThreadDumpModel(toArray(header), threads, toArray(footer), frameTable);
+        }
+        
+        
+        private void processThreadLine(String line) {
+            String text = line.trim();
+            if (text.startsWith(STATE_PREFIX)) {
+                String s = text.substring(STATE_PREFIX.length());
+                int space = s.indexOf(' '); // NOI18N
+                state = space == -1 ? s : s.substring(0, space);
+            } else if (text.startsWith(FRAME_PREFIX)) {
+                if (framesCount == frames.length) frames = grow(frames);
+                frames[framesCount++] = addLine(line);
+                return;
+            } else if (text.startsWith(LOCKED_PREFIX)) {
+                heldLocks.add(text.substring(LOCKED_PREFIX.length()));
+            } else if (text.startsWith(SYNCHRONIZERS)) {
+                synchronizers = true;
+            } else if (synchronizers && text.startsWith("- <")) { // NOI18N
+                heldLocks.add(text.substring(2));
+            } else {
+                for (String prefix : WAITING_PREFIXES)
+                    if (text.startsWith(prefix)) {
+                        waitedLock = text.substring(prefix.length()).trim();
+                        break;
+                    }
+            }
+            addLine(line);
+        }
+        
+        private int addLine(String line) {
+            int id = frameTable.intern(line.replace("\t", TAB)); // NOI18N
+            if (linesCount == lines.length) lines = grow(lines);
+            lines[linesCount++] = id;
+            return id;
+        }
+        
+        private void finishThread() {
+            if (threadHeader == null) return;
+            
+            int[] threadLines = new int[linesCount];
+            System.arraycopy(lines, 0, threadLines, 0, linesCount);
+            int[] threadFrames = new int[framesCount];
+            System.arraycopy(frames, 0, threadFrames, 0, framesCount);
+            
+            threads.add(new ThreadRecord(threadHeader, getThreadName(threadHeader),
+                        state, waitedLock, heldLocks.toArray(new String[heldLocks.size()]),
+                        threadLines, threadFrames, frameTable));
+            
+            threadHeader = null;
+            state = null;
+            waitedLock = null;
+            synchronizers = false;
+            heldLocks.clear();
+            linesCount = 0;
+            framesCount = 0;
+        }
+        
+        private static int[] grow(int[] array) {
+            int[] newArray = new int[array.length * 2];
+            System.arraycopy(array, 0, newArray, 0, array.length);
+            return newArray;
+        }
+        
+        private static String[] toArray(List<String> list) {
+            // strip trailing empty lines
+            int size = list.size();
+            while (size > 0 && list.get(size - 1).trim().isEmpty()) size--;
+            return list.subList(0, size).toArray(new String[size]);
+        }
+        
+    }
+    
+}
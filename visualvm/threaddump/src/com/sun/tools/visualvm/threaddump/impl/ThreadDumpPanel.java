@@ -0,0 +1,362 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.threaddump.impl;
+
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.FlowLayout;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.swing.AbstractListModel;
+import javax.swing.BorderFactory;
+import javax.swing.JCheckBox;
+import javax.swing.JComboBox;
+import javax.swing.JComponent;
+import javax.swing.JLabel;
+import javax.swing.JList;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTextField;
+import javax.swing.ListCellRenderer;
+import javax.swing.UIManager;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import org.openide.util.NbBundle;
+
+/**
+ * Displays a parsed thread dump. Only the visible threads are rendered,
+ * threads can be filtered by state and lock and grouped by identical stacks.
+ */
+class ThreadDumpPanel extends JPanel {
+    
+    private static final Color HEADER_COLOR = new Color(0x00, 0x33, 0xcc);
+    private static final Color TEXT_COLOR = new Color(0xcc, 0x33, 0);
+    
+    private final ThreadDumpModel model;
+    
+    private JCheckBox groupCheckBox;
+    private JComboBox stateCombo;
+    private JTextField lockField;
+    private JLabel countLabel;
+    private JList list;
+    
+    
+    ThreadDumpPanel(ThreadDumpModel model) {
+        this.model = model;
+        initComponents();
+        refresh();
+    }
+    
+    
+    private void refresh() {
+        String allStates = NbBundle.getMessage(ThreadDumpPanel.class, "LBL_All_States"); // NOI18N
+        Object selectedState = stateCombo.getSelectedItem();
+        String state = allStates.equals(selectedState) ? null : (String)selectedState;
+        String lock = lockField.getText().trim();
+        
+        List<ThreadRecord> threads = new ArrayList<ThreadRecord>();
+        for (ThreadRecord thread : model.getThreads()) {
+            if (state != null && !state.equals(thread.getState())) continue;
+            if (!lock.isEmpty() && !thread.involvesLock(lock)) continue;
+            threads.add(thread);
+        }
+        
+        List<Entry> entries = new ArrayList<Entry>();
+        String[] header = model.getHeader();
+        if (header.length > 0) entries.add(new TextEntry(header));
+        if (groupCheckBox.isSelected()) {
+            for (List<ThreadRecord> group : groupByStack(threads))
+                entries.add(group.size() == 1 ? new ThreadEntry(group.get(0)) :
+                                                new GroupEntry(group));
+        } else {
+            for (ThreadRecord thread : threads) entries.add(new ThreadEntry(thread));
+        }
+        String[] footer = model.getFooter();
+        if (footer.length > 0) entries.add(new TextEntry(footer));
+        
+        list.setModel(new EntriesModel(entries));
+        countLabel.setText(NbBundle.getMessage(ThreadDumpPanel.class, "LBL_Threads_Shown", // NOI18N
+                           threads.size(), model.getThreads().size()));
+    }
+    
+    private static List<List<ThreadRecord>> groupByStack(List<ThreadRecord> threads) {
+        Map<StackKey, List<ThreadRecord>> groupsMap = new HashMap<StackKey, List<ThreadRecord>>();
+        List<List<ThreadRecord>> groups = new ArrayList<List<ThreadRecord>>();
+        for (ThreadRecord thread : threads) {
+            StackKey key = new StackKey(thread.getFrames());
+            List<ThreadRecord> group = groupsMap.get(key);
+            if (group == null) {
+                group = new ArrayList<ThreadRecord>();
+                groupsMap.put(key, group);
+                groups.add(group);
+            }
+            group.add(thread);
+        }
+        // Largest groups first, stable for groups of the same size
+        Collections.sort(groups, new Comparator<List<ThreadRecord>>() {
+            public int compare(List<ThreadRecord> g1, List<ThreadRecord> g2) {
+                return g2.size() - g1.size();
+            }
+        });
+        return groups;
+    }
+    
+    private void initComponents() {
+        setLayout(new BorderLayout());
+        setOpaque(false);
+        
+        ActionListener refresher = new ActionListener() {
+            public void actionPerformed(ActionEvent e) { refresh(); }
+        };
+        
+        groupCheckBox = new JCheckBox(NbBundle.getMessage(ThreadDumpPanel.class, "LBL_Group_Stacks")); // NOI18N
+        groupCheckBox.setOpaque(false);
+        groupCheckBox.addActionListener(refresher);
+        
+        Set<String> states = new TreeSet<String>();
+        for (ThreadRecord thread : model.getThreads())
+            if (thread.getState() != null) states.add(thread.getState());
+        List<String> stateItems = new ArrayList<String>();
+        stateItems.add(NbBundle.getMessage(ThreadDumpPanel.class, "LBL_All_States")); // NOI18N
+        stateItems.addAll(states);
+        stateCombo = new JComboBox(stateItems.toArray());
+        stateCombo.addActionListener(refresher);
+        
+        lockField = new JTextField(20);
+        lockField.getDocument().addDocumentListener(new DocumentListener() {
+            public void insertUpdate(DocumentEvent e) { refresh(); }
+            public void removeUpdate(DocumentEvent e) { refresh(); }
+            public void changedUpdate(DocumentEvent e) { refresh(); }
+        });
+        
+        countLabel = new JLabel();
+        
+        JPanel toolbar = new JPanel(new FlowLayout(FlowLayout.LEADING, 8, 4));
+        toolbar.setOpaque(false);
+        toolbar.add(groupCheckBox);
+        toolbar.add(new JLabel(NbBundle.getMessage(ThreadDumpPanel.class, "LBL_State"))); // NOI18N
+        toolbar.add(stateCombo);
+        toolbar.add(new JLabel(NbBundle.getMessage(ThreadDumpPanel.class, "LBL_Lock"))); // NOI18N
+        toolbar.add(lockField);
+        toolbar.add(countLabel);
+        
+        list = new JList();
+        list.setCellRenderer(new EntryRenderer());
+        list.setBorder(BorderFactory.createEmptyBorder(14, 8, 14, 8));
+        
+        JScrollPane scrollPane = new JScrollPane(list);
+        scrollPane.setBorder(BorderFactory.createEmptyBorder());
+        scrollPane.setViewportBorder(BorderFactory.createEmptyBorder());
+        
+        add(toolbar, BorderLayout.NORTH);
+        add(scrollPane, BorderLayout.CENTER);
+    }
+    
+    
+    // --- List entries --------------------------------------------------------
+    
+    private static abstract class Entry {
+        
+        private int maxLength = -1;
+        
+        abstract int getLinesCount();
+        
+        abstract String getLine(int index);
+        
+        int getMaxLength() {
+            if (maxLength == -1) {
+                maxLength = 0;
+                for (int i = 0; i < getLinesCount(); i++)
+                    maxLength = Math.max(maxLength, getLine(i).length());
+            }
+            return maxLength;
+        }
+        
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < getLinesCount(); i++) {
+                if (i > 0) sb.append('\n'); // NOI18N
+                sb.append(getLine(i));
+            }
+            return sb.toString();
+        }
+        
+    }
+    
+    private static class TextEntry extends Entry {
+        
+        private final String[] lines;
+        
+        TextEntry(String[] lines) { this.lines = lines; }
+        
+        int getLinesCount() { return lines.length; }
+        
+        String getLine(int index) { return lines[index]; }
+        
+    }
+    
+    private static class ThreadEntry extends Entry {
+        
+        private final ThreadRecord thread;
+        
+        ThreadEntry(ThreadRecord thread) { this.thread = thread; }
+        
+        int getLinesCount() { return thread.getLinesCount() + 1; }
+        
+        String getLine(int index) {
+            return index == 0 ? thread.getHeader() : thread.getLine(index - 1);
+        }
+        
+    }
+    
+    private static class GroupEntry extends Entry {
+        
+        private final List<ThreadRecord> threads;
+        private final String title;
+        
+        GroupEntry(List<ThreadRecord> threads) {
+            this.threads = threads;
+            title = NbBundle.getMessage(ThreadDumpPanel.class, "LBL_Identical_Stacks", threads.size()); // NOI18N
+        }
+        
+        // Title, headers of all threads and the stack of the first thread
+        int getLinesCount() { return threads.size() + threads.get(0).getLinesCount() + 1; }
+        
+        String getLine(int index) {
+            if (index == 0) return title;
+            if (index <= threads.size()) return threads.get(index - 1).getHeader();
+            return threads.get(0).getLine(index - threads.size() - 1);
+        }
+        
+    }
+    
+    private static class EntriesModel extends AbstractListModel {
+        
+        private final List<Entry> entries;
+        
+        EntriesModel(List<Entry> entries) { this.entries = entries; }
+        
+        public int getSize() { return entries.size(); }
+        
+        public Object getElementAt(int index) { return entries.get(index); }
+        
+    }
+    
+    private static class StackKey {
+        
+        private final int[] frames;
+        private final int hashCode;
+        
+        StackKey(int[] frames) {
+            this.frames = frames;
+            hashCode = Arrays.hashCode(frames);
+        }
+        
+        public int hashCode() { return hashCode; }
+        
+        public boolean equals(Object o) {
+            return o instanceof StackKey && Arrays.equals(frames, ((StackKey)o).frames);
+        }
+        
+    }
+    
+    
+    // --- Renderer ------------------------------------------------------------
+    
+    // Paints only the lines within the clip, the size is computed from the
+    // lines count and maximum line length without laying out any text.
+    private static class EntryRenderer extends JComponent implements ListCellRenderer {
+        
+        private Entry entry;
+        private boolean selected;
+        private Color selectionBackground;
+        private Color selectionForeground;
+        
+        EntryRenderer() {
+            Font font = UIManager.getFont("Label.font"); // NOI18N
+            int size = font == null ? 12 : font.getSize();
+            setFont(new Font(Font.MONOSPACED, Font.PLAIN, size));
+        }
+        
+        public Component getListCellRendererComponent(JList list, Object value,
+                                    int index, boolean isSelected, boolean hasFocus) {
+            entry = (Entry)value;
+            selected = isSelected;
+            selectionBackground = list.getSelectionBackground();
+            selectionForeground = list.getSelectionForeground();
+            return this;
+        }
+        
+        public Dimension getPreferredSize() {
+            FontMetrics fm = getFontMetrics(getFont());
+            // one empty line separates the entries
+            return new Dimension(entry.getMaxLength() * fm.charWidth('m'), // NOI18N
+                                 (entry.getLinesCount() + 1) * fm.getHeight());
+        }
+        
+        protected void paintComponent(Graphics g) {
+            FontMetrics fm = g.getFontMetrics(getFont());
+            int lineHeight = fm.getHeight();
+            int linesCount = entry.getLinesCount();
+            
+            if (selected) {
+                g.setColor(selectionBackground);
+                g.fillRect(0, 0, getWidth(), linesCount * lineHeight);
+            }
+            
+            Rectangle clip = g.getClipBounds();
+            int first = clip == null ? 0 : Math.max(0, clip.y / lineHeight);
+            int last = clip == null ? linesCount - 1 :
+                       Math.min(linesCount - 1, (clip.y + clip.height) / lineHeight);
+            
+            g.setFont(getFont());
+            for (int i = first; i <= last; i++) {
+                String line = entry.getLine(i);
+                if (selected) g.setColor(selectionForeground);
+                else if (!line.isEmpty() && !Character.isWhitespace(line.charAt(0))) g.setColor(HEADER_COLOR);
+                else g.setColor(TEXT_COLOR);
+                g.drawString(line, 0, i * lineHeight + fm.getAscent());
+            }
+        }
+        
+    }
+    
+}
@@ -36,6 +36,7 @@ import com.sun.tools.visualvm.application.jvm.JvmFactory;
 import com.sun.tools.visualvm.core.datasource.DataSource;
 import com.sun.tools.visualvm.core.datasource.Storage;
 import com.sun.tools.visualvm.core.snapshot.Snapshot;
+import com.sun.tools.visualvm.core.snapshot.SnapshotsCatalog;
 import com.sun.tools.visualvm.core.ui.DataSourceWindowManager;
 import com.sun.tools.visualvm.threaddump.ThreadDumpSupport;
 import com.sun.tools.visualvm.tools.sa.SaModel;
@@ -44,7 +45,6 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.HashSet;
 import java.util.Set;
 import javax.swing.SwingUtilities;
 import org.netbeans.api.progress.ProgressHandle;
@@ -62,6 +62,13 @@ import org.openide.util.RequestProcessor;
  */
 public class ThreadDumpProvider {
     
+    private static final SnapshotsCatalog.SnapshotFactory<ThreadDumpImpl> SNAPSHOT_FACTORY =
+            new SnapshotsCatalog.SnapshotFactory<ThreadDumpImpl>() {
+        public ThreadDumpImpl createSnapshot(File file, DataSource owner) {
+            return new ThreadDumpImpl(file, owner);
+        }
+    };
+    
     public void createThreadDump(final Application application, final boolean openView) {
          RequestProcessor.getDefault().post(new Runnable() {
             public void run() {
@@ -145,22 +152,16 @@ public class ThreadDumpProvider {
         if (snapshot instanceof ThreadDumpImpl) return;
         File snapshotFile = snapshot.getFile();
         if (snapshotFile != null && snapshotFile.isDirectory()) {
-            File[] files = snapshotFile.listFiles(ThreadDumpSupport.getInstance().getCategory().getFilenameFilter());
-            if (files == null) return;
-            Set<ThreadDumpImpl> threadDumps = new HashSet();
-            for (File file : files) threadDumps.add(new ThreadDumpImpl(file, snapshot));
-            snapshot.getRepository().addDataSources(threadDumps);
+            SnapshotsCatalog.sharedInstance().registerSnapshots(snapshot, snapshotFile,
+                    ThreadDumpSupport.getInstance().getCategory(), SNAPSHOT_FACTORY);
         }
     }
     
     private void processNewApplication(Application application) {
         Storage storage = application.getStorage();
         if (storage.directoryExists()) {
-            File[] files = storage.getDirectory().listFiles(ThreadDumpSupport.getInstance().getCategory().getFilenameFilter());
-            if (files == null) return;
-            Set<ThreadDumpImpl> threadDumps = new HashSet();
-            for (File file : files) threadDumps.add(new ThreadDumpImpl(file, application));
-            application.getRepository().addDataSources(threadDumps);
+            SnapshotsCatalog.sharedInstance().registerSnapshots(application, storage.getDirectory(),
+                    ThreadDumpSupport.getInstance().getCategory(), SNAPSHOT_FACTORY);
         }
     }
     
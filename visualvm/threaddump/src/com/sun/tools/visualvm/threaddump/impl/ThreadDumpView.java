@@ -32,26 +32,15 @@ import com.sun.tools.visualvm.core.datasource.descriptor.DataSourceDescriptorFac
 import com.sun.tools.visualvm.threaddump.ThreadDump;
 import com.sun.tools.visualvm.core.ui.DataSourceView;
 import com.sun.tools.visualvm.core.ui.components.DataViewComponent;
-import com.sun.tools.visualvm.core.ui.components.ScrollableContainer;
-import com.sun.tools.visualvm.uisupport.HTMLTextArea;
 import java.awt.BorderLayout;
-import java.awt.Color;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
+import java.util.logging.Level;
 import java.util.logging.Logger;
-import javax.swing.BorderFactory;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.SwingConstants;
-import javax.swing.text.BadLocationException;
-import javax.swing.text.Document;
-import javax.swing.text.Segment;
-import javax.swing.text.html.HTMLDocument;
-import javax.swing.text.html.HTMLEditorKit;
-import javax.swing.text.html.StyleSheet;
+import javax.swing.SwingUtilities;
 import org.openide.util.NbBundle;
 import org.openide.util.RequestProcessor;
 
@@ -118,7 +107,7 @@ class ThreadDumpView extends DataSourceView {
         
         
         public DataViewComponent.MasterView getMasterView() {
-            return new DataViewComponent.MasterView(NbBundle.getMessage(ThreadDumpView.class, "LBL_Thread_Dump"), null, new ScrollableContainer(this));  // NOI18N
+            return new DataViewComponent.MasterView(NbBundle.getMessage(ThreadDumpView.class, "LBL_Thread_Dump"), null, this);  // NOI18N
         }
         
         
@@ -135,123 +124,31 @@ class ThreadDumpView extends DataSourceView {
             setOpaque(false);
         }
 
-        private static String htmlize(String value) {
-            return value.replace("&", "&amp;").replace("<", "&lt;").replace("\t", "        ");     // NOI18N
-        }
-
-        private static String transform(String value) {
-            StringBuilder sb = new StringBuilder();
-            String[] result = value.split("\\n"); // NOI18N
-            for (int i = 0; i < result.length; i++) {
-                String line = result[i];
-                if (!line.isEmpty() && !Character.isWhitespace(line.charAt(0))) {
-                    sb.append("<span style=\"color: #0033CC\">"); // NOI18N
-                    sb.append(line);
-                    sb.append("</span><br>"); // NOI18N
-                } else {
-                    sb.append(line);
-                    sb.append("<br>"); // NOI18N
-                }
-            }
-            return sb.toString();
-        }
-
         private void loadThreadDump(final File file) {
             RequestProcessor.getDefault().post(new Runnable() {
-            public void run() {
-              InputStream is = null;
-              try {
-                is = new FileInputStream(file);
-                byte[] data = new byte[(int)file.length()];
-                try {
-                  is.read(data);
-                } catch (IOException ex) {
-                  LOGGER.throwing(ThreadDumpView.class.getName(), "loadThreadDump", ex);     // NOI18N
+                public void run() {
+                    try {
+                        final ThreadDumpModel model = ThreadDumpModel.parse(file);
+                        SwingUtilities.invokeLater(new Runnable() {
+                            public void run() {
+                                contentsPanel.remove(progressLabel);
+                                contentsPanel.add(new ThreadDumpPanel(model), BorderLayout.CENTER);
+                                contentsPanel.revalidate();
+                                contentsPanel.repaint();
+                            }
+                        });
+                    } catch (IOException ex) {
+                        LOGGER.log(Level.INFO, "Failed to load thread dump " + file, ex);   // NOI18N
+                        SwingUtilities.invokeLater(new Runnable() {
+                            public void run() {
+                                progressLabel.setText(NbBundle.getMessage(ThreadDumpView.class, "MSG_Loading_Thread_Dump_Failed"));  // NOI18N
+                            }
+                        });
+                    }
                 }
-                try {
-                  HTMLTextArea area = new HTMLTextArea();
-                  area.setEditorKit(new CustomHtmlEditorKit());
-                  area.setForeground(new Color(0xcc, 0x33, 0));
-                  area.setText("<pre>" + transform(htmlize(new String(data, "UTF-8"))) + "</pre>"); // NOI18N
-                  area.setCaretPosition(0);
-                  area.setBorder(BorderFactory.createEmptyBorder(14, 8, 14, 8));
-                  contentsPanel.remove(progressLabel);
-                  contentsPanel.add(area, BorderLayout.CENTER);
-                  contentsPanel.revalidate();
-                  contentsPanel.repaint();
-//                  contentsPanel.doLayout();
-                } catch (Exception ex) {
-                  LOGGER.throwing(ThreadDumpView.class.getName(), "loadThreadDump", ex);     // NOI18N
-                }
-              } catch (FileNotFoundException ex) {
-                LOGGER.throwing(ThreadDumpView.class.getName(), "loadThreadDump", ex);   // NOI18N
-              } finally {
-                  if (is != null) {
-                      try {
-                          is.close();
-                      } catch (IOException e) {
-                          // ignore
-                      }
-                  }
-              }
-           }
-          });
-        }
-        
-    }
-
-    private static class CustomHtmlEditorKit extends HTMLEditorKit {
-
-        @Override
-        public Document createDefaultDocument() {
-            StyleSheet styles = getStyleSheet();
-            StyleSheet ss = new StyleSheet();
-
-            ss.addStyleSheet(styles);
-
-            HTMLDocument doc = new CustomHTMLDocument(ss);
-            doc.setParser(getParser());
-            doc.setAsynchronousLoadPriority(4);
-            doc.setTokenThreshold(100);
-            return doc;
+            });
         }
-    }
-    
-    private static class CustomHTMLDocument extends HTMLDocument {
-        private static final int CACHE_BOUNDARY = 1000;
-        private char[] segArray;
-        private int segOffset;
-        private int segCount;
-        private boolean segPartialReturn;
-        private int lastOffset;
-        private int lastLength;
         
-        private CustomHTMLDocument(StyleSheet ss) {
-            super(ss);
-            lastOffset = -1;
-            lastLength = -1;
-            putProperty("multiByte", Boolean.TRUE);      // NOI18N
-        }
-
-        @Override
-        public void getText(int offset, int length, Segment txt) throws BadLocationException {
-            if (lastOffset == offset && lastLength == length) {
-                txt.array = segArray;
-                txt.offset = segOffset;
-                txt.count = segCount;
-                txt.setPartialReturn(segPartialReturn);
-                return;
-            }
-            super.getText(offset, length, txt);
-            if (length > CACHE_BOUNDARY || lastLength <= CACHE_BOUNDARY) {
-                segArray = txt.array;
-                segOffset = txt.offset;
-                segCount = txt.count;
-                segPartialReturn = txt.isPartialReturn();
-                lastOffset = offset;
-                lastLength = length;
-            }
-        }
     }
     
 }
@@ -0,0 +1,376 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.threaddump.impl;
+
+import com.sun.tools.visualvm.threaddump.ThreadDump;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import org.openide.util.RequestProcessor;
+
+/**
+ * Analysis of a series of thread dumps. The dumps are parsed in parallel
+ * into a shared FrameTable and ordered by the time recorded in each dump,
+ * threads are aligned across the dumps by their name and id. Object
+ * addresses change between dumps, so contended locks are aligned by the
+ * class of the lock and the frame where the threads are blocked.
+ */
+final class ThreadDumpsAnalysis {
+    
+    private static final RequestProcessor PROCESSOR = new RequestProcessor(
+            "Thread Dumps Analysis", Runtime.getRuntime().availableProcessors()); // NOI18N
+    
+    private static final String BLOCKED = "BLOCKED"; // NOI18N
+    private static final String RUNNABLE = "RUNNABLE"; // NOI18N
+    private static final String OWNED_BY = " owned by "; // NOI18N
+    private static final String LOCK_CLASS_PREFIX = "(a "; // NOI18N
+    
+    private final List<ThreadDumpModel> dumps;
+    private final FrameTable frameTable;
+    
+    private final List<StuckThread> stuckThreads = new ArrayList<StuckThread>();
+    private final List<LockHotSpot> lockHotSpots = new ArrayList<LockHotSpot>();
+    private final List<FrameCount> frameCounts = new ArrayList<FrameCount>();
+    private int threadsCount;
+    
+    
+    private ThreadDumpsAnalysis(List<ThreadDumpModel> dumps, FrameTable frameTable) {
+        this.dumps = dumps;
+        this.frameTable = frameTable;
+        
+        Map<String, ThreadRecord[]> threads = alignThreads();
+        threadsCount = threads.size();
+        computeStuckThreads(threads);
+        computeLockHotSpots();
+        computeFrameCounts();
+    }
+    
+    
+    static ThreadDumpsAnalysis analyze(List<ThreadDump> threadDumps) throws IOException {
+        final List<File> files = new ArrayList<File>();
+        for (ThreadDump threadDump : threadDumps) files.add(threadDump.getFile());
+        
+        final FrameTable frameTable = new FrameTable();
+        final ThreadDumpModel[] models = new ThreadDumpModel[files.size()];
+        final IOException[] exception = new IOException[1];
+        List<RequestProcessor.Task> tasks = new ArrayList<RequestProcessor.Task>();
+        for (int i = 0; i < models.length; i++) {
+            final int index = i;
+            final File file = files.get(i);
+            tasks.add(PROCESSOR.post(new Runnable() {
+                public void run() {
+                    try {
+                        models[index] = ThreadDumpModel.parse(file, frameTable);
+                    } catch (IOException e) {
+                        synchronized (exception) { exception[0] = e; }
+                    }
+                }
+            }));
+        }
+        for (RequestProcessor.Task task : tasks) task.waitFinished();
+        
+        synchronized (exception) { if (exception[0] != null) throw exception[0]; }
+        
+        // The dumps are ordered by the time recorded in the dump, or by the file
+        // time for dumps without recorded time. The file time also orders dumps
+        // taken in the same second. Each dump gets a single key so that the
+        // order is consistent for any mix of dumps with and without recorded time.
+        final long[] times = new long[models.length];
+        final long[] fileTimes = new long[models.length];
+        List<Integer> order = new ArrayList<Integer>(models.length);
+        for (int i = 0; i < models.length; i++) {
+            fileTimes[i] = files.get(i).lastModified();
+            long timestamp = models[i].getTimestamp();
+            times[i] = timestamp == -1 ? fileTimes[i] : timestamp;
+            order.add(i);
+        }
+        Collections.sort(order, new Comparator<Integer>() {
+            public int compare(Integer i1, Integer i2) {
+                int result = compare(times[i1], times[i2]);
+                return result != 0 ? result : compare(fileTimes[i1], fileTimes[i2]);
+            }
+            private int compare(long t1, long t2) {
+                return t1 < t2 ? -1 : (t1 == t2 ? 0 : 1);
+            }
+        });
+        
+        List<ThreadDumpModel> dumps = new ArrayList<ThreadDumpModel>(models.length);
+        for (int index : order) dumps.add(models[index]);
+        return new ThreadDumpsAnalysis(dumps, frameTable);
+    }
+    
+    
+    int getDumpsCount() {
+        return dumps.size();
+    }
+    
+    int getThreadsCount() {
+        return threadsCount;
+    }
+    
+    int getFramesCount() {
+        return frameTable.size();
+    }
+    
+    // Threads staying on the same top frame, longest first
+    List<StuckThread> getStuckThreads() {
+        return stuckThreads;
+    }
+    
+    // Locks blocking threads by blocking site, most contended first
+    List<LockHotSpot> getLockHotSpots() {
+        return lockHotSpots;
+    }
+    
+    // Frames histogram, most frequent first
+    List<FrameCount> getFrameCounts() {
+        return frameCounts;
+    }
+    
+    
+    // Maps thread key to the thread records in each dump, null if missing in the dump
+    private Map<String, ThreadRecord[]> alignThreads() {
+        Map<String, ThreadRecord[]> threads = new LinkedHashMap<String, ThreadRecord[]>();
+        for (int i = 0; i < dumps.size(); i++) {
+            for (ThreadRecord thread : dumps.get(i).getThreads()) {
+                String key = getThreadKey(thread);
+                ThreadRecord[] records = threads.get(key);
+                if (records == null) {
+                    records = new ThreadRecord[dumps.size()];
+                    threads.put(key, records);
+                }
+                records[i] = thread;
+            }
+        }
+        return threads;
+    }
+    
+    private void computeStuckThreads(Map<String, ThreadRecord[]> threads) {
+        for (ThreadRecord[] records : threads.values()) {
+            int bestRun = 0;
+            int bestEnd = -1;
+            int run = 0;
+            for (int i = 0; i < records.length; i++) {
+                if (!isBusy(records[i])) {
+                    run = 0;
+                } else if (run > 0 && records[i].getFrames()[0] == records[i - 1].getFrames()[0]) {
+                    run++;
+                } else {
+                    run = 1;
+                }
+                if (run > bestRun) {
+                    bestRun = run;
+                    bestEnd = i;
+                }
+            }
+            if (bestRun > 1) {
+                ThreadRecord thread = records[bestEnd];
+                String frame = frameTable.get(thread.getFrames()[0]).trim();
+                stuckThreads.add(new StuckThread(thread, frame, bestRun));
+            }
+        }
+        Collections.sort(stuckThreads, new Comparator<StuckThread>() {
+            public int compare(StuckThread t1, StuckThread t2) {
+                return t2.dumps - t1.dumps;
+            }
+        });
+    }
+    
+    private static boolean isBusy(ThreadRecord thread) {
+        if (thread == null || thread.getFrames().length == 0) return false;
+        String state = thread.getState();
+        return RUNNABLE.equals(state) || BLOCKED.equals(state);
+    }
+    
+    private void computeLockHotSpots() {
+        Map<String, LockHotSpot> locks = new HashMap<String, LockHotSpot>();
+        for (int i = 0; i < dumps.size(); i++) {
+            Map<String, String> owners = null;
+            for (ThreadRecord thread : dumps.get(i).getThreads()) {
+                String waitedLock = thread.getWaitedLock();
+                if (waitedLock == null || !BLOCKED.equals(thread.getState())) continue;
+                
+                // the address identifies the lock within a single dump only
+                String lock = getLockName(waitedLock);
+                String lockClass = getLockClass(lock);
+                int[] frames = thread.getFrames();
+                String site = frames.length == 0 ? "" : frameTable.get(frames[0]).trim(); // NOI18N
+                String key = lockClass + "\n" + site; // NOI18N
+                LockHotSpot hotSpot = locks.get(key);
+                if (hotSpot == null) {
+                    hotSpot = new LockHotSpot(lockClass, site);
+                    locks.put(key, hotSpot);
+                    lockHotSpots.add(hotSpot);
+                }
+                hotSpot.blockedThreads++;
+                if (hotSpot.lastDump != i) {
+                    hotSpot.lastDump = i;
+                    hotSpot.dumps++;
+                }
+                if (owners == null) owners = getLockOwners(dumps.get(i));
+                String owner = owners.get(lock);
+                if (owner != null) hotSpot.owners.add(owner);
+            }
+        }
+        Collections.sort(lockHotSpots, new Comparator<LockHotSpot>() {
+            public int compare(LockHotSpot l1, LockHotSpot l2) {
+                return l2.blockedThreads - l1.blockedThreads;
+            }
+        });
+    }
+    
+    // Maps the locks held in the dump to the names of their owners
+    private static Map<String, String> getLockOwners(ThreadDumpModel dump) {
+        Map<String, String> owners = new HashMap<String, String>();
+        for (ThreadRecord thread : dump.getThreads())
+            for (String heldLock : thread.getHeldLocks())
+                if (!owners.containsKey(heldLock)) owners.put(heldLock, thread.getName());
+        return owners;
+    }
+    
+    private void computeFrameCounts() {
+        int[] topCounts = new int[frameTable.size()];
+        int[] stackCounts = new int[frameTable.size()];
+        int[] lastCounted = new int[frameTable.size()];
+        int stackId = 0;
+        for (ThreadDumpModel dump : dumps) {
+            for (ThreadRecord thread : dump.getThreads()) {
+                int[] frames = thread.getFrames();
+                if (frames.length == 0) continue;
+                topCounts[frames[0]]++;
+                stackId++;
+                // recursive frames are counted once per stack
+                for (int frame : frames) {
+                    if (lastCounted[frame] != stackId) {
+                        lastCounted[frame] = stackId;
+                        stackCounts[frame]++;
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < stackCounts.length; i++)
+            if (stackCounts[i] > 0)
+                frameCounts.add(new FrameCount(frameTable.get(i).trim(), topCounts[i], stackCounts[i]));
+        Collections.sort(frameCounts, new Comparator<FrameCount>() {
+            public int compare(FrameCount f1, FrameCount f2) {
+                if (f1.topCount != f2.topCount) return f2.topCount - f1.topCount;
+                return f2.stackCount - f1.stackCount;
+            }
+        });
+    }
+    
+    
+    private static String getThreadKey(ThreadRecord thread) {
+        // jstack uses "name" #id, VisualVM uses "name" - Thread t@id
+        String header = thread.getHeader();
+        String id = getToken(header, " t@"); // NOI18N
+        if (id == null) id = getToken(header, "\" #"); // NOI18N
+        return id == null ? thread.getName() : thread.getName() + "@" + id; // NOI18N
+    }
+    
+    private static String getToken(String header, String prefix) {
+        int start = header.lastIndexOf(prefix);
+        if (start == -1) return null;
+        start += prefix.length();
+        int end = start;
+        while (end < header.length() && Character.isDigit(header.charAt(end))) end++;
+        return end == start ? null : header.substring(start, end);
+    }
+    
+    private static String getLockName(String waitedLock) {
+        int ownedBy = waitedLock.indexOf(OWNED_BY);
+        return ownedBy == -1 ? waitedLock : waitedLock.substring(0, ownedBy);
+    }
+    
+    // <0x00000007d5e0c1a8> (a java.lang.Object) -> java.lang.Object
+    private static String getLockClass(String lock) {
+        int start = lock.indexOf(LOCK_CLASS_PREFIX);
+        if (start != -1) {
+            start += LOCK_CLASS_PREFIX.length();
+            int end = lock.indexOf(')', start); // NOI18N
+            return end == -1 ? lock.substring(start) : lock.substring(start, end);
+        }
+        // java.lang.Object@1b2c3d4 -> java.lang.Object
+        int at = lock.lastIndexOf('@'); // NOI18N
+        return at == -1 ? lock : lock.substring(0, at);
+    }
+    
+    
+    static final class StuckThread {
+        
+        final String name;
+        final String state;
+        final String frame;
+        final int dumps;
+        
+        private StuckThread(ThreadRecord thread, String frame, int dumps) {
+            name = thread.getName();
+            state = thread.getState();
+            this.frame = frame;
+            this.dumps = dumps;
+        }
+        
+    }
+    
+    static final class LockHotSpot {
+        
+        final String lock;
+        final String site;
+        final Set<String> owners = new TreeSet<String>();
+        int blockedThreads;
+        int dumps;
+        private int lastDump = -1;
+        
+        private LockHotSpot(String lock, String site) {
+            this.lock = lock;
+            this.site = site;
+        }
+        
+    }
+    
+    static final class FrameCount {
+        
+        final String frame;
+        final int topCount;
+        final int stackCount;
+        
+        private FrameCount(String frame, int topCount, int stackCount) {
+            this.frame = frame;
+            this.topCount = topCount;
+            this.stackCount = stackCount;
+        }
+        
+    }
+    
+}
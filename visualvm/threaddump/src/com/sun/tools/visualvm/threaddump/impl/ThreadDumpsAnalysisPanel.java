@@ -0,0 +1,200 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.threaddump.impl;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.util.List;
+import javax.swing.BorderFactory;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTabbedPane;
+import javax.swing.JTable;
+import javax.swing.SwingConstants;
+import javax.swing.table.AbstractTableModel;
+import org.openide.util.NbBundle;
+
+/**
+ * Displays results of ThreadDumpsAnalysis.
+ */
+class ThreadDumpsAnalysisPanel extends JPanel {
+    
+    private final JLabel progressLabel;
+    
+    
+    ThreadDumpsAnalysisPanel() {
+        super(new BorderLayout());
+        progressLabel = new JLabel(NbBundle.getMessage(ThreadDumpsAnalysisPanel.class,
+                                   "MSG_Analyzing_Thread_Dumps"), SwingConstants.CENTER); // NOI18N
+        add(progressLabel, BorderLayout.CENTER);
+        setPreferredSize(new Dimension(800, 500));
+    }
+    
+    
+    void setFailed() {
+        progressLabel.setText(NbBundle.getMessage(ThreadDumpsAnalysisPanel.class,
+                              "MSG_Analyzing_Thread_Dumps_Failed")); // NOI18N
+    }
+    
+    void setAnalysis(ThreadDumpsAnalysis analysis) {
+        remove(progressLabel);
+        
+        JLabel summary = new JLabel(NbBundle.getMessage(ThreadDumpsAnalysisPanel.class,
+                "LBL_Analysis_Summary", new Object[] { analysis.getDumpsCount(), // NOI18N
+                analysis.getThreadsCount(), analysis.getFramesCount() }));
+        summary.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+        add(summary, BorderLayout.NORTH);
+        
+        JTabbedPane tabs = new JTabbedPane();
+        tabs.addTab(NbBundle.getMessage(ThreadDumpsAnalysisPanel.class, "LBL_Stuck_Threads"), // NOI18N
+                    createTable(new StuckThreadsModel(analysis.getStuckThreads(), analysis.getDumpsCount())));
+        tabs.addTab(NbBundle.getMessage(ThreadDumpsAnalysisPanel.class, "LBL_Lock_Contention"), // NOI18N
+                    createTable(new LockHotSpotsModel(analysis.getLockHotSpots())));
+        tabs.addTab(NbBundle.getMessage(ThreadDumpsAnalysisPanel.class, "LBL_Frames_Histogram"), // NOI18N
+                    createTable(new FramesModel(analysis.getFrameCounts())));
+        add(tabs, BorderLayout.CENTER);
+        
+        revalidate();
+        repaint();
+    }
+    
+    private static JScrollPane createTable(AbstractTableModel model) {
+        JTable table = new JTable(model);
+        table.getTableHeader().setReorderingAllowed(false);
+        return new JScrollPane(table);
+    }
+    
+    private static String columnName(String key) {
+        return NbBundle.getMessage(ThreadDumpsAnalysisPanel.class, key);
+    }
+    
+    
+    private static class StuckThreadsModel extends AbstractTableModel {
+        
+        private final List<ThreadDumpsAnalysis.StuckThread> threads;
+        private final int dumpsCount;
+        private final String[] columns = new String[] {
+            columnName("COL_Thread"), columnName("COL_State"), // NOI18N
+            columnName("COL_Dumps"), columnName("COL_Top_Frame") }; // NOI18N
+        
+        StuckThreadsModel(List<ThreadDumpsAnalysis.StuckThread> threads, int dumpsCount) {
+            this.threads = threads;
+            this.dumpsCount = dumpsCount;
+        }
+        
+        public int getRowCount() { return threads.size(); }
+        
+        public int getColumnCount() { return columns.length; }
+        
+        public String getColumnName(int column) { return columns[column]; }
+        
+        public Object getValueAt(int row, int column) {
+            ThreadDumpsAnalysis.StuckThread thread = threads.get(row);
+            switch (column) {
+                case 0: return thread.name;
+                case 1: return thread.state;
+                case 2: return thread.dumps + " / " + dumpsCount; // NOI18N
+                default: return thread.frame;
+            }
+        }
+        
+    }
+    
+    private static class LockHotSpotsModel extends AbstractTableModel {
+        
+        private final List<ThreadDumpsAnalysis.LockHotSpot> locks;
+        private final String[] columns = new String[] {
+            columnName("COL_Lock"), columnName("COL_Blocked_At"), // NOI18N
+            columnName("COL_Blocked_Threads"), columnName("COL_Dumps"), // NOI18N
+            columnName("COL_Owners") }; // NOI18N
+        
+        LockHotSpotsModel(List<ThreadDumpsAnalysis.LockHotSpot> locks) {
+            this.locks = locks;
+        }
+        
+        public int getRowCount() { return locks.size(); }
+        
+        public int getColumnCount() { return columns.length; }
+        
+        public String getColumnName(int column) { return columns[column]; }
+        
+        public Class<?> getColumnClass(int column) {
+            return column == 2 || column == 3 ? Integer.class : String.class;
+        }
+        
+        public Object getValueAt(int row, int column) {
+            ThreadDumpsAnalysis.LockHotSpot lock = locks.get(row);
+            switch (column) {
+                case 0: return lock.lock;
+                case 1: return lock.site;
+                case 2: return lock.blockedThreads;
+                case 3: return lock.dumps;
+                default:
+                    StringBuilder sb = new StringBuilder();
+                    for (String owner : lock.owners) {
+                        if (sb.length() > 0) sb.append(", "); // NOI18N
+                        sb.append(owner);
+                    }
+                    return sb.toString();
+            }
+        }
+        
+    }
+    
+    private static class FramesModel extends AbstractTableModel {
+        
+        private final List<ThreadDumpsAnalysis.FrameCount> frames;
+        private final String[] columns = new String[] {
+            columnName("COL_Frame"), columnName("COL_Top_Count"), // NOI18N
+            columnName("COL_Stack_Count") }; // NOI18N
+        
+        FramesModel(List<ThreadDumpsAnalysis.FrameCount> frames) {
+            this.frames = frames;
+        }
+        
+        public int getRowCount() { return frames.size(); }
+        
+        public int getColumnCount() { return columns.length; }
+        
+        public String getColumnName(int column) { return columns[column]; }
+        
+        public Class<?> getColumnClass(int column) {
+            return column == 0 ? String.class : Integer.class;
+        }
+        
+        public Object getValueAt(int row, int column) {
+            ThreadDumpsAnalysis.FrameCount frame = frames.get(row);
+            switch (column) {
+                case 0: return frame.frame;
+                case 1: return frame.topCount;
+                default: return frame.stackCount;
+            }
+        }
+        
+    }
+    
+}
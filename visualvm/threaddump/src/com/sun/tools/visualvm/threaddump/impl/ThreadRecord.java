@@ -0,0 +1,107 @@
+/*
+ *  Copyright (c) 2007, 2011, Oracle and/or its affiliates. All rights reserved.
+ *  DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *  This code is free software; you can redistribute it and/or modify it
+ *  under the terms of the GNU General Public License version 2 only, as
+ *  published by the Free Software Foundation.  Oracle designates this
+ *  particular file as subject to the "Classpath" exception as provided
+ *  by Oracle in the LICENSE file that accompanied this code.
+ *
+ *  This code is distributed in the hope that it will be useful, but WITHOUT
+ *  ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ *  FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ *  version 2 for more details (a copy is included in the LICENSE file that
+ *  accompanied this code).
+ *
+ *  You should have received a copy of the GNU General Public License version
+ *  2 along with this work; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *  Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ *  or visit www.oracle.com if you need additional information or have any
+ *  questions.
+ */
+
+package com.sun.tools.visualvm.threaddump.impl;
+
+/**
+ * Single thread of a parsed thread dump. Stack lines are stored as ids
+ * of the shared FrameTable.
+ */
+final class ThreadRecord {
+    
+    private final String header;
+    private final String name;
+    private final String state;
+    private final String waitedLock;
+    private final String[] heldLocks;
+    private final int[] lines;
+    private final int[] frames;
+    private final FrameTable frameTable;
+    
+    
+    ThreadRecord(String header, String name, String state, String waitedLock,
+                 String[] heldLocks, int[] lines, int[] frames, FrameTable frameTable) {
+        this.header = header;
+        this.name = name;
+        this.state = state;
+        this.waitedLock = waitedLock;
+        this.heldLocks = heldLocks;
+        this.lines = lines;
+        this.frames = frames;
+        this.frameTable = frameTable;
+    }
+    
+    
+    String getHeader() {
+        return header;
+    }
+    
+    String getName() {
+        return name;
+    }
+    
+    // Thread.State name or null if not available
+    String getState() {
+        return state;
+    }
+    
+    // Lock the thread is waiting for or null
+    String getWaitedLock() {
+        return waitedLock;
+    }
+    
+    String[] getHeldLocks() {
+        return heldLocks;
+    }
+    
+    // All lines of the thread except the header
+    int getLinesCount() {
+        return lines.length;
+    }
+    
+    String getLine(int index) {
+        return frameTable.get(lines[index]);
+    }
+    
+    // Frame ids identifying the stack, not to be modified
+    int[] getFrames() {
+        return frames;
+    }
+    
+    boolean involvesLock(String text) {
+        if (waitedLock != null && waitedLock.contains(text)) return true;
+        for (String lock : heldLocks)
+            if (lock.contains(text)) return true;
+        return false;
+    }
+    
+    public String toString() {
+        StringBuilder sb = new StringBuilder(header);
+        for (int i = 0; i < lines.length; i++)
+            sb.append('\n').append(getLine(i)); // NOI18N
+        return sb.toString();
+    }
+    
+}
@@ -28,11 +28,13 @@ package com.sun.tools.visualvm.tools.jmx;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.lang.ref.WeakReference;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -42,7 +44,12 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 import javax.management.Attribute;
 import javax.management.AttributeList;
 import javax.management.AttributeNotFoundException;
@@ -148,6 +155,24 @@ public final class CachedMBeanServerConnectionFactory {
         return getCachedMBeanServerConnection(jmx.getMBeanServerConnection(), interval);
     }
 
+    /**
+     * <p>Factory method for creating a new {@link CachedMBeanServerConnection}
+     * for the given {@link JmxModel}. Unlike the shared instances returned by
+     * {@link #getCachedMBeanServerConnection(JmxModel)} the created connection
+     * is private to the caller, flushing it doesn't invalidate the cache of
+     * other users. No automatic flush is performed.</p>
+     *
+     * @param jmx a JmxModel.
+     *
+     * @return a new {@link CachedMBeanServerConnection} instance which caches
+     * the attribute values of the supplied {@link JmxModel}.
+     *
+     * @since VisualVM 1.4
+     */
+    public static CachedMBeanServerConnection createCachedMBeanServerConnection(JmxModel jmx) {
+        return Snapshot.newSnapshot(jmx.getMBeanServerConnection(), 0);
+    }
+
     private static synchronized CachedMBeanServerConnection
             retrieveCachedMBeanServerConnection(MBeanServerConnection mbsc, int interval) {
         Map<MBeanServerConnection, WeakReference<CachedMBeanServerConnection>> mbscMap = snapshots.get(interval);
@@ -185,11 +210,18 @@ public final class CachedMBeanServerConnectionFactory {
 
     static class SnapshotInvocationHandler implements InvocationHandler {
 
+        // Prefetches the working set of all cached connections after flush
+        private static final RequestProcessor PREFETCH_PROCESSOR =
+                new RequestProcessor("MBean Cache Prefetch", 8); // NOI18N
+
         private final MBeanServerConnection conn;
         private final int interval;
         private Timer timer = null;
-        private Map<ObjectName, NameValueMap> cachedValues = newMap();
-        private Map<ObjectName, Set<String>> cachedNames = newMap();
+        // Values of the current interval, including the prefetched ones
+        private volatile ConcurrentMap<ObjectName, FutureTask<NameValueMap>> cachedValues = newMap();
+        // MBeans read in the current interval, prefetched after the next flush
+        private volatile ConcurrentMap<ObjectName, Boolean> usedMBeans = newMap();
+        private final ConcurrentMap<ObjectName, Set<String>> cachedNames = newMap();
         private List<MBeanCacheListener> listenerList = new CopyOnWriteArrayList<MBeanCacheListener>();
         private volatile boolean flushRunning;
 
@@ -217,7 +249,8 @@ public final class CachedMBeanServerConnectionFactory {
             flushRunning = true;
             RequestProcessor.getDefault().post(new Runnable() {
                 public void run() {
-                    flush();
+                    // let the listeners find the values already fetched
+                    waitFor(flush());
                     connectionPinger();
                     notifyListeners();
                     flushRunning = false;
@@ -238,6 +271,7 @@ public final class CachedMBeanServerConnectionFactory {
                 timer.stop();
                 listenerList.clear();
                 cachedValues.clear();
+                usedMBeans.clear();
                 cachedNames.clear();
                 Collection<Map<MBeanServerConnection, WeakReference<CachedMBeanServerConnection>>> values = snapshots.values();
                 for (Map<MBeanServerConnection, WeakReference<CachedMBeanServerConnection>> value : values) {
@@ -246,8 +280,66 @@ public final class CachedMBeanServerConnectionFactory {
             }
         }
 
-        synchronized void flush() {
-            cachedValues = newMap();
+        /**
+         * Starts a new interval. The MBeans read in the previous interval are
+         * refetched in parallel, readers of an MBean being fetched wait for
+         * the running request instead of issuing another one. MBeans which
+         * were only prefetched but not read drop out of the working set.
+         */
+        List<FutureTask<NameValueMap>> flush() {
+            ConcurrentMap<ObjectName, Boolean> oldUsed = usedMBeans;
+            ConcurrentMap<ObjectName, FutureTask<NameValueMap>> newValues = newMap();
+            usedMBeans = newMap();
+            cachedValues = newValues;
+
+            List<FutureTask<NameValueMap>> prefetches = new ArrayList<FutureTask<NameValueMap>>();
+            for (ObjectName objName : oldUsed.keySet()) {
+                Set<String> attrNames = cachedNames.get(objName);
+                if (attrNames == null) continue;
+                FutureTask<NameValueMap> fetch = createFetch(objName, attrNames);
+                if (newValues.putIfAbsent(objName, fetch) == null) {
+                    PREFETCH_PROCESSOR.post(createPrefetch(newValues, objName, fetch));
+                    prefetches.add(fetch);
+                }
+            }
+            return prefetches;
+        }
+
+        private Runnable createPrefetch(final ConcurrentMap<ObjectName, FutureTask<NameValueMap>> values,
+                                        final ObjectName objName, final FutureTask<NameValueMap> fetch) {
+            return new Runnable() {
+                public void run() {
+                    fetch.run();
+                    try {
+                        fetch.get();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (ExecutionException e) {
+                        // don't keep failed prefetches, the next reader tries again
+                        dropFetch(values, objName, fetch, e.getCause());
+                    }
+                }
+            };
+        }
+
+        private void dropFetch(ConcurrentMap<ObjectName, FutureTask<NameValueMap>> values,
+                               ObjectName objName, FutureTask<NameValueMap> fetch, Throwable cause) {
+            values.remove(objName, fetch);
+            // forget unregistered MBeans, they are fetched again only when read
+            if (cause instanceof InstanceNotFoundException) cachedNames.remove(objName);
+        }
+
+        private static void waitFor(List<FutureTask<NameValueMap>> fetches) {
+            for (FutureTask<NameValueMap> fetch : fetches) {
+                try {
+                    fetch.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ExecutionException e) {
+                    // will be reported to the reader of the MBean
+                }
+            }
         }
 
         int getInterval() {
@@ -320,33 +412,84 @@ public final class CachedMBeanServerConnectionFactory {
             return list;
         }
 
-        private synchronized NameValueMap getCachedAttributes(
+        private NameValueMap getCachedAttributes(
                 ObjectName objName, Set<String> attrNames) throws
                 InstanceNotFoundException, ReflectionException, IOException {
-            NameValueMap values = cachedValues.get(objName);
-            if (values != null && values.keySet().containsAll(attrNames)) {
-                return values;
+            ConcurrentMap<ObjectName, FutureTask<NameValueMap>> values = cachedValues;
+            usedMBeans.put(objName, Boolean.TRUE);
+            while (true) {
+                FutureTask<NameValueMap> fetch = values.get(objName);
+                if (fetch != null) {
+                    NameValueMap cached = getValues(values, objName, fetch);
+                    if (cached.keySet().containsAll(attrNames)) {
+                        return cached;
+                    }
+                }
+                FutureTask<NameValueMap> newFetch = createFetch(objName, learnNames(objName, attrNames));
+                boolean installed = fetch == null ?
+                        values.putIfAbsent(objName, newFetch) == null :
+                        values.replace(objName, fetch, newFetch);
+                if (installed) {
+                    newFetch.run();
+                    return getValues(values, objName, newFetch);
+                }
+                // another reader has just started fetching the MBean, reuse its result
             }
-            attrNames = new TreeSet<String>(attrNames);
-            Set<String> oldNames = cachedNames.get(objName);
-            if (oldNames != null) {
-                attrNames.addAll(oldNames);
+        }
+
+        private Set<String> learnNames(ObjectName objName, Set<String> attrNames) {
+            synchronized (cachedNames) {
+                Set<String> names = new TreeSet<String>(attrNames);
+                Set<String> oldNames = cachedNames.get(objName);
+                if (oldNames != null) {
+                    names.addAll(oldNames);
+                }
+                names = Collections.unmodifiableSet(names);
+                cachedNames.put(objName, names);
+                return names;
             }
-            values = new NameValueMap();
-            final AttributeList attrs = conn.getAttributes(
-                    objName,
-                    attrNames.toArray(new String[attrNames.size()]));
-            for (Attribute attr : attrs.asList()) {
-                values.put(attr.getName(), attr.getValue());
+        }
+
+        private FutureTask<NameValueMap> createFetch(final ObjectName objName, final Set<String> attrNames) {
+            return new FutureTask<NameValueMap>(new Callable<NameValueMap>() {
+                public NameValueMap call() throws Exception {
+                    NameValueMap values = new NameValueMap();
+                    final AttributeList attrs = conn.getAttributes(
+                            objName,
+                            attrNames.toArray(new String[attrNames.size()]));
+                    for (Attribute attr : attrs.asList()) {
+                        values.put(attr.getName(), attr.getValue());
+                    }
+                    return values;
+                }
+            });
+        }
+
+        private NameValueMap getValues(
+                ConcurrentMap<ObjectName, FutureTask<NameValueMap>> values,
+                ObjectName objName, FutureTask<NameValueMap> fetch) throws
+                InstanceNotFoundException, ReflectionException, IOException {
+            try {
+                return fetch.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            } catch (ExecutionException e) {
+                // don't cache failures, next reader tries again
+                Throwable cause = e.getCause();
+                dropFetch(values, objName, fetch, cause);
+                if (cause instanceof InstanceNotFoundException) throw (InstanceNotFoundException)cause;
+                if (cause instanceof ReflectionException) throw (ReflectionException)cause;
+                if (cause instanceof IOException) throw (IOException)cause;
+                if (cause instanceof RuntimeException) throw (RuntimeException)cause;
+                if (cause instanceof Error) throw (Error)cause;
+                throw new IOException(cause.toString());
             }
-            cachedValues.put(objName, values);
-            cachedNames.put(objName, attrNames);
-            return values;
         }
 
         // See http://www.artima.com/weblogs/viewpost.jsp?thread=79394
-        private static <K, V> Map<K, V> newMap() {
-            return new HashMap<K, V>();
+        private static <K, V> ConcurrentMap<K, V> newMap() {
+            return new ConcurrentHashMap<K, V>();
         }
     }
 }